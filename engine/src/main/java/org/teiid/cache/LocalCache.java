@@ -0,0 +1,247 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.cache;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded in-process {@link Cache} with LRU eviction and time to live expiration.
+ * <br>
+ * Entries are split among independently locked segments, each holding its share of the 
+ * maximum entries.  Expired entries are removed lazily as they are encountered.
+ */
+public class LocalCache<K, V> implements Cache<K, V> {
+	
+	private static final int MAX_SEGMENTS = 16;
+	private static final int MIN_SEGMENT_SIZE = 16;
+	
+	private static class Entry<V> {
+		V value;
+		long expiration;
+		
+		Entry(V value, long expiration) {
+			this.value = value;
+			this.expiration = expiration;
+		}
+		
+		boolean isExpired(long now) {
+			return expiration > 0 && now >= expiration;
+		}
+	}
+	
+	private class Segment extends LinkedHashMap<K, Entry<V>> {
+		private static final long serialVersionUID = -4217408853524186087L;
+		private int maxEntries;
+		
+		Segment(int maxEntries) {
+			super(16, .75f, true);
+			this.maxEntries = maxEntries;
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+			if (size() <= maxEntries) {
+				return false;
+			}
+			if (eldest.getValue().isExpired(System.currentTimeMillis())) {
+				expirations.incrementAndGet();
+			} else {
+				evictions.incrementAndGet();
+			}
+			return true;
+		}
+		
+		void removeExpired(long now) {
+			for (Iterator<Entry<V>> iter = values().iterator(); iter.hasNext();) {
+				if (iter.next().isExpired(now)) {
+					iter.remove();
+					expirations.incrementAndGet();
+				}
+			}
+		}
+	}
+	
+	private final String name;
+	private final long defaultTtl;
+	private final Segment[] segments;
+	
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+	private AtomicLong puts = new AtomicLong();
+	private AtomicLong evictions = new AtomicLong();
+	private AtomicLong expirations = new AtomicLong();
+	
+	/**
+	 * @param name
+	 * @param maxEntries the maximum number of entries or -1 if unbounded
+	 * @param defaultTtl the time to live in milliseconds for entries put without one or -1 if entries do not expire
+	 */
+	@SuppressWarnings("unchecked")
+	public LocalCache(String name, int maxEntries, long defaultTtl) {
+		this.name = name;
+		this.defaultTtl = defaultTtl;
+		if (maxEntries < 0) {
+			maxEntries = Integer.MAX_VALUE;
+		}
+		int segmentCount = Math.max(1, Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maxEntries / MIN_SEGMENT_SIZE))));
+		this.segments = new LocalCache.Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			//distribute the remainder so that the total is exactly maxEntries
+			int segmentSize = maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0);
+			this.segments[i] = new Segment(segmentSize);
+		}
+	}
+	
+	private Segment getSegment(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & (segments.length - 1)];
+	}
+	
+	@Override
+	public V get(K key) {
+		Segment segment = getSegment(key);
+		synchronized (segment) {
+			Entry<V> entry = segment.get(key);
+			if (entry != null) {
+				if (!entry.isExpired(System.currentTimeMillis())) {
+					hits.incrementAndGet();
+					return entry.value;
+				}
+				segment.remove(key);
+				expirations.incrementAndGet();
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+	
+	@Override
+	public V put(K key, V value, Long ttl) {
+		long timeToLive = ttl != null ? ttl : defaultTtl;
+		long expiration = timeToLive >= 0 ? System.currentTimeMillis() + timeToLive : 0;
+		puts.incrementAndGet();
+		Segment segment = getSegment(key);
+		synchronized (segment) {
+			Entry<V> old = segment.put(key, new Entry<V>(value, expiration));
+			if (old != null && !old.isExpired(System.currentTimeMillis())) {
+				return old.value;
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public V remove(K key) {
+		Segment segment = getSegment(key);
+		synchronized (segment) {
+			Entry<V> old = segment.remove(key);
+			if (old != null) {
+				return old.value;
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public int size() {
+		long now = System.currentTimeMillis();
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.removeExpired(now);
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+	
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+	
+	@Override
+	public String getName() {
+		return this.name;
+	}
+	
+	/**
+	 * @return a copy of the unexpired keys
+	 */
+	@Override
+	public Set<K> keySet() {
+		long now = System.currentTimeMillis();
+		Set<K> result = new HashSet<K>();
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.removeExpired(now);
+				result.addAll(segment.keySet());
+			}
+		}
+		return result;
+	}
+	
+	@Override
+	public boolean isTransactional() {
+		return false;
+	}
+	
+	public long getHitCount() {
+		return hits.get();
+	}
+	
+	public long getMissCount() {
+		return misses.get();
+	}
+	
+	public long getPutCount() {
+		return puts.get();
+	}
+	
+	/**
+	 * @return the number of entries removed to stay within the maximum entries
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+	
+	public long getExpirationCount() {
+		return expirations.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "LocalCache " + name + " size=" + size() + " hits=" + hits + " misses=" + misses + " evictions=" + evictions + " expirations=" + expirations; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+	}
+
+}
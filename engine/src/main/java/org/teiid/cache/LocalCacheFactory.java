@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.teiid.cache.CacheConfiguration.Policy;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.dqp.internal.process.SessionAwareCache;
+import org.teiid.query.QueryPlugin;
+
+/**
+ * A {@link CacheFactory} of in-process {@link LocalCache}s for single node deployments.
+ * <br>
+ * Each named region is created on first use from its registered {@link CacheConfiguration} 
+ * or from the default configuration.  Since nothing is replicated, replicated regions are 
+ * not created so that callers fall back to the local region.
+ */
+public class LocalCacheFactory implements CacheFactory {
+	
+	private static final CacheConfiguration DEFAULT = new CacheConfiguration(Policy.LRU, -1, SessionAwareCache.DEFAULT_MAX_SIZE_TOTAL, "default"); //$NON-NLS-1$
+	
+	private volatile boolean destroyed = false;
+	private CacheConfiguration defaultConfig;
+	private Map<String, CacheConfiguration> configs = new ConcurrentHashMap<String, CacheConfiguration>();
+	private Map<String, LocalCache<?, ?>> caches = new ConcurrentHashMap<String, LocalCache<?, ?>>();
+	
+	public LocalCacheFactory() {
+		this(DEFAULT);
+	}
+	
+	public LocalCacheFactory(CacheConfiguration defaultConfig) {
+		this.defaultConfig = defaultConfig;
+	}
+	
+	/**
+	 * Register the configuration for the region with the configuration name.
+	 * Must be called prior to the region being used. 
+	 */
+	public void addCacheConfiguration(CacheConfiguration config) {
+		this.configs.put(config.getName(), config);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <K, V> Cache<K, V> get(String name) {
+		if (destroyed) {
+			throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30562, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30562));
+		}
+		if (name.endsWith(SessionAwareCache.REPL)) {
+			return null;
+		}
+		synchronized (caches) {
+			LocalCache<?, ?> cache = caches.get(name);
+			if (cache == null) {
+				CacheConfiguration config = configs.get(name);
+				if (config == null) {
+					config = defaultConfig;
+				}
+				long ttl = -1;
+				if (config.getMaxAgeInSeconds() >= 0) {
+					ttl = config.getMaxAgeInSeconds() * 1000l;
+				}
+				cache = new LocalCache<K, V>(name, config.getMaxEntries(), ttl);
+				caches.put(name, cache);
+			}
+			return (Cache<K, V>)cache;
+		}
+	}
+	
+	/**
+	 * @return the region with the given name or null if it has not been created
+	 */
+	public LocalCache<?, ?> getCache(String name) {
+		return caches.get(name);
+	}
+	
+	/**
+	 * @return the created regions, which provide the per region statistics
+	 */
+	public Collection<LocalCache<?, ?>> getCaches() {
+		return new ArrayList<LocalCache<?, ?>>(caches.values());
+	}
+	
+	@Override
+	public void destroy() {
+		this.destroyed = true;
+		for (LocalCache<?, ?> cache : caches.values()) {
+			cache.clear();
+		}
+		caches.clear();
+	}
+
+}
@@ -36,6 +36,12 @@ public interface BatchManager {
 	
 	void remove(Long batch);
 	
+	/**
+	 * Hint that the batch will be read soon.  The batch may be 
+	 * asynchronously loaded into memory.
+	 */
+	void prefetch(Long batch);
+	
 	void setPrefersMemory(boolean prefers);
 	
 	boolean prefersMemory();
@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.common.buffer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Tracks the buffer memory reserved by session, user, and vdb and determines 
+ * how much more may be reserved under the configured quotas.
+ * <br/>
+ * Accounts are registered once per {@link CommandContext} and are shared by all of the 
+ * concurrent requests with the same session, user, or vdb.  An account is dropped once 
+ * no context references it.
+ */
+public class MemoryQuotas {
+	
+	public enum Scope {
+		SESSION,
+		USER,
+		VDB
+	}
+	
+	public static final class Account {
+		private final Scope scope;
+		private final String key;
+		private final AtomicLong reserved = new AtomicLong();
+		private int references;
+		
+		private Account(Scope scope, String key) {
+			this.scope = scope;
+			this.key = key;
+		}
+		
+		public long addAndGet(long count) {
+			return reserved.addAndGet(count);
+		}
+		
+		public long getReserved() {
+			return reserved.get();
+		}
+	}
+	
+	private long[] quotas = new long[] {-1, -1, -1};
+	@SuppressWarnings("unchecked")
+	private Map<String, Account>[] accounts = new Map[] {new HashMap<String, Account>(), new HashMap<String, Account>(), new HashMap<String, Account>()};
+	
+	/**
+	 * Set the quota in bytes for the scope, or -1 for no limit
+	 */
+	public void setQuota(Scope scope, long bytes) {
+		this.quotas[scope.ordinal()] = bytes;
+	}
+	
+	public long getQuota(Scope scope) {
+		return this.quotas[scope.ordinal()];
+	}
+	
+	public boolean isEnabled() {
+		for (long quota : quotas) {
+			if (quota >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Register the accounts for the context.  Each registration must be matched by a call to 
+	 * {@link #unregister(Account[])}
+	 */
+	public synchronized Account[] register(CommandContext context) {
+		return new Account[] {
+				getAccount(Scope.SESSION, context.getConnectionId()), 
+				getAccount(Scope.USER, context.getUserName()), 
+				getAccount(Scope.VDB, context.getVdbName() + "." + context.getVdbVersion())}; //$NON-NLS-1$
+	}
+
+	private Account getAccount(Scope scope, String key) {
+		if (key == null) {
+			key = ""; //$NON-NLS-1$
+		}
+		Map<String, Account> map = accounts[scope.ordinal()];
+		Account account = map.get(key);
+		if (account == null) {
+			account = new Account(scope, key);
+			map.put(key, account);
+		}
+		account.references++;
+		return account;
+	}
+	
+	public synchronized void unregister(Account[] contextAccounts) {
+		for (Account account : contextAccounts) {
+			if (--account.references == 0) {
+				accounts[account.scope.ordinal()].remove(account.key);
+			}
+		}
+	}
+	
+	/**
+	 * Get the number of bytes that may still be reserved against the accounts 
+	 * @return the available bytes, which will be Long.MAX_VALUE if there are no quotas
+	 */
+	public long getAvailable(Account[] contextAccounts) {
+		long result = Long.MAX_VALUE;
+		for (Account account : contextAccounts) {
+			long quota = quotas[account.scope.ordinal()];
+			if (quota >= 0) {
+				result = Math.min(result, Math.max(0, quota - account.getReserved()));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Get a snapshot of the bytes reserved for each key of the scope
+	 */
+	public synchronized Map<String, Long> getReserved(Scope scope) {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (Account account : accounts[scope.ordinal()].values()) {
+			result.put(account.key, account.getReserved());
+		}
+		return result;
+	}
+
+}
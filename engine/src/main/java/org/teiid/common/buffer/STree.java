@@ -40,6 +40,8 @@ import org.teiid.common.buffer.LobManager.ReferenceMode;
 import org.teiid.common.buffer.SPage.SearchResult;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidRuntimeException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.processor.relational.ListNestedSortComparator;
 
@@ -155,6 +157,7 @@ public class STree implements Cloneable {
 			if (page.next == null) {
 				break;
 			}
+			page = page.next;
 		}
 	}
 	
@@ -176,15 +179,136 @@ public class STree implements Cloneable {
 	
 	public void readValuesFrom(ObjectInputStream ois) throws IOException, ClassNotFoundException, TeiidComponentException {
 		int size = ois.readInt();
-		int sizeHint = this.getExpectedHeight(size);
-		batchInsert = true;
-		while (this.getRowCount() < size) {
+		BulkLoader loader = createBulkLoader();
+		int read = 0;
+		while (read < size) {
 			List<List<Object>> batch = BatchSerializer.readBatch(ois, leafManager.getTypes());
 			for (List list : batch) {
-				this.insert(list, InsertMode.ORDERED, sizeHint);
+				loader.add(list);
 			}
+			read += batch.size();
 		}
-		batchInsert = false;
+		loader.finish();
+	}
+	
+	/**
+	 * Builds an empty tree bottom up from tuples added in key order.
+	 * <br/>
+	 * Each level is filled one page at a time, so all but the last page of each level 
+	 * will be full and no level assignments or page splits are needed.  The tree 
+	 * should not be used until {@link #finish()} is called.
+	 * <br/>
+	 * If a tuple is added out of key order, or with a duplicate key, the tree built 
+	 * so far is finished and the remaining tuples are added with {@link InsertMode#NEW} 
+	 * inserts.
+	 */
+	public class BulkLoader {
+		
+		private List<SPage> open = new ArrayList<SPage>();
+		private List<SPage> first = new ArrayList<SPage>();
+		private List lastKey;
+		private int count;
+		private boolean unordered;
+		
+		private BulkLoader() {
+			if (rowCount.get() != 0) {
+				throw new IllegalStateException("tree is not empty"); //$NON-NLS-1$
+			}
+		}
+		
+		/**
+		 * Add the tuple, which should have a key greater than the previous tuple 
+		 */
+		public void add(List tuple) throws TeiidComponentException {
+			if (unordered) {
+				insert(tuple, InsertMode.NEW, -1);
+				return;
+			}
+			List key = extractKey(tuple);
+			if (lastKey != null && comparator.compare(lastKey, key) >= 0) {
+				LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Bulk load of out of order key", key, "- using inserts instead"); //$NON-NLS-1$ //$NON-NLS-2$
+				finish();
+				unordered = true;
+				insert(tuple, InsertMode.NEW, -1);
+				return;
+			}
+			if (lobManager != null) {
+				lobManager.updateReferences(tuple, ReferenceMode.CREATE);
+			}
+			lastKey = key;
+			add(0, key, tuple);
+			count++;
+		}
+		
+		private void add(int level, List key, Object value) throws TeiidComponentException {
+			SPage page = null;
+			if (level < open.size()) {
+				page = open.get(level);
+			}
+			boolean leaf = level == 0;
+			if (page != null && page.values.size() == getPageSize(leaf)) {
+				close(level, page);
+				page = null;
+			}
+			if (page == null) {
+				page = new SPage(STree.this, leaf);
+				if (level == open.size()) {
+					open.add(page);
+					first.add(page);
+				} else {
+					SPage prev = open.get(level);
+					prev.next = page;
+					page.prev = prev;
+					open.set(level, page);
+				}
+			}
+			setValue(page.values.size(), key, value, page.values, page);
+		}
+
+		/**
+		 * Store the page values and add the page to the next level.  The first page 
+		 * of a level is only added once there is a second page.
+		 */
+		private void close(int level, SPage page) throws TeiidComponentException {
+			List<List<?>> values = page.values;
+			SPage head = first.get(level);
+			if (page != head) {
+				if (head.prev == null && head.next == page) {
+					//first time we have a second page
+					add(level + 1, extractKey(head.getValues().get(0)), head);
+				}
+				add(level + 1, extractKey(values.get(0)), page);
+			}
+			page.setValues(values);
+		}
+		
+		public void finish() throws TeiidComponentException {
+			if (unordered) {
+				return;
+			}
+			for (int level = 0; level < open.size(); level++) {
+				SPage page = open.get(level);
+				if (page.values.isEmpty()) {
+					continue;
+				}
+				close(level, page);
+			}
+			if (open.isEmpty()) {
+				return;
+			}
+			header[0].remove(true);
+			pages.remove(header[0].getId());
+			header = first.toArray(new SPage[first.size()]);
+			rowCount.set(count);
+		}
+		
+	}
+	
+	/**
+	 * Create a {@link BulkLoader} for this tree, which must be empty
+	 */
+	public BulkLoader createBulkLoader() {
+		return new BulkLoader();
 	}
 	
 	protected SPage findChildTail(SPage page) {
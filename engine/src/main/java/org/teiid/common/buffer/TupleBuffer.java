@@ -72,7 +72,11 @@ public class TupleBuffer {
 
 		@Override
 		protected TupleBatch getBatch(int row) throws TeiidComponentException {
-			return TupleBuffer.this.getBatch(row);
+			TupleBatch result = TupleBuffer.this.getBatch(row);
+			if (!reverse) {
+				readAhead(result.getEndRow());
+			}
+			return result;
 		}
 
 		@Override
@@ -131,6 +135,7 @@ public class TupleBuffer {
 	private List<List<?>> batchBuffer;
 	private boolean removed;
 	private boolean forwardOnly;
+	private int readAheadBatches;
 
 	private LobManager lobManager;
 	private String uuid;
@@ -301,6 +306,22 @@ public class TupleBuffer {
 		return result;
 	}
 	
+	/**
+	 * Hint the manager to load the batches following the given row
+	 */
+	private void readAhead(int row) {
+		if (readAheadBatches <= 0) {
+			return;
+		}
+		int count = 0;
+		for (Long batch : batches.tailMap(row, false).values()) {
+			if (count++ == readAheadBatches) {
+				break;
+			}
+			manager.prefetch(batch);
+		}
+	}
+	
 	public void remove() {
 		if (!removed) {
 			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
@@ -394,6 +415,13 @@ public class TupleBuffer {
 		return forwardOnly;
 	}
 	
+	/**
+	 * Set the number of batches to read ahead when iterating forward
+	 */
+	public void setReadAheadBatches(int readAheadBatches) {
+		this.readAheadBatches = readAheadBatches;
+	}
+	
 	public void setPrefersMemory(boolean prefersMemory) {
 		this.manager.setPrefersMemory(prefersMemory);
 	}
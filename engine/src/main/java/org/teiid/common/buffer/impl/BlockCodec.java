@@ -0,0 +1,49 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.IOException;
+
+/**
+ * A codec for compressing serialized blocks of storage.
+ */
+public interface BlockCodec {
+
+	/**
+	 * @return the size of the destination buffer that is sufficient to hold the compressed form of the given length
+	 */
+	int maxCompressedLength(int length);
+
+	/**
+	 * Compress the source bytes into the destination
+	 * @return the compressed length
+	 */
+	int compress(byte[] src, int length, byte[] dest);
+
+	/**
+	 * Decompress the source bytes into the destination
+	 * @throws IOException if the source is not valid
+	 */
+	void decompress(byte[] src, int length, byte[] dest, int uncompressedLength) throws IOException;
+
+}
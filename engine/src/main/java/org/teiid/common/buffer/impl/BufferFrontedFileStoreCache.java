@@ -29,6 +29,7 @@ import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -39,6 +40,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -498,6 +500,18 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	private AtomicLong storageWrites = new AtomicLong();
 	private AtomicLong storageReads = new AtomicLong();
 	
+	private BlockCodec blockCodec;
+	private ThreadLocal<CodecBuffers> codecBuffers = new ThreadLocal<CodecBuffers>() {
+		@Override
+		protected CodecBuffers initialValue() {
+			return new CodecBuffers();
+		}
+	};
+	AtomicLong uncompressedBytes = new AtomicLong();
+	AtomicLong compressedBytes = new AtomicLong();
+	AtomicLong compressionTime = new AtomicLong();
+	AtomicLong decompressionTime = new AtomicLong();
+	
 	private long minDefrag = DEFAULT_MIN_DEFRAG;
 	private BufferManagerImpl bufferManager;
 	
@@ -559,6 +573,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		PhysicalInfo info = null;
 		boolean success = false;
 		int memoryBlocks = this.maxMemoryBlocks;
+		CompressedBlockOutputStream cos = null;
 		try {
 			Map<Long, PhysicalInfo> map = physicalMapping.get(s.getId());
 			if (map == null) {
@@ -598,7 +613,12 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			hasPermit = true;
 			blockManager = getBlockManager(s.getId(), entry.getId(), EMPTY_ADDRESS);
 			BlockOutputStream bos = new BlockOutputStream(blockManager, memoryBlocks);
-			ObjectOutput dos = new ObjectOutputStream(bos);
+			OutputStream os = bos;
+			if (blockCodec != null) {
+				cos = new CompressedBlockOutputStream(bos, this);
+				os = cos;
+			}
+			ObjectOutput dos = new ObjectOutputStream(os);
 			dos.writeLong(s.getId());
 			dos.writeLong(entry.getId());
 			dos.writeInt(entry.getSizeEstimate());
@@ -626,6 +646,9 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 				LogManager.logError(LogConstants.CTX_BUFFER_MGR, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30002,s.getId(), entry.getId()));
 			}
 		} finally {
+			if (cos != null) {
+				cos.release();
+			}
 			if (hasPermit) {
 				memoryWritePermits.release(memoryBlocks);
 			}
@@ -694,6 +717,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		Lock lock = null;
 		ExtensibleBufferedInputStream eis = null;
 		int memoryBlocks = 0;
+		CompressedBlockInputStream cis = null;
 		try {
 			synchronized (info) {
 				assert !info.pinned && info.loading; //load should be locked
@@ -727,6 +751,10 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			if (lock != null) {
 				is = readIntoMemory(info, eis, lock, memoryBlocks);
 			}
+			if (blockCodec != null) {
+				cis = new CompressedBlockInputStream(is, this);
+				is = cis;
+			}
 			ObjectInput dis = new ObjectInputStream(is);
 			dis.readFully(HEADER_SKIP_BUFFER);
 			int sizeEstimate = dis.readInt();
@@ -739,6 +767,9 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
         } catch (InterruptedException e) {
         	 throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30049, e);
 		} finally {
+			if (cis != null) {
+				cis.release();
+			}
         	synchronized (info) {
 				info.pinned = false;
 				info.notifyAll();
@@ -768,12 +799,10 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			fileLock.lock();
 			locked = true;
 			ExtensibleBufferedOutputStream os = new BlockOutputStream(manager, -1);
-			//TODO: there is still an extra buffer being created here, we could FileChannels to do better
+			//the buffers may be slices of a memory mapped file, so they are not assumed to be array backed
 			ByteBuffer bb = null;
 			while ((bb = is.getBuffer()) != null) {
-				byte[] array = bb.array();
-				os.write(array, bb.position() + bb.arrayOffset(), bb.remaining());
-				bb.position(bb.position()+bb.remaining());
+				os.write(bb);
 			}
 			fileLock.unlock();
 			os.close();
@@ -1088,6 +1117,13 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		this.maxStorageObjectSize = maxStorageBlockSize;
 	}
 	
+	/**
+	 * Get the executor used for asynch storage tasks
+	 */
+	public Executor getExecutor() {
+		return asynchPool;
+	}
+	
 	public long getStorageReads() {
 		return storageReads.get();
 	}
@@ -1096,6 +1132,86 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		return storageWrites.get();
 	}
 	
+	/**
+	 * Set the codec used to compress serialized objects.  Must be set prior to use.
+	 * @param blockCodec may be null to disable compression
+	 */
+	public void setBlockCodec(BlockCodec blockCodec) {
+		this.blockCodec = blockCodec;
+	}
+	
+	public BlockCodec getBlockCodec() {
+		return blockCodec;
+	}
+	
+	/**
+	 * Scratch space for a compressed stream.
+	 */
+	static final class CodecBuffers {
+		final byte[] block = new byte[CompressedBlockOutputStream.BLOCK_SIZE];
+		private byte[] compressed;
+		private boolean inUse;
+		
+		byte[] getCompressed(BlockCodec codec) {
+			int length = codec.maxCompressedLength(block.length);
+			if (compressed == null || compressed.length < length) {
+				compressed = new byte[length];
+			}
+			return compressed;
+		}
+	}
+	
+	/**
+	 * Get the calling thread's codec buffers so that frame buffers are not allocated 
+	 * for each spilled object.  Must be returned with {@link #releaseCodecBuffers(CodecBuffers)}.
+	 */
+	CodecBuffers borrowCodecBuffers() {
+		CodecBuffers buffers = codecBuffers.get();
+		if (buffers.inUse) {
+			//nested use - should not happen, but don't share
+			buffers = new CodecBuffers();
+		}
+		buffers.inUse = true;
+		return buffers;
+	}
+	
+	void releaseCodecBuffers(CodecBuffers buffers) {
+		buffers.inUse = false;
+	}
+	
+	/**
+	 * @return the ratio of uncompressed to compressed bytes written, or 1 if nothing has been compressed 
+	 */
+	public double getCompressionRatio() {
+		long compressed = compressedBytes.get();
+		if (compressed == 0) {
+			return 1;
+		}
+		return uncompressedBytes.get()/(double)compressed;
+	}
+	
+	public long getUncompressedBytes() {
+		return uncompressedBytes.get();
+	}
+	
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+	
+	/**
+	 * @return the time spent compressing in milliseconds
+	 */
+	public long getCompressionTime() {
+		return TimeUnit.NANOSECONDS.toMillis(compressionTime.get());
+	}
+	
+	/**
+	 * @return the time spent decompressing in milliseconds
+	 */
+	public long getDecompressionTime() {
+		return TimeUnit.NANOSECONDS.toMillis(decompressionTime.get());
+	}
+	
 	public long getMemoryBufferSpace() {
 		return memoryBufferSpace;
 	}
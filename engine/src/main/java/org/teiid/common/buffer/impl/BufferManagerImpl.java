@@ -37,6 +37,7 @@ import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -157,10 +158,13 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		private LobManager lobManager;
 		private long totalSize;
 		private long rowsSampled;
+		private Class<?>[] typeClasses;
+		private boolean columnar;
 
 		private BatchManagerImpl(Long newID, Class<?>[] types) {
 			this.id = newID;
 			this.sizeUtility = new SizeUtility(types);
+			this.typeClasses = types;
 			this.types = new String[types.length];
 			for (int i = 0; i < types.length; i++) {
 				this.types[i] = DataTypeManager.getDataTypeName(types[i]);
@@ -176,6 +180,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			this.lobManager = lobManager;
 		}
 		
+		/**
+		 * Hold new and deserialized batches in a {@link ColumnarBatch}.
+		 * Should only be used when the batches are not modified after being added. 
+		 */
+		public void setColumnar(boolean columnar) {
+			this.columnar = columnar;
+		}
+		
 		@Override
 		public String[] getTypes() {
 			return types;
@@ -210,6 +222,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 				cache.createCacheGroup(id);
 				cleanup = AutoCleanupUtil.setCleanupReference(this, new Remover(id, prefersMemory));
 			}
+			if (columnar) {
+				batch = ColumnarBatch.create(typeClasses, batch);
+			}
 			int sizeEstimate = getSizeEstimate(batch);
 			Long oid = batchAdded.getAndIncrement();
 			CacheEntry old = null;
@@ -240,7 +255,30 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		@Override
 		public List<? extends List<?>> deserialize(ObjectInput ois)
 				throws IOException, ClassNotFoundException {
-			List<? extends List<?>> batch = BatchSerializer.readBatch(ois, types);
+			int[] sortedColumns = null;
+			Object[][] sortedValues = null;
+			if (sortedColumnEncoding) {
+				int count = ois.readInt();
+				if (count > 0) {
+					int rows = ois.readInt();
+					sortedColumns = new int[count];
+					sortedValues = new Object[count][];
+					for (int i = 0; i < count; i++) {
+						sortedColumns[i] = ois.readInt();
+						sortedValues[i] = SortedColumnEncoding.readColumn(ois, rows, typeClasses[sortedColumns[i]]);
+					}
+				}
+			}
+			String[] batchTypes = types;
+			int[] remainingColumns = null;
+			if (sortedColumns != null) {
+				remainingColumns = SortedColumnEncoding.getRemainingColumns(types.length, sortedColumns);
+				batchTypes = getTypes(remainingColumns);
+			}
+			List<? extends List<?>> batch = BatchSerializer.readBatch(ois, batchTypes);
+			if (sortedColumns != null) {
+				batch = SortedColumnEncoding.merge(batch, sortedColumns, sortedValues, remainingColumns);
+			}
 			if (lobManager != null) {
 				for (int i = batch.size() - 1; i >= 0; i--) {
 					try {
@@ -250,6 +288,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 					}
 				}
 			}
+			if (columnar) {
+				return ColumnarBatch.create(typeClasses, batch);
+			}
 			return batch;
 		}
 		
@@ -261,8 +302,23 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 				list = (ResizingArrayList<?>)obj;
 			}
 			try {
+				String[] batchTypes = types;
+				if (sortedColumnEncoding) {
+					int[] sortedColumns = SortedColumnEncoding.getSortedColumns(typeClasses, obj);
+					oos.writeInt(sortedColumns.length);
+					if (sortedColumns.length > 0) {
+						oos.writeInt(obj.size());
+						for (int col : sortedColumns) {
+							oos.writeInt(col);
+							SortedColumnEncoding.writeColumn(oos, obj, col);
+						}
+						int[] remainingColumns = SortedColumnEncoding.getRemainingColumns(types.length, sortedColumns);
+						batchTypes = getTypes(remainingColumns);
+						obj = SortedColumnEncoding.project(obj, remainingColumns);
+					}
+				}
 				//it's expected that the containing structure has updated the lob manager
-				BatchSerializer.writeBatch(oos, types, obj);
+				BatchSerializer.writeBatch(oos, batchTypes, obj);
 			} catch (RuntimeException e) {
 				if (ExceptionUtil.getExceptionOfType(e, ClassCastException.class) != null) {
 					throw e;
@@ -276,6 +332,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			}
 		}
 		
+		private String[] getTypes(int[] cols) {
+			String[] result = new String[cols.length];
+			for (int i = 0; i < cols.length; i++) {
+				result[i] = types[cols[i]];
+			}
+			return result;
+		}
+		
 		public int getSizeEstimate(List<? extends List<?>> obj) {
 			return (int) Math.max(1, sizeUtility.getBatchSize(DataTypeManager.isValueCacheEnabled(), obj));
 		}
@@ -324,6 +388,52 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		public void remove(Long batch) {
 			BufferManagerImpl.this.remove(id, batch, prefersMemory.get());
 		}
+		
+		@Override
+		public void prefetch(final Long batch) {
+			if (readAheadExecutor == null || memoryEntries.containsKey(batch)) {
+				return;
+			}
+			//don't read ahead if it would push out other batches
+			if (activeBatchBytes.get() + overheadBytes.get() + maxReserveBytes/2 > reserveBatchBytes.get()) {
+				return;
+			}
+			if (!pendingReads.add(batch)) {
+				return;
+			}
+			readAheadExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						if (cleanup == null) {
+							return;
+						}
+						Object o = cache.lockForLoad(batch, BatchManagerImpl.this);
+						try {
+							if (memoryEntries.containsKey(batch)) {
+								return;
+							}
+							CacheEntry ce = cache.get(o, batch, ref);
+							if (ce == null) {
+								return;
+							}
+							readAheads.incrementAndGet();
+							addMemoryEntry(ce, false);
+						} finally {
+							cache.unlockForLoad(o);
+						}
+						if (cleanup == null) {
+							//removed concurrently
+							fastGet(batch, prefersMemory.get(), false);
+						}
+					} catch (Throwable e) {
+						LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, e, "Could not read ahead batch", batch); //$NON-NLS-1$
+					} finally {
+						pendingReads.remove(batch);
+					}
+				}
+			});
+		}
 
 		@Override
 		public void remove() {
@@ -376,6 +486,13 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     private int maxActivePlans = DQPConfiguration.DEFAULT_MAX_ACTIVE_PLANS; //used as a hint to set the reserveBatchKB
     private boolean useWeakReferences = true;
     private boolean inlineLobs = true;
+    private boolean columnarBatches;
+    private boolean sortedColumnEncoding;
+    private int readAheadBatches;
+    private MemoryQuotas memoryQuotas = new MemoryQuotas();
+    private Executor readAheadExecutor;
+    private Set<Long> pendingReads = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private AtomicLong readAheads = new AtomicLong();
     private int targetBytesPerRow = TARGET_BYTES_PER_ROW;
     private int maxSoftReferences;
     private int nominalProcessingMemoryMax = maxProcessingBytes;
@@ -496,12 +613,17 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			FileStore lobStore = createFileStore(newID + "_lobs"); //$NON-NLS-1$
 			lobManager = new LobManager(lobIndexes, lobStore);
 			batchManager.setLobManager(lobManager);
+		} else {
+			batchManager.setColumnar(columnarBatches);
 		}
     	TupleBuffer tupleBuffer = new TupleBuffer(batchManager, String.valueOf(newID), elements, lobManager, getProcessorBatchSize(elements));
         if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
         	LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Creating TupleBuffer:", newID, elements, Arrays.toString(types), "batch size", tupleBuffer.getBatchSize(), "of type", tupleSourceType); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         }
     	tupleBuffer.setInlineLobs(inlineLobs);
+    	if (readAheadExecutor != null) {
+    		tupleBuffer.setReadAheadBatches(readAheadBatches);
+    	}
         return tupleBuffer;
     }
     
@@ -664,6 +786,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     		lock.lock();
     		try {
     			count = Math.min(count, nominalProcessingMemoryMax - existing);
+    			count = (int)Math.min(count, getQuotaAvailable(context));
     			result = noWaitReserve(count, false, context);
     		} finally {
     			lock.unlock();
@@ -673,6 +796,16 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     	return result;
     }
 
+	/**
+	 * Get the bytes that may be reserved under the memory quotas for the context
+	 */
+	private long getQuotaAvailable(CommandContext context) {
+		if (context == null || !memoryQuotas.isEnabled()) {
+			return Long.MAX_VALUE;
+		}
+		return memoryQuotas.getAvailable(context.getMemoryAccounts(memoryQuotas));
+	}
+
 	private void reserve(int count, CommandContext context) {
 		this.reserveBatchBytes.addAndGet(-count);
 		if (context != null) {
@@ -702,7 +835,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		if (count_orig != count && !force) {
 			return 0; //is not possible to reserve the desired amount
 		}
-		result = noWaitReserve(count, true, context);
+		//when over quota we can only proceed once other reservations for the session/user/vdb are released
+		boolean withinQuota = count_orig <= getQuotaAvailable(context);
+		if (!withinQuota && !force) {
+			return 0;
+		}
+		if (withinQuota) {
+			result = noWaitReserve(count, true, context);
+		}
 		if (result == 0) {
 			if (val[0]++ == 0) {
 				val[1] = System.currentTimeMillis();
@@ -733,7 +873,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 							min = 4*count/5;
 						}
 						//if a sample looks good proceed
-						if (reserveBatchBytes.get() > min){
+						if (withinQuota && reserveBatchBytes.get() > min){
 							reserve(count_orig, context);
 							result = count_orig;
 						}
@@ -1236,6 +1376,65 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	public void setInlineLobs(boolean inlineLobs) {
 		this.inlineLobs = inlineLobs;
 	}
+	
+	/**
+	 * If true, {@link TupleBuffer} batches without lobs will be held in a 
+	 * columnar form, see {@link ColumnarBatch}
+	 * @param columnarBatches
+	 */
+	public void setColumnarBatches(boolean columnarBatches) {
+		this.columnarBatches = columnarBatches;
+	}
+	
+	public boolean isColumnarBatches() {
+		return columnarBatches;
+	}
+	
+	/**
+	 * If true, sorted integral columns will be delta encoded when batches are 
+	 * serialized to storage, see {@link SortedColumnEncoding}.  Must be set prior to use.
+	 * @param sortedColumnEncoding
+	 */
+	public void setSortedColumnEncoding(boolean sortedColumnEncoding) {
+		this.sortedColumnEncoding = sortedColumnEncoding;
+	}
+	
+	public boolean isSortedColumnEncoding() {
+		return sortedColumnEncoding;
+	}
+	
+	/**
+	 * Set the number of spilled batches to asynchronously read ahead
+	 * for forward {@link TupleBuffer} scans.  Has no effect without a read ahead executor.
+	 * @param readAheadBatches
+	 */
+	public void setReadAheadBatches(int readAheadBatches) {
+		this.readAheadBatches = readAheadBatches;
+	}
+	
+	public int getReadAheadBatches() {
+		return readAheadBatches;
+	}
+	
+	/**
+	 * Get the memory quotas by session, user, and vdb.  Quotas limit the
+	 * memory that may be reserved for processing, see {@link #reserveBuffers(int, BufferReserveMode)}
+	 * and {@link #reserveBuffersBlocking(int, long[], boolean)}.  
+	 */
+	public MemoryQuotas getMemoryQuotas() {
+		return memoryQuotas;
+	}
+	
+	public void setReadAheadExecutor(Executor readAheadExecutor) {
+		this.readAheadExecutor = readAheadExecutor;
+	}
+	
+	/**
+	 * Get the number of batches loaded by read ahead
+	 */
+	public long getReadAheads() {
+		return readAheads.get();
+	}
 
 	public int getMaxReserveKB() {
 		return (int)maxReserveBytes>>10;
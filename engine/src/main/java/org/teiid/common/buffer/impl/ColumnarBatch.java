@@ -0,0 +1,404 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.teiid.core.types.DataTypeManager;
+
+/**
+ * A read-only column oriented representation of a batch.
+ * <br/>
+ * Integer, long, and double columns are held as primitive arrays with a null bitmap and
+ * string columns are dictionary encoded if enough values repeat.  All other columns
+ * are held as value arrays.  Rows are materialized as immutable copies when 
+ * accessed, so that operators retaining rows, such as sorting, duplicate removal, or
+ * caching, do not hold the entire batch in memory and the usual row size 
+ * estimates remain valid.  Use {@link #getValue(int, int)} to read values without 
+ * materializing the row.
+ */
+public final class ColumnarBatch extends AbstractList<List<?>> implements RandomAccess {
+
+	private static final int NULL_CODE = -1;
+
+	private static abstract class Column {
+		BitSet nulls;
+
+		final boolean isNull(int row) {
+			return nulls != null && nulls.get(row);
+		}
+
+		final void setNull(int row) {
+			if (nulls == null) {
+				nulls = new BitSet();
+			}
+			nulls.set(row);
+		}
+
+		/**
+		 * Set the value for the given row
+		 * @return false if the value cannot be held by this column
+		 */
+		abstract boolean set(int row, Object value);
+
+		abstract Object get(int row);
+
+		abstract long getSizeEstimate(SizeUtility sizeUtility, boolean accountForValueCache);
+
+		long getNullsSizeEstimate() {
+			if (nulls == null) {
+				return 0;
+			}
+			return 32 + SizeUtility.alignMemory((nulls.size() >> 3));
+		}
+	}
+
+	private static final class IntColumn extends Column {
+		int[] values;
+
+		IntColumn(int rows) {
+			values = new int[rows];
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			if (!(value instanceof Integer)) {
+				return false;
+			}
+			values[row] = (Integer)value;
+			return true;
+		}
+
+		@Override
+		Object get(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return values[row];
+		}
+
+		@Override
+		long getSizeEstimate(SizeUtility sizeUtility, boolean accountForValueCache) {
+			return 16 + SizeUtility.alignMemory(values.length * 4l) + getNullsSizeEstimate();
+		}
+	}
+
+	private static final class LongColumn extends Column {
+		long[] values;
+
+		LongColumn(int rows) {
+			values = new long[rows];
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			if (!(value instanceof Long)) {
+				return false;
+			}
+			values[row] = (Long)value;
+			return true;
+		}
+
+		@Override
+		Object get(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return values[row];
+		}
+
+		@Override
+		long getSizeEstimate(SizeUtility sizeUtility, boolean accountForValueCache) {
+			return 16 + SizeUtility.alignMemory(values.length * 8l) + getNullsSizeEstimate();
+		}
+	}
+
+	private static final class DoubleColumn extends Column {
+		double[] values;
+
+		DoubleColumn(int rows) {
+			values = new double[rows];
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			if (!(value instanceof Double)) {
+				return false;
+			}
+			values[row] = (Double)value;
+			return true;
+		}
+
+		@Override
+		Object get(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return values[row];
+		}
+
+		@Override
+		long getSizeEstimate(SizeUtility sizeUtility, boolean accountForValueCache) {
+			return 16 + SizeUtility.alignMemory(values.length * 8l) + getNullsSizeEstimate();
+		}
+	}
+
+	/**
+	 * Dictionary encoded strings.  Nulls are represented by a {@link ColumnarBatch#NULL_CODE}
+	 * rather than by the bitmap.
+	 */
+	private static final class DictionaryColumn extends Column {
+		int[] codes;
+		String[] dictionary;
+		private Map<String, Integer> dictionaryMap = new HashMap<String, Integer>();
+		private int maxDictionarySize;
+
+		DictionaryColumn(int rows) {
+			codes = new int[rows];
+			maxDictionarySize = rows/2;
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			if (!(value instanceof String)) {
+				return false;
+			}
+			Integer code = dictionaryMap.get(value);
+			if (code == null) {
+				if (dictionaryMap.size() >= maxDictionarySize) {
+					return false;
+				}
+				code = dictionaryMap.size();
+				dictionaryMap.put((String)value, code);
+			}
+			codes[row] = code;
+			return true;
+		}
+
+		void complete() {
+			dictionary = new String[dictionaryMap.size()];
+			for (Map.Entry<String, Integer> entry : dictionaryMap.entrySet()) {
+				dictionary[entry.getValue()] = entry.getKey();
+			}
+			dictionaryMap = null;
+		}
+
+		@Override
+		Object get(int row) {
+			int code = codes[row];
+			if (code == NULL_CODE) {
+				return null;
+			}
+			return dictionary[code];
+		}
+
+		@Override
+		long getSizeEstimate(SizeUtility sizeUtility, boolean accountForValueCache) {
+			long size = 32 + SizeUtility.alignMemory(codes.length * 4l) + SizeUtility.alignMemory(dictionary.length * SizeUtility.REFERENCE_SIZE);
+			for (String value : dictionary) {
+				size += sizeUtility.getSize(value, DataTypeManager.DefaultDataClasses.STRING, false, accountForValueCache);
+			}
+			return size;
+		}
+	}
+
+	private static final class ObjectColumn extends Column {
+		Object[] values;
+		Class<?> type;
+
+		ObjectColumn(int rows, Class<?> type) {
+			this.values = new Object[rows];
+			this.type = type;
+		}
+
+		@Override
+		boolean set(int row, Object value) {
+			values[row] = value;
+			return true;
+		}
+
+		@Override
+		Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		long getSizeEstimate(SizeUtility sizeUtility, boolean accountForValueCache) {
+			long size = 16 + SizeUtility.alignMemory(values.length * SizeUtility.REFERENCE_SIZE);
+			if (!SizeUtility.VARIABLE_SIZE_TYPES.contains(type)) {
+				return size + SizeUtility.getSize(accountForValueCache, type) * values.length;
+			}
+			int rowsSampled = 0;
+			long estimatedSize = 0;
+			for (int row = 0; row < values.length; row=(row*2)+1) {
+				rowsSampled++;
+				estimatedSize += sizeUtility.getSize(values[row], type, true, accountForValueCache);
+			}
+			return size + (long)(estimatedSize/(float)rowsSampled * values.length);
+		}
+	}
+
+	/**
+	 * An immutable row detached from the column storage
+	 */
+	private static final class Row extends AbstractList<Object> implements RandomAccess {
+		private final Object[] values;
+
+		Row(Object[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public Object get(int index) {
+			return values[index];
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+	}
+
+	/**
+	 * Create a columnar representation of the rows.  If the rows cannot benefit
+	 * from a columnar representation, then the rows will be returned as is.
+	 */
+	public static List<? extends List<?>> create(Class<?>[] types, List<? extends List<?>> rows) {
+		if (rows instanceof ColumnarBatch) {
+			return rows;
+		}
+		int rowCount = rows.size();
+		if (rowCount == 0) {
+			return rows;
+		}
+		Column[] columns = new Column[types.length];
+		boolean encoded = false;
+		for (int col = 0; col < types.length; col++) {
+			Class<?> type = types[col];
+			Column column = null;
+			if (type == DataTypeManager.DefaultDataClasses.INTEGER) {
+				column = new IntColumn(rowCount);
+			} else if (type == DataTypeManager.DefaultDataClasses.LONG) {
+				column = new LongColumn(rowCount);
+			} else if (type == DataTypeManager.DefaultDataClasses.DOUBLE) {
+				column = new DoubleColumn(rowCount);
+			} else if (type == DataTypeManager.DefaultDataClasses.STRING && rowCount > 1) {
+				column = new DictionaryColumn(rowCount);
+			}
+			if (column != null) {
+				column = fill(column, col, rows);
+			}
+			if (column == null) {
+				column = fill(new ObjectColumn(rowCount, type), col, rows);
+				if (column == null) {
+					return rows;
+				}
+			} else {
+				encoded = true;
+			}
+			if (column instanceof DictionaryColumn) {
+				((DictionaryColumn)column).complete();
+			}
+			columns[col] = column;
+		}
+		if (!encoded) {
+			return rows;
+		}
+		return new ColumnarBatch(columns, rowCount);
+	}
+
+	/**
+	 * Fill the column with the values from the rows
+	 * @return the column or null if a value could not be held
+	 */
+	private static Column fill(Column column, int col, List<? extends List<?>> rows) {
+		int row = 0;
+		for (List<?> tuple : rows) {
+			if (tuple.size() <= col) {
+				return null;
+			}
+			Object value = tuple.get(col);
+			if (value == null) {
+				if (column instanceof DictionaryColumn) {
+					((DictionaryColumn)column).codes[row] = NULL_CODE;
+				} else if (!(column instanceof ObjectColumn)) {
+					column.setNull(row);
+				}
+			} else if (!column.set(row, value)) {
+				return null;
+			}
+			row++;
+		}
+		return column;
+	}
+
+	private final Column[] columns;
+	private final int rowCount;
+
+	private ColumnarBatch(Column[] columns, int rowCount) {
+		this.columns = columns;
+		this.rowCount = rowCount;
+	}
+
+	@Override
+	public List<?> get(int index) {
+		if (index < 0 || index >= rowCount) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		Object[] values = new Object[columns.length];
+		for (int col = 0; col < columns.length; col++) {
+			values[col] = columns[col].get(index);
+		}
+		return new Row(values);
+	}
+
+	@Override
+	public int size() {
+		return rowCount;
+	}
+
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * Get the value directly from the column storage without materializing the row.
+	 */
+	public Object getValue(int row, int col) {
+		return columns[col].get(row);
+	}
+
+	long getSizeEstimate(SizeUtility sizeUtility, boolean accountForValueCache) {
+		long size = 32 + SizeUtility.alignMemory(columns.length * SizeUtility.REFERENCE_SIZE);
+		for (Column column : columns) {
+			size += column.getSizeEstimate(sizeUtility, accountForValueCache);
+		}
+		return size;
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the blocks written by a {@link CompressedBlockOutputStream}
+ */
+final class CompressedBlockInputStream extends InputStream {
+
+	private final InputStream in;
+	private final BufferFrontedFileStoreCache cache;
+	private BufferFrontedFileStoreCache.CodecBuffers buffers;
+	private byte[] buffer;
+	private int count;
+	private int pos;
+
+	CompressedBlockInputStream(InputStream in, BufferFrontedFileStoreCache cache) {
+		this.in = in;
+		this.cache = cache;
+		this.buffers = cache.borrowCodecBuffers();
+		this.buffer = buffers.block;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (pos == count && !readBlock()) {
+			return -1;
+		}
+		return buffer[pos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (pos == count && !readBlock()) {
+			return -1;
+		}
+		int toCopy = Math.min(len, count - pos);
+		System.arraycopy(buffer, pos, b, off, toCopy);
+		pos += toCopy;
+		return toCopy;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return count - pos;
+	}
+
+	private boolean readBlock() throws IOException {
+		int length = in.read();
+		if (length < 0) {
+			return false;
+		}
+		length = (length << 24) | (readUnsignedByte() << 16) | (readUnsignedByte() << 8) | readUnsignedByte();
+		int stored = readInt();
+		if (length <= 0 || length > buffer.length || stored <= 0 || stored > length) {
+			throw new IOException("Invalid compressed block"); //$NON-NLS-1$
+		}
+		if (stored == length) {
+			readFully(buffer, stored);
+		} else {
+			BlockCodec codec = cache.getBlockCodec();
+			byte[] compressed = buffers.getCompressed(codec);
+			readFully(compressed, stored);
+			long start = System.nanoTime();
+			codec.decompress(compressed, stored, buffer, length);
+			cache.decompressionTime.addAndGet(System.nanoTime() - start);
+		}
+		count = length;
+		pos = 0;
+		return true;
+	}
+
+	private int readInt() throws IOException {
+		return (readUnsignedByte() << 24) | (readUnsignedByte() << 16) | (readUnsignedByte() << 8) | readUnsignedByte();
+	}
+
+	private int readUnsignedByte() throws IOException {
+		int b = in.read();
+		if (b < 0) {
+			throw new EOFException();
+		}
+		return b;
+	}
+
+	private void readFully(byte[] b, int len) throws IOException {
+		int off = 0;
+		while (off < len) {
+			int read = in.read(b, off, len - off);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			off += read;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+		release();
+	}
+	
+	/**
+	 * Return the buffers to the cache.  The stream may not be used afterwards.
+	 */
+	void release() {
+		if (buffers != null) {
+			cache.releaseCodecBuffers(buffers);
+			buffers = null;
+			buffer = null;
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses fixed size blocks with the cache {@link BlockCodec}.
+ * Each block is written as the uncompressed length, the stored length, and the 
+ * stored bytes.  If compression does not reduce the size, the block is stored as is.
+ */
+final class CompressedBlockOutputStream extends OutputStream {
+
+	static final int BLOCK_SIZE = 1 << 15;
+
+	private final OutputStream out;
+	private final BufferFrontedFileStoreCache cache;
+	private BufferFrontedFileStoreCache.CodecBuffers buffers;
+	private byte[] buffer;
+	private int count;
+
+	CompressedBlockOutputStream(OutputStream out, BufferFrontedFileStoreCache cache) {
+		this.out = out;
+		this.cache = cache;
+		this.buffers = cache.borrowCodecBuffers();
+		this.buffer = buffers.block;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (count == buffer.length) {
+			writeBlock();
+		}
+		buffer[count++] = (byte)b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (count == buffer.length) {
+				writeBlock();
+			}
+			int toCopy = Math.min(len, buffer.length - count);
+			System.arraycopy(b, off, buffer, count, toCopy);
+			count += toCopy;
+			off += toCopy;
+			len -= toCopy;
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		if (count == 0) {
+			return;
+		}
+		BlockCodec codec = cache.getBlockCodec();
+		byte[] compressed = buffers.getCompressed(codec);
+		long start = System.nanoTime();
+		int length = codec.compress(buffer, count, compressed);
+		cache.compressionTime.addAndGet(System.nanoTime() - start);
+		writeInt(count);
+		if (length < count) {
+			writeInt(length);
+			out.write(compressed, 0, length);
+		} else {
+			length = count;
+			writeInt(length);
+			out.write(buffer, 0, length);
+		}
+		cache.uncompressedBytes.addAndGet(count);
+		cache.compressedBytes.addAndGet(length + 8);
+		count = 0;
+	}
+
+	private void writeInt(int i) throws IOException {
+		out.write(i >>> 24);
+		out.write(i >>> 16);
+		out.write(i >>> 8);
+		out.write(i);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeBlock();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+		out.close();
+		release();
+	}
+	
+	/**
+	 * Return the buffers to the cache.  The stream may not be used afterwards.
+	 */
+	void release() {
+		if (buffers != null) {
+			cache.releaseCodecBuffers(buffers);
+			buffers = null;
+			buffer = null;
+		}
+	}
+
+}
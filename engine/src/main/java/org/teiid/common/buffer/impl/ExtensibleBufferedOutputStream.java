@@ -64,6 +64,20 @@ public abstract class ExtensibleBufferedOutputStream extends OutputStream {
     	}
     }
 
+    /**
+     * Write the remaining bytes of the buffer, which need not be array backed
+     */
+    public void write(ByteBuffer b) throws IOException {
+    	while (b.hasRemaining()) {
+    		ensureBuffer();
+    		int toCopy = Math.min(buf.remaining(), b.remaining());
+    		ByteBuffer src = b.duplicate();
+    		src.limit(src.position() + toCopy);
+    		buf.put(src);
+    		b.position(b.position() + toCopy);
+    	}
+    }
+
 	public void flush() throws IOException {
 		if (buf != null) {
 			int bytes = buf.position() - startPosition;
@@ -54,8 +54,8 @@ public class FileStorageManager implements StorageManager {
 	private AtomicLong usedBufferSpace = new AtomicLong();
 	private AtomicInteger fileCounter = new AtomicInteger();
 	
-	private class FileInfo {
-    	private File file;
+	class FileInfo {
+    	File file;
         private RandomAccessFile fileData;       // may be null if not open
 
         public FileInfo(File file) {
@@ -97,7 +97,7 @@ public class FileStorageManager implements StorageManager {
 	
 	public class DiskStore extends FileStore {
 	    private String name;
-		private FileInfo fileInfo; 
+		FileInfo fileInfo; 
 	    
 	    public DiskStore(String name) {
 			this.name = name;
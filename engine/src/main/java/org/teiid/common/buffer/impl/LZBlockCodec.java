@@ -0,0 +1,176 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A simple byte oriented LZ77 codec that favors speed over compression ratio.
+ * <br/>
+ * The format is a sequence of tokens.  The high nibble of the token is the literal
+ * length and the low nibble is the match length less {@link #MIN_MATCH}.  A nibble
+ * value of 15 is followed by additional length bytes.  The literals follow the
+ * literal length, then the 2 byte match offset and the match length bytes.  The 
+ * final token has only literals.
+ */
+public class LZBlockCodec implements BlockCodec {
+
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;
+	private static final int HASH_LOG = 12;
+	private static final int MAX_OFFSET = 0xffff;
+	private static final int NIBBLE_MASK = 0x0f;
+	
+	/**
+	 * compress is not reentrant, so the hash table can be reused by each thread
+	 */
+	private static final ThreadLocal<int[]> HASH_TABLE = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1 << HASH_LOG];
+		}
+	};
+
+	@Override
+	public int maxCompressedLength(int length) {
+		return length + length/255 + 16;
+	}
+
+	@Override
+	public int compress(byte[] src, int length, byte[] dest) {
+		int[] table = HASH_TABLE.get();
+		Arrays.fill(table, 0);
+		int matchLimit = length - LAST_LITERALS;
+		int anchor = 0;
+		int ip = 0;
+		int op = 0;
+		while (ip + MIN_MATCH <= matchLimit) {
+			int seq = readInt(src, ip);
+			int h = hash(seq);
+			int ref = table[h] - 1;
+			table[h] = ip + 1;
+			if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+				ip++;
+				continue;
+			}
+			int matchLength = MIN_MATCH;
+			while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+				matchLength++;
+			}
+			int literals = ip - anchor;
+			int token = op++;
+			op = writeLength(dest, op, literals);
+			System.arraycopy(src, anchor, dest, op, literals);
+			op += literals;
+			int offset = ip - ref;
+			dest[op++] = (byte)offset;
+			dest[op++] = (byte)(offset >>> 8);
+			op = writeLength(dest, op, matchLength - MIN_MATCH);
+			dest[token] = (byte)((Math.min(literals, NIBBLE_MASK) << 4) | Math.min(matchLength - MIN_MATCH, NIBBLE_MASK));
+			ip += matchLength;
+			anchor = ip;
+		}
+		int literals = length - anchor;
+		dest[op++] = (byte)(Math.min(literals, NIBBLE_MASK) << 4);
+		op = writeLength(dest, op, literals);
+		System.arraycopy(src, anchor, dest, op, literals);
+		return op + literals;
+	}
+
+	@Override
+	public void decompress(byte[] src, int length, byte[] dest,
+			int uncompressedLength) throws IOException {
+		int ip = 0;
+		int op = 0;
+		try {
+			while (true) {
+				int token = src[ip++] & 0xff;
+				int literals = token >>> 4;
+				if (literals == NIBBLE_MASK) {
+					int b = 0;
+					do {
+						b = src[ip++] & 0xff;
+						literals += b;
+					} while (b == 0xff);
+				}
+				System.arraycopy(src, ip, dest, op, literals);
+				ip += literals;
+				op += literals;
+				if (op >= uncompressedLength) {
+					if (op > uncompressedLength) {
+						throw new IOException("Invalid compressed block"); //$NON-NLS-1$
+					}
+					break;
+				}
+				int offset = (src[ip++] & 0xff) | ((src[ip++] & 0xff) << 8);
+				int matchLength = token & NIBBLE_MASK;
+				if (matchLength == NIBBLE_MASK) {
+					int b = 0;
+					do {
+						b = src[ip++] & 0xff;
+						matchLength += b;
+					} while (b == 0xff);
+				}
+				matchLength += MIN_MATCH;
+				int ref = op - offset;
+				if (offset == 0 || ref < 0 || op + matchLength > uncompressedLength) {
+					throw new IOException("Invalid compressed block"); //$NON-NLS-1$
+				}
+				for (int i = 0; i < matchLength; i++) {
+					dest[op++] = dest[ref++];
+				}
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Invalid compressed block"); //$NON-NLS-1$
+		}
+		if (ip != length) {
+			throw new IOException("Invalid compressed block"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Write the portion of the length that does not fit in the token
+	 */
+	private static int writeLength(byte[] dest, int op, int length) {
+		if (length < NIBBLE_MASK) {
+			return op;
+		}
+		length -= NIBBLE_MASK;
+		while (length >= 0xff) {
+			dest[op++] = (byte)0xff;
+			length -= 0xff;
+		}
+		dest[op++] = (byte)length;
+		return op;
+	}
+
+	private static int readInt(byte[] b, int i) {
+		return (b[i] & 0xff) | ((b[i+1] & 0xff) << 8) | ((b[i+2] & 0xff) << 16) | ((b[i+3] & 0xff) << 24);
+	}
+
+	private static int hash(int seq) {
+		return (seq * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+}
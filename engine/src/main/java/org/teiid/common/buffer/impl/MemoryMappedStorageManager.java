@@ -0,0 +1,233 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.common.buffer.impl;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.teiid.common.buffer.ExtensibleBufferedInputStream;
+import org.teiid.common.buffer.FileStore;
+
+/**
+ * A {@link FileStorageManager} that serves reads through memory mapped windows of the 
+ * underlying files.  Reads and input streams return slices of the mapped windows rather than 
+ * copying through an intermediate buffer.
+ * <br/>
+ * Windows are mapped lazily and only up to the current file length.  Writes past the mapped
+ * portion of a window go through the file channel and the window is remapped on the next read, 
+ * so that appends do not cause repeated remapping.
+ * <br/>
+ * Java provides no way to unmap a window, and slices of a window may still be held by readers.
+ * Shortening the file under a mapping would fault such reads, so a truncation only shortens 
+ * the logical length of the store until the store is removed.
+ */
+public class MemoryMappedStorageManager extends FileStorageManager {
+	
+	public static final int DEFAULT_WINDOW_SIZE = 1 << 24;
+	
+	private int windowSize = DEFAULT_WINDOW_SIZE;
+	
+	public class MappedDiskStore extends DiskStore {
+		
+		private List<MappedByteBuffer> windows = new ArrayList<MappedByteBuffer>();
+		/** the end of the mapped portion of the file */
+		private long mappedLength;
+		/** the length of the store when less than the file length due to a truncation, or -1 */
+		private long logicalLength = -1;
+		
+		public MappedDiskStore(String name) {
+			super(name);
+		}
+		
+		/**
+		 * Get a buffer positioned at the offset and limited to the end of the mapped window.
+		 * @param remap if true the window will be remapped to cover the offset if needed
+		 * @return the buffer or null if the offset is not mapped 
+		 */
+		private ByteBuffer getBuffer(long offset, boolean remap) throws IOException {
+			if (fileInfo == null) {
+				return null;
+			}
+			int index = (int)(offset / windowSize);
+			int position = (int)(offset % windowSize);
+			MappedByteBuffer window = index < windows.size()?windows.get(index):null;
+			if (window == null || position >= window.capacity()) {
+				if (!remap) {
+					return null;
+				}
+				long windowStart = (long)index * windowSize;
+				long fileLength = fileInfo.file.length();
+				if (offset >= fileLength) {
+					return null;
+				}
+				int size = (int)Math.min(windowSize, fileLength - windowStart);
+				try {
+					RandomAccessFile fileAccess = fileInfo.open();
+					window = fileAccess.getChannel().map(MapMode.READ_WRITE, windowStart, size);
+				} finally {
+					fileInfo.close();
+				}
+				mappedLength = Math.max(mappedLength, windowStart + size);
+				while (windows.size() <= index) {
+					windows.add(null);
+				}
+				windows.set(index, window);
+			}
+			ByteBuffer result = window.duplicate();
+			result.position(position);
+			return result;
+		}
+		
+		@Override
+		protected synchronized int readWrite(long fileOffset, byte[] b,
+				int offSet, int length, boolean write) throws IOException {
+			if (!write && logicalLength >= 0) {
+				if (fileOffset >= logicalLength) {
+					return -1;
+				}
+				length = (int)Math.min(length, logicalLength - fileOffset);
+			}
+			ByteBuffer buffer = getBuffer(fileOffset, !write);
+			if (buffer == null) {
+				if (!write) {
+					return -1;
+				}
+				//extend or append through the channel
+				length = super.readWrite(fileOffset, b, offSet, length, write);
+			} else {
+				length = Math.min(length, buffer.remaining());
+				if (write) {
+					buffer.put(b, offSet, length);
+				} else {
+					buffer.get(b, offSet, length);
+				}
+			}
+			if (write && logicalLength >= 0 && fileOffset + length > logicalLength) {
+				logicalLength = fileOffset + length;
+				if (logicalLength >= fileInfo.file.length()) {
+					logicalLength = -1;
+				}
+			}
+			return length;
+		}
+		
+		/**
+		 * Get a read only slice of the mapped window for the given range.
+		 * @return the slice or null if past the end of the store 
+		 */
+		synchronized ByteBuffer getSlice(long offset, long length) throws IOException {
+			if (logicalLength >= 0) {
+				if (offset >= logicalLength) {
+					return null;
+				}
+				length = length < 0?logicalLength - offset:Math.min(length, logicalLength - offset);
+			}
+			ByteBuffer buffer = getBuffer(offset, true);
+			if (buffer == null) {
+				return null;
+			}
+			if (length >= 0 && length < buffer.remaining()) {
+				buffer.limit(buffer.position() + (int)length);
+			}
+			return buffer.slice().asReadOnlyBuffer();
+		}
+		
+		@Override
+		public ExtensibleBufferedInputStream createInputStream(final long start,
+				final long length) {
+			return new ExtensibleBufferedInputStream() {
+				private long offset = start;
+				private long streamLength = length;
+				
+				@Override
+				protected ByteBuffer nextBuffer() throws IOException {
+					if (this.streamLength == 0) {
+						return null;
+					}
+					ByteBuffer bb = getSlice(offset, streamLength);
+					if (bb == null) {
+						return null;
+					}
+					this.offset += bb.remaining();
+					if (this.streamLength != -1) {
+						this.streamLength -= bb.remaining();
+					}
+					return bb;
+				}
+			};
+		}
+		
+		@Override
+		public synchronized long getLength() {
+			if (logicalLength >= 0) {
+				return logicalLength;
+			}
+			return super.getLength();
+		}
+		
+		@Override
+		public synchronized void setLength(long length) throws IOException {
+			if (length >= mappedLength) {
+				super.setLength(length);
+				logicalLength = -1;
+				return;
+			}
+			//retain the mapped portion of the file
+			super.setLength(mappedLength);
+			logicalLength = length;
+		}
+		
+		@Override
+		public synchronized void removeDirect() {
+			windows.clear();
+			mappedLength = 0;
+			//release the full file length
+			logicalLength = -1;
+			super.removeDirect();
+		}
+		
+	}
+	
+	@Override
+	public FileStore createFileStore(String name) {
+		return new MappedDiskStore(name);
+	}
+	
+	/**
+	 * Set the maximum size in bytes of a single mapping
+	 */
+	public void setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+	}
+	
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+}
@@ -77,7 +77,7 @@ public final class SizeUtility {
 	public static final int REFERENCE_SIZE = 8;
 	
 	private static Map<Class<?>, int[]> SIZE_ESTIMATES = new HashMap<Class<?>, int[]>(128);
-	private static Set<Class<?>> VARIABLE_SIZE_TYPES = new HashSet<Class<?>>();
+	static Set<Class<?>> VARIABLE_SIZE_TYPES = new HashSet<Class<?>>();
 	static {
 		SIZE_ESTIMATES.put(DataTypeManager.DefaultDataClasses.STRING, new int[] {100, Math.max(100, DataTypeManager.nextPowOf2(DataTypeManager.MAX_STRING_LENGTH/16))});
 		SIZE_ESTIMATES.put(DataTypeManager.DefaultDataClasses.VARBINARY, new int[] {100, Math.max(100, DataTypeManager.MAX_LOB_MEMORY_BYTES/32)});
@@ -122,6 +122,9 @@ public final class SizeUtility {
 	}
 	
     public long getBatchSize(boolean accountForValueCache, List<? extends List<?>> data) {
+    	if (data instanceof ColumnarBatch) {
+    		return ((ColumnarBatch)data).getSizeEstimate(this, accountForValueCache);
+    	}
         int colLength = types.length;
         int rowLength = data.size();
     
@@ -294,7 +297,7 @@ public final class SizeUtility {
      * @return
      * @since 4.2
      */
-    private static long alignMemory(long numBytes) {
+    static long alignMemory(long numBytes) {
         long remainder = numBytes % 8;
         if (remainder != 0) {
             numBytes += (8 - remainder);
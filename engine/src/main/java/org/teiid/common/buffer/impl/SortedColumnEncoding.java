@@ -0,0 +1,230 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.teiid.client.ResizingArrayList;
+import org.teiid.core.types.DataTypeManager;
+
+/**
+ * Delta and run length encoding for sorted integral columns, which are common
+ * for the keys of sorted and index batches.
+ * <br/>
+ * A column is written as the first value followed by pairs of the delta and the 
+ * number of times that delta repeats.  Values are written as zig-zag variable 
+ * length longs.
+ */
+final class SortedColumnEncoding {
+
+	private SortedColumnEncoding() {
+	}
+
+	/**
+	 * @return the indexes of the columns that are non-null, integral, and sorted 
+	 */
+	static int[] getSortedColumns(Class<?>[] types, List<? extends List<?>> batch) {
+		if (batch.size() < 2) {
+			return new int[0];
+		}
+		int[] result = new int[types.length];
+		int count = 0;
+		for (int col = 0; col < types.length; col++) {
+			if ((types[col] == DataTypeManager.DefaultDataClasses.INTEGER 
+					|| types[col] == DataTypeManager.DefaultDataClasses.LONG)
+					&& isSorted(batch, col, types[col])) {
+				result[count++] = col;
+			}
+		}
+		int[] cols = new int[count];
+		System.arraycopy(result, 0, cols, 0, count);
+		return cols;
+	}
+
+	private static boolean isSorted(List<? extends List<?>> batch, int col, Class<?> type) {
+		int direction = 0;
+		long previous = 0;
+		for (int row = 0; row < batch.size(); row++) {
+			Object value = batch.get(row).get(col);
+			if (value == null || value.getClass() != type) {
+				return false;
+			}
+			long current = ((Number)value).longValue();
+			if (row > 0) {
+				int comp = current < previous ? -1 : (current == previous ? 0 : 1);
+				if (direction == 0) {
+					direction = comp;
+				} else if (comp != 0 && comp != direction) {
+					return false;
+				}
+			}
+			previous = current;
+		}
+		return true;
+	}
+
+	static void writeColumn(ObjectOutput out, List<? extends List<?>> batch, int col) throws IOException {
+		long previous = ((Number)batch.get(0).get(col)).longValue();
+		writeLong(out, previous);
+		long delta = 0;
+		int run = 0;
+		for (int row = 1; row < batch.size(); row++) {
+			long current = ((Number)batch.get(row).get(col)).longValue();
+			long currentDelta = current - previous;
+			if (run > 0 && currentDelta != delta) {
+				writeLong(out, delta);
+				writeLong(out, run);
+				run = 0;
+			}
+			delta = currentDelta;
+			run++;
+			previous = current;
+		}
+		if (run > 0) {
+			writeLong(out, delta);
+			writeLong(out, run);
+		}
+	}
+
+	/**
+	 * @return the column indexes not in the sorted columns
+	 */
+	static int[] getRemainingColumns(int columnCount, int[] sortedColumns) {
+		int[] result = new int[columnCount - sortedColumns.length];
+		int index = 0;
+		int sortedIndex = 0;
+		for (int col = 0; col < columnCount; col++) {
+			if (sortedIndex < sortedColumns.length && sortedColumns[sortedIndex] == col) {
+				sortedIndex++;
+			} else {
+				result[index++] = col;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Create a view of the batch with only the given columns
+	 */
+	static List<List<?>> project(final List<? extends List<?>> batch, final int[] cols) {
+		return new AbstractList<List<?>>() {
+			@Override
+			public List<?> get(final int row) {
+				final List<?> tuple = batch.get(row);
+				return new AbstractList<Object>() {
+					@Override
+					public Object get(int index) {
+						return tuple.get(cols[index]);
+					}
+					
+					@Override
+					public int size() {
+						return cols.length;
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return batch.size();
+			}
+		};
+	}
+
+	/**
+	 * Combine the sorted column values with the rest of the batch
+	 */
+	static List<List<?>> merge(List<? extends List<?>> batch, int[] sortedColumns, Object[][] values, int[] remainingColumns) {
+		List<List<?>> result = new ResizingArrayList<List<?>>(batch.size());
+		for (int row = 0; row < batch.size(); row++) {
+			List<?> tuple = batch.get(row);
+			Object[] newTuple = new Object[sortedColumns.length + remainingColumns.length];
+			for (int i = 0; i < sortedColumns.length; i++) {
+				newTuple[sortedColumns[i]] = values[i][row];
+			}
+			for (int i = 0; i < remainingColumns.length; i++) {
+				newTuple[remainingColumns[i]] = tuple.get(i);
+			}
+			result.add(Arrays.asList(newTuple));
+		}
+		return result;
+	}
+
+	static Object[] readColumn(ObjectInput in, int rows, Class<?> type) throws IOException {
+		Object[] result = new Object[rows];
+		long current = readLong(in);
+		result[0] = getValue(current, type);
+		int row = 1;
+		while (row < rows) {
+			long delta = readLong(in);
+			long run = readLong(in);
+			if (run <= 0 || run > rows - row) {
+				throw new IOException("Invalid encoded column"); //$NON-NLS-1$
+			}
+			for (int i = 0; i < run; i++) {
+				current += delta;
+				result[row++] = getValue(current, type);
+			}
+		}
+		return result;
+	}
+
+	private static Object getValue(long value, Class<?> type) {
+		if (type == DataTypeManager.DefaultDataClasses.INTEGER) {
+			return (int)value;
+		}
+		return value;
+	}
+
+	private static void writeLong(ObjectOutput out, long value) throws IOException {
+		long zigZag = (value << 1) ^ (value >> 63);
+		while ((zigZag & ~0x7fL) != 0) {
+			out.writeByte((int)((zigZag & 0x7f) | 0x80));
+			zigZag >>>= 7;
+		}
+		out.writeByte((int)zigZag);
+	}
+
+	private static long readLong(ObjectInput in) throws IOException {
+		long zigZag = 0;
+		int shift = 0;
+		while (true) {
+			if (shift > 63) {
+				throw new IOException("Invalid encoded column"); //$NON-NLS-1$
+			}
+			int b = in.readByte();
+			zigZag |= (long)(b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+			shift += 7;
+		}
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+
+}
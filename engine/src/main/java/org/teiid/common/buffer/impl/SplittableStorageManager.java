@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.teiid.common.buffer.ExtensibleBufferedInputStream;
 import org.teiid.common.buffer.FileStore;
 import org.teiid.common.buffer.StorageManager;
 import org.teiid.core.TeiidComponentException;
@@ -117,6 +118,25 @@ public class SplittableStorageManager implements StorageManager {
 			len = length;
 		}
 		
+	    @Override
+	    public ExtensibleBufferedInputStream createInputStream(long start,
+	    		long length) {
+	    	if (length > 0) {
+	    		FileStore store = null;
+	    		synchronized (this) {
+	    			int index = (int)(start/maxFileSize);
+	    			if (index == (start + length - 1)/maxFileSize && index < storageFiles.size()) {
+	    				store = storageFiles.get(index);
+	    			}
+	    		}
+	    		if (store != null) {
+	    			//delegate so that the underlying store may provide its own buffers
+	    			return store.createInputStream(start%maxFileSize, length);
+	    		}
+	    	}
+	    	return super.createInputStream(start, length);
+	    }
+	    
 	    @Override
 	    public synchronized void setLength(long length) throws IOException {
 			if (length > len) {
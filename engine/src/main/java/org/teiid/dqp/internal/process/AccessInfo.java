@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.teiid.adminapi.impl.VDBMetaData;
@@ -42,6 +43,8 @@ import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
 import org.teiid.query.tempdata.GlobalTableStore;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.ModificationLog;
+import org.teiid.query.util.RowRange;
 
 /**
  * Tracks what views were used and what tables are accessed
@@ -51,6 +54,7 @@ public class AccessInfo implements Serializable {
 	private static final long serialVersionUID = -2608267960584191359L;
 	
 	private transient Set<Object> objectsAccessed;
+	private transient Map<Object, List<RowRange>> dataRanges;
 	private boolean sensitiveToMetadataChanges = true;
 	private List<List<String>> externalNames;
 	
@@ -104,6 +108,7 @@ public class AccessInfo implements Serializable {
 		Set<Object> objects = null;
 		if (data) {
 			objects = context.getDataObjects();
+			this.dataRanges = context.getDataRanges();
 		} else {
 			objects = context.getPlanningObjects();
 		}
@@ -170,11 +175,33 @@ public class AccessInfo implements Serializable {
 						return false;
 					}
 				}
-			} else if (o instanceof DataModifiable && ((DataModifiable)o).getLastDataModification() - modTime >= this.creationTime) {
-				return false;
+			} else if (o instanceof DataModifiable) {
+				long lastModification = ((DataModifiable)o).getLastDataModification();
+				if (lastModification - modTime >= this.creationTime && isAffected(o, lastModification, modTime)) {
+					return false;
+				}
 			}
 		}
 		return true;
 	}
 	
+	/**
+	 * Determine if the modifications since creation could have affected the rows accessed.
+	 * Without a restricted range or a complete modification log any modification is assumed to.
+	 */
+	private boolean isAffected(Object o, long lastModification, long modTime) {
+		if (this.dataRanges == null) {
+			return true;
+		}
+		List<RowRange> ranges = this.dataRanges.get(o);
+		if (ranges == null) {
+			return true;
+		}
+		ModificationLog log = ModificationLog.getLog(o, DQPWorkContext.getWorkContext().getVDB(), false);
+		if (log == null) {
+			return true;
+		}
+		return log.isAffected(this.creationTime + modTime, lastModification, ranges);
+	}
+	
 }
@@ -46,12 +46,18 @@ import org.teiid.query.sql.lang.Command;
 public class CachedResults implements Serializable, Cachable {
 	private static final long serialVersionUID = -5603182134635082207L;
 	
+	/**
+	 * The per value size used when the buffer has not yet sampled its row sizes
+	 */
+	private static final int DEFAULT_VALUE_SIZE_ESTIMATE = 32;
+	
 	private transient Command command;
 	private transient TupleBuffer results;
 
 	private String uuid;
 	private boolean hasLobs;
 	private int rowLimit;
+	private long computeTime;
 	
 	private AccessInfo accessInfo = new AccessInfo();
 	
@@ -125,4 +131,29 @@ public class CachedResults implements Serializable, Cachable {
 		this.rowLimit = rowLimit;
 	}
 	
+	/**
+	 * @return the time in milliseconds taken to produce the results
+	 */
+	public long getComputeTime() {
+		return computeTime;
+	}
+	
+	public void setComputeTime(long computeTime) {
+		this.computeTime = computeTime;
+	}
+	
+	/**
+	 * @return the estimated size in bytes of the results or 0 if the results are not available
+	 */
+	public long getSizeEstimate() {
+		if (this.results == null) {
+			return 0;
+		}
+		long rowSize = this.results.getRowSizeEstimate();
+		if (rowSize <= 0) {
+			rowSize = this.results.getTypes().length * DEFAULT_VALUE_SIZE_ESTIMATE;
+		}
+		return rowSize * this.results.getRowCount();
+	}
+	
 }
@@ -50,6 +50,7 @@ final class CachingTupleSource extends
 	private final RegisterRequestParameter parameterObject;
 	private final CacheDirective cd;
 	private final Collection<GroupSymbol> accessedGroups;
+	private final long start = System.currentTimeMillis();
 	DataTierTupleSource dtts;
 
 	CachingTupleSource(DataTierManagerImpl dataTierManagerImpl, TupleBuffer tb, DataTierTupleSource ts, CacheID cid,
@@ -81,6 +82,7 @@ final class CachingTupleSource extends
 				}
 				CachedResults cr = new CachedResults();
 		        cr.setResults(tb, null);
+		        cr.setComputeTime(System.currentTimeMillis() - start);
 		        if (!Boolean.FALSE.equals(cd.getUpdatable())) {
 		        	if (accessedGroups != null) {
 			        	for (GroupSymbol gs : accessedGroups) {
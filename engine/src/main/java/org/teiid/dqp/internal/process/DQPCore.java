@@ -242,6 +242,10 @@ public class DQPCore implements DQP {
 		Request request = null;
 	    if ( requestMsg.isPreparedStatement() || requestMsg.isCallableStatement()) {
 	    	request = new PreparedStatementRequest(prepPlanCache);
+	    } else if (options.isAutoParameterize() && !requestMsg.isBatchedUpdate() && requestMsg.getCommand() == null) {
+	    	PreparedStatementRequest psr = new PreparedStatementRequest(prepPlanCache);
+	    	psr.setAutoParameterize(true);
+	    	request = psr;
 	    } else {
 	    	request = new Request();
 	    }
@@ -869,6 +873,10 @@ public class DQPCore implements DQP {
 		return prepPlanCache;
 	}
 	
+	Options getOptions() {
+		return options;
+	}
+	
 	public String getRuntimeVersion() {
 		return ApplicationInfo.getInstance().getBuildNumber();
 	}	
@@ -107,6 +107,7 @@ import org.teiid.query.tempdata.BaseIndexInfo;
 import org.teiid.query.tempdata.GlobalTableStore;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.RowRange;
 import org.teiid.translator.CacheDirective;
 import org.teiid.translator.CacheDirective.Scope;
 import org.teiid.translator.TranslatorException;
@@ -757,7 +758,11 @@ public class DataTierManagerImpl implements ProcessorDataManager {
 		if (context.getDataObjects() != null) {
 			accessedGroups = GroupCollectorVisitor.getGroupsIgnoreInlineViews(command, false);
 			for (GroupSymbol gs : accessedGroups) {
-				context.accessedDataObject(gs.getMetadataID());
+				RowRange range = null;
+				if (command instanceof Query) {
+					range = RowRange.forAccess((Query)command, gs, accessedGroups);
+				}
+				context.accessedDataObject(gs.getMetadataID(), range);
 			}
 		}
 		ConnectorManagerRepository cmr = workItem.getDqpWorkContext().getVDB().getAttachment(ConnectorManagerRepository.class);
@@ -73,6 +73,8 @@ import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.ProcedureContainer;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.util.ModificationLog;
+import org.teiid.query.util.RowRange;
 import org.teiid.translator.CacheDirective.Scope;
 import org.teiid.translator.DataNotAvailableException;
 import org.teiid.translator.TranslatorException;
@@ -365,7 +367,7 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
 		if (!RelationalNodeUtil.isUpdate(command) || !(command instanceof ProcedureContainer)) {
 			return;
 		}
-		ProcedureContainer pc = (ProcedureContainer)aqr.getCommand();
+		ProcedureContainer pc = (ProcedureContainer)command;
 		GroupSymbol gs = pc.getGroup();
 		Integer zero = Integer.valueOf(0);
 		if (results.getResults().length <= commandIndex || zero.equals(results.getResults()[commandIndex].get(0))) {
@@ -379,7 +381,7 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
 			if (metadataId instanceof TempMetadataID) {
 				TempMetadataID tid = (TempMetadataID)metadataId;
 				if (tid.getTableData().getModel() != null) {
-					tid.getTableData().dataModified((Integer)results.getResults()[commandIndex].get(0));
+					tid.getTableData().dataModified((Integer)results.getResults()[commandIndex].get(0), RowRange.forModification(pc));
 				}
 			}
 			return;
@@ -389,6 +391,9 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
 		if (distributor != null) {
 			distributor.dataModification(this.workItem.getDqpWorkContext().getVdbName(), this.workItem.getDqpWorkContext().getVdbVersion(), t.getParent().getName(), t.getName());
 		}
+		//log after the distributor, which may also update the local modification time
+		ModificationLog log = ModificationLog.getLog(t, this.workItem.getDqpWorkContext().getVDB(), true);
+		log.modified(Math.max(ts, t.getLastDataModification()), RowRange.forModification(pc));
 	}
 
 	private AtomicResultsMessage asynchGet()
@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.Arrays;
+
+/**
+ * A count-min sketch of access frequencies in the style of TinyLFU.
+ * <br>
+ * Counters saturate at {@link #MAX_COUNT} and are halved once the number of 
+ * increments reaches the sample size so that the estimates favor recent history.
+ */
+public class FrequencySketch {
+	
+	public static final int MAX_COUNT = 15;
+	private static final int DEPTH = 4;
+	private static final int[] SEEDS = {0x97cb3127, 0x0b4b9b7b, 0x5b2f5e3f, 0x1b873593};
+	
+	private int[][] counters;
+	private int mask;
+	private int sampleSize;
+	private int additions;
+	
+	/**
+	 * @param width the approximate number of distinct items to track, rounded up to a power of 2
+	 */
+	public FrequencySketch(int width) {
+		int size = Integer.highestOneBit(Math.max(16, width - 1)) << 1;
+		this.counters = new int[DEPTH][size];
+		this.mask = size - 1;
+		this.sampleSize = size * 10;
+	}
+	
+	public synchronized void increment(int hash) {
+		boolean added = false;
+		for (int i = 0; i < DEPTH; i++) {
+			int index = index(hash, i);
+			if (counters[i][index] < MAX_COUNT) {
+				counters[i][index]++;
+				added = true;
+			}
+		}
+		if (added && ++additions >= sampleSize) {
+			reset();
+		}
+	}
+	
+	/**
+	 * @return the estimated frequency, which is never less than the actual frequency since the last reset
+	 */
+	public synchronized int frequency(int hash) {
+		int result = MAX_COUNT;
+		for (int i = 0; i < DEPTH; i++) {
+			result = Math.min(result, counters[i][index(hash, i)]);
+		}
+		return result;
+	}
+	
+	public synchronized void clear() {
+		for (int[] row : counters) {
+			Arrays.fill(row, 0);
+		}
+		additions = 0;
+	}
+	
+	private void reset() {
+		for (int[] row : counters) {
+			for (int i = 0; i < row.length; i++) {
+				row[i] >>>= 1;
+			}
+		}
+		additions /= 2;
+	}
+	
+	private int index(int hash, int i) {
+		int h = (hash ^ SEEDS[i]) * 0x9e3779b9;
+		h ^= h >>> 16;
+		return h & mask;
+	}
+
+}
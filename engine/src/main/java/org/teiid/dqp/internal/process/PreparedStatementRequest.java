@@ -23,12 +23,15 @@
 package org.teiid.dqp.internal.process;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.api.exception.query.QueryMetadataException;
+import org.teiid.api.exception.query.QueryParserException;
 import org.teiid.api.exception.query.QueryPlannerException;
 import org.teiid.api.exception.query.QueryResolverException;
 import org.teiid.api.exception.query.QueryValidatorException;
@@ -45,18 +48,35 @@ import org.teiid.query.eval.Evaluator;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.optimizer.BatchedUpdatePlanner;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities;
+import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.ProcessorPlan;
 import org.teiid.query.processor.relational.AccessNode;
 import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.resolver.util.ResolverUtil;
+import org.teiid.query.sql.LanguageVisitor;
 import org.teiid.query.sql.lang.BatchedUpdateCommand;
+import org.teiid.query.sql.lang.BetweenCriteria;
 import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.FromClause;
+import org.teiid.query.sql.lang.JoinPredicate;
+import org.teiid.query.sql.lang.MatchCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.QueryCommand;
 import org.teiid.query.sql.lang.SPParameter;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.lang.SetQuery;
 import org.teiid.query.sql.lang.StoredProcedure;
+import org.teiid.query.sql.lang.SubqueryContainer;
+import org.teiid.query.sql.lang.SubqueryFromClause;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.Reference;
 import org.teiid.query.sql.util.VariableContext;
+import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
 import org.teiid.query.util.CommandContext;
 
 
@@ -64,16 +84,184 @@ import org.teiid.query.util.CommandContext;
  * Specific request for handling prepared statement calls.
  */
 public class PreparedStatementRequest extends Request {
+	
+	/**
+	 * Replaces the literals of simple predicates with references so that statements
+	 * differing only by literal values can share a prepared plan.
+	 * <br>
+	 * Only the predicates of where, having, and join criteria are parameterized.  Expressions
+	 * in the select, group by, and order by clauses, including those nested in a having predicate, 
+	 * are left as is since they may be required to match each other.
+	 */
+	static class LiteralParameterizer extends LanguageVisitor {
+		
+		private IdentityHashMap<Reference, Object> values = new IdentityHashMap<Reference, Object>();
+		
+		private Expression lift(Expression expr) {
+			if (!(expr instanceof Constant)) {
+				return expr;
+			}
+			Constant constant = (Constant)expr;
+			if (constant.getValue() == null || constant.isMultiValued() 
+					|| DataTypeManager.isLOB(constant.getType()) || constant.getType() == DataTypeManager.DefaultDataClasses.OBJECT) {
+				return expr;
+			}
+			Reference ref = new Reference(values.size());
+			values.put(ref, constant.getValue());
+			return ref;
+		}
+		
+		@Override
+		public void visit(CompareCriteria obj) {
+			if (!(obj.getLeftExpression() instanceof Constant)) {
+				obj.setRightExpression(lift(obj.getRightExpression()));
+			} else if (!(obj.getRightExpression() instanceof Constant)) {
+				obj.setLeftExpression(lift(obj.getLeftExpression()));
+			}
+		}
+		
+		@Override
+		public void visit(SetCriteria obj) {
+			if (obj.getExpression() instanceof Constant) {
+				return;
+			}
+			List<Expression> liftedValues = new ArrayList<Expression>(obj.getValues().size());
+			for (Expression value : (Collection<Expression>)obj.getValues()) {
+				liftedValues.add(lift(value));
+			}
+			obj.setValues(liftedValues);
+		}
+		
+		@Override
+		public void visit(MatchCriteria obj) {
+			if (!(obj.getLeftExpression() instanceof Constant)) {
+				obj.setRightExpression(lift(obj.getRightExpression()));
+			}
+		}
+		
+		@Override
+		public void visit(BetweenCriteria obj) {
+			if (!(obj.getExpression() instanceof Constant)) {
+				obj.setLowerExpression(lift(obj.getLowerExpression()));
+				obj.setUpperExpression(lift(obj.getUpperExpression()));
+			}
+		}
+		
+		private void liftCommand(Command command) {
+			if (command instanceof SetQuery) {
+				for (QueryCommand queryCommand : ((SetQuery)command).getQueryCommands()) {
+					liftCommand(queryCommand);
+				}
+				return;
+			}
+			if (!(command instanceof Query)) {
+				return;
+			}
+			Query query = (Query)command;
+			if (query.getFrom() != null) {
+				for (FromClause clause : query.getFrom().getClauses()) {
+					liftFromClause(clause);
+				}
+			}
+			liftCriteria(query.getCriteria());
+			liftCriteria(query.getHaving());
+		}
+		
+		private void liftFromClause(FromClause clause) {
+			if (clause instanceof JoinPredicate) {
+				JoinPredicate jp = (JoinPredicate)clause;
+				liftFromClause(jp.getLeftClause());
+				liftFromClause(jp.getRightClause());
+				for (Criteria crit : (List<Criteria>)jp.getJoinCriteria()) {
+					liftCriteria(crit);
+				}
+			} else if (clause instanceof SubqueryFromClause) {
+				liftCommand(((SubqueryFromClause)clause).getCommand());
+			}
+		}
+		
+		private void liftCriteria(Criteria crit) {
+			if (crit instanceof CompoundCriteria) {
+				for (Criteria child : ((CompoundCriteria)crit).getCriteria()) {
+					liftCriteria(child);
+				}
+			} else if (crit instanceof NotCriteria) {
+				liftCriteria(((NotCriteria)crit).getCriteria());
+			} else if (crit instanceof SubqueryContainer<?>) {
+				liftCommand(((SubqueryContainer<?>)crit).getCommand());
+			} else if (crit != null) {
+				//only the predicate itself, not any nested expression
+				crit.acceptVisitor(this);
+			}
+		}
+		
+		/**
+		 * Lift the literals of the resolved command.
+		 * @return the literal values in reference order or null if nothing was lifted
+		 */
+		static List<Object> parameterize(Command command) {
+			LiteralParameterizer visitor = new LiteralParameterizer();
+			visitor.liftCommand(command);
+			if (visitor.values.isEmpty()) {
+				return null;
+			}
+			List<Object> result = new ArrayList<Object>(visitor.values.size());
+			for (Reference ref : ReferenceCollectorVisitor.getReferences(command)) {
+				result.add(visitor.values.get(ref));
+			}
+			return result;
+		}
+	}
+	
     private SessionAwareCache<PreparedPlan> prepPlanCache;
     private PreparedPlan prepPlan;
+    private boolean autoParameterize;
+    private String parameterizedSql;
+    private List<?> parameterizedValues;
     
     public PreparedStatementRequest(SessionAwareCache<PreparedPlan> prepPlanCache) {
     	this.prepPlanCache = prepPlanCache;
     }
     
+    /**
+     * Plan a plain statement as if it were prepared with its predicate literals
+     * lifted into parameters.
+     */
+    public void setAutoParameterize(boolean autoParameterize) {
+		this.autoParameterize = autoParameterize;
+	}
+    
+    @Override
+    protected Command parseCommand() throws QueryParserException {
+    	if (parameterizedSql != null) {
+    		return QueryParser.getQueryParser().parseCommand(parameterizedSql, createParseInfo(this.requestMsg));
+    	}
+    	return super.parseCommand();
+    }
+    
+    @Override
+    protected void createCommandContext(Command command)
+    		throws QueryValidatorException {
+    	super.createCommandContext(command);
+    	if (parameterizedValues != null && prepPlan != null && prepPlan.getReferences() != null) {
+    		//make the lifted values visible to costing, the plan itself does not depend upon them
+    		VariableContext vc = new VariableContext();
+    		List<Reference> references = prepPlan.getReferences();
+    		for (int i = 0; i < references.size() && i < parameterizedValues.size(); i++) {
+    			vc.setGlobalValue(references.get(i).getContextSymbol(), parameterizedValues.get(i));
+    		}
+    		this.context.setVariableContext(vc);
+    	}
+    }
+    
     @Override
     protected void checkReferences(List<Reference> references)
     		throws QueryValidatorException {
+    	if (autoParameterize && parameterizedSql == null) {
+    		//planning as a normal statement
+    		super.checkReferences(references);
+    		return;
+    	}
     	for (Iterator<Reference> i = references.iterator(); i.hasNext();) {
     		if (i.next().isOptional()) {
     			i.remove(); //remove any optional parameter, which accounts for out params - the client does not send any bindings
@@ -90,6 +278,17 @@ public class PreparedStatementRequest extends Request {
 	@Override
     protected void generatePlan(boolean addLimit) throws TeiidComponentException, TeiidProcessingException {
     	String sqlQuery = requestMsg.getCommands()[0];
+    	List<?> values = requestMsg.getParameterValues();
+    	if (autoParameterize) {
+    		values = parameterize();
+    		if (values == null) {
+    			//nothing to share, plan as a normal statement
+    			super.generatePlan(addLimit);
+    			return;
+    		}
+    		sqlQuery = parameterizedSql;
+    		parameterizedValues = values;
+    	}
     	CacheID id = new CacheID(this.workContext, Request.createParseInfo(this.requestMsg), sqlQuery);
         prepPlan = prepPlanCache.get(id);
         
@@ -137,11 +336,29 @@ public class PreparedStatementRequest extends Request {
 	        handlePreparedBatchUpdate();
         } else {
 	        List<Reference> params = prepPlan.getReferences();
-	        List<?> values = requestMsg.getParameterValues();
 	
 	    	PreparedStatementRequest.resolveParameterValues(params, values, this.context, this.metadata);
         }
     }
+	
+	/**
+	 * Resolve the statement and lift the literals
+	 * @return the literal values or null if the statement should not be parameterized
+	 */
+	private List<Object> parameterize() throws QueryParserException, QueryResolverException, TeiidComponentException {
+		Command command = super.parseCommand();
+		if (!(command instanceof QueryCommand) || (command instanceof Query && ((Query)command).getIsXML()) 
+				|| !ReferenceCollectorVisitor.getReferences(command).isEmpty()) {
+			return null;
+		}
+		resolveCommand(command);
+		List<Object> values = LiteralParameterizer.parameterize(command);
+		if (values != null) {
+			parameterizedSql = command.toString();
+			LogManager.logTrace(LogConstants.CTX_DQP, new Object[] { "Parameterized statement: ", parameterizedSql }); //$NON-NLS-1$
+		}
+		return values;
+	}
 
     /**
      * There are two cases
@@ -58,6 +58,7 @@ import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempCapabilitiesFinder;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.optimizer.QueryOptimizer;
+import org.teiid.query.optimizer.relational.CardinalityFeedback;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.parser.ParseInfo;
 import org.teiid.query.parser.QueryParser;
@@ -233,6 +234,9 @@ public class Request {
         	context.setReturnAutoGeneratedKeys(this.requestMsg.isReturnAutoGeneratedKeys());
         }
         this.context.setOptions(options);
+        if (options != null && options.isCardinalityFeedback()) {
+        	this.context.setCardinalityFeedback(getCardinalityFeedback(workContext.getVDB()));
+        }
         this.context.setSession(workContext.getSession());
         this.context.setRequestId(this.requestId);
         this.context.setDQPWorkContext(this.workContext);
@@ -240,6 +244,17 @@ public class Request {
         this.context.setVDBClassLoader(workContext.getVDB().getAttachment(ClassLoader.class));
     }
     
+    private static CardinalityFeedback getCardinalityFeedback(VDBMetaData vdb) {
+    	synchronized (vdb) {
+    		CardinalityFeedback feedback = vdb.getAttachment(CardinalityFeedback.class);
+    		if (feedback == null) {
+    			feedback = new CardinalityFeedback();
+    			vdb.addAttchment(CardinalityFeedback.class, feedback);
+    		}
+    		return feedback;
+    	}
+    }
+    
     public void setUserRequestConcurrency(int userRequestConcurrency) {
 		this.userRequestConcurrency = userRequestConcurrency;
 	}
@@ -268,7 +283,7 @@ public class Request {
         validateWithVisitor(visitor, metadata, command);
     }
     
-    private Command parseCommand() throws QueryParserException {
+    protected Command parseCommand() throws QueryParserException {
     	if (requestMsg.getCommand() != null) {
     		return (Command)requestMsg.getCommand();
     	}
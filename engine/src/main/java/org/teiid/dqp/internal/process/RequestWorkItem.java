@@ -42,6 +42,9 @@ import org.teiid.client.ResultsMessage;
 import org.teiid.client.lob.LobChunk;
 import org.teiid.client.metadata.ParameterInfo;
 import org.teiid.client.util.ResultsReceiver;
+import org.teiid.adminapi.impl.VDBMetaData;
+import org.teiid.api.exception.query.QueryParserException;
+import org.teiid.api.exception.query.QueryResolverException;
 import org.teiid.client.xa.XATransactionException;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
@@ -77,6 +80,7 @@ import org.teiid.query.processor.QueryProcessor;
 import org.teiid.query.processor.QueryProcessor.ExpiredTimeSliceException;
 import org.teiid.query.sql.lang.CacheHint;
 import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.SPParameter;
 import org.teiid.query.sql.lang.StoredProcedure;
 import org.teiid.query.sql.symbol.Expression;
@@ -205,6 +209,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 
 	private boolean explicitSourceClose;
 	private int schemaSize;
+	private boolean derivedResults;
     
     public RequestWorkItem(DQPCore dqpCore, RequestMessage requestMsg, Request request, ResultsReceiver<ResultsMessage> receiver, RequestID requestID, DQPWorkContext workContext) {
         this.requestMsg = requestMsg;
@@ -498,6 +503,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 					
 					CommandContext cc = this.processor.getContext();
 					cc.close();
+				} else if (this.derivedResults) {
+					rowcount = resultsBuffer.getRowCount();
+					resultsBuffer.remove();
 				}
 	
 				this.resultsBuffer = null;
@@ -590,7 +598,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 							return;
 						}
 						LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Cached result command to be modified, will not use the cached results", cacheId); //$NON-NLS-1$
-					} 
+					} else if (cr == null && dqpCore.getOptions().isSemanticResultCache() && useSemanticResultCache(rsCache, cacheId)) {
+						return;
+					}
 				} else {
 					LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Parameters are not serializable - cache cannot be used for", cacheId); //$NON-NLS-1$
 				}
@@ -723,6 +733,52 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		return QueryParser.getQueryParser().parseCacheHint(requestMsg.getCommandString());
 	}
 	
+	/**
+	 * Attempt to produce the results by filtering the cached results of a containing query
+	 * @return true if the results were produced
+	 */
+	private boolean useSemanticResultCache(SessionAwareCache<CachedResults> rsCache, CacheID cacheId) throws TeiidComponentException, TeiidProcessingException {
+		if (requestMsg.getCommand() != null || (requestMsg.getParameterValues() != null && !requestMsg.getParameterValues().isEmpty())) {
+			return false;
+		}
+		VDBMetaData vdb = this.dqpWorkContext.getVDB();
+		SemanticResultCache semanticCache = SemanticResultCache.getSemanticResultCache(vdb, false);
+		if (semanticCache == null) {
+			return false;
+		}
+		request.initMetadata();
+		Command command = null;
+		try {
+			command = request.parseCommand();
+			request.resolveCommand(command);
+		} catch (QueryParserException e) {
+			return false;
+		} catch (QueryResolverException e) {
+			return false;
+		}
+		if (SemanticResultCache.getGroup(command) == null) {
+			return false;
+		}
+		Query query = (Query)command;
+		for (SemanticResultCache.Entry entry : semanticCache.getCandidates(query)) {
+			CachedResults cr = rsCache.get(new CacheID(this.dqpWorkContext, entry.parseInfo, entry.sql));
+			if (cr == null || cr.getRowLimit() != 0 || cr.getResults().isLobs()) {
+				continue;
+			}
+			if (request.validateAccess(requestMsg.getCommands(), command, CommandType.CACHED)) {
+				LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Command to be modified, will not use the semantic result cache", cacheId); //$NON-NLS-1$
+				return false;
+			}
+			LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Deriving results from the cached results of", entry.sql); //$NON-NLS-1$
+			this.originalCommand = command;
+			this.resultsBuffer = SemanticResultCache.filter(cr.getResults(), entry.query, query, dqpCore.getBufferManager(), request.context, requestMsg.getRowLimit());
+			this.derivedResults = true;
+			doneProducingBatches();
+			return true;
+		}
+		return false;
+	}
+	
 	private void addToCache() {
 		if (!doneProducingBatches || cid == null) {
 			return;
@@ -731,6 +787,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     	CachedResults cr = new CachedResults();
     	cr.setCommand(originalCommand);
         cr.setResults(resultsBuffer, processor.getProcessorPlan());
+        cr.setComputeTime(System.currentTimeMillis() - processingTimestamp);
         if (requestMsg.getRowLimit() > 0 && resultsBuffer.getRowCount() == requestMsg.getRowLimit() + (collector.isSaveLastRow()?1:0)) {
         	cr.setRowLimit(requestMsg.getRowLimit());
         }
@@ -752,6 +809,11 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			LogManager.logInfo(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30008, originalCommand));
 		}
         dqpCore.getRsCache().put(cid, determinismLevel, cr, originalCommand.getCacheHint() != null?originalCommand.getCacheHint().getTtl():null);
+        if (dqpCore.getOptions().isSemanticResultCache() && requestMsg.getCommand() == null 
+        		&& (requestMsg.getParameterValues() == null || requestMsg.getParameterValues().isEmpty())
+        		&& SemanticResultCache.getGroup(originalCommand) != null) {
+        	SemanticResultCache.getSemanticResultCache(this.dqpWorkContext.getVDB(), true).register(requestMsg.getCommandString(), Request.createParseInfo(requestMsg), (Query)originalCommand);
+        }
 	}
 	
 	public SessionAwareCache<CachedResults> getRsCache() {
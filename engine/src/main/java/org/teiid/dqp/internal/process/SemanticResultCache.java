@@ -0,0 +1,308 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.adminapi.impl.VDBMetaData;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.util.LRUCache;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.parser.ParseInfo;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.FromClause;
+import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.lang.OrderByItem;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.UnaryFromClause;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
+import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
+import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.RowRange;
+
+/**
+ * An index over the result set cache entries of simple single group queries.
+ * A request that misses the cache may instead be answered by filtering the cached 
+ * results of a query over the same group, if the cached projection covers the request 
+ * and the cached criteria contain the request criteria.
+ * <br>
+ * The index only holds the cached commands.  The results are still obtained through
+ * the result set cache so that scoping and invalidation apply.
+ */
+public class SemanticResultCache {
+	
+	public static final int MAX_GROUPS = 1024;
+	public static final int MAX_ENTRIES_PER_GROUP = 16;
+	
+	static class Entry {
+		String sql;
+		ParseInfo parseInfo;
+		Query query;
+		
+		Entry(String sql, ParseInfo parseInfo, Query query) {
+			this.sql = sql;
+			this.parseInfo = parseInfo;
+			this.query = query;
+		}
+	}
+	
+	private LRUCache<Object, LinkedList<Entry>> entries = new LRUCache<Object, LinkedList<Entry>>(MAX_GROUPS);
+	
+	static SemanticResultCache getSemanticResultCache(VDBMetaData vdb, boolean create) {
+		synchronized (vdb) {
+			SemanticResultCache cache = vdb.getAttachment(SemanticResultCache.class);
+			if (cache == null && create) {
+				cache = new SemanticResultCache();
+				vdb.addAttchment(SemanticResultCache.class, cache);
+			}
+			return cache;
+		}
+	}
+	
+	/**
+	 * Get the group of a query that can be used with the semantic cache.  
+	 * The query must be a projection of the columns of a single non-temporary group 
+	 * with optional deterministic, subquery free criteria and ordering.
+	 * @return the group or null if the command is not eligible
+	 */
+	static GroupSymbol getGroup(Command command) {
+		if (!(command instanceof Query)) {
+			return null;
+		}
+		Query query = (Query)command;
+		if (query.getIsXML() || query.getInto() != null || query.getFrom() == null || query.getGroupBy() != null 
+				|| query.getHaving() != null || query.getSelect().isDistinct() || query.getLimit() != null 
+				|| query.getOption() != null || query.getWith() != null || query.getFrom().getClauses().size() != 1) {
+			return null;
+		}
+		FromClause clause = query.getFrom().getClauses().get(0);
+		if (!(clause instanceof UnaryFromClause)) {
+			return null;
+		}
+		GroupSymbol group = ((UnaryFromClause)clause).getGroup();
+		if (group.isTempGroupSymbol()) {
+			return null;
+		}
+		for (Expression ex : query.getProjectedSymbols()) {
+			if (!(SymbolMap.getExpression(ex) instanceof ElementSymbol)) {
+				return null;
+			}
+		}
+		Criteria crit = query.getCriteria();
+		if (crit != null && (!ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(crit).isEmpty()
+				|| !ReferenceCollectorVisitor.getReferences(crit).isEmpty() 
+				|| FunctionCollectorVisitor.isNonDeterministic(crit))) {
+			return null;
+		}
+		if (query.getOrderBy() != null) {
+			for (OrderByItem item : query.getOrderBy().getOrderByItems()) {
+				if (!(SymbolMap.getExpression(item.getSymbol()) instanceof ElementSymbol)) {
+					return null;
+				}
+			}
+		}
+		return group;
+	}
+	
+	/**
+	 * Register a cached query, which must be eligible
+	 */
+	public synchronized void register(String sql, ParseInfo parseInfo, Query query) {
+		Object key = getGroup(query).getMetadataID();
+		LinkedList<Entry> groupEntries = entries.get(key);
+		if (groupEntries == null) {
+			groupEntries = new LinkedList<Entry>();
+			entries.put(key, groupEntries);
+		}
+		for (Iterator<Entry> iter = groupEntries.iterator(); iter.hasNext();) {
+			Entry entry = iter.next();
+			if (entry.sql.equals(sql) && entry.parseInfo.equals(parseInfo)) {
+				iter.remove();
+			}
+		}
+		groupEntries.addFirst(new Entry(sql, parseInfo, query));
+		if (groupEntries.size() > MAX_ENTRIES_PER_GROUP) {
+			groupEntries.removeLast();
+		}
+	}
+	
+	/**
+	 * @return the most recently registered entries for the group of the query that contain the query
+	 */
+	public synchronized List<Entry> getCandidates(Query query) {
+		LinkedList<Entry> groupEntries = entries.get(getGroup(query).getMetadataID());
+		if (groupEntries == null) {
+			return Collections.emptyList();
+		}
+		List<Entry> result = new ArrayList<Entry>(2);
+		for (Entry entry : groupEntries) {
+			if (contains(entry.query, query)) {
+				result.add(entry);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Determine if the results of the cached query can be filtered to produce the results of the query.
+	 * Both queries must be eligible.
+	 */
+	static boolean contains(Query cached, Query query) {
+		GroupSymbol group = getGroup(query);
+		if (!group.equals(getGroup(cached))) {
+			return false;
+		}
+		Map<Expression, Integer> elementMap = getElementMap(cached);
+		for (Expression ex : query.getProjectedSymbols()) {
+			if (!elementMap.containsKey(SymbolMap.getExpression(ex))) {
+				return false;
+			}
+		}
+		if (query.getCriteria() != null) {
+			for (ElementSymbol element : ElementCollectorVisitor.getElements(query.getCriteria(), true)) {
+				if (!elementMap.containsKey(element)) {
+					return false;
+				}
+			}
+		}
+		if (query.getOrderBy() != null && !sameOrdering(query.getOrderBy(), cached.getOrderBy())) {
+			return false;
+		}
+		if (cached.getCriteria() == null) {
+			return true;
+		}
+		if (query.getCriteria() == null) {
+			return false;
+		}
+		List<Criteria> conjuncts = Criteria.separateCriteriaByAnd(query.getCriteria());
+		RowRange range = null;
+		for (Criteria cachedConjunct : Criteria.separateCriteriaByAnd(cached.getCriteria())) {
+			if (conjuncts.contains(cachedConjunct)) {
+				continue;
+			}
+			//the cached conjunct must be fully represented, otherwise it may exclude rows the query needs
+			RowRange cachedRange = RowRange.forExactCriteria(cachedConjunct, group);
+			if (cachedRange == null) {
+				return false;
+			}
+			if (range == null) {
+				range = RowRange.forCriteria(query.getCriteria(), group);
+				if (range == null) {
+					return false;
+				}
+			}
+			if (!range.within(cachedRange)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean sameOrdering(OrderBy orderBy, OrderBy cachedOrderBy) {
+		if (cachedOrderBy == null || cachedOrderBy.getOrderByItems().size() != orderBy.getOrderByItems().size()) {
+			return false;
+		}
+		for (int i = 0; i < orderBy.getOrderByItems().size(); i++) {
+			OrderByItem item = orderBy.getOrderByItems().get(i);
+			OrderByItem cachedItem = cachedOrderBy.getOrderByItems().get(i);
+			if (item.isAscending() != cachedItem.isAscending() || item.getNullOrdering() != cachedItem.getNullOrdering()
+					|| !SymbolMap.getExpression(item.getSymbol()).equals(SymbolMap.getExpression(cachedItem.getSymbol()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static Map<Expression, Integer> getElementMap(Query query) {
+		List<Expression> projected = query.getProjectedSymbols();
+		Map<Expression, Integer> elementMap = new HashMap<Expression, Integer>();
+		for (int i = 0; i < projected.size(); i++) {
+			elementMap.put(SymbolMap.getExpression(projected.get(i)), i);
+		}
+		return elementMap;
+	}
+	
+	/**
+	 * Produce the results of the query from the results of the containing cached query.
+	 * @param rowLimit the maximum number of rows or 0 if unlimited
+	 */
+	static TupleBuffer filter(TupleBuffer cachedResults, Query cached, Query query, BufferManager bufferManager, 
+			CommandContext context, int rowLimit) throws TeiidComponentException, TeiidProcessingException {
+		Map<Expression, Integer> elementMap = getElementMap(cached);
+		List<Expression> projected = query.getProjectedSymbols();
+		int[] indexes = new int[projected.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = elementMap.get(SymbolMap.getExpression(projected.get(i)));
+		}
+		Criteria crit = query.getCriteria();
+		Evaluator eval = new Evaluator(elementMap, null, context);
+		TupleBuffer result = bufferManager.createTupleBuffer(projected, context.getConnectionId(), TupleSourceType.FINAL);
+		TupleSource ts = cachedResults.createIndexedTupleSource();
+		try {
+			List<?> tuple = null;
+			while ((tuple = ts.nextTuple()) != null) {
+				if (crit != null && !eval.evaluate(crit, tuple)) {
+					continue;
+				}
+				List<Object> row = new ArrayList<Object>(indexes.length);
+				for (int index : indexes) {
+					row.add(tuple.get(index));
+				}
+				result.addTuple(row);
+				if (rowLimit > 0 && result.getRowCount() >= rowLimit) {
+					break;
+				}
+			}
+			result.close();
+		} catch (TeiidComponentException e) {
+			result.remove();
+			throw e;
+		} catch (TeiidProcessingException e) {
+			result.remove();
+			throw e;
+		} finally {
+			ts.closeSource();
+		}
+		return result;
+	}
+
+}
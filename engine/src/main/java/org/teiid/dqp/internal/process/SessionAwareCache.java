@@ -25,9 +25,14 @@ package org.teiid.dqp.internal.process;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.teiid.adminapi.Admin;
 import org.teiid.cache.Cachable;
@@ -37,6 +42,7 @@ import org.teiid.common.buffer.TupleBufferCache;
 import org.teiid.core.util.Assertion;
 import org.teiid.core.util.EquivalenceUtil;
 import org.teiid.core.util.HashCodeUtil;
+import org.teiid.core.util.PropertiesUtils;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.metadata.FunctionMethod.Determinism;
@@ -46,10 +52,17 @@ import org.teiid.vdb.runtime.VDBKey;
 
 /**
  * This class is used to cache session aware objects
+ * <br>
+ * When a maximum size in bytes is set, result set entries are subject to a TinyLFU style
+ * admission filter.  Once the budget is exhausted a new entry is only admitted if it is 
+ * more valuable than the entries that would be evicted to make room for it, where value 
+ * is the access frequency times the compute cost divided by the size.
  */
 public class SessionAwareCache<T> {
 	public static final String REPL = "-repl"; //$NON-NLS-1$
 	public static final int DEFAULT_MAX_SIZE_TOTAL = 512;
+	public static final long DEFAULT_MAX_SIZE_IN_BYTES = PropertiesUtils.getLongProperty(System.getProperties(), "org.teiid.maxResultSetCacheSizeInBytes", 0); //$NON-NLS-1$
+	private static final int SKETCH_WIDTH = 4096;
 	public enum Type {
 		RESULTSET,
 		PREPAREDPLAN;
@@ -64,9 +77,32 @@ public class SessionAwareCache<T> {
 	private AtomicInteger cacheHit = new AtomicInteger();
 	private AtomicInteger totalRequests = new AtomicInteger();
 	private AtomicInteger cachePuts = new AtomicInteger();
+	private AtomicInteger admissions = new AtomicInteger();
+	private AtomicInteger rejections = new AtomicInteger();
+	private AtomicInteger evictions = new AtomicInteger();
+	private AtomicLong occupiedBytes = new AtomicLong();
+	
+	private long maxSizeInBytes = DEFAULT_MAX_SIZE_IN_BYTES;
+	private FrequencySketch sketch = new FrequencySketch(SKETCH_WIDTH);
+	private Map<CacheID, EntryWeight> weights = new ConcurrentHashMap<CacheID, EntryWeight>();
 	
 	private TupleBufferCache bufferManager;
 	
+	private static class EntryWeight {
+		Cache<CacheID, ?> cache;
+		int hash;
+		long size;
+		long computeTime;
+		double score;
+		
+		EntryWeight(Cache<CacheID, ?> cache, int hash, long size, long computeTime) {
+			this.cache = cache;
+			this.hash = hash;
+			this.size = size;
+			this.computeTime = computeTime;
+		}
+	}
+	
 	public SessionAwareCache (String cacheName, final CacheFactory cacheFactory, final Type type, int maxStaleness) {
 		assert (cacheFactory != null);
 		
@@ -91,19 +127,28 @@ public class SessionAwareCache<T> {
 	public T get(CacheID id){
 
 		this.totalRequests.getAndIncrement();
+		if (type == Type.RESULTSET) {
+			this.sketch.increment(id.getFrequencyHash());
+		}
 		
 		id.setSessionId(id.originalSessionId);
 		T result = localCache.get(id);
 		
 		if (result == null) {
+			//lazily release the weights of entries expired or evicted by the underlying caches
+			removeWeight(id);
 			id.setSessionId(null);
 			
 			id.setUserName(id.originalUserName);
 			result = distributedCache.get(id);
 			
 			if (result == null) {
+				removeWeight(id);
 				id.setUserName(null);
 				result = distributedCache.get(id);
+				if (result == null) {
+					removeWeight(id);
+				}
 			}
 			
 			if (result instanceof Cachable) {
@@ -125,6 +170,7 @@ public class SessionAwareCache<T> {
 					} else {
 						this.localCache.remove(id);
 					}
+					removeWeight(id);
 					return null;
 				}
 			}
@@ -148,6 +194,36 @@ public class SessionAwareCache<T> {
 		return cachePuts.get();
 	}
 	
+	/**
+	 * @return the number of entries accepted by the admission filter
+	 */
+	public int getAdmissionCount() {
+		return admissions.get();
+	}
+	
+	/**
+	 * @return the number of entries rejected by the admission filter
+	 */
+	public int getRejectionCount() {
+		return rejections.get();
+	}
+	
+	/**
+	 * @return the number of entries evicted to stay within the size in bytes
+	 */
+	public int getEvictionCount() {
+		return evictions.get();
+	}
+	
+	/**
+	 * @return the estimated bytes held by the sized entries.  Entries expired or evicted 
+	 * by the underlying cache are only accounted for once a lookup misses them or they
+	 * are chosen for eviction.
+	 */
+	public long getOccupiedBytes() {
+		return occupiedBytes.get();
+	}
+	
 	public int getTotalCacheEntries() {
 		if (this.localCache == this.distributedCache) {
 			return this.localCache.size();
@@ -157,34 +233,134 @@ public class SessionAwareCache<T> {
 	
 	public void put(CacheID id, Determinism determinismLevel, T t, Long ttl){
 		cachePuts.incrementAndGet();
-		if (determinismLevel.compareTo(Determinism.SESSION_DETERMINISTIC) <= 0) {
-			id.setSessionId(id.originalSessionId);
-			LogManager.logTrace(LogConstants.CTX_DQP, "Adding to session/local cache", id); //$NON-NLS-1$
-			this.localCache.put(id, t, ttl);
-		} 
-		else {
-			
-			boolean insert = true;
-			
-			id.setSessionId(null);
-			
-			if (determinismLevel == Determinism.USER_DETERMINISTIC) {
-				id.setUserName(id.originalUserName);
+		EntryWeight weight = null;
+		if (this.maxSizeInBytes > 0 && t instanceof CachedResults) {
+			CachedResults cr = (CachedResults)t;
+			Cache<CacheID, T> cache = determinismLevel.compareTo(Determinism.SESSION_DETERMINISTIC) <= 0?this.localCache:this.distributedCache;
+			weight = new EntryWeight(cache, id.getFrequencyHash(), cr.getSizeEstimate(), cr.getComputeTime());
+			if (!admit(weight)) {
+				rejections.incrementAndGet();
+				LogManager.logDetail(LogConstants.CTX_DQP, "Rejecting cache entry", id, "of estimated size", weight.size); //$NON-NLS-1$ //$NON-NLS-2$
+				return;
 			}
+			admissions.incrementAndGet();
+		}
+		boolean added = false;
+		try {
+			if (determinismLevel.compareTo(Determinism.SESSION_DETERMINISTIC) <= 0) {
+				id.setSessionId(id.originalSessionId);
+				LogManager.logTrace(LogConstants.CTX_DQP, "Adding to session/local cache", id); //$NON-NLS-1$
+				this.localCache.put(id, t, ttl);
+				added = addWeight(id, weight);
+			} 
 			else {
-				id.setUserName(null);
+				
+				boolean insert = true;
+				
+				id.setSessionId(null);
+				
+				if (determinismLevel == Determinism.USER_DETERMINISTIC) {
+					id.setUserName(id.originalUserName);
+				}
+				else {
+					id.setUserName(null);
+				}
+				
+				if (t instanceof Cachable) {
+					Cachable c = (Cachable)t;
+					insert = c.prepare(this.bufferManager);
+				}
+				
+				if (insert) {
+					LogManager.logTrace(LogConstants.CTX_DQP, "Adding to global/distributed cache", id); //$NON-NLS-1$
+					this.distributedCache.put(id, t, ttl);
+					added = addWeight(id, weight);
+				}
 			}
-			
-			if (t instanceof Cachable) {
-				Cachable c = (Cachable)t;
-				insert = c.prepare(this.bufferManager);
+		} finally {
+			if (!added && weight != null) {
+				//release the bytes reserved by admit
+				occupiedBytes.addAndGet(-weight.size);
 			}
-			
-			if (insert) {
-				LogManager.logTrace(LogConstants.CTX_DQP, "Adding to global/distributed cache", id); //$NON-NLS-1$
-				this.distributedCache.put(id, t, ttl);
+		}
+	}
+	
+	/**
+	 * Track the weight of the entry.  The weight is keyed by a copy of the id, since
+	 * the caller may modify the id after the put.
+	 * @return true if the weight was added
+	 */
+	private boolean addWeight(CacheID id, EntryWeight weight) {
+		if (weight == null) {
+			return false;
+		}
+		EntryWeight old = this.weights.put(id.copy(), weight);
+		if (old != null) {
+			occupiedBytes.addAndGet(-old.size);
+		}
+		return true;
+	}
+	
+	private void removeWeight(CacheID id) {
+		EntryWeight old = this.weights.remove(id);
+		if (old != null) {
+			occupiedBytes.addAndGet(-old.size);
+		}
+	}
+	
+	private double score(EntryWeight weight) {
+		return (double)Math.max(1, this.sketch.frequency(weight.hash)) * (1 + weight.computeTime) / Math.max(1, weight.size);
+	}
+	
+	/**
+	 * Determine if the entry should be admitted.  If needed to stay within the 
+	 * size in bytes the least valuable entries are evicted, but only if they are all 
+	 * less valuable than the new entry.
+	 * <br>
+	 * If admitted the bytes of the new entry are reserved.
+	 * <br>
+	 * The underlying caches are not probed, since with a distributed cache that would be 
+	 * a remote get per entry and would also refresh the recency of every entry.
+	 */
+	private synchronized boolean admit(EntryWeight candidate) {
+		if (candidate.size > this.maxSizeInBytes) {
+			return false;
+		}
+		long needed = occupiedBytes.get() + candidate.size - this.maxSizeInBytes;
+		if (needed > 0) {
+			double candidateScore = score(candidate);
+			List<Map.Entry<CacheID, EntryWeight>> entries = new ArrayList<Map.Entry<CacheID, EntryWeight>>(this.weights.entrySet());
+			for (Map.Entry<CacheID, EntryWeight> entry : entries) {
+				entry.getValue().score = score(entry.getValue());
+			}
+			Collections.sort(entries, new Comparator<Map.Entry<CacheID, EntryWeight>>() {
+				@Override
+				public int compare(Map.Entry<CacheID, EntryWeight> o1, Map.Entry<CacheID, EntryWeight> o2) {
+					return Double.compare(o1.getValue().score, o2.getValue().score);
+				}
+			});
+			int victims = 0;
+			long freed = 0;
+			for (; victims < entries.size() && freed < needed; victims++) {
+				EntryWeight victim = entries.get(victims).getValue();
+				if (victim.score >= candidateScore) {
+					return false;
+				}
+				freed += victim.size;
+			}
+			if (freed < needed) {
+				return false;
+			}
+			for (int i = 0; i < victims; i++) {
+				Map.Entry<CacheID, EntryWeight> entry = entries.get(i);
+				LogManager.logTrace(LogConstants.CTX_DQP, "Evicting cache entry", entry.getKey()); //$NON-NLS-1$
+				entry.getValue().cache.remove(entry.getKey());
+				removeWeight(entry.getKey());
+				evictions.incrementAndGet();
 			}
 		}
+		occupiedBytes.addAndGet(candidate.size);
+		return true;
 	}
 	
 	/**
@@ -194,9 +370,15 @@ public class SessionAwareCache<T> {
 	public void clearAll(){
 		this.localCache.clear();
 		this.distributedCache.clear();
+		this.weights.clear();
+		this.sketch.clear();
 		this.totalRequests.set(0);
 		this.cacheHit.set(0);
 		this.cachePuts.set(0);
+		this.admissions.set(0);
+		this.rejections.set(0);
+		this.evictions.set(0);
+		this.occupiedBytes.set(0);
 	}	
 	
 	public void clearForVDB(String vdbName, int version) {
@@ -212,6 +394,11 @@ public class SessionAwareCache<T> {
 				cache.remove(key);
 			}
 		}
+		for (CacheID key : new ArrayList<CacheID>(this.weights.keySet())) {
+			if (key.vdbInfo.equals(vdbKey)) {
+				removeWeight(key);
+			}
+		}
 	}
 	
 	public static class CacheID implements Serializable {
@@ -237,6 +424,26 @@ public class SessionAwareCache<T> {
 			this.originalSessionId = sessionId;
 			this.originalUserName = userName;
 		}
+		
+		private CacheID(CacheID id) {
+			this.sql = id.sql;
+			this.vdbInfo = id.vdbInfo;
+			this.ansiIdentifiers = id.ansiIdentifiers;
+			this.sessionId = id.sessionId;
+			this.originalSessionId = id.originalSessionId;
+			if (id.parameters != null) {
+				this.parameters = new ArrayList<Serializable>(id.parameters);
+			}
+			this.userName = id.userName;
+			this.originalUserName = id.originalUserName;
+		}
+		
+		/**
+		 * @return a copy that is not affected by later changes to this id
+		 */
+		CacheID copy() {
+			return new CacheID(this);
+		}
 
 		
 		public String getSessionId() {
@@ -280,6 +487,13 @@ public class SessionAwareCache<T> {
 		public VDBKey getVDBKey() {
 			return vdbInfo;
 		}
+		
+		/**
+		 * @return a hash of the command that does not depend upon the scope of the entry
+		 */
+		int getFrequencyHash() {
+			return HashCodeUtil.hashCode(0, vdbInfo, sql, parameters);
+		}
 						
 		public boolean equals(Object obj){
 	        if(obj == this) {
@@ -314,6 +528,18 @@ public class SessionAwareCache<T> {
 		this.modTime = modTime;
 	}
     
+    /**
+     * Set the maximum estimated size in bytes of the result set entries.  
+     * A value of 0 or less disables the size bound and admission filtering.
+     */
+    public void setMaxSizeInBytes(long maxSizeInBytes) {
+		this.maxSizeInBytes = maxSizeInBytes;
+	}
+    
+    public long getMaxSizeInBytes() {
+		return maxSizeInBytes;
+	}
+    
     public static Collection<String> getCacheTypes(){
     	ArrayList<String> caches = new ArrayList<String>();
     	caches.add(Admin.Cache.PREPARED_PLAN_CACHE.toString());
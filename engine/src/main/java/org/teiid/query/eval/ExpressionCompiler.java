@@ -0,0 +1,653 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.eval;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.util.EquivalenceUtil;
+import org.teiid.metadata.FunctionMethod.Determinism;
+import org.teiid.metadata.FunctionMethod.PushDown;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.symbol.CaseExpression;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.DerivedExpression;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.SearchedCaseExpression;
+
+/**
+ * Compiles {@link Expression} and {@link Criteria} trees into trees of specialized
+ * evaluation nodes.  Element references are bound to tuple indexes, deterministic 
+ * functions of constants are folded, and functions are bound to their {@link FunctionDescriptor} once
+ * so that per row evaluation avoids the type dispatch and map lookups performed by
+ * the {@link Evaluator}.
+ * <br/>
+ * Constructs that are not compiled (subqueries, xml, lookups, etc.) are delegated 
+ * back to the {@link Evaluator} passed in at evaluation time.
+ * <br/>
+ * Compiled expressions and criteria may also be evaluated a batch at a time.  Expressions 
+ * produce a column of values and criteria narrow a selection vector of row indexes, so that
+ * element access, constants and comparisons are processed column-wise rather than per row. 
+ */
+public class ExpressionCompiler {
+	
+	public static abstract class CompiledExpression {
+		
+		/**
+		 * Evaluate against the given tuple.  The evaluator supplies the 
+		 * {@link org.teiid.query.util.CommandContext} and handles any constructs that were not compiled.
+		 */
+		public abstract Object evaluate(List<?> tuple, Evaluator evaluator) 
+		throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+		
+		/**
+		 * Evaluate against the selected rows of a batch.
+		 * @return the column of values aligned with the selection
+		 */
+		public Object[] evaluate(List<? extends List<?>> tuples, int[] selection, int count, Evaluator evaluator) 
+		throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object[] result = new Object[count];
+			for (int i = 0; i < count; i++) {
+				result[i] = evaluate(tuples.get(selection[i]), evaluator);
+			}
+			return result;
+		}
+		
+	}
+	
+	public static abstract class CompiledCriteria {
+
+		public abstract Boolean evaluateTVL(List<?> tuple, Evaluator evaluator) 
+		throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+		
+		public boolean evaluate(List<?> tuple, Evaluator evaluator) 
+		throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return Boolean.TRUE.equals(evaluateTVL(tuple, evaluator));
+		}
+		
+		/**
+		 * Filter the selected rows of a batch in place, retaining only the rows
+		 * for which the criteria is true.  The relative order of the rows is preserved.
+		 * @return the number of rows retained
+		 */
+		public int filter(List<? extends List<?>> tuples, int[] selection, int count, Evaluator evaluator) 
+		throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				if (evaluate(tuples.get(selection[i]), evaluator)) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+		
+	}
+	
+	private static class ElementExpression extends CompiledExpression {
+		private int index;
+		
+		ElementExpression(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator evaluator) {
+			return tuple.get(index);
+		}
+		
+		@Override
+		public Object[] evaluate(List<? extends List<?>> tuples, int[] selection,
+				int count, Evaluator evaluator) {
+			Object[] result = new Object[count];
+			for (int i = 0; i < count; i++) {
+				result[i] = tuples.get(selection[i]).get(index);
+			}
+			return result;
+		}
+	}
+	
+	private static class ConstantExpression extends CompiledExpression {
+		private Object value;
+		
+		ConstantExpression(Object value) {
+			this.value = value;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator evaluator) {
+			return value;
+		}
+		
+		@Override
+		public Object[] evaluate(List<? extends List<?>> tuples, int[] selection,
+				int count, Evaluator evaluator) {
+			Object[] result = new Object[count];
+			Arrays.fill(result, value);
+			return result;
+		}
+	}
+	
+	private static class InterpretedExpression extends CompiledExpression {
+		private Expression expression;
+		
+		InterpretedExpression(Expression expression) {
+			this.expression = expression;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return evaluator.internalEvaluate(expression, tuple);
+		}
+	}
+	
+	/**
+	 * Top level expression that reports failures in the same way as {@link Evaluator#evaluate(Expression, List)}
+	 */
+	private static class RootExpression extends CompiledExpression {
+		private Expression expression;
+		private CompiledExpression compiled;
+		
+		RootExpression(Expression expression, CompiledExpression compiled) {
+			this.expression = expression;
+			this.compiled = compiled;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			try {
+				return compiled.evaluate(tuple, evaluator);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30328, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30328, new Object[] {expression, e.getMessage()}));
+			}
+		}
+		
+		@Override
+		public Object[] evaluate(List<? extends List<?>> tuples, int[] selection,
+				int count, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			try {
+				return compiled.evaluate(tuples, selection, count, evaluator);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30328, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30328, new Object[] {expression, e.getMessage()}));
+			}
+		}
+	}
+	
+	private static class FunctionExpression extends CompiledExpression {
+		private FunctionDescriptor fd;
+		private CompiledExpression[] args;
+		private int start;
+		
+		FunctionExpression(FunctionDescriptor fd, CompiledExpression[] args) {
+			this.fd = fd;
+			this.args = args;
+			this.start = fd.requiresContext()?1:0;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object[] values = new Object[args.length + start];
+			if (start == 1) {
+				values[0] = evaluator.context;
+			}
+			for (int i = 0; i < args.length; i++) {
+				values[i + start] = args[i].evaluate(tuple, evaluator);
+			}
+			return fd.invokeFunction(values, evaluator.context, null);
+		}
+		
+		@Override
+		public Object[] evaluate(List<? extends List<?>> tuples, int[] selection,
+				int count, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object[][] columns = new Object[args.length][];
+			for (int i = 0; i < args.length; i++) {
+				columns[i] = args[i].evaluate(tuples, selection, count, evaluator);
+			}
+			boolean nullDependent = fd.isNullDependent();
+			Object[] result = new Object[count];
+			row: for (int row = 0; row < count; row++) {
+				Object[] values = new Object[args.length + start];
+				if (start == 1) {
+					values[0] = evaluator.context;
+				}
+				for (int i = 0; i < args.length; i++) {
+					Object value = columns[i][row];
+					if (value == null && !nullDependent) {
+						continue row;
+					}
+					values[i + start] = value;
+				}
+				result[row] = fd.invokeFunction(values, evaluator.context, null);
+			}
+			return result;
+		}
+	}
+	
+	private static class CaseExpressionNode extends CompiledExpression {
+		private CompiledExpression expression;
+		private CompiledExpression[] whens;
+		private CompiledCriteria[] whenCriteria;
+		private CompiledExpression[] thens;
+		private CompiledExpression elseExpression;
+		
+		@Override
+		public Object evaluate(List<?> tuple, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			if (expression != null) {
+				Object exprVal = expression.evaluate(tuple, evaluator);
+				for (int i = 0; i < whens.length; i++) {
+					if (EquivalenceUtil.areEqual(exprVal, whens[i].evaluate(tuple, evaluator))) {
+						return thens[i].evaluate(tuple, evaluator);
+					}
+				}
+			} else {
+				for (int i = 0; i < whenCriteria.length; i++) {
+					if (whenCriteria[i].evaluate(tuple, evaluator)) {
+						return thens[i].evaluate(tuple, evaluator);
+					}
+				}
+			}
+			if (elseExpression != null) {
+				return elseExpression.evaluate(tuple, evaluator);
+			}
+			return null;
+		}
+	}
+	
+	private static class InterpretedCriteria extends CompiledCriteria {
+		private Criteria criteria;
+		
+		InterpretedCriteria(Criteria criteria) {
+			this.criteria = criteria;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return evaluator.evaluateTVL(criteria, tuple);
+		}
+	}
+	
+	private static class CompoundCriteriaNode extends CompiledCriteria {
+		private CompiledCriteria[] crits;
+		private boolean and;
+		
+		CompoundCriteriaNode(CompiledCriteria[] crits, boolean and) {
+			this.crits = crits;
+			this.and = and;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Boolean result = and?Boolean.TRUE:Boolean.FALSE;
+			for (int i = 0; i < crits.length; i++) {
+				Boolean value = crits[i].evaluateTVL(tuple, evaluator);
+				if (value == null) {
+					result = null;
+				} else if (!value.booleanValue()) {
+					if (and) {
+						return Boolean.FALSE;
+					}
+				} else if (!and) {
+					return Boolean.TRUE;
+				}
+			}
+			return result;
+		}
+		
+		@Override
+		public int filter(List<? extends List<?>> tuples, int[] selection,
+				int count, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			if (and) {
+				for (int i = 0; i < crits.length && count > 0; i++) {
+					count = crits[i].filter(tuples, selection, count, evaluator);
+				}
+				return count;
+			}
+			//each disjunct is applied only to the rows not yet selected
+			int[] remaining = Arrays.copyOf(selection, count);
+			int remainingCount = count;
+			int[] matched = new int[count];
+			int matchedCount = 0;
+			int[] candidates = new int[count];
+			for (int i = 0; i < crits.length && remainingCount > 0; i++) {
+				System.arraycopy(remaining, 0, candidates, 0, remainingCount);
+				int passed = crits[i].filter(tuples, candidates, remainingCount, evaluator);
+				if (passed == 0) {
+					continue;
+				}
+				System.arraycopy(candidates, 0, matched, matchedCount, passed);
+				matchedCount += passed;
+				//remove the passing rows, both arrays are in ascending order
+				int k = 0;
+				int p = 0;
+				for (int j = 0; j < remainingCount; j++) {
+					if (p < passed && candidates[p] == remaining[j]) {
+						p++;
+					} else {
+						remaining[k++] = remaining[j];
+					}
+				}
+				remainingCount = k;
+			}
+			Arrays.sort(matched, 0, matchedCount);
+			System.arraycopy(matched, 0, selection, 0, matchedCount);
+			return matchedCount;
+		}
+	}
+	
+	private static class NotCriteriaNode extends CompiledCriteria {
+		private CompiledCriteria crit;
+		
+		NotCriteriaNode(CompiledCriteria crit) {
+			this.crit = crit;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Boolean result = crit.evaluateTVL(tuple, evaluator);
+			if (result == null) {
+				return null;
+			}
+			return !result.booleanValue();
+		}
+	}
+	
+	private static class CompareCriteriaNode extends CompiledCriteria {
+		private CompareCriteria criteria;
+		private CompiledExpression left;
+		private CompiledExpression right;
+		
+		CompareCriteriaNode(CompareCriteria criteria, CompiledExpression left, CompiledExpression right) {
+			this.criteria = criteria;
+			this.left = left;
+			this.right = right;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object leftValue = null;
+			try {
+				leftValue = left.evaluate(tuple, evaluator);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "left", criteria)); //$NON-NLS-1$
+			}
+			if (leftValue == null) {
+				return null;
+			}
+			Object rightValue = null;
+			try {
+				rightValue = right.evaluate(tuple, evaluator);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "right", criteria)); //$NON-NLS-1$
+			}
+			if (rightValue == null) {
+				return null;
+			}
+			return Evaluator.compare(criteria, leftValue, rightValue);
+		}
+		
+		@Override
+		public int filter(List<? extends List<?>> tuples, int[] selection,
+				int count, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object[] leftValues = null;
+			try {
+				leftValues = left.evaluate(tuples, selection, count, evaluator);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "left", criteria)); //$NON-NLS-1$
+			}
+			//as with row evaluation the right side is only evaluated for non-null left values
+			int nonNull = 0;
+			for (int i = 0; i < count; i++) {
+				if (leftValues[i] != null) {
+					leftValues[nonNull] = leftValues[i];
+					selection[nonNull++] = selection[i];
+				}
+			}
+			Object[] rightValues = null;
+			try {
+				rightValues = right.evaluate(tuples, selection, nonNull, evaluator);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "right", criteria)); //$NON-NLS-1$
+			}
+			int result = 0;
+			for (int i = 0; i < nonNull; i++) {
+				Object rightValue = rightValues[i];
+				if (rightValue != null && Boolean.TRUE.equals(Evaluator.compare(criteria, leftValues[i], rightValue))) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+	}
+	
+	private static class IsNullCriteriaNode extends CompiledCriteria {
+		private IsNullCriteria criteria;
+		private CompiledExpression expression;
+		
+		IsNullCriteriaNode(IsNullCriteria criteria, CompiledExpression expression) {
+			this.criteria = criteria;
+			this.expression = expression;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object value = null;
+			try {
+				value = expression.evaluate(tuple, evaluator);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30323, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30323, criteria));
+			}
+			return Boolean.valueOf(value == null ^ criteria.isNegated());
+		}
+		
+		@Override
+		public int filter(List<? extends List<?>> tuples, int[] selection,
+				int count, Evaluator evaluator)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object[] values = null;
+			try {
+				values = expression.evaluate(tuples, selection, count, evaluator);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30323, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30323, criteria));
+			}
+			boolean negated = criteria.isNegated();
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				if (values[i] == null ^ negated) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+	}
+	
+	private Map<?, Integer> elements;
+	private boolean interpreted;
+	
+	/**
+	 * @param elements the map of {@link Expression} to tuple index, the same as used by the {@link Evaluator} 
+	 */
+	public ExpressionCompiler(Map<?, Integer> elements) {
+		this.elements = elements;
+	}
+	
+	/**
+	 * @return true if any construct compiled so far is delegated to the {@link Evaluator}.
+	 * Such constructs may block, so they should not be evaluated a batch at a time.
+	 */
+	public boolean hasInterpreted() {
+		return interpreted;
+	}
+	
+	public CompiledExpression compile(Expression expression) {
+		CompiledExpression result = compileExpression(expression);
+		if (result instanceof ElementExpression || result instanceof ConstantExpression) {
+			return result;
+		}
+		return new RootExpression(expression, result);
+	}
+	
+	private CompiledExpression compileExpression(Expression expression) {
+		if (expression instanceof DerivedExpression) {
+			if (elements != null) {
+				Integer index = elements.get(expression);
+				if (index != null) {
+					return new ElementExpression(index);
+				}
+			}
+			if (expression instanceof ExpressionSymbol) {
+				return compileExpression(((ExpressionSymbol)expression).getExpression());
+			}
+			return interpreted(expression);
+		}
+		if (expression instanceof Constant) {
+			return new ConstantExpression(((Constant)expression).getValue());
+		}
+		if (expression instanceof Function) {
+			Function function = (Function)expression;
+			FunctionDescriptor fd = function.getFunctionDescriptor();
+			if (fd == null || fd.getPushdown() == PushDown.MUST_PUSHDOWN || function.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP)) {
+				return interpreted(expression);
+			}
+			Expression[] args = function.getArgs();
+			CompiledExpression[] compiledArgs = new CompiledExpression[args.length];
+			boolean constant = !fd.requiresContext() && fd.getDeterministic() == Determinism.DETERMINISTIC;
+			for (int i = 0; i < args.length; i++) {
+				compiledArgs[i] = compileExpression(args[i]);
+				constant &= compiledArgs[i] instanceof ConstantExpression;
+			}
+			if (constant) {
+				CompiledExpression folded = fold(fd, compiledArgs);
+				if (folded != null) {
+					return folded;
+				}
+			}
+			return new FunctionExpression(fd, compiledArgs);
+		}
+		if (expression instanceof CaseExpression) {
+			CaseExpression expr = (CaseExpression)expression;
+			CaseExpressionNode result = new CaseExpressionNode();
+			result.expression = compileExpression(expr.getExpression());
+			result.whens = new CompiledExpression[expr.getWhenCount()];
+			result.thens = new CompiledExpression[expr.getWhenCount()];
+			for (int i = 0; i < expr.getWhenCount(); i++) {
+				result.whens[i] = compileExpression(expr.getWhenExpression(i));
+				result.thens[i] = compileExpression(expr.getThenExpression(i));
+			}
+			if (expr.getElseExpression() != null) {
+				result.elseExpression = compileExpression(expr.getElseExpression());
+			}
+			return result;
+		}
+		if (expression instanceof SearchedCaseExpression) {
+			SearchedCaseExpression expr = (SearchedCaseExpression)expression;
+			CaseExpressionNode result = new CaseExpressionNode();
+			result.whenCriteria = new CompiledCriteria[expr.getWhenCount()];
+			result.thens = new CompiledExpression[expr.getWhenCount()];
+			for (int i = 0; i < expr.getWhenCount(); i++) {
+				result.whenCriteria[i] = compile(expr.getWhenCriteria(i));
+				result.thens[i] = compileExpression(expr.getThenExpression(i));
+			}
+			if (expr.getElseExpression() != null) {
+				result.elseExpression = compileExpression(expr.getElseExpression());
+			}
+			return result;
+		}
+		return interpreted(expression);
+	}
+	
+	/**
+	 * Evaluate a deterministic function of constants once.
+	 * @return the folded constant or null if the evaluation failed, in which case the 
+	 * failure is left to be reported when the function is evaluated
+	 */
+	private CompiledExpression fold(FunctionDescriptor fd, CompiledExpression[] args) {
+		Object[] values = new Object[args.length];
+		for (int i = 0; i < args.length; i++) {
+			values[i] = ((ConstantExpression)args[i]).value;
+		}
+		try {
+			return new ConstantExpression(fd.invokeFunction(values, null, null));
+		} catch (ExpressionEvaluationException e) {
+			return null;
+		} catch (BlockedException e) {
+			return null;
+		}
+	}
+	
+	private CompiledExpression interpreted(Expression expression) {
+		interpreted = true;
+		return new InterpretedExpression(expression);
+	}
+	
+	public CompiledCriteria compile(Criteria criteria) {
+		if (criteria instanceof CompoundCriteria) {
+			CompoundCriteria cc = (CompoundCriteria)criteria;
+			List<Criteria> subCrits = cc.getCriteria();
+			CompiledCriteria[] crits = new CompiledCriteria[subCrits.size()];
+			for (int i = 0; i < crits.length; i++) {
+				crits[i] = compile(subCrits.get(i));
+			}
+			return new CompoundCriteriaNode(crits, cc.getOperator() == CompoundCriteria.AND);
+		}
+		if (criteria instanceof NotCriteria) {
+			return new NotCriteriaNode(compile(((NotCriteria)criteria).getCriteria()));
+		}
+		if (criteria instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)criteria;
+			return new CompareCriteriaNode(cc, compile(cc.getLeftExpression()), compile(cc.getRightExpression()));
+		}
+		if (criteria instanceof IsNullCriteria) {
+			IsNullCriteria inc = (IsNullCriteria)criteria;
+			return new IsNullCriteriaNode(inc, compile(inc.getExpression()));
+		}
+		interpreted = true;
+		return new InterpretedCriteria(criteria);
+	}
+
+}
@@ -823,7 +823,13 @@ public class TempMetadataAdapter extends BasicQueryMetadataWrapper {
     @Override
     public String getExtensionProperty(Object metadataID, String key,
     		boolean checkUnqualified) {
-    	// TODO Auto-generated method stub
+    	if (metadataID instanceof TempMetadataID) {
+    		TempMetadataID id = (TempMetadataID)metadataID;
+    		metadataID = id.getOriginalMetadataID();
+    		if (metadataID == null) {
+    			return null;
+    		}
+    	}
     	return super.getExtensionProperty(metadataID, key, checkUnqualified);
     }
 
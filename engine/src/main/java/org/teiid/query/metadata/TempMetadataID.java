@@ -37,6 +37,8 @@ import org.teiid.query.mapping.relational.QueryNode;
 import org.teiid.query.sql.lang.CacheHint;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.Symbol;
+import org.teiid.query.util.ModificationLog;
+import org.teiid.query.util.RowRange;
 
 /**
  * This class represents a temporary metadata ID.  A temporary metadata ID 
@@ -69,6 +71,7 @@ public class TempMetadataID implements Serializable, Modifiable, DataModifiable
 		int modCount;
 		private LinkedHashMap<Expression, Integer> functionBasedExpressions;
 		private Object model;
+		private ModificationLog modificationLog = new ModificationLog();
 		
 		public long getLastDataModification() {
 			return lastDataModification;
@@ -79,6 +82,13 @@ public class TempMetadataID implements Serializable, Modifiable, DataModifiable
 		}
 		
 		public void dataModified(int updateCount) {
+			dataModified(updateCount, null);
+		}
+		
+		/**
+		 * @param range the modified rows or null if unknown
+		 */
+		public void dataModified(int updateCount, RowRange range) {
 			if (updateCount == 0) {
 				return;
 			}
@@ -88,9 +98,14 @@ public class TempMetadataID implements Serializable, Modifiable, DataModifiable
 				this.lastModified = ts;
 				modCount = 0;
 			}
+			this.modificationLog.modified(ts, range);
 			this.lastDataModification = ts;
 		}
 		
+		public ModificationLog getModificationLog() {
+			return modificationLog;
+		}
+		
 		public long getLastModified() {
 			return lastModified;
 		}
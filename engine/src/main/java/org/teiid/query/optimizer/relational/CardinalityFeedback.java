@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.optimizer.relational;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.teiid.core.util.LRUCache;
+import org.teiid.query.optimizer.relational.plantree.NodeConstants;
+import org.teiid.query.optimizer.relational.plantree.PlanNode;
+import org.teiid.query.optimizer.relational.plantree.NodeConstants.Info;
+import org.teiid.query.sql.lang.Criteria;
+
+/**
+ * Holds the actual cardinalities observed for access and join nodes so that
+ * subsequent plannings of the same plan fragments can use them in place of estimates.
+ * <br>
+ * Fragments are keyed by a normalized form of the plan subtree - the groups, criteria,
+ * and cardinality affecting operations, without regard to their order.
+ * Observations are combined with an exponential decay so that the estimate follows
+ * changes in the data.
+ */
+public class CardinalityFeedback {
+
+	public static final int DEFAULT_MAX_ENTRIES = 8192;
+
+	/**
+	 * The weight given to a new observation
+	 */
+	static final float DECAY = .5f;
+
+	private LRUCache<String, Float> observed;
+
+	public CardinalityFeedback() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	public CardinalityFeedback(int maxEntries) {
+		this.observed = new LRUCache<String, Float>(maxEntries);
+	}
+
+	public synchronized void record(String key, long rows) {
+		Float previous = observed.get(key);
+		float estimate = rows;
+		if (previous != null) {
+			estimate = previous + DECAY * (rows - previous);
+		}
+		observed.put(key, estimate);
+	}
+
+	/**
+	 * @return the decayed observed cardinality or null if none has been recorded
+	 */
+	public synchronized Float getCardinality(String key) {
+		if (key == null) {
+			return null;
+		}
+		return observed.get(key);
+	}
+
+	public synchronized int size() {
+		return observed.size();
+	}
+
+	/**
+	 * Get the normalized key for the plan fragment rooted at the given node.
+	 * Access nodes that have been collapsed use the key saved prior to the collapse.
+	 * @return the key or null if the fragment should not be tracked
+	 */
+	public static String getKey(PlanNode node) {
+		List<String> parts = new ArrayList<String>();
+		if (!addParts(node, parts)) {
+			return null;
+		}
+		Collections.sort(parts);
+		return parts.toString();
+	}
+
+	/**
+	 * Save the access node key so that it is still available after the children are removed
+	 */
+	public static void saveAccessKey(PlanNode accessNode) {
+		String key = getAccessPart(accessNode);
+		if (key != null) {
+			accessNode.setProperty(Info.FEEDBACK_KEY, key);
+		}
+	}
+
+	private static String getAccessPart(PlanNode node) {
+		if (node.hasProperty(Info.DEPENDENT_VALUE_SOURCE)) {
+			//the results depend upon the independent side values
+			return null;
+		}
+		if (node.getChildCount() == 0) {
+			return (String)node.getProperty(Info.FEEDBACK_KEY);
+		}
+		String key = getKey(node.getFirstChild());
+		if (key == null) {
+			return null;
+		}
+		return "A" + key; //$NON-NLS-1$
+	}
+
+	private static boolean addParts(PlanNode node, List<String> parts) {
+		switch (node.getType()) {
+		case NodeConstants.Types.ACCESS:
+		{
+			String key = getAccessPart(node);
+			if (key == null) {
+				return false;
+			}
+			parts.add(key);
+			return true;
+		}
+		case NodeConstants.Types.SOURCE:
+			parts.add("S" + node.getGroups()); //$NON-NLS-1$
+			break;
+		case NodeConstants.Types.SELECT:
+			if (node.hasBooleanProperty(Info.IS_DEPENDENT_SET)) {
+				return false;
+			}
+			parts.add("C" + node.getProperty(Info.SELECT_CRITERIA)); //$NON-NLS-1$
+			break;
+		case NodeConstants.Types.JOIN:
+		{
+			List<String> crits = new ArrayList<String>();
+			List<Criteria> joinCriteria = (List<Criteria>) node.getProperty(Info.JOIN_CRITERIA);
+			if (joinCriteria != null) {
+				for (Criteria crit : joinCriteria) {
+					crits.add(crit.toString());
+				}
+			}
+			Collections.sort(crits);
+			parts.add("J" + node.getProperty(Info.JOIN_TYPE) + crits); //$NON-NLS-1$
+			break;
+		}
+		case NodeConstants.Types.GROUP:
+			parts.add("G" + node.getProperty(Info.GROUP_COLS)); //$NON-NLS-1$
+			break;
+		case NodeConstants.Types.DUP_REMOVE:
+			parts.add("D"); //$NON-NLS-1$
+			break;
+		case NodeConstants.Types.TUPLE_LIMIT:
+			parts.add("L" + node.getProperty(Info.MAX_TUPLE_LIMIT) + ',' + node.getProperty(Info.OFFSET_TUPLE_COUNT)); //$NON-NLS-1$
+			break;
+		case NodeConstants.Types.SET_OP:
+			parts.add("U" + node.getProperty(Info.SET_OPERATION) + node.getProperty(Info.USE_ALL)); //$NON-NLS-1$
+			break;
+		case NodeConstants.Types.NULL:
+			parts.add("N"); //$NON-NLS-1$
+			break;
+		}
+		for (PlanNode child : node.getChildren()) {
+			if (!addParts(child, parts)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -126,6 +126,14 @@ public class PlanToProcessConverter {
 				}
 				throw new QueryPlannerException(e);
 			}
+			if (context != null) {
+				int exchangeBatches = context.getOptions().getExchangeBatches();
+				if (exchangeBatches > 0) {
+					addExchanges(processNode, exchangeBatches, true);
+				} else if (context.getOptions().isParallelUnion()) {
+					addExchanges(processNode, ExchangeNode.DEFAULT_QUEUE_BATCHES, false);
+				}
+			}
 	        if(debug) {
 	            analysisRecord.println("\nPROCESS PLAN = \n" + processNode); //$NON-NLS-1$
 	            analysisRecord.println("============================================================================"); //$NON-NLS-1$
@@ -174,6 +182,39 @@ public class PlanToProcessConverter {
 		return convertedNode;
 	}
 
+    /**
+     * Place {@link ExchangeNode}s above the independent children of unions and optionally joins
+     * so that they may be processed concurrently.  Children that are just an access node
+     * are not wrapped since source access is already asynch.
+     */
+    private void addExchanges(RelationalNode node, int queueBatches, boolean joins) {
+    	RelationalNode[] children = node.getChildren();
+    	for (int i = 0; i < node.getChildCount(); i++) {
+    		addExchanges(children[i], queueBatches, joins);
+    	}
+    	if (node.getChildCount() < 2 || !(node instanceof UnionAllNode || (joins && node instanceof JoinNode))) {
+    		return;
+    	}
+    	if (node instanceof JoinNode) {
+    		JoinNode joinNode = (JoinNode)node;
+    		if (joinNode.isDependent() || joinNode.getJoinStrategy() instanceof NestedTableJoinStrategy) {
+    			return;
+    		}
+    	}
+    	for (int i = 0; i < node.getChildCount(); i++) {
+    		RelationalNode child = children[i];
+    		if (child.getClass() == AccessNode.class || child instanceof ExchangeNode || !ExchangeNode.isParallelizable(child)) {
+    			continue;
+    		}
+    		ExchangeNode exchange = new ExchangeNode(getID());
+    		exchange.setQueueBatches(queueBatches);
+    		exchange.setElements(child.getElements());
+    		exchange.addChild(child);
+    		exchange.setParent(node);
+    		children[i] = exchange;
+    	}
+    }
+
     protected int getID() {
         return idGenerator.nextInt();
     }
@@ -267,6 +308,12 @@ public class PlanToProcessConverter {
                     List rightExpressions = (List) node.getProperty(NodeConstants.Info.RIGHT_EXPRESSIONS);
                     jnode.setJoinExpressions(leftExpressions, rightExpressions);
                     joinCrits = (List) node.getProperty(NodeConstants.Info.NON_EQUI_JOIN_CRITERIA);
+                } else if (stype == JoinStrategyType.HASH) {
+                	jnode.setJoinStrategy(new HashJoinStrategy());
+                	List leftExpressions = (List) node.getProperty(NodeConstants.Info.LEFT_EXPRESSIONS);
+                    List rightExpressions = (List) node.getProperty(NodeConstants.Info.RIGHT_EXPRESSIONS);
+                    jnode.setJoinExpressions(leftExpressions, rightExpressions);
+                    joinCrits = (List) node.getProperty(NodeConstants.Info.NON_EQUI_JOIN_CRITERIA);
                 } else if (stype == JoinStrategyType.NESTED_TABLE) {
                 	NestedTableJoinStrategy ntjStrategy = new NestedTableJoinStrategy();
                 	jnode.setJoinStrategy(ntjStrategy);
@@ -464,6 +511,7 @@ public class PlanToProcessConverter {
 			case NodeConstants.Types.GROUP:
 				GroupingNode gnode = new GroupingNode(getID());
 				gnode.setRollup(node.hasBooleanProperty(Info.ROLLUP));
+				gnode.setHashGrouping(node.hasBooleanProperty(Info.HASH_GROUPING));
 				SymbolMap groupingMap = (SymbolMap)node.getProperty(NodeConstants.Info.SYMBOL_MAP);
 				gnode.setOutputMapping(groupingMap);
 				gnode.setRemoveDuplicates(node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL));
@@ -700,6 +748,11 @@ public class PlanToProcessConverter {
         processNode.setEstimateDepJoinCost(estimateDepJoinCost);
         Number estimateJoinCost = (Number) node.getProperty(NodeConstants.Info.EST_JOIN_COST);
         processNode.setEstimateJoinCost(estimateJoinCost);
+        
+        if (((node.getType() == NodeConstants.Types.ACCESS && processNode instanceof AccessNode) || processNode instanceof JoinNode) 
+        		&& context != null && context.getCardinalityFeedback() != null) {
+        	processNode.setFeedbackKey(CardinalityFeedback.getKey(node));
+        }
        
         return processNode;
     }
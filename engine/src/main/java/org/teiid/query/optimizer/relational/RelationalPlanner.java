@@ -593,20 +593,26 @@ public class RelationalPlanner {
         throws QueryPlannerException, QueryMetadataException, TeiidComponentException {
 
         boolean debug = analysisRecord.recordDebug();
-        while(! rules.isEmpty()) {
-            if(debug) {
-                analysisRecord.println("\n============================================================================"); //$NON-NLS-1$
-            }
-
-            OptimizerRule rule = rules.pop();
-            if(debug) {
-                analysisRecord.println("EXECUTING " + rule); //$NON-NLS-1$
-            }
-
-            plan = rule.execute(plan, metadata, capFinder, rules, analysisRecord, context);
-            if(debug) {
-                analysisRecord.println("\nAFTER: \n" + plan.nodeToString(true)); //$NON-NLS-1$
-            }
+        //make the context available to costing
+        CommandContext.pushThreadLocalContext(context);
+        try {
+	        while(! rules.isEmpty()) {
+	            if(debug) {
+	                analysisRecord.println("\n============================================================================"); //$NON-NLS-1$
+	            }
+	
+	            OptimizerRule rule = rules.pop();
+	            if(debug) {
+	                analysisRecord.println("EXECUTING " + rule); //$NON-NLS-1$
+	            }
+	
+	            plan = rule.execute(plan, metadata, capFinder, rules, analysisRecord, context);
+	            if(debug) {
+	                analysisRecord.println("\nAFTER: \n" + plan.nodeToString(true)); //$NON-NLS-1$
+	            }
+	        }
+        } finally {
+        	CommandContext.popThreadLocalContext();
         }
         return plan;
     }
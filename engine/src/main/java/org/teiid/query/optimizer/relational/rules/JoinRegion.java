@@ -222,6 +222,46 @@ class JoinRegion {
         this.joinRoot = root;
     }
         
+    /**
+     * The costing state of a partial left linear join order.
+     */
+    static class PartialJoinOrder {
+    	private List<Integer> sources;
+    	private Set<GroupSymbol> groups;
+    	private Set<PlanNode> criteria;
+    	private double cost = 1;
+    	private double totalIntermediateCost;
+    	private boolean hasUnknown;
+    	
+    	PartialJoinOrder(Collection<PlanNode> criteria) {
+    		this.sources = new ArrayList<Integer>();
+    		this.groups = new HashSet<GroupSymbol>();
+    		this.criteria = new HashSet<PlanNode>(criteria);
+    	}
+    	
+    	PartialJoinOrder(PartialJoinOrder other, Integer source) {
+    		this.sources = new ArrayList<Integer>(other.sources.size() + 1);
+    		this.sources.addAll(other.sources);
+    		this.sources.add(source);
+    		this.groups = new HashSet<GroupSymbol>(other.groups);
+    		this.criteria = new HashSet<PlanNode>(other.criteria);
+    		this.cost = other.cost;
+    		this.totalIntermediateCost = other.totalIntermediateCost;
+    		this.hasUnknown = other.hasUnknown;
+    	}
+    	
+    	public List<Integer> getSources() {
+			return sources;
+		}
+    	
+    	/**
+    	 * @return the sum of the estimated tuples for each join in the order 
+    	 */
+    	public double getTotalIntermediateCost() {
+			return totalIntermediateCost;
+		}
+    }
+    
     /**
      * Will provide an estimate of cost by summing the estimated tuples flowing through
      * each intermediate join. 
@@ -234,106 +274,116 @@ class JoinRegion {
      * @throws QueryPlannerException 
      */
     public double scoreRegion(Object[] joinOrder, int startIndex, QueryMetadataInterface metadata, CapabilitiesFinder capFinder, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
+    	if (startIndex > 0) {
+    		//the prefix has already been costed
+    		return 0;
+    	}
         List<Map.Entry<PlanNode, PlanNode>> joinSourceEntries = new ArrayList<Map.Entry<PlanNode, PlanNode>>(joinSourceNodes.entrySet());
-        double totalIntermediatCost = 0;
-        double cost = 1;
-        
-        HashSet<PlanNode> criteria = new HashSet<PlanNode>(this.criteriaNodes);
-        HashSet<GroupSymbol> groups = new HashSet<GroupSymbol>(this.joinSourceNodes.size());
-        boolean hasUnknown = false;
+        PartialJoinOrder order = createPartialJoinOrder();
         //only calcuate up to the second to last as the last is not an intermediate result
         for (int i = 0; i < joinOrder.length - 1; i++) {
-            Integer source = (Integer)joinOrder[i];
-            
-            Map.Entry<PlanNode, PlanNode> entry = joinSourceEntries.get(source.intValue());
-            PlanNode joinSourceRoot = entry.getValue();
-            
-            if (startIndex == 0) {
-	            //check to make sure that this group ordering satisfies the access patterns
-	            if (!this.unsatisfiedAccessPatterns.isEmpty() || this.containsNestedTable) {
-	                PlanNode joinSource = entry.getKey();
-	                
-	                Collection<GroupSymbol> requiredGroups = (Collection<GroupSymbol>)joinSource.getProperty(NodeConstants.Info.REQUIRED_ACCESS_PATTERN_GROUPS);
-	                
-	                if (requiredGroups != null && !groups.containsAll(requiredGroups)) {
-	                    return Double.MAX_VALUE;
-	                }
-	            }
-            } 
+        	order = extendJoinOrder(order, (Integer)joinOrder[i], joinSourceEntries, metadata, capFinder, context);
+        	if (order == null) {
+        		return Double.MAX_VALUE;
+        	}
+        }
+        return order.getTotalIntermediateCost();
+    }
+    
+    public PartialJoinOrder createPartialJoinOrder() {
+    	return new PartialJoinOrder(this.criteriaNodes);
+    }
+    
+    /**
+     * Cost placing the given source next in the join order.
+     * @param joinSourceEntries the entries of the join sources in region order
+     * @return the new partial order or null if the source cannot be placed next
+     */
+    public PartialJoinOrder extendJoinOrder(PartialJoinOrder order, Integer source, List<Map.Entry<PlanNode, PlanNode>> joinSourceEntries, QueryMetadataInterface metadata, CapabilitiesFinder capFinder, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
+        Map.Entry<PlanNode, PlanNode> entry = joinSourceEntries.get(source.intValue());
+        PlanNode joinSourceRoot = entry.getValue();
+        int i = order.sources.size();
+        
+        //check to make sure that this group ordering satisfies the access patterns
+        if (!this.unsatisfiedAccessPatterns.isEmpty() || this.containsNestedTable) {
+            PlanNode joinSource = entry.getKey();
             
-            groups.addAll(joinSourceRoot.getGroups());
+            Collection<GroupSymbol> requiredGroups = (Collection<GroupSymbol>)joinSource.getProperty(NodeConstants.Info.REQUIRED_ACCESS_PATTERN_GROUPS);
             
-            if (startIndex > 0) {
-            	continue;
+            if (requiredGroups != null && !order.groups.containsAll(requiredGroups)) {
+                return null;
             }
-            
-            float sourceCost = ((Float)joinSourceRoot.getProperty(NodeConstants.Info.EST_CARDINALITY)).floatValue();
-            
-            List<PlanNode> applicableCriteria = null;
-            
-            if (!criteria.isEmpty() && i > 0) {
-                applicableCriteria = getJoinCriteriaForGroups(groups, criteria);
+        }
+        
+        PartialJoinOrder result = new PartialJoinOrder(order, source);
+        
+        result.groups.addAll(joinSourceRoot.getGroups());
+        
+        float sourceCost = ((Float)joinSourceRoot.getProperty(NodeConstants.Info.EST_CARDINALITY)).floatValue();
+        
+        List<PlanNode> applicableCriteria = null;
+        
+        if (!result.criteria.isEmpty() && i > 0) {
+            applicableCriteria = getJoinCriteriaForGroups(result.groups, result.criteria);
+        }
+        
+    	if (sourceCost == NewCalculateCostUtil.UNKNOWN_VALUE) {
+    		sourceCost = UNKNOWN_TUPLE_EST;
+    		result.hasUnknown = true;
+            if (applicableCriteria != null && !applicableCriteria.isEmpty()) {
+            	CompoundCriteria cc = new CompoundCriteria();
+            	for (PlanNode planNode : applicableCriteria) {
+					cc.addCriteria((Criteria) planNode.getProperty(NodeConstants.Info.SELECT_CRITERIA));
+				}
+            	sourceCost = (float)result.cost;
+            	result.criteria.removeAll(applicableCriteria);
+            	applicableCriteria = null;
+        		if (NewCalculateCostUtil.usesKey(cc, metadata) || (i >= 1 && joinSourceRoot.hasProperty(Info.MAKE_DEP) && !joinSourceRoot.hasBooleanProperty(Info.MAKE_NOT_DEP))) {
+	            	sourceCost = Math.min(UNKNOWN_TUPLE_EST, sourceCost * Math.min(NewCalculateCostUtil.UNKNOWN_JOIN_SCALING, sourceCost));
+        		} else {
+	            	sourceCost = Math.min(UNKNOWN_TUPLE_EST, sourceCost * NewCalculateCostUtil.UNKNOWN_JOIN_SCALING * 8);
+        		}
             }
-            
-        	if (sourceCost == NewCalculateCostUtil.UNKNOWN_VALUE) {
-        		sourceCost = UNKNOWN_TUPLE_EST;
-        		hasUnknown = true;
-                if (applicableCriteria != null && !applicableCriteria.isEmpty()) {
-                	CompoundCriteria cc = new CompoundCriteria();
-                	for (PlanNode planNode : applicableCriteria) {
-    					cc.addCriteria((Criteria) planNode.getProperty(NodeConstants.Info.SELECT_CRITERIA));
-    				}
-                	sourceCost = (float)cost;
-                	criteria.removeAll(applicableCriteria);
-	            	applicableCriteria = null;
-            		if (NewCalculateCostUtil.usesKey(cc, metadata) || (i >= 1 && joinSourceRoot.hasProperty(Info.MAKE_DEP) && !joinSourceRoot.hasBooleanProperty(Info.MAKE_NOT_DEP))) {
-    	            	sourceCost = Math.min(UNKNOWN_TUPLE_EST, sourceCost * Math.min(NewCalculateCostUtil.UNKNOWN_JOIN_SCALING, sourceCost));
-            		} else {
-    	            	sourceCost = Math.min(UNKNOWN_TUPLE_EST, sourceCost * NewCalculateCostUtil.UNKNOWN_JOIN_SCALING * 8);
-            		}
-                }
-            } else if (Double.isInfinite(sourceCost) || Double.isNaN(sourceCost)) {
-            	return Double.MAX_VALUE;
-            } else if (i == 1 && applicableCriteria != null && !applicableCriteria.isEmpty()) {
-            	List<Object> key = Arrays.asList(joinOrder[0], joinOrder[1]);
-            	Float depJoinCost = null;
-            	if (depCache != null && depCache.containsKey(key)) {
-        			depJoinCost = depCache.get(key);
-            	} else {
-	            	Integer indIndex = (Integer)joinOrder[0];
-	            	Map.Entry<PlanNode, PlanNode> indEntry = joinSourceEntries.get(indIndex.intValue());
-	                PlanNode possibleInd = indEntry.getValue();
-	                
-	                depJoinCost = getDepJoinCost(metadata, capFinder, context, possibleInd, applicableCriteria, joinSourceRoot);
-	                if (depCache == null) {
-	                	depCache = new HashMap<List<Object>, Float>();
-	                }
-	                depCache.put(key, depJoinCost);
-            	}
-                if (depJoinCost != null) {
-                	sourceCost = depJoinCost;
+        } else if (Double.isInfinite(sourceCost) || Double.isNaN(sourceCost)) {
+        	return null;
+        } else if (i == 1 && applicableCriteria != null && !applicableCriteria.isEmpty()) {
+        	List<Object> key = Arrays.asList((Object)order.sources.get(0), source);
+        	Float depJoinCost = null;
+        	if (depCache != null && depCache.containsKey(key)) {
+    			depJoinCost = depCache.get(key);
+        	} else {
+            	Integer indIndex = order.sources.get(0);
+            	Map.Entry<PlanNode, PlanNode> indEntry = joinSourceEntries.get(indIndex.intValue());
+                PlanNode possibleInd = indEntry.getValue();
+                
+                depJoinCost = getDepJoinCost(metadata, capFinder, context, possibleInd, applicableCriteria, joinSourceRoot);
+                if (depCache == null) {
+                	depCache = new HashMap<List<Object>, Float>();
                 }
-            }
-        	
-        	if (i > 0 && (applicableCriteria == null || applicableCriteria.isEmpty()) && hasUnknown) {
-        		sourceCost *= 10; //cross join penalty
+                depCache.put(key, depJoinCost);
         	}
+            if (depJoinCost != null) {
+            	sourceCost = depJoinCost;
+            }
+        }
+    	
+    	if (i > 0 && (applicableCriteria == null || applicableCriteria.isEmpty()) && result.hasUnknown) {
+    		sourceCost *= 10; //cross join penalty
+    	}
+    
+        result.cost *= sourceCost;
         
-            cost *= sourceCost;
-            
-            if (applicableCriteria != null) {
-                for (PlanNode criteriaNode : applicableCriteria) {
-                    float filter = ((Float)criteriaNode.getProperty(NodeConstants.Info.EST_SELECTIVITY)).floatValue();
-                    
-                    cost *= filter;
-                }
+        if (applicableCriteria != null) {
+            for (PlanNode criteriaNode : applicableCriteria) {
+                float filter = ((Float)criteriaNode.getProperty(NodeConstants.Info.EST_SELECTIVITY)).floatValue();
                 
-                criteria.removeAll(applicableCriteria);
+                result.cost *= filter;
             }
-            totalIntermediatCost += cost;
+            
+            result.criteria.removeAll(applicableCriteria);
         }
-        
-        return totalIntermediatCost;
+        result.totalIntermediateCost += result.cost;
+        return result;
     }
 
 	private Float getDepJoinCost(QueryMetadataInterface metadata,
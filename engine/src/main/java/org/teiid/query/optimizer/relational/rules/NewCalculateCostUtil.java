@@ -36,10 +36,12 @@ import org.teiid.core.types.DataTypeManager;
 import org.teiid.language.Like.MatchMode;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
+import org.teiid.metadata.AbstractMetadataRecord;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
+import org.teiid.query.optimizer.relational.CardinalityFeedback;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
 import org.teiid.query.optimizer.relational.plantree.NodeConstants;
 import org.teiid.query.optimizer.relational.plantree.NodeConstants.Info;
@@ -52,6 +54,7 @@ import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.symbol.Reference;
 import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.sql.visitor.ElementCollectorVisitor;
 import org.teiid.query.sql.visitor.EvaluatableVisitor;
@@ -65,6 +68,11 @@ public class NewCalculateCostUtil {
 
     public static final int UNKNOWN_JOIN_SCALING = 20;
 	public static final float UNKNOWN_VALUE = -1;
+	/**
+	 * Column extension property holding the comma separated bounds of an equi-depth histogram,
+	 * as collected by SYSADMIN.analyzeTable
+	 */
+	public static final String HISTOGRAM = AbstractMetadataRecord.RELATIONAL_URI + "HISTOGRAM"; //$NON-NLS-1$
     
     // the following variables are used to hold cost estimates (roughly in milliseconds)
     private final static float compareTime = .0001f; //TODO: a better estimate would be based upon the number of conjuncts
@@ -230,6 +238,23 @@ public class NewCalculateCostUtil {
                 break;
             }
         }
+        if (node.getType() == NodeConstants.Types.ACCESS || node.getType() == NodeConstants.Types.JOIN) {
+        	applyCardinalityFeedback(node, metadata);
+        }
+    }
+    
+    /**
+     * Replace the estimate with the cardinality observed from prior executions of the same plan fragment 
+     */
+    private static void applyCardinalityFeedback(PlanNode node, QueryMetadataInterface metadata) throws QueryMetadataException, TeiidComponentException {
+    	CommandContext context = CommandContext.getThreadLocalContext();
+    	if (context == null || context.getCardinalityFeedback() == null) {
+    		return;
+    	}
+    	Float observed = context.getCardinalityFeedback().getCardinality(CardinalityFeedback.getKey(node));
+    	if (observed != null) {
+    		setCardinalityEstimate(node, observed, true, metadata);
+    	}
     }
 
 	private static void estimateSetOpCost(PlanNode node,
@@ -931,7 +956,8 @@ public class NewCalculateCostUtil {
                                               QueryMetadataInterface metadata,
                                               CompareCriteria compCrit, boolean unknownChildCost) throws TeiidComponentException,
                                                                        QueryMetadataException {
-        if (!(compCrit.getLeftExpression() instanceof ElementSymbol) || !(compCrit.getRightExpression() instanceof Constant)) {
+        Constant value = getComparisonValue(compCrit.getRightExpression());
+        if (!(compCrit.getLeftExpression() instanceof ElementSymbol) || value == null) {
             if (unknownChildCost) {
                 return UNKNOWN_VALUE;
             }
@@ -950,51 +976,40 @@ public class NewCalculateCostUtil {
         } 
         float cost = childCost;
         try{
-            float maxValue = 0;
-            float minValue = 0;
-
-            Constant value = (Constant)compCrit.getRightExpression();
-            float compareValue = 0;
-        	// Case 6257 - handling added for time and date.  If the max/min values are not
-            // in the expected format, NumberFormatException is thrown and reverts to default costing.
-            if(dataType.equals(DataTypeManager.DefaultDataClasses.TIMESTAMP)) {
-                compareValue = ((Timestamp)value.getValue()).getTime();
-                maxValue = Timestamp.valueOf(max).getTime();
-                minValue = Timestamp.valueOf(min).getTime();
-            } else if(dataType.equals(DataTypeManager.DefaultDataClasses.TIME)) {
-                compareValue = ((Time)value.getValue()).getTime();
-                maxValue = Time.valueOf(max).getTime();
-                minValue = Time.valueOf(min).getTime();
-            // (For date, our costing sets the max and min values using timestamp format)
-            } else if(dataType.equals(DataTypeManager.DefaultDataClasses.DATE)) {
-                compareValue = ((Date)value.getValue()).getTime();
-                maxValue = Timestamp.valueOf(max).getTime();
-                minValue = Timestamp.valueOf(min).getTime();
-            } else {
-            	if(!Number.class.isAssignableFrom(dataType)) {
-                    if (unknownChildCost) {
-                        return UNKNOWN_VALUE;
-                    }
-                    return childCost/3;
+            if(!isRangeType(dataType)) {
+                if (unknownChildCost) {
+                    return UNKNOWN_VALUE;
                 }
-                compareValue = ((Number)value.getValue()).floatValue();
-                maxValue = Integer.parseInt(max);
-                minValue = Integer.parseInt(min);
+                return childCost/3;
             }
-            float range = Math.max(maxValue - minValue, 1);
+            float compareValue = getRangeValue(value.getValue(), dataType);
+            float maxValue = getRangeValue(max, dataType);
+            float minValue = getRangeValue(min, dataType);
             
             float costMultiple = 1;
             
-            if(compCrit.getOperator() == CompareCriteria.GT || compCrit.getOperator() == CompareCriteria.GE) {
-            	costMultiple = (maxValue - compareValue)/range;
-                if (compareValue < 0 && maxValue < 0) {
-                	costMultiple = (1 - costMultiple);
-                }
-            } else if(compCrit.getOperator() == CompareCriteria.LT || compCrit.getOperator() == CompareCriteria.LE) {
-            	costMultiple = (compareValue - minValue)/range;
-                if (compareValue < 0 && minValue < 0) {
-                	costMultiple = (1 - costMultiple);
-                }
+            float[] histogram = getHistogram(metadata.getExtensionProperty(element.getMetadataID(), HISTOGRAM, false), dataType);
+            if (histogram != null) {
+            	float fractionBelow = getFractionBelow(histogram, compareValue);
+            	if(compCrit.getOperator() == CompareCriteria.GT || compCrit.getOperator() == CompareCriteria.GE) {
+            		costMultiple = 1 - fractionBelow;
+            	} else if(compCrit.getOperator() == CompareCriteria.LT || compCrit.getOperator() == CompareCriteria.LE) {
+            		costMultiple = fractionBelow;
+            	}
+            } else {
+	            float range = Math.max(maxValue - minValue, 1);
+	            
+	            if(compCrit.getOperator() == CompareCriteria.GT || compCrit.getOperator() == CompareCriteria.GE) {
+	            	costMultiple = (maxValue - compareValue)/range;
+	                if (compareValue < 0 && maxValue < 0) {
+	                	costMultiple = (1 - costMultiple);
+	                }
+	            } else if(compCrit.getOperator() == CompareCriteria.LT || compCrit.getOperator() == CompareCriteria.LE) {
+	            	costMultiple = (compareValue - minValue)/range;
+	                if (compareValue < 0 && minValue < 0) {
+	                	costMultiple = (1 - costMultiple);
+	                }
+	            }
             }
             if (costMultiple > 1) {
             	costMultiple = 1;
@@ -1013,6 +1028,103 @@ public class NewCalculateCostUtil {
         return cost;
     }
     
+    /**
+     * Get the comparison value as a constant.  A positional reference is costed using the 
+     * value bound in the planning context, which is only present for auto parameterized statements.
+     * @return the constant or null if the value is not known
+     */
+    private static Constant getComparisonValue(Expression expr) throws TeiidComponentException {
+    	if (expr instanceof Constant) {
+    		return (Constant)expr;
+    	}
+    	if (!(expr instanceof Reference)) {
+    		return null;
+    	}
+    	Reference ref = (Reference)expr;
+    	CommandContext context = CommandContext.getThreadLocalContext();
+    	if (!ref.isPositional() || ref.getExpression() != null || context == null || context.getVariableContext() == null 
+    			|| !context.getVariableContext().containsVariable(ref.getContextSymbol())) {
+    		return null;
+    	}
+    	Object value = context.getVariableContext().getGlobalValue(ref.getContextSymbol());
+    	if (value == null) {
+    		return null;
+    	}
+    	return new Constant(value, ref.getType());
+    }
+    
+    private static boolean isRangeType(Class<?> dataType) {
+    	return dataType.equals(DataTypeManager.DefaultDataClasses.TIMESTAMP)
+    	|| dataType.equals(DataTypeManager.DefaultDataClasses.TIME)
+    	|| dataType.equals(DataTypeManager.DefaultDataClasses.DATE)
+    	|| Number.class.isAssignableFrom(dataType);
+    }
+    
+    /**
+     * Get a float representation of a comparison value or a string statistic.
+     * Date statistics are expected in timestamp form.
+     * @throws IllegalArgumentException if the string value cannot be parsed
+     */
+    private static float getRangeValue(Object value, Class<?> dataType) {
+    	if (value instanceof java.util.Date) {
+    		return ((java.util.Date)value).getTime();
+    	}
+    	if (value instanceof Number) {
+    		return ((Number)value).floatValue();
+    	}
+    	String stringValue = (String)value;
+        if(dataType.equals(DataTypeManager.DefaultDataClasses.TIMESTAMP) || dataType.equals(DataTypeManager.DefaultDataClasses.DATE)) {
+            return Timestamp.valueOf(stringValue).getTime();
+        }
+        if(dataType.equals(DataTypeManager.DefaultDataClasses.TIME)) {
+            return Time.valueOf(stringValue).getTime();
+        }
+        return Float.parseFloat(stringValue);
+    }
+    
+    /**
+     * Parse the comma separated bucket bounds of an equi-depth histogram
+     * @return the bounds or null if there is no usable histogram
+     */
+    static float[] getHistogram(String histogram, Class<?> dataType) {
+    	if (histogram == null) {
+    		return null;
+    	}
+    	String[] bounds = histogram.split(","); //$NON-NLS-1$
+    	if (bounds.length < 2) {
+    		return null;
+    	}
+    	float[] result = new float[bounds.length];
+    	for (int i = 0; i < bounds.length; i++) {
+    		result[i] = getRangeValue(bounds[i].trim(), dataType);
+    		if (i > 0 && result[i] < result[i - 1]) {
+    			return null;
+    		}
+    	}
+    	return result;
+    }
+    
+    /**
+     * Estimate the fraction of values less than the given value.  Each bucket
+     * holds the same number of values and values are assumed to be uniform within a bucket.
+     */
+    static float getFractionBelow(float[] histogram, float value) {
+    	int buckets = histogram.length - 1;
+    	if (value <= histogram[0]) {
+    		return 0;
+    	}
+    	if (value >= histogram[buckets]) {
+    		return 1;
+    	}
+    	int i = 0;
+    	while (value >= histogram[i + 1]) {
+    		i++;
+    	}
+    	float width = histogram[i + 1] - histogram[i];
+    	float withinBucket = width > 0 ? (value - histogram[i]) / width : 0;
+    	return (i + withinBucket) / buckets;
+    }
+    
     static boolean usesKey(PlanNode planNode, Collection<? extends Expression> allElements, QueryMetadataInterface metadata) throws QueryMetadataException, TeiidComponentException {
     	//TODO: key preserved joins should be marked
     	return isSingleTable(planNode)
@@ -37,6 +37,7 @@ import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.SupportConstants;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
+import org.teiid.query.optimizer.relational.CardinalityFeedback;
 import org.teiid.query.optimizer.relational.OptimizerRule;
 import org.teiid.query.optimizer.relational.RuleStack;
 import org.teiid.query.optimizer.relational.plantree.NodeConstants;
@@ -76,6 +77,10 @@ public final class RuleCollapseSource implements OptimizerRule {
 
         for (PlanNode accessNode : NodeEditor.findAllNodes(plan, NodeConstants.Types.ACCESS)) {
             
+        	if (context != null && context.getCardinalityFeedback() != null) {
+        		CardinalityFeedback.saveAccessKey(accessNode);
+        	}
+        	
             // Get nested non-relational plan if there is one
             ProcessorPlan nonRelationalPlan = FrameUtil.getNestedPlan(accessNode);
     		Command command = FrameUtil.getNonQueryCommand(accessNode);
@@ -57,6 +57,7 @@ import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.sql.visitor.GroupsUsedByElementsVisitor;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.HashKey;
 
 
 /**
@@ -123,6 +124,7 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
              */
             boolean pushLeft = true;
             boolean pushRight = true;
+            boolean hash = false;
             if ((joinType == JoinType.JOIN_INNER || joinType == JoinType.JOIN_LEFT_OUTER) && context != null) {
             	float leftCost = NewCalculateCostUtil.computeCostForTree(joinNode.getFirstChild(), metadata);
             	float rightCost = NewCalculateCostUtil.computeCostForTree(joinNode.getLastChild(), metadata);
@@ -131,8 +133,17 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
             		//we use a larger constant here to ensure that we don't unwisely prevent pushdown
             		pushLeft = leftCost < context.getProcessorBatchSize() || leftCost / rightCost < 8 || (key != null && !right);
             		pushRight = rightCost < context.getProcessorBatchSize() || rightCost / leftCost < 8 || joinType == JoinType.JOIN_LEFT_OUTER || (key != null && right);
+            		hash = useHashJoin(joinNode, leftExpressions, rightExpressions, leftCost, rightCost, key, metadata, capabilitiesFinder, context);
             	}
             }
+            
+            if (hash) {
+            	//sorts are not needed, but the join expressions must still be projected
+            	insertProject(joinNode.getFirstChild(), leftExpressions, joinNode);
+            	insertProject(joinNode.getLastChild(), rightExpressions, joinNode);
+            	joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.HASH);
+            	continue;
+            }
 
             if (key != null && joinNode.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE) == null) {
             	//redo the join predicates based upon the key alone
@@ -210,6 +221,38 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
         return plan;
     }
 
+    /**
+     * Determine if a hash join should be used instead of sorting both sides.
+     * <br/>
+     * A hash join is used when both sides are known to be larger than a processing batch, 
+     * neither side can have its sort pushed to the source, and the right (build) side is not 
+     * larger than the left. Unbalanced joins with the smaller side on the left are
+     * left to the enhanced sort join, which will index the smaller side.
+     */
+    static boolean useHashJoin(PlanNode joinNode, List<Expression> leftExpressions, List<Expression> rightExpressions, 
+    		float leftCost, float rightCost, Object key, QueryMetadataInterface metadata, CapabilitiesFinder capFinder, CommandContext context) throws QueryMetadataException, TeiidComponentException {
+    	if (!context.getOptions().isHashJoin() 
+    			|| key != null 
+    			|| joinNode.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE) != null
+    			|| leftCost <= context.getProcessorBatchSize() 
+    			|| rightCost <= context.getProcessorBatchSize()
+    			|| rightCost > leftCost
+    			|| !HashKey.isHashable(leftExpressions, rightExpressions)) {
+    		return false;
+    	}
+    	return !canPushSort(joinNode.getFirstChild(), leftExpressions, metadata, capFinder) 
+    			&& !canPushSort(joinNode.getLastChild(), rightExpressions, metadata, capFinder);
+    }
+    
+    private static boolean canPushSort(PlanNode childNode, List<Expression> expressions, QueryMetadataInterface metadata, CapabilitiesFinder capFinder) throws QueryMetadataException, TeiidComponentException {
+    	PlanNode sourceNode = FrameUtil.findJoinSourceNode(childNode);
+    	if (sourceNode.getType() != NodeConstants.Types.ACCESS) {
+    		return false;
+    	}
+    	PlanNode sortNode = createSortNode(new ArrayList<Expression>(new LinkedHashSet<Expression>(expressions)), expressions);
+    	return RuleRaiseAccess.canRaiseOverSort(sourceNode, metadata, capFinder, sortNode, null, false);
+    }
+
     /**
      * Insert a sort node under the merge join node.  If necessary, also insert a project
      * node to handle function evaluation.  
@@ -284,6 +327,22 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
         return false;
     }
 
+    /**
+     * Insert a project node if the join expressions are not already output by the child 
+     */
+    private static void insertProject(PlanNode childNode, List<Expression> expressions, PlanNode joinNode) {
+    	Set<Expression> outputSymbols = new LinkedHashSet<Expression>((List<Expression>)childNode.getProperty(NodeConstants.Info.OUTPUT_COLS));
+    	int oldSize = outputSymbols.size();
+    	outputSymbols.addAll(expressions);
+    	if (outputSymbols.size() == oldSize) {
+    		return;
+    	}
+    	PlanNode projectNode = NodeFactory.getNewNode(NodeConstants.Types.PROJECT);
+        projectNode.setProperty(NodeConstants.Info.PROJECT_COLS, new ArrayList<Expression>(outputSymbols));
+        childNode.addAsParent(projectNode);
+        correctOutputElements(joinNode, outputSymbols, projectNode);
+    }
+
     private static PlanNode createSortNode(List<Expression> orderSymbols,
                                            Collection<Expression> outputElements) {
         PlanNode sortNode = NodeFactory.getNewNode(NodeConstants.Types.SORT);
@@ -37,6 +37,7 @@ import org.teiid.query.optimizer.relational.plantree.NodeConstants;
 import org.teiid.query.optimizer.relational.plantree.NodeConstants.Info;
 import org.teiid.query.optimizer.relational.plantree.NodeFactory;
 import org.teiid.query.optimizer.relational.plantree.PlanNode;
+import org.teiid.query.optimizer.relational.rules.JoinRegion.PartialJoinOrder;
 import org.teiid.query.processor.relational.JoinNode.JoinStrategyType;
 import org.teiid.query.resolver.util.AccessPattern;
 import org.teiid.query.sql.lang.CompareCriteria;
@@ -47,6 +48,7 @@ import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.sql.visitor.GroupsUsedByElementsVisitor;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.query.util.Permutation;
 import org.teiid.translator.ExecutionFactory.SupportedJoinCriteria;
 
@@ -80,12 +82,18 @@ import org.teiid.translator.ExecutionFactory.SupportedJoinCriteria;
  *         with a single access node.
  *         
  *  Stage 5.  The remaining join regions will be ordered in a left linear tree based
- *  upon a an exhaustive, or random, algorithm that considers costing and criteria information.
+ *  upon a an exhaustive, dynamic programming, or greedy algorithm that considers costing and criteria information.
  *   
  */
 public class RulePlanJoins implements OptimizerRule {
     
     public static final int EXHAUSTIVE_SEARCH_GROUPS = 6;
+    
+    /**
+     * The upper bound on the dynamic programming search, which uses time and memory exponential in the number of sources.
+     * At the bound there are 2^16 partial join orders, each extended by up to 16 sources.
+     */
+    public static final int MAX_DYNAMIC_PROGRAMMING_GROUPS = 16;
                 
     /** 
      * @see org.teiid.query.optimizer.relational.OptimizerRule#execute(org.teiid.query.optimizer.relational.plantree.PlanNode, org.teiid.query.metadata.QueryMetadataInterface, org.teiid.query.optimizer.capabilities.CapabilitiesFinder, org.teiid.query.optimizer.relational.RuleStack, org.teiid.query.analysis.AnalysisRecord, org.teiid.query.util.CommandContext)
@@ -542,62 +550,44 @@ public class RulePlanJoins implements OptimizerRule {
             orderList.add(new Integer(i));
         }
         
-        double bestSubScore = Double.MAX_VALUE;
-        Object[] bestSubOrder = null;
-        
-        Permutation perms = new Permutation(orderList.toArray());
-
-        int exhaustive = regionCount;
-
-        //after 16 sources this will be completely greedy. before that it will try to strike a compromise between the exhaustive
-        //and non-exhaustive searches
-        if (regionCount > EXHAUSTIVE_SEARCH_GROUPS) {
-            exhaustive = Math.max(2, EXHAUSTIVE_SEARCH_GROUPS - (int)Math.ceil(Math.sqrt((regionCount - EXHAUSTIVE_SEARCH_GROUPS))));
-        } 
-        
-        Iterator permIter = perms.generate(exhaustive);
-        
-        while(permIter.hasNext()) {
-            Object[] order = (Object[]) permIter.next();
-
-            double score = region.scoreRegion(order, 0, metadata, capFinder, context);
-            if(score < bestSubScore) {
-                bestSubScore = score;
-                bestSubOrder = order;
+        if (regionCount <= EXHAUSTIVE_SEARCH_GROUPS) {
+            double bestScore = Double.MAX_VALUE;
+            Object[] bestOrder = null;
+            
+            Permutation perms = new Permutation(orderList.toArray());
+            
+            Iterator permIter = perms.generate(regionCount);
+            
+            while(permIter.hasNext()) {
+                Object[] order = (Object[]) permIter.next();
+    
+                double score = region.scoreRegion(order, 0, metadata, capFinder, context);
+                if(score < bestScore) {
+                    bestScore = score;
+                    bestOrder = order;
+                }
             }
+            return bestOrder;
         }
         
-        if (bestSubOrder == null) {
-            return null;
-        }
+        int dynamicProgrammingGroups = context != null?context.getOptions().getDynamicProgrammingJoinSources():new Options().getDynamicProgrammingJoinSources(); 
         
-        if (regionCount <= exhaustive) {
-            return bestSubOrder;
+        if (regionCount <= Math.min(MAX_DYNAMIC_PROGRAMMING_GROUPS, dynamicProgrammingGroups)) {
+        	return findBestJoinOrderDynamic(region, metadata, capFinder, context);
         }
         
-        Integer[] result = new Integer[regionCount];
-        
-        //remove the joins that have already been placed
-        for(int i=0; i<bestSubOrder.length; i++) {
-            result[i] = (Integer)bestSubOrder[i];
-        }
+        //greedily add the source with the least cost
+        List<Map.Entry<PlanNode, PlanNode>> joinSourceEntries = new ArrayList<Map.Entry<PlanNode, PlanNode>>(region.getJoinSourceNodes().entrySet());
+        PartialJoinOrder order = region.createPartialJoinOrder();
         
         while(!orderList.isEmpty()) {
-            
-            double bestPartialScore = Double.MAX_VALUE;
-            List bestOrder = null;
+            PartialJoinOrder bestOrder = null;
 
-            for (int i = 0; i < orderList.size(); i++) {
-                Integer index = orderList.get(i);
-                
-                List order = new ArrayList(Arrays.asList(bestSubOrder));
-                order.add(index);
+            for (Integer index : orderList) {
+                PartialJoinOrder next = region.extendJoinOrder(order, index, joinSourceEntries, metadata, capFinder, context);
                 
-                double partialScore = region.scoreRegion(order.toArray(), bestSubOrder.length, metadata, capFinder, context);
-                
-                if (partialScore < bestPartialScore) {
-                    bestPartialScore = partialScore;
-                    bestOrder = order;
+                if (next != null && (bestOrder == null || next.getTotalIntermediateCost() < bestOrder.getTotalIntermediateCost())) {
+                    bestOrder = next;
                 }
             }
             
@@ -605,13 +595,63 @@ public class RulePlanJoins implements OptimizerRule {
                 return null;
             }
             
-            Integer next = (Integer)bestOrder.get(bestOrder.size() - 1);
-            result[regionCount - orderList.size()] = next;
-            orderList.remove(next);
-            bestSubOrder = bestOrder.toArray();
+            orderList.remove(bestOrder.getSources().get(bestOrder.getSources().size() - 1));
+            order = bestOrder;
+        }
+        
+        return order.getSources().toArray();
+    }
+    
+    /**
+     * Find the best left linear join order with a dynamic programming search over the 
+     * subsets of the join sources.  The best order for each subset is built from the best
+     * orders of the subsets that are one source smaller, using the same costing as 
+     * {@link JoinRegion#scoreRegion(Object[], int, QueryMetadataInterface, CapabilitiesFinder, CommandContext)}.
+     */
+    Object[] findBestJoinOrderDynamic(JoinRegion region, QueryMetadataInterface metadata, CapabilitiesFinder capFinder, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
+        List<Map.Entry<PlanNode, PlanNode>> joinSourceEntries = new ArrayList<Map.Entry<PlanNode, PlanNode>>(region.getJoinSourceNodes().entrySet());
+        int regionCount = joinSourceEntries.size();
+        int all = (1 << regionCount) - 1;
+        
+        PartialJoinOrder[] best = new PartialJoinOrder[all + 1];
+        best[0] = region.createPartialJoinOrder();
+        
+        //subsets are always visited before their supersets
+        for (int set = 0; set < all; set++) {
+        	PartialJoinOrder order = best[set];
+        	//the last source is not an intermediate result, so it is not costed
+        	if (order == null || Integer.bitCount(set) == regionCount - 1) {
+        		continue;
+        	}
+        	for (int i = 0; i < regionCount; i++) {
+        		int next = set | (1 << i);
+        		if (next == set) {
+        			continue;
+        		}
+        		PartialJoinOrder nextOrder = region.extendJoinOrder(order, i, joinSourceEntries, metadata, capFinder, context);
+        		if (nextOrder != null && (best[next] == null || nextOrder.getTotalIntermediateCost() < best[next].getTotalIntermediateCost())) {
+        			best[next] = nextOrder;
+        		}
+        	}
+        }
+        
+        PartialJoinOrder bestOrder = null;
+        Integer last = null;
+        for (int i = 0; i < regionCount; i++) {
+        	PartialJoinOrder order = best[all & ~(1 << i)];
+        	if (order != null && (bestOrder == null || order.getTotalIntermediateCost() < bestOrder.getTotalIntermediateCost())) {
+        		bestOrder = order;
+        		last = i;
+        	}
+        }
+        
+        if (bestOrder == null) {
+        	return null;
         }
         
-        return result;
+        List<Integer> result = new ArrayList<Integer>(bestOrder.getSources());
+        result.add(last);
+        return result.toArray();
     }
     
     /** 
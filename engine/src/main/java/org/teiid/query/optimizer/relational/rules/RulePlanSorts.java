@@ -27,6 +27,7 @@ import java.util.List;
 
 import org.teiid.api.exception.query.QueryMetadataException;
 import org.teiid.api.exception.query.QueryPlannerException;
+import org.teiid.common.buffer.BufferManager;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.metadata.QueryMetadataInterface;
@@ -49,6 +50,7 @@ import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.ExpressionSymbol;
 import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.HashKey;
 
 
 /**
@@ -163,12 +165,16 @@ public class RulePlanSorts implements OptimizerRule {
 					}
 				}
 			}
+			if (!node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL) && useHashGrouping(node, metadata, context)) {
+				node.setProperty(NodeConstants.Info.HASH_GROUPING, true);
+			}
 			//TODO: check the join interesting order
 			parentBlocking = true;
 			break;
 		case NodeConstants.Types.JOIN:
 			if (node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_LOOP 
-					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_TABLE) {
+					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_TABLE
+					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.HASH) {
 				break;
 			}
 			/*
@@ -209,6 +215,68 @@ public class RulePlanSorts implements OptimizerRule {
 		return root;
 	}
 
+	/**
+	 * Determine if the grouping should be performed by hashing rather than sorting.
+	 * <br/>
+	 * Hashing is only used when the output order is not relied upon, all of the aggregates
+	 * have fixed size state, and the estimated number of groups is known, is a 
+	 * significant reduction from the input, and should fit in the processing memory.
+	 */
+	static boolean useHashGrouping(PlanNode node, QueryMetadataInterface metadata, CommandContext context) throws QueryMetadataException, TeiidComponentException {
+		if (!context.getOptions().isHashGrouping() 
+				|| node.hasBooleanProperty(Info.ROLLUP) 
+				|| node.getProperty(Info.SORT_ORDER) != null) {
+			return false;
+		}
+		List<Expression> groupCols = (List<Expression>)node.getProperty(Info.GROUP_COLS);
+		if (!HashKey.isHashable(groupCols, groupCols)) {
+			return false;
+		}
+		SymbolMap map = (SymbolMap)node.getProperty(Info.SYMBOL_MAP);
+		for (Expression ex : map.asMap().values()) {
+			if (ex instanceof AggregateSymbol && !hasFixedSizeState((AggregateSymbol)ex)) {
+				return false;
+			}
+		}
+		float groups = NewCalculateCostUtil.computeCostForTree(node, metadata);
+		float childCost = NewCalculateCostUtil.computeCostForTree(node.getFirstChild(), metadata);
+		if (groups == NewCalculateCostUtil.UNKNOWN_VALUE || childCost == NewCalculateCostUtil.UNKNOWN_VALUE || groups > childCost / 2) {
+			return false;
+		}
+		BufferManager bm = context.getBufferManager();
+		if (bm != null) {
+			List<Expression> outputCols = (List<Expression>)node.getProperty(Info.OUTPUT_COLS);
+			int schemaSize = Math.max(1, bm.getSchemaSize(outputCols));
+			float maxGroups = (float)bm.getMaxProcessingSize() / schemaSize * bm.getProcessorBatchSize(outputCols);
+			if (groups > maxGroups) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean hasFixedSizeState(AggregateSymbol agg) {
+		if (agg.isDistinct() || agg.getOrderBy() != null) {
+			return false;
+		}
+		switch (agg.getAggregateFunction()) {
+		case COUNT:
+		case SUM:
+		case AVG:
+		case MIN:
+		case MAX:
+		case EVERY:
+		case SOME:
+		case ANY:
+		case STDDEV_POP:
+		case STDDEV_SAMP:
+		case VAR_POP:
+		case VAR_SAMP:
+			return true;
+		}
+		return false;
+	}
+
 	private PlanNode checkForProjectOptimization(PlanNode node, PlanNode root, 
 			QueryMetadataInterface metadata, CapabilitiesFinder capFinder, AnalysisRecord record, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
 		PlanNode projectNode = node.getFirstChild();
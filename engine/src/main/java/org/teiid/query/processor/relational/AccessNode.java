@@ -76,7 +76,6 @@ import org.teiid.query.util.CommandContext;
 public class AccessNode extends SubqueryAwareRelationalNode {
 
     private static final Object[] NO_PROJECTION = new Object[0];
-	private static final int MAX_CONCURRENT = 10; //TODO: this could be settable via a property
 	// Initialization state
     private Command command;
     private String modelName;
@@ -254,8 +253,15 @@ public class AccessNode extends SubqueryAwareRelationalNode {
 			if(needProcessing) {
 				registerRequest(atomicCommand);
 			}
-			//We hardcode an upper limit on currency because these commands have potentially large in-memory value sets
-        } while (!processCommandsIndividually() && hasNextCommand() && this.tupleSources.size() < Math.min(MAX_CONCURRENT, this.getContext().getUserRequestSourceConcurrency()));
+			//There is an upper limit on concurrency because these commands have potentially large in-memory value sets
+        } while (!processCommandsIndividually() && hasNextCommand() && this.tupleSources.size() < getMaxConcurrentCommands());
+	}
+	
+	/**
+	 * The number of commands from this node that may be executing at the same time
+	 */
+	protected int getMaxConcurrentCommands() {
+		return Math.max(1, Math.min(getContext().getOptions().getDependentQueryConcurrency(), this.getContext().getUserRequestSourceConcurrency()));
 	}
 	
 	public boolean isShouldEvaluate() {
@@ -23,6 +23,8 @@
 package org.teiid.query.processor.relational;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
@@ -31,6 +33,7 @@ import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.QueryCommand;
+import org.teiid.query.util.BloomFilter;
 
 
 /**
@@ -50,6 +53,8 @@ public class DependentAccessNode extends AccessNode {
     private DependentCriteriaProcessor criteriaProcessor;
     private Criteria dependentCrit;
     private boolean sort = true;
+    private int[] filterIndexes;
+    private BloomFilter[] bloomFilters;
     /**
      * Cached rewritten command to be used as the base for all dependent queries.
      */
@@ -76,6 +81,8 @@ public class DependentAccessNode extends AccessNode {
         dependentCrit = null;
         sort = true;
         rewrittenCommand = null;
+        filterIndexes = null;
+        bloomFilters = null;
     }
     
     @Override
@@ -136,10 +143,24 @@ public class DependentAccessNode extends AccessNode {
         if (this.criteriaProcessor == null) {
             this.criteriaProcessor = new DependentCriteriaProcessor(this.maxSetSize, this.maxPredicates, this, query.getCriteria());
             this.criteriaProcessor.setPushdown(pushdown);
+            int bloomFilterQueries = getContext().getOptions().getDependentJoinBloomFilterQueries();
+            if (bloomFilterQueries > 0) {
+            	this.criteriaProcessor.setBloomFilterQueries(bloomFilterQueries, getElements());
+            }
         }
         
         if (this.dependentCrit == null) {
             dependentCrit = criteriaProcessor.prepareCriteria();
+            Map<Integer, BloomFilter> filters = criteriaProcessor.getBloomFilters();
+            if (filters != null && bloomFilters == null) {
+            	filterIndexes = new int[filters.size()];
+            	bloomFilters = new BloomFilter[filters.size()];
+            	int i = 0;
+            	for (Map.Entry<Integer, BloomFilter> entry : filters.entrySet()) {
+            		filterIndexes[i] = entry.getKey();
+            		bloomFilters[i++] = entry.getValue();
+            	}
+            }
         }
         
         query.setCriteria(dependentCrit);
@@ -171,6 +192,22 @@ public class DependentAccessNode extends AccessNode {
         return result;
     }
 
+    /**
+     * Remove the rows that cannot match the independent values
+     */
+    @Override
+    protected void addBatchRow(List<?> row) {
+    	if (bloomFilters != null) {
+    		for (int i = 0; i < bloomFilters.length; i++) {
+    			Object value = row.get(filterIndexes[i]);
+    			if (value == null || !bloomFilters[i].mightContain(value)) {
+    				return;
+    			}
+    		}
+    	}
+    	super.addBatchRow(row);
+    }
+
     /**
      * @see org.teiid.query.processor.relational.AccessNode#hasNextCommand()
      */
@@ -26,8 +26,11 @@ import java.util.*;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.query.QueryPlugin;
@@ -46,6 +49,7 @@ import org.teiid.query.sql.symbol.Array;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.util.ValueIterator;
+import org.teiid.query.util.BloomFilter;
 
 
 public class DependentCriteriaProcessor {
@@ -66,6 +70,8 @@ public class DependentCriteriaProcessor {
         
         boolean overMax;
         
+        Expression dependentExpression;
+        
         long replacementSize() {
     		return replacement.size() * valueCount;
     	}
@@ -174,6 +180,11 @@ public class DependentCriteriaProcessor {
 	
 	private int totalPredicates;
 	private long maxSize;
+	
+	private int bloomFilterQueries;
+	private List<? extends Expression> filterElements;
+	private Map<Integer, BloomFilter> bloomFilters;
+	private int reservedBytes;
 
     public DependentCriteriaProcessor(int maxSetSize, int maxPredicates, RelationalNode dependentNode, Criteria dependentCriteria) throws ExpressionEvaluationException, TeiidComponentException {
         this.maxSetSize = maxSetSize;
@@ -219,6 +230,7 @@ public class DependentCriteriaProcessor {
                 }
                 ts.getDepedentSetStates().add(state);
                 state.maxNdv = dsc.getMaxNdv();
+                state.dependentExpression = dsc.getExpression();
             } 
         }        
     }
@@ -232,6 +244,10 @@ public class DependentCriteriaProcessor {
         if (this.eval != null) {
         	this.eval.close();
         }
+        if (this.reservedBytes > 0) {
+        	this.dependentNode.getBufferManager().releaseBuffers(this.reservedBytes);
+        	this.reservedBytes = 0;
+        }
     }
 
     public Criteria prepareCriteria() throws TeiidComponentException, TeiidProcessingException {
@@ -297,6 +313,10 @@ public class DependentCriteriaProcessor {
 				}
 			}
 
+			if (bloomFilterQueries > 0) {
+				createBloomFilters();
+			}
+
 			//proceed with set based processing
             phase = SET_PROCESSING;
         }
@@ -326,6 +346,82 @@ public class DependentCriteriaProcessor {
         return new CompoundCriteria(CompoundCriteria.AND, crits);
     }
     
+    /**
+     * Use Bloom filters rather than dependent criteria for the sources that would 
+     * require more than the allowed number of source queries.  The filters are applied
+     * to the dependent rows by the dependent node, but since false positives are possible
+     * the join must still be performed against the full independent values.
+     * <br>
+     * The filters are limited to the max processing size in total and their memory is reserved 
+     * until the processor is closed.
+     */
+    private void createBloomFilters() throws TeiidComponentException {
+    	BufferManager bm = this.dependentNode.getBufferManager();
+    	long maxBits = ((long)bm.getMaxProcessingSize() << 3) / Math.max(1, setStates.size());
+    	int predicatesPerQuery = Math.max(1, totalPredicates / Math.max(1, setStates.size()));
+    	for (TupleState ts : dependentState.values()) {
+    		int rowCount = ts.dvs.getTupleBuffer().getRowCount();
+    		long queries = 1;
+    		for (SetState state : ts.getDepedentSetStates()) {
+    			long predicates = (rowCount * state.valueCount)/maxSize + ((rowCount * state.valueCount)%maxSize!=0?1:0);
+    			queries = Math.max(queries, predicates/predicatesPerQuery + (predicates%predicatesPerQuery!=0?1:0));
+    		}
+    		if (queries <= bloomFilterQueries) {
+    			continue;
+    		}
+    		//all of the sets from the source must be filtered or they will still be split
+    		boolean canFilter = true;
+    		for (SetState state : ts.getDepedentSetStates()) {
+    			if (state.overMax || state.valueExpression instanceof Array 
+    					|| state.dependentExpression.getType() != state.valueExpression.getType() 
+    					|| !DataTypeManager.isHashable(state.valueExpression.getType())
+    					|| filterElements.indexOf(state.dependentExpression) == -1) {
+    				canFilter = false;
+    				break;
+    			}
+    		}
+    		if (!canFilter) {
+    			continue;
+    		}
+    		if (bloomFilters == null) {
+    			bloomFilters = new LinkedHashMap<Integer, BloomFilter>();
+    		}
+    		for (SetState state : ts.getDepedentSetStates()) {
+    			BloomFilter filter = new BloomFilter(rowCount, .01, maxBits);
+    			this.reservedBytes += bm.reserveBuffers(filter.getSizeInBytes(), BufferReserveMode.FORCE);
+    			while (state.valueIterator.hasNext()) {
+    				Object value = state.valueIterator.next();
+    				if (value != null) {
+    					filter.add(value);
+    				}
+    			}
+    			state.valueIterator.reset();
+    			bloomFilters.put(filterElements.indexOf(state.dependentExpression), filter);
+    			//process as if there was no dependent criteria
+    			state.overMax = true;
+    		}
+    		ts.originalVs.setUnused(true);
+    	}
+    }
+    
+    /**
+     * Enable the use of Bloom filters in place of splitting the dependent criteria into 
+     * more than the given number of queries.
+     * @param queries
+     * @param elements the elements of the dependent rows to be filtered
+     */
+    public void setBloomFilterQueries(int queries, List<? extends Expression> elements) {
+    	this.bloomFilterQueries = queries;
+    	this.filterElements = elements;
+    }
+    
+    /**
+     * @return the Bloom filters by the index of the dependent row value or null if none are used
+     */
+    public Map<Integer, BloomFilter> getBloomFilters() {
+		return bloomFilters;
+	}
+    
     public void consumedCriteria() {
         // flush only the value iterators starting at the restart index
         // it is only safe to do this after the super call to prepare command
@@ -45,6 +45,7 @@ import org.teiid.query.sql.lang.JoinType;
 import org.teiid.query.sql.lang.OrderBy;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.util.HashKey;
 
 
 /**
@@ -56,6 +57,9 @@ import org.teiid.query.sql.symbol.Expression;
  * 
  * Refined in 7.4 to use a full index if it is small enough or a repeated merge, rather than a partitioning approach (which was really just a single level index)
  * 
+ * When adaptive joins are enabled and both sides are large enough to require sorting, 
+ * processing switches to a {@link HashJoinStrategy} instead.
+ * 
  * TODO: add a tree method for insert that reuses a place list
  */
 public class EnhancedSortMergeJoinStrategy extends MergeJoinStrategy {
@@ -110,6 +114,7 @@ public class EnhancedSortMergeJoinStrategy extends MergeJoinStrategy {
 	private List<?> sortedTuple;
 	private boolean repeatedMerge;
 	private boolean validSemiDep;
+	private HashJoinStrategy hashStrategy;
 	
 	/**
 	 * Number of index batches we'll allow to marked as prefers memory regardless of buffer space
@@ -129,6 +134,10 @@ public class EnhancedSortMergeJoinStrategy extends MergeJoinStrategy {
     	if (joinNode == null) {
     		return;
     	}
+    	if (this.hashStrategy != null) {
+    		this.hashStrategy.close();
+    		this.hashStrategy = null;
+    	}
     	super.close();
     	if (this.index != null) {
     		this.index.remove();
@@ -183,7 +192,10 @@ public class EnhancedSortMergeJoinStrategy extends MergeJoinStrategy {
     	List<?> lastTuple = null;
     	boolean sortedDistinct = sorted && !state.isDistinct();
     	int sizeHint = index.getExpectedHeight(state.getRowCount());
-    	index.setBatchInsert(sorted);
+    	STree.BulkLoader loader = null;
+    	if (sorted) {
+    		loader = index.createBulkLoader();
+    	}
     	outer: while (its.hasNext()) {
     		//detect if sorted and distinct
     		List<?> originalTuple = its.nextTuple();
@@ -201,12 +213,16 @@ public class EnhancedSortMergeJoinStrategy extends MergeJoinStrategy {
     		if (!state.isDistinct()) {
     			tuple.add(keyLength - 1, rowId++);
     		}
-    		index.insert(tuple, sorted?InsertMode.ORDERED:InsertMode.NEW, sizeHint);
+    		if (loader != null) {
+    			loader.add(tuple);
+    		} else {
+    			index.insert(tuple, InsertMode.NEW, sizeHint);
+    		}
     	}
     	if (!sorted) {
     		index.compact();
     	} else {
-    		index.setBatchInsert(false);
+    		loader.finish();
     	}
     	its.closeSource();
     	this.reverseIndexes = new int[elements.size()];
@@ -239,6 +255,10 @@ public class EnhancedSortMergeJoinStrategy extends MergeJoinStrategy {
     @Override
     protected void loadRight() throws TeiidComponentException,
     		TeiidProcessingException {
+    	if (this.hashStrategy != null) {
+    		this.hashStrategy.loadRight();
+    		return;
+    	}
     	//the checks are done in a particular order to ensure we don't buffer if possible
     	if (processingSortRight == SortOption.SORT && this.joinNode.getJoinType() != JoinType.JOIN_LEFT_OUTER && shouldIndexIfSmall(this.leftSource)) {
     		this.processingSortRight = SortOption.NOT_SORTED; 
@@ -254,6 +274,17 @@ public class EnhancedSortMergeJoinStrategy extends MergeJoinStrategy {
 	    	} 
     	}
     	if (this.processingSortLeft != SortOption.NOT_SORTED && this.processingSortRight != SortOption.NOT_SORTED) {
+    		if (shouldHash()) {
+        		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+        			LogManager.logDetail(LogConstants.CTX_DQP, "switching to hash join", this.joinNode.getID()); //$NON-NLS-1$
+        		}
+    			this.hashStrategy = new HashJoinStrategy();
+    			this.hashStrategy.joinNode = this.joinNode;
+    			this.hashStrategy.leftSource = this.leftSource;
+    			this.hashStrategy.rightSource = this.rightSource;
+    			this.hashStrategy.loadRight();
+    			return;
+    		}
     		super.loadRight();
     		super.loadLeft();
     		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
@@ -301,6 +332,29 @@ public class EnhancedSortMergeJoinStrategy extends MergeJoinStrategy {
         }
     }
     
+    /**
+     * Determine if a hash join should be used rather than sorting both sides.
+     * Mirrors the planning checks in RuleImplementJoinStrategy, but with actual row counts. 
+     */
+    private boolean shouldHash() throws TeiidComponentException, TeiidProcessingException {
+    	if (this.processingSortLeft != SortOption.SORT 
+    			|| this.processingSortRight != SortOption.SORT 
+    			|| this.joinNode.isDependent()
+    			|| (this.joinNode.getJoinType() != JoinType.JOIN_INNER && this.joinNode.getJoinType() != JoinType.JOIN_LEFT_OUTER)
+    			|| !this.joinNode.getContext().getOptions().isAdaptiveJoin() 
+    			|| !this.joinNode.getContext().getOptions().isHashJoin()
+    			|| !HashKey.isHashable(this.joinNode.getLeftExpressions(), this.joinNode.getRightExpressions())) {
+    		return false;
+    	}
+    	int batchSize = this.joinNode.getBatchSize();
+    	//small sides can be sorted in memory
+    	if (this.rightSource.rowCountLE(batchSize) || this.leftSource.rowCountLE(batchSize)) {
+    		return false;
+    	}
+    	//the right side is the build side, so it should not be the larger
+    	return !this.leftSource.rowCountLE(this.rightSource.getRowCount() - 1);
+    }
+    
     private boolean shouldIndex(SourceState possibleIndex, SourceState other) throws TeiidComponentException, TeiidProcessingException {
     	long size = joinNode.getBatchSize();
     	int indexSize = possibleIndex.hasBuffer()?possibleIndex.getRowCount():-1;
@@ -363,6 +417,10 @@ public class EnhancedSortMergeJoinStrategy extends MergeJoinStrategy {
     @Override
     protected void process() throws TeiidComponentException,
     		TeiidProcessingException {
+    	if (this.hashStrategy != null) {
+    		this.hashStrategy.process();
+    		return;
+    	}
     	if (this.processingSortLeft != SortOption.NOT_SORTED && this.processingSortRight != SortOption.NOT_SORTED) {
     		super.process();
     		return;
@@ -0,0 +1,395 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * An exchange between threads.  The child subtree is processed by tasks on the 
+ * {@link CommandContext#getExecutor()} which place batches into a bounded queue
+ * that is consumed by the parent on the request thread.
+ * <br/>
+ * Only one task is active for a given exchange at a time and the task stops when 
+ * the queue is full or the child blocks.  The task is resumed by the consumer, which is 
+ * in turn woken by the task via {@link CommandContext#moreWork()}.
+ * <br/>
+ * The consumer never waits on a task.  A task that has not started when the exchange is 
+ * closed or reset does nothing, and the close, reset, or reopen of the child subtree is 
+ * left to a task that is still producing.
+ * <br/>
+ * The child subtree must not share mutable processing state with the rest of the plan, 
+ * see {@link #isParallelizable(RelationalNode)}.
+ */
+public class ExchangeNode extends RelationalNode {
+	
+	public static final int DEFAULT_QUEUE_BATCHES = 2;
+	
+	private int queueBatches = DEFAULT_QUEUE_BATCHES;
+	
+	//state guarded by this
+	private ArrayDeque<TupleBatch> queue = new ArrayDeque<TupleBatch>();
+	private int generation;
+	private boolean running;
+	private boolean producing;
+	private boolean resumeRequested;
+	private boolean done;
+	private boolean closing;
+	private boolean closeDeferred;
+	private boolean resetDeferred;
+	private boolean openDeferred;
+	private BlockedException blocked;
+	private Throwable exception;
+	
+	public ExchangeNode(int nodeID) {
+		super(nodeID);
+	}
+	
+	public void setQueueBatches(int queueBatches) {
+		this.queueBatches = Math.max(1, queueBatches);
+	}
+	
+	public int getQueueBatches() {
+		return queueBatches;
+	}
+	
+	@Override
+	public void open() throws TeiidComponentException, TeiidProcessingException {
+		boolean deferred = false;
+		synchronized (this) {
+			if (producing) {
+				//the child is still in use by a prior task, which will open it when done 
+				openDeferred = true;
+				deferred = true;
+			}
+		}
+		if (!deferred) {
+			super.open();
+		}
+		schedule();
+	}
+	
+	@Override
+	protected TupleBatch nextBatchDirect() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		TupleBatch batch = poll();
+		//start a task to refill the queue or to resume after the child was blocked
+		schedule();
+		if (batch == null) {
+			//the task may have run synchronously
+			batch = poll();
+		}
+		if (batch != null) {
+			return batch;
+		}
+		BlockedException e = null;
+		synchronized (this) {
+			e = blocked;
+			blocked = null;
+		}
+		if (e != null) {
+			//rethrow so that the request reacts to the child blocking as it normally would 
+			throw e;
+		}
+		throw BlockedException.block(getContext().getRequestId(), "Blocking on exchange", getID()); //$NON-NLS-1$
+	}
+	
+	private synchronized TupleBatch poll() throws TeiidComponentException, TeiidProcessingException {
+		if (exception != null) {
+			Throwable t = exception;
+			exception = null;
+			if (t instanceof TeiidComponentException) {
+				throw (TeiidComponentException)t;
+			}
+			if (t instanceof TeiidProcessingException) {
+				throw (TeiidProcessingException)t;
+			}
+			if (t instanceof RuntimeException) {
+				throw (RuntimeException)t;
+			}
+			if (t instanceof Error) {
+				throw (Error)t;
+			}
+			throw new TeiidComponentException(t);
+		}
+		return queue.poll();
+	}
+	
+	private void schedule() {
+		final int taskGeneration;
+		synchronized (this) {
+			if (running) {
+				//the consumer must be woken once the task completes
+				resumeRequested = true;
+				return;
+			}
+			if (done || closing || queue.size() >= queueBatches) {
+				return;
+			}
+			running = true;
+			taskGeneration = generation;
+		}
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				synchronized (ExchangeNode.this) {
+					if (taskGeneration != generation || closing) {
+						//cancelled before it started
+						return;
+					}
+					producing = true;
+				}
+				produce(taskGeneration);
+			}
+		};
+		try {
+			getContext().executeAsynch(task);
+		} catch (RejectedExecutionException e) {
+			//produce on the request thread instead
+			task.run();
+		}
+	}
+	
+	/**
+	 * Pull batches from the child until the queue is full, the child blocks, or processing is complete
+	 */
+	void produce(int taskGeneration) {
+		CommandContext context = getContext();
+		CommandContext.pushThreadLocalContext(context);
+		boolean wake = false;
+		try {
+			while (true) {
+				synchronized (this) {
+					if (closing || taskGeneration != generation) {
+						break;
+					}
+				}
+				TupleBatch batch = null;
+				try {
+					batch = getChildren()[0].nextBatch();
+				} catch (BlockedException e) {
+					synchronized (this) {
+						if (taskGeneration == generation) {
+							blocked = e;
+						}
+					}
+					//a source block will wake the request directly
+					wake |= e == BlockedException.BLOCKED_ON_MEMORY_EXCEPTION;
+					break;
+				} catch (Throwable e) {
+					synchronized (this) {
+						if (taskGeneration == generation) {
+							exception = e;
+						}
+					}
+					wake = true;
+					break;
+				}
+				wake = true;
+				synchronized (this) {
+					if (closing || taskGeneration != generation) {
+						break;
+					}
+					queue.add(batch);
+					if (batch.getTerminationFlag()) {
+						done = true;
+						break;
+					}
+					if (queue.size() >= queueBatches) {
+						break;
+					}
+				}
+			}
+		} finally {
+			while (true) {
+				wake |= finishDeferred();
+				synchronized (this) {
+					if (closeDeferred || resetDeferred || openDeferred) {
+						//requested after the check
+						continue;
+					}
+					producing = false;
+					running = false;
+					if (resumeRequested) {
+						resumeRequested = false;
+						wake = true;
+					}
+					break;
+				}
+			}
+			CommandContext.popThreadLocalContext();
+			if (wake) {
+				context.moreWork();
+			}
+		}
+	}
+	
+	/**
+	 * Perform the child close, reset, and open that were requested while the task was producing
+	 * @return true if the consumer should be woken
+	 */
+	private boolean finishDeferred() {
+		boolean close = false;
+		boolean reset = false;
+		boolean open = false;
+		synchronized (this) {
+			close = closeDeferred;
+			reset = resetDeferred;
+			open = openDeferred;
+			closeDeferred = false;
+			resetDeferred = false;
+			openDeferred = false;
+		}
+		try {
+			if (close) {
+				super.closeChildren();
+			}
+			if (reset) {
+				super.resetChildren();
+			}
+			if (open) {
+				super.open();
+			}
+		} catch (Throwable e) {
+			if (!open) {
+				LogManager.logDetail(LogConstants.CTX_DQP, e, "Error closing exchange child", getID()); //$NON-NLS-1$
+				return false;
+			}
+			synchronized (this) {
+				exception = e;
+			}
+		}
+		return open;
+	}
+	
+	/**
+	 * Stop producing.  A task that has not started will do nothing and a running task 
+	 * will stop at the next batch.  Does not wait for the running task.
+	 */
+	private synchronized void stop() {
+		closing = true;
+		if (running && !producing) {
+			running = false;
+		}
+	}
+	
+	@Override
+	public void closeDirect() {
+		stop();
+		super.closeDirect();
+	}
+	
+	@Override
+	protected void closeChildren() throws TeiidComponentException {
+		synchronized (this) {
+			if (producing) {
+				closeDeferred = true;
+				return;
+			}
+		}
+		super.closeChildren();
+	}
+	
+	@Override
+	protected void resetChildren() {
+		synchronized (this) {
+			if (producing) {
+				resetDeferred = true;
+				return;
+			}
+		}
+		super.resetChildren();
+	}
+	
+	@Override
+	public void reset() {
+		stop();
+		super.reset();
+		synchronized (this) {
+			generation++;
+			queue.clear();
+			//a task still producing for the prior generation must finish before another is started
+			running = producing;
+			resumeRequested = false;
+			done = false;
+			closing = false;
+			blocked = null;
+			exception = null;
+		}
+	}
+	
+	@Override
+	public Object clone() {
+		ExchangeNode clone = new ExchangeNode(getID());
+		this.copyTo(clone);
+		clone.queueBatches = this.queueBatches;
+		return clone;
+	}
+	
+	/**
+	 * Determine if the subtree can be processed on a separate thread.  The subtree
+	 * must not use correlated references, dependent values, subqueries, or shared source 
+	 * results, which all share state through the {@link CommandContext}.
+	 */
+	public static boolean isParallelizable(RelationalNode node) {
+		if (node instanceof AccessNode) {
+			AccessNode accessNode = (AccessNode)node;
+			if (node.getClass() != AccessNode.class || accessNode.info != null) {
+				return false;
+			}
+		} else if (node instanceof JoinNode) {
+			JoinNode joinNode = (JoinNode)node;
+			if (joinNode.isDependent() || joinNode.getJoinStrategy() instanceof NestedTableJoinStrategy) {
+				return false;
+			}
+		} else if (!(node instanceof ProjectNode || node instanceof SelectNode || node instanceof GroupingNode
+				|| node instanceof SortNode || node instanceof LimitNode || node instanceof UnionAllNode || node instanceof ExchangeNode)) {
+			return false;
+		}
+		if (node instanceof SubqueryAwareRelationalNode) {
+			Collection<? extends LanguageObject> objects = ((SubqueryAwareRelationalNode)node).getObjects();
+			if (objects != null && !ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(objects).isEmpty()) {
+				return false;
+			}
+		}
+		for (int i = 0; i < node.getChildCount(); i++) {
+			if (!isParallelizable(node.getChildren()[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+}
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
@@ -38,6 +39,8 @@ import org.teiid.api.exception.query.FunctionExecutionException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleSource;
@@ -61,6 +64,7 @@ import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.TextLine;
 import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.HashKey;
 
 
 public class GroupingNode extends SubqueryAwareRelationalNode {
@@ -107,6 +111,14 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     private TupleBuffer sortBuffer;
     private TupleSource groupTupleSource;
     
+    // Hash phase
+    private boolean hashGrouping;
+    private Map<HashKey, AggregateFunction[]> groups;
+    private Iterator<AggregateFunction[]> groupIterator;
+    private TupleBuffer overflow;
+    private int groupCapacity;
+    private int reserved;
+    
     // Group phase
     private AggregateFunction[][] functions;
     private List<?> lastRow;
@@ -115,6 +127,13 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     private static final int COLLECTION = 1;
     private static final int SORT = 2;
     private static final int GROUP = 3;
+    private static final int HASH = 4;
+    private static final int HASH_OUTPUT = 5;
+    
+    /**
+     * The accumulator state of a group is assumed to be roughly double the size of the output row 
+     */
+    private static final int GROUP_STATE_FACTOR = 2;
 	private int[] indexes;
 	private boolean rollup;
 	private HashMap<Integer, Integer> indexMap;
@@ -134,6 +153,9 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         lastRow = null;
         currentGroupTuple = null;
         
+        groups = null;
+        groupIterator = null;
+        
         if (this.functions != null) {
 	    	for (AggregateFunction[] functions : this.functions) {
 	    		for (AggregateFunction function : functions) {
@@ -147,6 +169,14 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		this.removeDuplicates = removeDuplicates;
 	}
 
+    /**
+     * Use an in-memory hash table of accumulators rather than sorting the input.
+     * The output will not be ordered by the grouping columns. 
+     */
+    public void setHashGrouping(boolean hashGrouping) {
+		this.hashGrouping = hashGrouping;
+	}
+
     public void setOrderBy(List<OrderByItem> orderBy) {
 		this.orderBy = orderBy;
 	}
@@ -185,25 +215,35 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         // Construct aggregate function state accumulators
         functions = new AggregateFunction[getElements().size()][];
         for(int i=0; i<getElements().size(); i++) {
-            Expression symbol = getElements().get(i);
-            if (this.outputMapping != null) {
-            	symbol = outputMapping.getMappedExpression((ElementSymbol)symbol);
-            }
-            Class<?> outputType = symbol.getType();
+            Expression symbol = getOutputExpression(i);
             if(symbol instanceof AggregateSymbol) {
-            	AggregateSymbol aggSymbol = (AggregateSymbol) symbol;
             	functions[i] = new AggregateFunction[rollup?orderBy.size()+1:1];
             	for (int j = 0; j < functions[i].length; j++) {
-            		functions[i][j] = initAccumulator(aggSymbol, this, this.collectedExpressions);
+            		functions[i][j] = initFunction(symbol);
             	}
             } else {
-                AggregateFunction af = new ConstantFunction();
-                af.setArgIndexes(new int[] {this.collectedExpressions.get(symbol)});
-                af.initialize(outputType, new Class<?>[]{symbol.getType()});
-                functions[i] = new AggregateFunction[] {af};
+                functions[i] = new AggregateFunction[] {initFunction(symbol)};
             }
         }
     }
+
+	private Expression getOutputExpression(int i) {
+		Expression symbol = getElements().get(i);
+		if (this.outputMapping != null) {
+			symbol = outputMapping.getMappedExpression((ElementSymbol)symbol);
+		}
+		return symbol;
+	}
+
+	private AggregateFunction initFunction(Expression symbol) {
+		if(symbol instanceof AggregateSymbol) {
+			return initAccumulator((AggregateSymbol) symbol, this, this.collectedExpressions);
+		}
+		AggregateFunction af = new ConstantFunction();
+		af.setArgIndexes(new int[] {this.collectedExpressions.get(symbol)});
+		af.initialize(symbol.getType(), new Class<?>[]{symbol.getType()});
+		return af;
+	}
 	
 	static Integer getIndex(Expression ex, LinkedHashMap<Expression, Integer> expressionIndexes) {
 		Integer index = expressionIndexes.get(ex);
@@ -325,6 +365,19 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         if(this.phase == COLLECTION) {
             collectionPhase();
         }
+        
+        // Accumulate the groups that fit in memory
+        if(this.phase == HASH) {
+        	hashPhase();
+        }
+        
+        // Emit the hashed groups, then sort any overflow
+        if(this.phase == HASH_OUTPUT) {
+        	TupleBatch batch = hashOutputPhase();
+        	if (batch != null) {
+        		return batch;
+        	}
+        }
 
         // If necessary, sort to determine groups (if no group cols, no need to sort)
         if(this.phase == SORT) {
@@ -382,14 +435,112 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         			this.indexMap.put(indexes[i], orderBy.size() - i);
         		}
         	}
-            this.sortUtility = new SortUtility(getCollectionTupleSource(), removeDuplicates?Mode.DUP_REMOVE_SORT:Mode.SORT, getBufferManager(),
+        	TupleSource ts = getCollectionTupleSource();
+        	if (this.hashGrouping) {
+        		this.groupTupleSource = ts;
+        		this.groups = new HashMap<HashKey, AggregateFunction[]>();
+        		this.phase = HASH;
+        		//the sort utility is only used for any overflow
+        		ts = null;
+        	}
+            this.sortUtility = new SortUtility(ts, removeDuplicates?Mode.DUP_REMOVE_SORT:Mode.SORT, getBufferManager(),
                     getConnectionID(), new ArrayList<Expression>(collectedExpressions.keySet()), sortTypes, nullOrdering, sortIndexes);
-            this.phase = SORT;
+            this.sortUtility.setCommandContext(getContext());
+            if (!this.hashGrouping) {
+            	this.phase = SORT;
+            }
         }
     }
+    
+    private void hashPhase() throws BlockedException, TeiidComponentException, TeiidProcessingException {
+    	while (true) {
+        	if (currentGroupTuple == null) {
+        		currentGroupTuple = this.groupTupleSource.nextTuple();
+        		if (currentGroupTuple == null) {
+        			break;
+        		}
+        	}
+        	Object[] values = new Object[indexes.length];
+        	for (int i = 0; i < indexes.length; i++) {
+        		values[i] = currentGroupTuple.get(indexes[i]);
+        	}
+        	HashKey key = new HashKey(values);
+        	AggregateFunction[] groupFunctions = this.groups.get(key);
+        	if (groupFunctions == null) {
+        		if (this.overflow == null && this.groups.size() >= this.groupCapacity) {
+        			reserveGroups();
+        		}
+        		if (this.groups.size() >= this.groupCapacity) {
+        			//new groups that don't fit are deferred to sort based grouping
+        			if (this.overflow == null) {
+        				this.overflow = getBufferManager().createTupleBuffer(new ArrayList<Expression>(collectedExpressions.keySet()), getConnectionID(), TupleSourceType.PROCESSOR);
+        			}
+        			this.overflow.addTuple(currentGroupTuple);
+        			currentGroupTuple = null;
+        			continue;
+        		}
+        		groupFunctions = new AggregateFunction[functions.length];
+        		for (int i = 0; i < functions.length; i++) {
+        			groupFunctions[i] = initFunction(getOutputExpression(i));
+        		}
+        		this.groups.put(key, groupFunctions);
+        	}
+        	for (AggregateFunction function : groupFunctions) {
+        		function.addInput(currentGroupTuple, getContext());
+        	}
+        	currentGroupTuple = null;
+    	}
+    	this.groupTupleSource.closeSource();
+    	this.groupIterator = this.groups.values().iterator();
+    	this.phase = HASH_OUTPUT;
+    }
+    
+	private void reserveGroups() {
+		int bytes = Math.max(1, getBufferManager().getSchemaSize(getElements())) * GROUP_STATE_FACTOR;
+		int result = getBufferManager().reserveBuffers(bytes, this.reserved == 0?BufferReserveMode.FORCE:BufferReserveMode.NO_WAIT);
+		this.reserved += result;
+		if (result == bytes) {
+			this.groupCapacity += getBatchSize();
+		}
+	}
+    
+    private TupleBatch hashOutputPhase() throws TeiidComponentException, TeiidProcessingException {
+    	CommandContext context = getContext();
+    	while (this.groupIterator.hasNext()) {
+    		AggregateFunction[] groupFunctions = this.groupIterator.next();
+    		List<Object> row = new ArrayList<Object>(groupFunctions.length);
+    		for (AggregateFunction function : groupFunctions) {
+    			row.add(function.getResult(context));
+    		}
+    		addBatchRow(row);
+    		if (this.isBatchFull()) {
+    			return pullBatch();
+    		}
+    	}
+    	releaseGroups();
+    	if (this.overflow == null) {
+    		this.terminateBatches();
+    		return pullBatch();
+    	}
+    	this.overflow.close();
+    	this.sortUtility.setWorkingBuffer(this.overflow);
+    	this.phase = SORT;
+    	return null;
+    }
+
+	private void releaseGroups() {
+		this.groups = null;
+		this.groupIterator = null;
+		this.groupCapacity = 0;
+		if (this.reserved > 0) {
+			getBufferManager().releaseBuffers(this.reserved);
+			this.reserved = 0;
+		}
+	}
 
     private void sortPhase() throws BlockedException, TeiidComponentException, TeiidProcessingException {
         this.sortBuffer = this.sortUtility.sort();
+        removeOverflow();
         this.sortBuffer.setForwardOnly(true);
         this.groupTupleSource = this.sortBuffer.createIndexedTupleSource();
         this.phase = GROUP;
@@ -498,7 +649,16 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         }
     }
 
+	private void removeOverflow() {
+		if (this.overflow != null) {
+			this.overflow.remove();
+			this.overflow = null;
+		}
+	}
+
     public void closeDirect() {
+    	releaseGroups();
+    	removeOverflow();
     	if (this.sortBuffer != null) {
     		this.sortBuffer.remove();
     		this.sortBuffer = null;
@@ -524,6 +684,7 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		clonedNode.outputMapping = outputMapping;
 		clonedNode.orderBy = orderBy;
 		clonedNode.rollup = rollup;
+		clonedNode.hashGrouping = hashGrouping;
 		return clonedNode;
 	}
 
@@ -543,6 +704,9 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         if (rollup) {
         	props.addProperty(PROP_ROLLUP, Boolean.TRUE.toString());
         }
+        if (hashGrouping) {
+        	props.addProperty(PROP_HASH_GROUPING, Boolean.TRUE.toString());
+        }
         return props;
     }
 
@@ -0,0 +1,573 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.IndexedTupleSource;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.util.HashKey;
+
+/**
+ * A hybrid/grace hash join for inner, left outer, semi, and anti-semi equi-joins.
+ *
+ * The right side is used as the build side.  If the estimated size of the build side fits within
+ * the buffer reservation a single in-memory hash table is used and the left side is streamed against it.
+ * Otherwise both sides are partitioned by the hash of the join key into {@link TupleBuffer}s and each
+ * partition pair is joined independently.  A build partition that is still too large is recursively
+ * partitioned with a different hash.  If that does not reduce its size, for example when most rows share
+ * a key, the partition is built in chunks that fit the reservation and the probe partition is
+ * scanned once per chunk.
+ *
+ * When adaptive joins are enabled, an inner join will instead build from the left side if the left
+ * turns out to be small and the right does not.
+ *
+ * Key equality is consistent with {@link Constant#COMPARATOR}, so the planner should not choose this
+ * strategy unless the keys are {@link HashKey#isHashable(java.util.List, java.util.List)}.
+ *
+ */
+public class HashJoinStrategy extends JoinStrategy {
+
+	/**
+	 * The maximum depth of recursive partitioning
+	 */
+	static final int MAX_PARTITION_LEVEL = 3;
+
+	private int reserved;
+	private boolean loaded;
+	private boolean built;
+	private long buildRowSize;
+	private List<TupleBuffer> leftPartitions;
+	private List<TupleBuffer> rightPartitions;
+	private List<Integer> partitionLevels;
+	private IndexedTupleSource partitionSource;
+	private int partition = -1;
+	private boolean buildLeft;
+	
+	//chunked partition state
+	private IndexedTupleSource chunkSource;
+	private BitSet probeMatched;
+	private int probeIndex;
+	private boolean emitUnmatched;
+	
+	//statistics
+	int partitionCount;
+	int repartitionCount;
+	int chunkedCount;
+
+	//processing state
+	private Map<HashKey, List<List<?>>> table;
+	private TupleSource probeSource;
+	private List<?> probeTuple;
+	private List<List<?>> matches;
+	private int matchIndex;
+	private boolean matched;
+
+	@Override
+	public HashJoinStrategy clone() {
+		return new HashJoinStrategy();
+	}
+
+	@Override
+	public void initialize(JoinNode joinNode) {
+		super.initialize(joinNode);
+		this.loaded = false;
+		this.built = false;
+		this.buildLeft = false;
+		this.partition = -1;
+		this.partitionCount = 0;
+		this.repartitionCount = 0;
+		this.chunkedCount = 0;
+	}
+
+	@Override
+	public void close() {
+		if (joinNode == null) {
+			return;
+		}
+		try {
+			super.close();
+		} finally {
+			joinNode.getBufferManager().releaseBuffers(reserved);
+			reserved = 0;
+			removePartitions(leftPartitions);
+			removePartitions(rightPartitions);
+			if (this.partitionSource != null) {
+				this.partitionSource.closeSource();
+				this.partitionSource = null;
+			}
+			if (this.chunkSource != null) {
+				this.chunkSource.closeSource();
+				this.chunkSource = null;
+			}
+			this.leftPartitions = null;
+			this.rightPartitions = null;
+			this.partitionLevels = null;
+			this.probeMatched = null;
+			this.table = null;
+			this.probeSource = null;
+			this.probeTuple = null;
+			this.matches = null;
+		}
+	}
+
+	private void removePartitions(List<TupleBuffer> partitions) {
+		if (partitions == null) {
+			return;
+		}
+		for (TupleBuffer tb : partitions) {
+			if (tb != null) {
+				tb.remove();
+			}
+		}
+	}
+
+	/**
+	 * Fully buffer the build side and determine if it should be partitioned
+	 */
+	@Override
+	protected void loadRight() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (this.loaded) {
+			return;
+		}
+		if (shouldBuildLeft()) {
+			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+				LogManager.logDetail(LogConstants.CTX_DQP, "Using the left side as the hash join build side", this.joinNode.getID()); //$NON-NLS-1$
+			}
+			//the left side is small and fully buffered, so the reservation is simply forced
+			TupleBuffer buffer = this.leftSource.getTupleBuffer();
+			this.buildRowSize = buffer.getRowSizeEstimate();
+			reserved += this.joinNode.getBufferManager().reserveBuffers((int)Math.min(Integer.MAX_VALUE, getSizeEstimate(buffer.getRowCount())), BufferReserveMode.FORCE);
+			this.buildLeft = true;
+			this.loaded = true;
+			return;
+		}
+		TupleBuffer buffer = this.rightSource.getTupleBuffer();
+		BufferManager bm = this.joinNode.getBufferManager();
+		this.buildRowSize = buffer.getRowSizeEstimate();
+		long memorySpaceNeeded = getSizeEstimate(buffer.getRowCount());
+		//the reservation is made only once - loadRight may be called again after blocking
+		int toReserve = (int)Math.min(memorySpaceNeeded, bm.getMaxProcessingSize());
+		reserved += bm.reserveBuffers(toReserve, BufferReserveMode.FORCE);
+		if (memorySpaceNeeded > reserved) {
+			reserved += bm.reserveBuffers((int)Math.min(Integer.MAX_VALUE, memorySpaceNeeded - reserved), BufferReserveMode.NO_WAIT);
+		}
+		this.loaded = true;
+		if (memorySpaceNeeded <= reserved) {
+			return;
+		}
+		int count = getPartitionCount(memorySpaceNeeded);
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Partitioning hash join build side into", count, "partitions", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.rightPartitions = createPartitions(this.rightSource, count);
+		this.partitionLevels = new ArrayList<Integer>(count);
+		for (int i = 0; i < count; i++) {
+			this.partitionLevels.add(0);
+		}
+		IndexedTupleSource its = buffer.createIndexedTupleSource(true);
+		try {
+			int[] indexes = this.rightSource.getExpressionIndexes();
+			while (its.hasNext()) {
+				List<?> tuple = its.nextTuple();
+				HashKey key = getKey(tuple, indexes);
+				if (key == null) {
+					continue; //cannot match
+				}
+				this.rightPartitions.get(getPartition(key, count, 0)).addTuple(tuple);
+			}
+		} finally {
+			its.closeSource();
+		}
+		for (TupleBuffer tb : this.rightPartitions) {
+			tb.close();
+		}
+		this.rightSource.close();
+		this.leftPartitions = createPartitions(this.leftSource, count);
+	}
+	
+	/**
+	 * Estimate the memory needed to hold the given number of build rows in a hash table
+	 */
+	private long getSizeEstimate(int rowCount) {
+		long result = rowCount * this.buildRowSize;
+		//the hash table has additional overhead beyond the tuples
+		return result + result / 4;
+	}
+	
+	private int getPartitionCount(long memorySpaceNeeded) {
+		BufferManager bm = this.joinNode.getBufferManager();
+		int schemaSize = Math.max(1, bm.getSchemaSize(this.rightSource.getSource().getOutputElements()));
+		int maxPartitions = Math.max(2, bm.getMaxProcessingSize() / schemaSize);
+		return (int)Math.max(2, Math.min(maxPartitions, memorySpaceNeeded / Math.max(1, reserved) + 1));
+	}
+
+	/**
+	 * Determine from the actual row counts if the left side should be used as the build side.
+	 * Only inner joins are considered, so that the right side can be streamed without tracking outer matches.
+	 */
+	private boolean shouldBuildLeft() throws TeiidComponentException, TeiidProcessingException {
+		if (this.joinNode.getJoinType() != JoinType.JOIN_INNER || !this.joinNode.getContext().getOptions().isAdaptiveJoin()) {
+			return false;
+		}
+		int batchSize = this.joinNode.getBatchSize();
+		return this.leftSource.rowCountLE(batchSize / 2) && !this.rightSource.rowCountLE(batchSize);
+	}
+
+	private List<TupleBuffer> createPartitions(SourceState state, int count) throws TeiidComponentException {
+		this.partitionCount += count;
+		List<TupleBuffer> result = new ArrayList<TupleBuffer>(count);
+		for (int i = 0; i < count; i++) {
+			TupleBuffer tb = state.getSource().getBufferManager().createTupleBuffer(state.getSource().getElements(), state.getSource().getConnectionID(), TupleSourceType.PROCESSOR);
+			tb.setForwardOnly(true);
+			result.add(tb);
+		}
+		return result;
+	}
+
+	/**
+	 * Get the partition for the key.  Each level uses a different hash so that 
+	 * a partition can be further divided.
+	 */
+	static int getPartition(HashKey key, int count, int level) {
+		int h = key.hashCode();
+		if (level > 0) {
+			h = (h + level) * 0x9e3779b9;
+			h ^= h >>> 16;
+		}
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return (h & Integer.MAX_VALUE) % count;
+	}
+
+	static HashKey getKey(List<?> tuple, int[] indexes) {
+		Object[] values = new Object[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			Object value = tuple.get(indexes[i]);
+			if (value == null) {
+				return null;
+			}
+			values[i] = value;
+		}
+		return new HashKey(values);
+	}
+
+	/**
+	 * @param maxRows the maximum number of rows to read or -1 for all rows
+	 */
+	private Map<HashKey, List<List<?>>> buildTable(TupleSource ts, SourceState state, int maxRows) throws TeiidComponentException, TeiidProcessingException {
+		Map<HashKey, List<List<?>>> result = new HashMap<HashKey, List<List<?>>>();
+		int[] indexes = state.getExpressionIndexes();
+		boolean distinct = state.isDistinct();
+		List<?> tuple = null;
+		int rows = 0;
+		while ((maxRows < 0 || rows++ < maxRows) && (tuple = ts.nextTuple()) != null) {
+			HashKey key = getKey(tuple, indexes);
+			if (key == null) {
+				continue;
+			}
+			List<List<?>> values = result.get(key);
+			if (values == null) {
+				values = new ArrayList<List<?>>(distinct?1:2);
+				result.put(key, values);
+			}
+			values.add(tuple);
+		}
+		return result;
+	}
+
+	/**
+	 * Advance to the next partition pair
+	 * @return false if there are no more partitions
+	 */
+	private boolean nextPartition() throws TeiidComponentException, TeiidProcessingException {
+		closePartition();
+		while (++this.partition < this.leftPartitions.size()) {
+			TupleBuffer right = this.rightPartitions.get(this.partition);
+			TupleBuffer left = this.leftPartitions.get(this.partition);
+			int level = this.partitionLevels.get(this.partition);
+			long memorySpaceNeeded = getSizeEstimate(right.getRowCount());
+			if (memorySpaceNeeded > reserved && right.getRowCount() > 1 && level < MAX_PARTITION_LEVEL 
+					&& repartition(left, right, level + 1, getPartitionCount(memorySpaceNeeded))) {
+				this.leftPartitions.set(this.partition, null).remove();
+				this.rightPartitions.set(this.partition, null).remove();
+				continue;
+			}
+			if (memorySpaceNeeded > reserved && right.getRowCount() > 1) {
+				if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+					LogManager.logDetail(LogConstants.CTX_DQP, "Building hash join partition", this.partition, "in chunks", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				this.chunkedCount++;
+				//the probe partition is read once per chunk
+				left.setForwardOnly(false);
+				this.probeMatched = new BitSet();
+				this.chunkSource = right.createIndexedTupleSource(true);
+				nextChunk();
+				return true;
+			}
+			this.partitionSource = right.createIndexedTupleSource(true);
+			this.table = buildTable(this.partitionSource, this.rightSource, -1);
+			this.partitionSource.closeSource();
+			this.partitionSource = left.createIndexedTupleSource(true);
+			this.probeSource = this.partitionSource;
+			return true;
+		}
+		return false;
+	}
+	
+	private void closePartition() {
+		if (this.partitionSource != null) {
+			this.partitionSource.closeSource();
+			this.partitionSource = null;
+		}
+		if (this.chunkSource != null) {
+			this.chunkSource.closeSource();
+			this.chunkSource = null;
+		}
+		this.probeMatched = null;
+		this.emitUnmatched = false;
+		if (this.partition >= 0 && this.partition < this.leftPartitions.size()) {
+			TupleBuffer tb = this.leftPartitions.set(this.partition, null);
+			if (tb != null) {
+				tb.remove();
+			}
+			tb = this.rightPartitions.set(this.partition, null);
+			if (tb != null) {
+				tb.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Split the partition pair into new partitions at the given level
+	 * @return false if the build partition could not be divided, in which case nothing is changed
+	 */
+	private boolean repartition(TupleBuffer left, TupleBuffer right, int level, int count) throws TeiidComponentException, TeiidProcessingException {
+		//determine the distribution first so that an undividable partition is left intact
+		int[] counts = new int[count];
+		int[] rightIndexes = this.rightSource.getExpressionIndexes();
+		//retain the batches for the second pass
+		right.setForwardOnly(false);
+		IndexedTupleSource its = right.createIndexedTupleSource();
+		try {
+			while (its.hasNext()) {
+				counts[getPartition(getKey(its.nextTuple(), rightIndexes), count, level)]++;
+			}
+		} finally {
+			its.closeSource();
+		}
+		int max = 0;
+		for (int c : counts) {
+			max = Math.max(max, c);
+		}
+		if (max == right.getRowCount()) {
+			return false;
+		}
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Repartitioning hash join partition", this.partition, "into", count, "partitions", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		this.repartitionCount++;
+		List<TupleBuffer> newRight = createPartitions(this.rightSource, count);
+		List<TupleBuffer> newLeft = createPartitions(this.leftSource, count);
+		its = right.createIndexedTupleSource(true);
+		try {
+			while (its.hasNext()) {
+				List<?> tuple = its.nextTuple();
+				newRight.get(getPartition(getKey(tuple, rightIndexes), count, level)).addTuple(tuple);
+			}
+		} finally {
+			its.closeSource();
+		}
+		int[] leftIndexes = this.leftSource.getExpressionIndexes();
+		its = left.createIndexedTupleSource(true);
+		try {
+			while (its.hasNext()) {
+				List<?> tuple = its.nextTuple();
+				HashKey key = getKey(tuple, leftIndexes);
+				//null keys of outer joins stay together in the first partition
+				newLeft.get(key == null?0:getPartition(key, count, level)).addTuple(tuple);
+			}
+		} finally {
+			its.closeSource();
+		}
+		for (int i = 0; i < count; i++) {
+			newRight.get(i).close();
+			newLeft.get(i).close();
+			this.partitionLevels.add(level);
+		}
+		this.rightPartitions.addAll(newRight);
+		this.leftPartitions.addAll(newLeft);
+		return true;
+	}
+	
+	/**
+	 * Build the next chunk of a partition that does not fit in memory and restart the probe
+	 * @return false if there are no more chunks
+	 */
+	private boolean nextChunk() throws TeiidComponentException, TeiidProcessingException {
+		if (this.partitionSource != null) {
+			this.partitionSource.closeSource();
+			this.partitionSource = null;
+		}
+		if (!this.chunkSource.hasNext()) {
+			return false;
+		}
+		int chunkRows = (int)Math.max(1, Math.min(Integer.MAX_VALUE, reserved / Math.max(1, getSizeEstimate(1))));
+		this.table = buildTable(this.chunkSource, this.rightSource, chunkRows);
+		this.partitionSource = this.leftPartitions.get(this.partition).createIndexedTupleSource();
+		this.probeSource = this.partitionSource;
+		this.probeIndex = 0;
+		return true;
+	}
+
+	@Override
+	protected void process() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (!built) {
+			if (this.buildLeft) {
+				IndexedTupleSource its = this.leftSource.getTupleBuffer().createIndexedTupleSource();
+				this.table = buildTable(its, this.leftSource, -1);
+				its.closeSource();
+				this.probeSource = this.rightSource.getIterator();
+			} else if (this.leftPartitions == null) {
+				IndexedTupleSource its = this.rightSource.getTupleBuffer().createIndexedTupleSource();
+				this.table = buildTable(its, this.rightSource, -1);
+				its.closeSource();
+				this.probeSource = this.leftSource.getIterator();
+			} else {
+				//partition the probe side - this may block, so it must be resumable
+				IndexedTupleSource its = this.leftSource.getIterator();
+				int[] indexes = this.leftSource.getExpressionIndexes();
+				while (its.hasNext()) {
+					List<?> tuple = its.nextTuple();
+					HashKey key = getKey(tuple, indexes);
+					int index = 0;
+					if (key != null) {
+						index = getPartition(key, this.leftPartitions.size(), 0);
+					} else if (!joinNode.getJoinType().isOuter()) {
+						continue; //cannot match
+					}
+					this.leftPartitions.get(index).addTuple(tuple);
+				}
+				for (TupleBuffer tb : this.leftPartitions) {
+					tb.close();
+				}
+				this.leftSource.close();
+				nextPartition();
+			}
+			built = true;
+		}
+		if (this.probeSource == null) {
+			return;
+		}
+		int[] indexes = (this.buildLeft?this.rightSource:this.leftSource).getExpressionIndexes();
+		JoinType joinType = this.joinNode.getJoinType();
+		while (true) {
+			if (this.probeTuple == null) {
+				this.probeTuple = this.probeSource.nextTuple();
+				if (this.probeTuple == null) {
+					if (this.chunkSource != null && !this.emitUnmatched && !nextChunk() && joinType.isOuter()) {
+						//all chunks have been probed, the remaining rows are those that never matched
+						this.emitUnmatched = true;
+						this.table = null;
+						this.partitionSource = this.leftPartitions.get(this.partition).createIndexedTupleSource(true);
+						this.probeSource = this.partitionSource;
+						this.probeIndex = 0;
+					} else if (this.chunkSource == null || this.emitUnmatched || this.partitionSource == null) {
+						if (this.leftPartitions == null || !nextPartition()) {
+							this.probeSource = null;
+							return;
+						}
+					}
+					continue;
+				}
+				this.matched = false;
+				this.matchIndex = 0;
+				this.matches = null;
+				if (this.probeMatched != null) {
+					this.matched = this.probeMatched.get(this.probeIndex++);
+				}
+				if (this.emitUnmatched) {
+					if (this.matched || !joinType.isOuter()) {
+						this.probeTuple = null;
+						continue;
+					}
+				} else if (!this.matched || (joinType != JoinType.JOIN_SEMI && joinType != JoinType.JOIN_ANTI_SEMI)) {
+					//semi and anti-semi rows matched by a prior chunk need no further evaluation
+					HashKey key = getKey(this.probeTuple, indexes);
+					this.matches = key == null?null:this.table.get(key);
+				}
+			}
+			if (this.matches != null) {
+				while (this.matchIndex < this.matches.size()) {
+					List<?> outputTuple = this.buildLeft?outputTuple(this.matches.get(this.matchIndex), this.probeTuple):outputTuple(this.probeTuple, this.matches.get(this.matchIndex));
+					boolean match = this.joinNode.matchesCriteria(outputTuple);
+					this.matchIndex++;
+					if (!match) {
+						continue;
+					}
+					this.matched = true;
+					if (this.probeMatched != null) {
+						this.probeMatched.set(this.probeIndex - 1);
+					}
+					if (joinType == JoinType.JOIN_SEMI || joinType == JoinType.JOIN_ANTI_SEMI) {
+						this.matchIndex = this.matches.size(); //only one match is needed
+						if (joinType == JoinType.JOIN_ANTI_SEMI) {
+							break;
+						}
+					}
+					this.joinNode.addBatchRow(outputTuple);
+				}
+			}
+			List<?> tuple = this.probeTuple;
+			this.probeTuple = null;
+			this.matches = null;
+			//when building in chunks unmatched rows are only known after the last chunk
+			if (!this.matched && joinType.isOuter() && (this.chunkSource == null || this.emitUnmatched)) {
+				this.joinNode.addBatchRow(outputTuple(tuple, this.rightSource.getOuterVals()));
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "HASH JOIN"; //$NON-NLS-1$
+	}
+
+}
@@ -37,6 +37,8 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.eval.ExpressionCompiler;
+import org.teiid.query.eval.ExpressionCompiler.CompiledCriteria;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.relational.SourceState.ImplicitBuffer;
 import org.teiid.query.sql.LanguageObject;
@@ -58,7 +60,8 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 	    MERGE,
 	    ENHANCED_SORT,
 	    NESTED_LOOP,
-	    NESTED_TABLE
+	    NESTED_TABLE,
+	    HASH
 	}
         
     private enum State { LOAD_LEFT, LOAD_RIGHT, EXECUTE }    
@@ -76,6 +79,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
     
     private Map combinedElementMap;
     private int[] projectionIndexes;
+    private CompiledCriteria compiledCriteria;
     
     private DependentValueSource dvs;
     
@@ -132,6 +136,12 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 	        this.combinedElementMap = createLookupMap(combinedElements);
 	        this.projectionIndexes = getProjectionIndexes(combinedElementMap, getElements());
     	}
+    	if (this.compiledCriteria == null && this.joinCriteria != null) {
+    		ExpressionCompiler compiler = getExpressionCompiler(this.combinedElementMap);
+    		if (compiler != null) {
+    			this.compiledCriteria = compiler.compile(this.joinCriteria);
+    		}
+    	}
     }
     
     public void open()
@@ -328,7 +338,13 @@ public class JoinNode extends SubqueryAwareRelationalNode {
     }
     
     boolean matchesCriteria(List outputTuple) throws BlockedException, TeiidComponentException, ExpressionEvaluationException {
-		return (this.joinCriteria == null || getEvaluator(this.combinedElementMap).evaluate(this.joinCriteria, outputTuple));
+		if (this.joinCriteria == null) {
+			return true;
+		}
+		if (this.compiledCriteria != null) {
+			return this.compiledCriteria.evaluate(outputTuple, getEvaluator(this.combinedElementMap));
+		}
+		return getEvaluator(this.combinedElementMap).evaluate(this.joinCriteria, outputTuple);
     }
 
     public List getLeftExpressions() {
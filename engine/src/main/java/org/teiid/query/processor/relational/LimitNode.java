@@ -140,6 +140,10 @@ public class LimitNode extends RelationalNode {
             offset = 0;
         }
         offsetPhase = offset > 0;
+        if (limit > 0 && getChildren()[0] instanceof SortNode) {
+        	//only the first offset + limit rows need to be sorted
+        	((SortNode)getChildren()[0]).setRowLimit((int)Math.min(Integer.MAX_VALUE, (long)limit + offset));
+        }
         super.open();
     }
 
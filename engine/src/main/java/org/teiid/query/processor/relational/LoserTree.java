@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+
+/**
+ * A tree of losers for a k-way merge of sorted sources.  Each row requires 
+ * at most log2(k) comparisons.  Ties are broken by the source index, so the 
+ * merge is stable if the sources are in input order.
+ * <br/>
+ * The sources are expected to not block.
+ */
+final class LoserTree {
+
+	private final TupleSource[] sources;
+	private final List<?>[] current;
+	private final Comparator<? super List<?>> comparator;
+	/**
+	 * tree[0] is the overall winner, the rest are the losers of each match
+	 */
+	private final int[] tree;
+
+	LoserTree(TupleSource[] sources, Comparator<? super List<?>> comparator) throws TeiidComponentException, TeiidProcessingException {
+		this.sources = sources;
+		this.comparator = comparator;
+		this.current = new List<?>[sources.length];
+		this.tree = new int[sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			this.current[i] = sources[i].nextTuple();
+			this.tree[i] = -1;
+		}
+		for (int i = sources.length - 1; i >= 0; i--) {
+			adjust(i);
+		}
+	}
+
+	/**
+	 * @return the next lowest row or null if all sources are exhausted
+	 */
+	List<?> next() throws TeiidComponentException, TeiidProcessingException {
+		if (sources.length == 0) {
+			return null;
+		}
+		int winner = tree[0];
+		List<?> result = current[winner];
+		if (result == null) {
+			return null;
+		}
+		current[winner] = sources[winner].nextTuple();
+		adjust(winner);
+		return result;
+	}
+
+	private void adjust(int source) {
+		int winner = source;
+		for (int node = (source + sources.length) >> 1; node > 0; node >>= 1) {
+			if (beats(tree[node], winner)) {
+				int loser = winner;
+				winner = tree[node];
+				tree[node] = loser;
+			}
+		}
+		tree[0] = winner;
+	}
+
+	/**
+	 * -1 is an initial placeholder that beats everything.  Exhausted sources lose to everything else.
+	 */
+	private boolean beats(int a, int b) {
+		if (a == -1) {
+			return true;
+		}
+		if (b == -1) {
+			return false;
+		}
+		List<?> tupleA = current[a];
+		List<?> tupleB = current[b];
+		if (tupleA == null) {
+			return false;
+		}
+		if (tupleB == null) {
+			return true;
+		}
+		int comp = comparator.compare(tupleA, tupleB);
+		if (comp != 0) {
+			return comp < 0;
+		}
+		return a < b;
+	}
+
+}
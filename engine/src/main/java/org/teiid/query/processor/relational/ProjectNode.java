@@ -34,15 +34,20 @@ import java.util.Map;
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.ExpressionCompiler;
+import org.teiid.query.eval.ExpressionCompiler.CompiledExpression;
+import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.symbol.AliasSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.util.CommandContext;
 
 
 public class ProjectNode extends SubqueryAwareRelationalNode {
@@ -54,10 +59,14 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
     private boolean needsProject = true;
     private List<Expression> expressions;
     private int[] projectionIndexes;
+    private CompiledExpression[] compiledExpressions;
+    private boolean vectorized;
 
     // Saved state when blocked on evaluating a row - must be reset
     private TupleBatch currentBatch;
     private int currentRow = 1;
+    // Evaluated columns of the current batch for vectorized evaluation
+    private Object[][] columns;
     
     protected ProjectNode() {
     	super();
@@ -72,6 +81,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
 
         currentBatch = null;
         currentRow = 1;
+        columns = null;
     }
 
     /**
@@ -132,6 +142,24 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
         }
 	}
 	
+	@Override
+	public void initialize(CommandContext context, BufferManager bufferManager,
+			ProcessorDataManager dataMgr) {
+		super.initialize(context, bufferManager, dataMgr);
+		if (this.compiledExpressions == null && needsProject) {
+			ExpressionCompiler compiler = getExpressionCompiler(this.elementMap);
+			if (compiler != null) {
+				this.compiledExpressions = new CompiledExpression[this.expressions.size()];
+				for (int i = 0; i < this.compiledExpressions.length; i++) {
+					if (this.projectionIndexes[i] == -1) {
+						this.compiledExpressions[i] = compiler.compile(this.expressions.get(i));
+					}
+				}
+				this.vectorized = isVectorizedEvaluation() && !compiler.hasInterpreted();
+			}
+		}
+	}
+	
 	public TupleBatch nextBatchDirect()
 		throws BlockedException, TeiidComponentException, TeiidProcessingException {
 		
@@ -154,15 +182,30 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
             }
         }
 
+        if (vectorized && columns == null) {
+        	columns = evaluateColumns(currentBatch);
+        }
+
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
     		List<?> tuple = currentBatch.getTuple(currentRow);
 
 			List<Object> projectedTuple = new ArrayList<Object>(selectSymbols.size());
 
-			// Walk through symbols
-            for(int i=0; i<expressions.size(); i++) {
-				Expression symbol = expressions.get(i);
-				updateTuple(symbol, i, tuple, projectedTuple);
+			if (columns != null) {
+				int row = currentRow - currentBatch.getBeginRow();
+				for (int i = 0; i < columns.length; i++) {
+					if (columns[i] == null) {
+						projectedTuple.add(tuple.get(this.projectionIndexes[i]));
+					} else {
+						projectedTuple.add(columns[i][row]);
+					}
+				}
+			} else {
+				// Walk through symbols
+	            for(int i=0; i<expressions.size(); i++) {
+					Expression symbol = expressions.get(i);
+					updateTuple(symbol, i, tuple, projectedTuple);
+				}
 			}
 
             // Add to batch
@@ -175,10 +218,30 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
 	            terminateBatches();
 	        }
 	        currentBatch = null;
+	        columns = null;
         }
         
     	return pullBatch();
 	}
+	
+	/**
+	 * Evaluate each projected expression over the whole batch at once.
+	 * Pass-through columns are left as null.
+	 */
+	private Object[][] evaluateColumns(TupleBatch batch) throws BlockedException, TeiidComponentException, ExpressionEvaluationException {
+		List<List<?>> tuples = batch.getTuples();
+		int[] rows = new int[tuples.size()];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = i;
+		}
+		Object[][] result = new Object[this.compiledExpressions.length][];
+		for (int i = 0; i < result.length; i++) {
+			if (this.compiledExpressions[i] != null) {
+				result[i] = this.compiledExpressions[i].evaluate(tuples, rows, rows.length, getEvaluator(this.elementMap));
+			}
+		}
+		return result;
+	}
 
 	private void updateTuple(Expression symbol, int projectionIndex, List<?> values, List<Object> tuple)
 		throws BlockedException, TeiidComponentException, ExpressionEvaluationException {
@@ -186,6 +249,8 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
         int index = this.projectionIndexes[projectionIndex];
         if(index != -1) {
 			tuple.add(values.get(index));
+        } else if (this.compiledExpressions != null) {
+        	tuple.add(this.compiledExpressions[projectionIndex].evaluate(values, getEvaluator(this.elementMap)));
         } else { 
 			tuple.add(getEvaluator(this.elementMap).evaluate(symbol, values));
 		}
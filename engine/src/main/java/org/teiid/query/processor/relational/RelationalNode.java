@@ -59,6 +59,7 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
 		Number depAccessEstimate;
 		Number estimateDepJoinCost;
 		Number estimateJoinCost;
+		String feedbackKey;
 	}
 
 	static class ProcessingState {
@@ -158,13 +159,7 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
     }
 
     public void reset() {
-        for(int i=0; i<children.length; i++) {
-            if(children[i] != null) {
-                children[i].reset();
-            } else {
-                break;
-            }
-        }
+    	resetChildren();
         if (this.getProcessingState() != null) {
         	this.getProcessingState().reset();
         }
@@ -294,6 +289,7 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
                 //this processing style however against the spirit of batch processing (but was already utilized by Sort and Grouping nodes)
                 if (batch.getRowCount() != 0 || batch.getTerminationFlag()) {
                     if (batch.getTerminationFlag()) {
+                    	recordCardinality(batch);
                         close();
                     }
                     return batch;
@@ -330,17 +326,31 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
 
         if (!this.getProcessingState().closed) {
         	closeDirect();
-            for(int i=0; i<children.length; i++) {
-                if(children[i] != null) {
-                    children[i].close();
-                } else {
-                    break;
-                }
-            }
+        	closeChildren();
             this.getProcessingState().closed = true;
         }
     }
 	
+	protected void resetChildren() {
+		for(int i=0; i<children.length; i++) {
+            if(children[i] != null) {
+                children[i].reset();
+            } else {
+                break;
+            }
+        }
+	}
+	
+	protected void closeChildren() throws TeiidComponentException {
+		for(int i=0; i<children.length; i++) {
+            if(children[i] != null) {
+                children[i].close();
+            } else {
+                break;
+            }
+        }
+	}
+	
 	public void closeDirect() {
 		
 	}
@@ -408,6 +418,13 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
      * method so we can easily trace data flow through the plan.
      * @param batch Batch being sent
      */
+    private void recordCardinality(TupleBatch batch) {
+    	CommandContext context = this.getProcessingState().context;
+    	if (this.data.feedbackKey != null && context != null && context.getCardinalityFeedback() != null) {
+    		context.getCardinalityFeedback().record(this.data.feedbackKey, batch.getEndRow());
+    	}
+    }
+    
     private void recordBatch(TupleBatch batch) {
         if (!LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_DQP, MessageLevel.TRACE)) {
         	return;
@@ -565,6 +582,18 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
         this.data.estimateJoinCost = estimateJoinCost;
     }
     
+    /**
+     * Set the key used to record the actual cardinality of this node
+     * @see org.teiid.query.optimizer.relational.CardinalityFeedback
+     */
+    public void setFeedbackKey(String feedbackKey) {
+    	this.data.feedbackKey = feedbackKey;
+    }
+    
+    public String getFeedbackKey() {
+		return this.data.feedbackKey;
+	}
+    
     private List<String> getCostEstimates() {
         List<String> costEstimates = new ArrayList<String>();
         if(this.data.estimateNodeCardinality != null) {
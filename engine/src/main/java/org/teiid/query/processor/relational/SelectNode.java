@@ -36,6 +36,8 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.ExpressionCompiler;
+import org.teiid.query.eval.ExpressionCompiler.CompiledCriteria;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.lang.Criteria;
@@ -51,10 +53,17 @@ public class SelectNode extends SubqueryAwareRelationalNode {
     // Derived element lookup map
     private Map<Expression, Integer> elementMap; 
     private int[] projectionIndexes;
+    private CompiledCriteria compiledCriteria;
+    private boolean vectorized;
 	
     // State if blocked on evaluating a criteria
     private TupleBatch currentBatch;
     private int currentRow = 1;
+    
+    // Selection vector of the current batch for vectorized evaluation
+    private int[] selection;
+    private int selectionCount;
+    private int selectionIndex;
 
 	protected SelectNode() {
 		super();
@@ -69,6 +78,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         
         currentBatch = null;
         currentRow = 1;
+        selection = null;
     }
 
 	public void setCriteria(Criteria criteria) { 
@@ -92,6 +102,13 @@ public class SelectNode extends SubqueryAwareRelationalNode {
             this.elementMap = createLookupMap(this.getChildren()[0].getElements());
             this.projectionIndexes = getProjectionIndexes(this.elementMap, projectedExpressions!=null?projectedExpressions:getElements());
         }
+        if (this.compiledCriteria == null) {
+        	ExpressionCompiler compiler = getExpressionCompiler(this.elementMap);
+        	if (compiler != null) {
+        		this.compiledCriteria = compiler.compile(this.criteria);
+        		this.vectorized = isVectorizedEvaluation() && !compiler.hasInterpreted();
+        	}
+        }
 	}
 	
     /**
@@ -104,14 +121,18 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         	currentBatch = this.getChildren()[0].nextBatch();
         }
 
-        while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
-    		List<?> tuple = currentBatch.getTuple(currentRow);
-
-            if(getEvaluator(this.elementMap).evaluate(this.criteria, tuple)) {
-                addBatchRow(projectTuple(this.projectionIndexes, tuple));
-            }
-            currentRow++;
-		}
+        if (vectorized) {
+        	nextBatchVectorized();
+        } else {
+	        while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
+	    		List<?> tuple = currentBatch.getTuple(currentRow);
+	
+	            if(compiledCriteria != null?compiledCriteria.evaluate(tuple, getEvaluator(this.elementMap)):getEvaluator(this.elementMap).evaluate(this.criteria, tuple)) {
+	                addBatchRow(projectTuple(this.projectionIndexes, tuple));
+	            }
+	            currentRow++;
+			}
+        }
         
         if (currentRow > currentBatch.getEndRow()) {
 	        if(currentBatch.getTerminationFlag()) {
@@ -122,6 +143,30 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         
     	return pullBatch();
 	}
+	
+	/**
+	 * Filter the whole of the current batch at once into a selection vector, 
+	 * then output the selected rows as space allows.
+	 */
+	private void nextBatchVectorized() throws BlockedException, TeiidComponentException, TeiidProcessingException {
+		List<List<?>> tuples = currentBatch.getTuples();
+		if (selection == null) {
+			int[] rows = new int[tuples.size()];
+			for (int i = 0; i < rows.length; i++) {
+				rows[i] = i;
+			}
+			selectionCount = compiledCriteria.filter(tuples, rows, rows.length, getEvaluator(this.elementMap));
+			selectionIndex = 0;
+			selection = rows;
+		}
+		while (selectionIndex < selectionCount && !isBatchFull()) {
+			addBatchRow(projectTuple(this.projectionIndexes, tuples.get(selection[selectionIndex++])));
+		}
+		if (selectionIndex >= selectionCount) {
+			currentRow = currentBatch.getEndRow() + 1;
+			selection = null;
+		}
+	}
     
 	protected void getNodeString(StringBuffer str) {
 		super.getNodeString(str);
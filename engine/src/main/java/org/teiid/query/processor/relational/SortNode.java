@@ -84,6 +84,14 @@ public class SortNode extends RelationalNode {
 	public void setMode(Mode mode) {
 		this.mode = mode;
 	}
+	
+	/**
+	 * Set the maximum number of rows that will be consumed by the parent.
+	 * Must be called prior to processing.
+	 */
+	public void setRowLimit(int rowLimit) {
+		this.rowLimit = rowLimit;
+	}
 
 	public TupleBatch nextBatchDirect()
 		throws BlockedException, TeiidComponentException, TeiidProcessingException {
@@ -104,6 +112,10 @@ public class SortNode extends RelationalNode {
     		}
 	        this.sortUtility = new SortUtility(ts, items, this.mode, getBufferManager(),
                     getConnectionID(), getChildren()[0].getElements());
+	        this.sortUtility.setCommandContext(getContext());
+	        if (this.rowLimit >= 0) {
+	        	this.sortUtility.setTopN(this.rowLimit);
+	        }
 
 		}
 		this.output = this.sortUtility.sort();
@@ -197,7 +209,6 @@ public class SortNode extends RelationalNode {
     @Override
     public TupleBuffer getFinalBuffer(int maxRows) throws BlockedException, TeiidComponentException, TeiidProcessingException {
     	this.rowLimit = maxRows;
-    	//TODO: push limiting into the sort logic
     	if (this.output == null) {
     		sortPhase();
     	}
@@ -23,11 +23,17 @@
 package org.teiid.query.processor.relational;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.PriorityQueue;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
@@ -43,9 +49,11 @@ import org.teiid.language.SortSpecification.NullOrdering;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.logging.MessageLevel;
+import org.teiid.query.processor.CollectionTupleSource;
 import org.teiid.query.sql.lang.OrderBy;
 import org.teiid.query.sql.lang.OrderByItem;
 import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.util.CommandContext;
 
 
 /**
@@ -114,6 +122,29 @@ public class SortUtility {
 	private TupleBuffer workingBuffer;
 	private long[] attempts = new long[2];
 	private boolean nonBlocking;
+	
+	//top n state
+	private int topN = -1;
+	private PriorityQueue<SortedSublist> topNHeap;
+	private int topNReserved;
+	
+	/**
+	 * state for the memory sort of the working buffer, retained while waiting on parallel sort tasks
+	 */
+	private static class MemorySort {
+		TupleBufferTupleSource ts;
+		int reserved;
+		int maxRows;
+		boolean parallel;
+		boolean done;
+		List<FutureTask<Void>> tasks;
+		List<?>[][] runs;
+		TupleBuffer sublist;
+	}
+	
+	private int parallelism = 1;
+	private CommandContext context;
+	private MemorySort memorySort;
     
     public SortUtility(TupleSource sourceID, List<OrderByItem> items, Mode mode, BufferManager bufferMgr,
                         String groupName, List<? extends Expression> schema) {
@@ -186,6 +217,10 @@ public class SortUtility {
         throws TeiidComponentException, TeiidProcessingException {
     	boolean success = false;
     	try {
+    		if (this.phase == INITIAL_SORT && this.topN >= 0) {
+    			topNSort();
+    		}
+    		
 	        if(this.phase == INITIAL_SORT) {
 	            initialSort(false);
 	        }
@@ -244,7 +279,7 @@ public class SortUtility {
 	 * creates sorted sublists stored in tuplebuffers
 	 */
     protected void initialSort(boolean onePass) throws TeiidComponentException, TeiidProcessingException {
-    	outer: while (!doneReading) {
+    	outer: while (!doneReading && this.memorySort == null) {
     		
     		if (this.source != null) {
 	    		//sub-phase 1 - build up a working buffer of tuples
@@ -291,57 +326,30 @@ public class SortUtility {
         }
     	
 		//sub-phase 2 - perform a memory sort on the workingbuffer/source
-    	int totalReservedBuffers = 0;
+    	boolean blocked = false;
         try {
-    		int maxRows = this.batchSize;
+        	MemorySort state = this.memorySort;
+        	if (state == null) {
+        		state = startMemorySort(onePass);
+        	} else if (state.tasks != null) {
+        		//resume after waiting on the parallel sort tasks
+        		finishParallelSort(state);
+        	}
     		Collection<List<?>> workingTuples = null;
-            boolean done = false;
-			/*
-			 * we can balance the work between the initial / multi-pass sort based upon the row count
-			 * and an updated estimate of the batch memory size 
-			 */
-			this.workingBuffer.close();
-			schemaSize = Math.max(1, this.workingBuffer.getRowSizeEstimate()*this.batchSize);
-			long memorySpaceNeeded = workingBuffer.getRowCount()*this.workingBuffer.getRowSizeEstimate();
-			if (onePass) {
-				//one pass just needs small sub-lists
-				memorySpaceNeeded = Math.min(memorySpaceNeeded, bufferManager.getMaxProcessingSize());
-			}
-			totalReservedBuffers = bufferManager.reserveBuffers(Math.min(bufferManager.getMaxProcessingSize(), (int)Math.min(memorySpaceNeeded, Integer.MAX_VALUE)), BufferReserveMode.FORCE);
-			if (totalReservedBuffers != memorySpaceNeeded) {
-				int processingSublists = Math.max(2, bufferManager.getMaxProcessingSize()/schemaSize);
-				int desiredSpace = (int)Math.min(Integer.MAX_VALUE, (workingBuffer.getRowCount()/processingSublists + (workingBuffer.getRowCount()%processingSublists))*(long)this.workingBuffer.getRowSizeEstimate());
-				if (desiredSpace > totalReservedBuffers) {
-					totalReservedBuffers += bufferManager.reserveBuffers(desiredSpace - totalReservedBuffers, BufferReserveMode.NO_WAIT);
-					//TODO: wait to force 2/3 pass processing
-				} else if (memorySpaceNeeded <= Integer.MAX_VALUE) {
-					totalReservedBuffers += bufferManager.reserveBuffers((int)memorySpaceNeeded - totalReservedBuffers, BufferReserveMode.NO_WAIT);
-				}
-				if (totalReservedBuffers > schemaSize) {
-					int additional = totalReservedBuffers%schemaSize;
-					totalReservedBuffers-=additional;
-					//release any excess
-		            bufferManager.releaseBuffers(additional);
-				}
-			}
-			TupleBufferTupleSource ts = workingBuffer.createIndexedTupleSource(source != null);
-			ts.setReverse(workingBuffer.getRowCount() > this.batchSize);
-			processed+=this.workingBuffer.getRowCount();
-			maxRows = Math.max(1, (totalReservedBuffers/schemaSize))*batchSize;
-            if (mode == Mode.SORT) {
+            if (mode == Mode.SORT || state.parallel) {
             	workingTuples = new ArrayList<List<?>>();
             } else {
             	workingTuples = new TreeSet<List<?>>(comparator);
             }
-            outer: while (!done) {
-                while(!done) {
-		        	if (workingTuples.size() >= maxRows) {
+            outer: while (!state.done) {
+                while(!state.done) {
+		        	if (workingTuples.size() >= state.maxRows) {
 	        			break;
 		        	}
-	            	List<?> tuple = ts.nextTuple();
+	            	List<?> tuple = state.ts.nextTuple();
 	            	
 	            	if (tuple == null) {
-	            		done = true;
+	            		state.done = true;
 	            		if(workingTuples.isEmpty()) {
 				        	break outer;
 				        }
@@ -352,26 +360,37 @@ public class SortUtility {
 		
 		        TupleBuffer sublist = createTupleBuffer();
 		        activeTupleBuffers.add(sublist);
-		        if (this.mode == Mode.SORT) {
-		        	//perform a stable sort
-		    		Collections.sort((List<List<?>>)workingTuples, comparator);
+		        if (state.parallel) {
+		        	startParallelSort((List<List<?>>)workingTuples, sublist, state);
+		        	finishParallelSort(state);
+		        } else {
+			        if (this.mode == Mode.SORT) {
+			        	//perform a stable sort
+			    		Collections.sort((List<List<?>>)workingTuples, comparator);
+			        }
+			        for (List<?> list : workingTuples) {
+						sublist.addTuple(list);
+					}
+			        workingTuples.clear();
+			        sublist.saveBatch();
 		        }
-		        for (List<?> list : workingTuples) {
-					sublist.addTuple(list);
-				}
-		        workingTuples.clear();
-		        sublist.saveBatch();
             }
         } catch (BlockedException e) {
-        	Assertion.failed("should not block during memory sublist sorting"); //$NON-NLS-1$
+        	if (this.memorySort == null || this.memorySort.tasks == null) {
+        		Assertion.failed("should not block during memory sublist sorting"); //$NON-NLS-1$
+        	}
+        	blocked = true;
+        	throw e;
         } finally {
-    		bufferManager.releaseBuffers(totalReservedBuffers);
-    		if (this.workingBuffer != null) {
-    			if (this.source != null) {
-    				this.workingBuffer.remove();
-    			}
-        		this.workingBuffer = null;
-    		}
+        	if (!blocked) {
+        		endMemorySort();
+	    		if (this.workingBuffer != null) {
+	    			if (this.source != null) {
+	    				this.workingBuffer.remove();
+	    			}
+	        		this.workingBuffer = null;
+	    		}
+        	}
         }
     	
     	if (this.activeTupleBuffers.isEmpty()) {
@@ -379,6 +398,240 @@ public class SortUtility {
         }  
         this.phase = MERGE;
     }
+    
+    /**
+     * Reserve memory for and begin reading the working buffer into sublists
+     */
+    private MemorySort startMemorySort(boolean onePass) throws TeiidComponentException {
+    	MemorySort state = new MemorySort();
+    	this.memorySort = state;
+		/*
+		 * we can balance the work between the initial / multi-pass sort based upon the row count
+		 * and an updated estimate of the batch memory size 
+		 */
+		this.workingBuffer.close();
+		schemaSize = Math.max(1, this.workingBuffer.getRowSizeEstimate()*this.batchSize);
+		long memorySpaceNeeded = workingBuffer.getRowCount()*this.workingBuffer.getRowSizeEstimate();
+		if (onePass) {
+			//one pass just needs small sub-lists
+			memorySpaceNeeded = Math.min(memorySpaceNeeded, bufferManager.getMaxProcessingSize());
+		}
+		state.reserved = bufferManager.reserveBuffers(Math.min(bufferManager.getMaxProcessingSize(), (int)Math.min(memorySpaceNeeded, Integer.MAX_VALUE)), BufferReserveMode.FORCE);
+		if (state.reserved != memorySpaceNeeded) {
+			int processingSublists = Math.max(2, bufferManager.getMaxProcessingSize()/schemaSize);
+			int desiredSpace = (int)Math.min(Integer.MAX_VALUE, (workingBuffer.getRowCount()/processingSublists + (workingBuffer.getRowCount()%processingSublists))*(long)this.workingBuffer.getRowSizeEstimate());
+			if (desiredSpace > state.reserved) {
+				state.reserved += bufferManager.reserveBuffers(desiredSpace - state.reserved, BufferReserveMode.NO_WAIT);
+				//TODO: wait to force 2/3 pass processing
+			} else if (memorySpaceNeeded <= Integer.MAX_VALUE) {
+				state.reserved += bufferManager.reserveBuffers((int)memorySpaceNeeded - state.reserved, BufferReserveMode.NO_WAIT);
+			}
+			if (state.reserved > schemaSize) {
+				int additional = state.reserved%schemaSize;
+				state.reserved-=additional;
+				//release any excess
+	            bufferManager.releaseBuffers(additional);
+			}
+		}
+		state.ts = workingBuffer.createIndexedTupleSource(source != null);
+		state.ts.setReverse(workingBuffer.getRowCount() > this.batchSize);
+		processed+=this.workingBuffer.getRowCount();
+		state.maxRows = Math.max(1, (state.reserved/schemaSize))*batchSize;
+        state.parallel = this.parallelism > 1 && workingBuffer.getRowCount() >= 2 * this.batchSize;
+        return state;
+    }
+    
+    /**
+     * Release the memory sort reservation and cancel any parallel sort tasks that have not started
+     */
+    private void endMemorySort() {
+    	if (this.memorySort == null) {
+    		return;
+    	}
+    	if (this.memorySort.tasks != null) {
+    		for (FutureTask<Void> task : this.memorySort.tasks) {
+				task.cancel(false);
+			}
+    	}
+		bufferManager.releaseBuffers(this.memorySort.reserved);
+		this.memorySort = null;
+    }
+
+    /**
+     * Split the working tuples into runs that are sorted by tasks on the {@link CommandContext#getExecutor()}.
+     * Any run not started by the executor is sorted by the calling thread.
+     * The runs are views of the tuples that are already accounted for by the reserved buffers,
+     * so no additional memory is reserved.
+     */
+    private void startParallelSort(List<List<?>> workingTuples, TupleBuffer sublist, MemorySort state) {
+    	int runs = Math.max(1, Math.min(this.parallelism, workingTuples.size() / this.batchSize));
+    	int runSize = (workingTuples.size() + runs - 1) / runs;
+    	state.runs = new List<?>[runs][];
+    	state.tasks = new ArrayList<FutureTask<Void>>(runs);
+    	state.sublist = sublist;
+    	//sort tasks cannot be waited on without blocking
+    	boolean asynch = this.context != null && !this.nonBlocking && !this.context.isNonBlocking();
+    	for (int i = 0; i < runs; i++) {
+    		final List<?>[] run = workingTuples.subList(i * runSize, Math.min(workingTuples.size(), (i + 1) * runSize)).toArray(new List<?>[0]);
+    		state.runs[i] = run;
+    		FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+    			@Override
+    			public void run() {
+    				//perform a stable sort
+    				Arrays.sort(run, comparator);
+    			}
+    		}, null) {
+    			@Override
+    			protected void done() {
+    				if (context != null) {
+    					context.moreWork();
+    				}
+    			}
+    		};
+    		state.tasks.add(task);
+    		if (i > 0 && asynch) {
+    			try {
+    				this.context.executeAsynch(task);
+    			} catch (RejectedExecutionException e) {
+    				//the task will be run by this thread
+    			}
+    		}
+		}
+    	workingTuples.clear();
+    	for (FutureTask<Void> task : state.tasks) {
+			task.run();
+		}
+    }
+    
+    /**
+     * Merge the sorted runs into the sublist once all of the sort tasks have completed
+     * @throws BlockedException if a task is still running on another thread
+     */
+    private void finishParallelSort(MemorySort state) throws TeiidComponentException, BlockedException {
+    	for (FutureTask<Void> task : state.tasks) {
+    		if (!task.isDone()) {
+    			throw BlockedException.block("Blocking on parallel sort", this.groupName); //$NON-NLS-1$
+    		}
+    	}
+    	try {
+	    	for (FutureTask<Void> task : state.tasks) {
+	    		task.get();
+	    	}
+    	} catch (InterruptedException e) {
+    		throw new TeiidComponentException(e);
+    	} catch (ExecutionException e) {
+    		if (e.getCause() instanceof RuntimeException) {
+    			throw (RuntimeException)e.getCause();
+    		}
+    		throw new TeiidComponentException(e.getCause());
+    	}
+    	List<?>[][] runs = state.runs;
+    	TupleBuffer sublist = state.sublist;
+    	state.tasks = null;
+    	state.runs = null;
+    	state.sublist = null;
+    	CollectionTupleSource[] sources = new CollectionTupleSource[runs.length];
+    	for (int i = 0; i < runs.length; i++) {
+    		sources[i] = new CollectionTupleSource(Arrays.asList(runs[i]).iterator());
+    	}
+    	LoserTree tree = new LoserTree(sources, comparator);
+    	List<?> last = null;
+    	List<?> tuple = null;
+    	while ((tuple = tree.next()) != null) {
+    		if (mode != Mode.SORT && last != null && comparator.compare(last, tuple) == 0) {
+    			continue;
+    		}
+    		sublist.addTuple(tuple);
+    		last = tuple;
+    	}
+    	sublist.saveBatch();
+    }
+    
+    /**
+     * Set the number of threads that may be used to sort each sublist.
+     * Parallel sorting is only used when there are at least two batches to sort.
+     * <br/>
+     * If greater than 1, {@link Mode#SORT} merges will also use a {@link LoserTree}
+     */
+    public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+    
+    /**
+     * Set the context used to run parallel sort tasks and to resume processing when 
+     * they complete.  The parallelism is set from the context {@link org.teiid.query.util.Options}.
+     * <br/>
+     * Without a context any parallel sort runs are sorted by the calling thread.
+     */
+    public void setCommandContext(CommandContext context) {
+    	this.context = context;
+    	this.parallelism = context.getOptions().getSortParallelism();
+    }
+
+    /**
+     * Retain only the first topN rows in a bounded heap.  The sort will be performed 
+     * entirely in memory and ties are kept in input order, as with an in memory stable sort.
+     * <br/>
+     * Only applies to {@link Mode#SORT} over a source and when topN rows can be held in 
+     * the max processing size, otherwise the full sort is performed.
+     */
+    public void setTopN(int topN) {
+    	if (this.mode != Mode.SORT || this.source == null || topN < 0 
+    			|| (long)topN * this.schemaSize / this.batchSize > this.bufferManager.getMaxProcessingSize()) {
+    		return;
+    	}
+		this.topN = topN;
+	}
+    
+    private void topNSort() throws TeiidComponentException, TeiidProcessingException {
+    	if (this.topNHeap == null) {
+    		//the head of the heap is the last row in sort order, with later rows being considered greater 
+    		this.topNHeap = new PriorityQueue<SortedSublist>(Math.max(1, Math.min(this.topN, this.batchSize)), new Comparator<SortedSublist>() {
+    			@Override
+    			public int compare(SortedSublist o1, SortedSublist o2) {
+    				int result = comparator.compare(o2.tuple, o1.tuple);
+    				if (result != 0) {
+    					return result;
+    				}
+    				return o2.index - o1.index;
+    			}
+			});
+    		this.topNReserved = bufferManager.reserveBuffers((int)((long)this.topN * this.schemaSize / this.batchSize), BufferReserveMode.FORCE);
+    	}
+    	List<?> tuple = null;
+    	while ((tuple = source.nextTuple()) != null) {
+    		if (this.topNHeap.size() == this.topN) {
+    			if (this.topN == 0 || comparator.compare(tuple, this.topNHeap.peek().tuple) >= 0) {
+    				continue;
+    			}
+    			this.topNHeap.poll();
+    		}
+			SortedSublist entry = new SortedSublist();
+			entry.tuple = tuple;
+			entry.index = processed++;
+			this.topNHeap.add(entry);
+    	}
+    	doneReading = true;
+    	TupleBuffer result = createTupleBuffer();
+    	activeTupleBuffers.add(result);
+    	List<?>[] sorted = new List<?>[this.topNHeap.size()];
+    	for (int i = sorted.length - 1; i >= 0; i--) {
+    		sorted[i] = this.topNHeap.poll().tuple;
+    	}
+    	for (List<?> row : sorted) {
+    		result.addTuple(row);
+    	}
+    	releaseTopN();
+    	result.close();
+    	result.setForwardOnly(false);
+    	this.phase = DONE;
+    }
+
+	private void releaseTopN() {
+		this.topNHeap = null;
+		bufferManager.releaseBuffers(this.topNReserved);
+		this.topNReserved = 0;
+	}
 
     public void setWorkingBuffer(TupleBuffer workingBuffer) {
 		this.workingBuffer = workingBuffer;
@@ -434,28 +687,44 @@ public class SortUtility {
             	if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_DQP, MessageLevel.TRACE)) {
 	            	LogManager.logTrace(org.teiid.logging.LogConstants.CTX_DQP, "Merging", maxSortIndex, "sublists out of", activeTupleBuffers.size()); //$NON-NLS-1$ //$NON-NLS-2$
 	            }
-	        	// initialize the sublists with the min value
-	            for(int i = 0; i<maxSortIndex; i++) { 
-	             	TupleBuffer activeID = activeTupleBuffers.get(i);
-	             	SortedSublist sortedSublist = new SortedSublist();
-	            	sortedSublist.its = activeID.createIndexedTupleSource();
-	            	sortedSublist.its.setNoBlocking(true);
-	            	sortedSublist.index = i;
-	            	if (activeID == output) {
-	            		sortedSublist.limit = output.getRowCount();
+	            if (this.mode == Mode.SORT && this.parallelism > 1) {
+	            	//merge with a loser tree
+	            	TupleSource[] sources = new TupleSource[maxSortIndex];
+	            	for (int i = 0; i < maxSortIndex; i++) {
+	            		TupleBufferTupleSource its = activeTupleBuffers.get(i).createIndexedTupleSource();
+	            		its.setNoBlocking(true);
+	            		sources[i] = its;
 	            	}
-	            	incrementWorkingTuple(sublists, sortedSublist);
-	            }
-	            
-	            // iteratively process the lowest tuple
-	            while (sublists.size() > 0) {
-	            	SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
-	        		merged.addTuple(sortedSublist.tuple);
-	                if (this.output != null && masterSortIndex < maxSortIndex && sortedSublist.index != masterSortIndex) {
-	                	this.output.addTuple(sortedSublist.tuple); //a new distinct row
+	            	LoserTree tree = new LoserTree(sources, comparator);
+	            	List<?> tuple = null;
+	            	while ((tuple = tree.next()) != null) {
+	            		merged.addTuple(tuple);
 	            	}
-	            	incrementWorkingTuple(sublists, sortedSublist);
-	            }                
+	            } else {
+		        	// initialize the sublists with the min value
+		            for(int i = 0; i<maxSortIndex; i++) { 
+		             	TupleBuffer activeID = activeTupleBuffers.get(i);
+		             	SortedSublist sortedSublist = new SortedSublist();
+		            	sortedSublist.its = activeID.createIndexedTupleSource();
+		            	sortedSublist.its.setNoBlocking(true);
+		            	sortedSublist.index = i;
+		            	if (activeID == output) {
+		            		sortedSublist.limit = output.getRowCount();
+		            	}
+		            	incrementWorkingTuple(sublists, sortedSublist);
+		            }
+	            
+		            // iteratively process the lowest tuple
+		            while (sublists.size() > 0) {
+		            	SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
+		        		merged.addTuple(sortedSublist.tuple);
+		                if (this.output != null && masterSortIndex < maxSortIndex && sortedSublist.index != masterSortIndex) {
+		                	this.output.addTuple(sortedSublist.tuple); //a new distinct row
+		            	}
+		            	incrementWorkingTuple(sublists, sortedSublist);
+		            }                
+	
+	            }
 	
 	            // Remove merged sublists
 	            for(int i=0; i<maxSortIndex; i++) {
@@ -532,6 +801,10 @@ public class SortUtility {
     }
 
 	public void remove() {
+		if (this.topNHeap != null) {
+			releaseTopN();
+		}
+		endMemorySort();
 		if (workingBuffer != null && source != null) {
 			workingBuffer.remove();
 			workingBuffer = null;
@@ -30,6 +30,7 @@ import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.eval.ExpressionCompiler;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.lang.TableFunctionReference;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -57,6 +58,24 @@ public abstract class SubqueryAwareRelationalNode extends RelationalNode {
 		return this.evaluator;
 	}
 	
+	/**
+	 * @return an {@link ExpressionCompiler} for the given element map if the compiled
+	 * evaluation mode is enabled, otherwise null
+	 */
+	protected ExpressionCompiler getExpressionCompiler(Map<?, Integer> elementMap) {
+		if (getContext() == null || (!getContext().getOptions().isCompileExpressions() && !isVectorizedEvaluation())) {
+			return null;
+		}
+		return new ExpressionCompiler(elementMap);
+	}
+	
+	/**
+	 * @return true if compiled expressions should be evaluated a batch at a time
+	 */
+	protected boolean isVectorizedEvaluation() {
+		return getContext() != null && getContext().getOptions().isVectorizedEvaluation();
+	}
+	
 	@Override
 	public void reset() {
 		super.reset();
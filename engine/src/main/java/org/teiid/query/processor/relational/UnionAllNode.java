@@ -45,6 +45,9 @@ public class UnionAllNode extends RelationalNode {
     private int outputRow = 1;
     private int reserved;
     private int schemaSize;
+    private boolean concurrent;
+    private boolean openAsCompleted;
+    private int branchReserve;
 	
 	public UnionAllNode(int nodeID) {
 		super(nodeID);
@@ -71,6 +74,17 @@ public class UnionAllNode extends RelationalNode {
         // Initialize done flags
         sourceDone = new boolean[getChildren().length];
         
+        // Children that are exchanges are processed concurrently and each may queue several batches
+        concurrent = false;
+        openAsCompleted = false;
+        branchReserve = schemaSize;
+        for (int i = 0; i < getChildCount(); i++) {
+        	if (getChildren()[i] instanceof ExchangeNode) {
+        		concurrent = true;
+        		branchReserve = Math.max(branchReserve, schemaSize * (((ExchangeNode)getChildren()[i]).getQueueBatches() + 1));
+        	}
+        }
+        
         // Detect if we should be more conservative than the default strategy of opening all children
         RelationalNode parent = this.getParent();
         int rowLimit = -1;
@@ -92,6 +106,7 @@ public class UnionAllNode extends RelationalNode {
         	}
         	parent = parent.getParent();
     	}
+    	int limitOpen = -1;
     	if (rowLimit != -1 && rowLimit < Integer.MAX_VALUE) {
     		int toOpen = 2;
         	if (rowLimit > SMALL_LIMIT) {
@@ -104,28 +119,80 @@ public class UnionAllNode extends RelationalNode {
     		
     		//we use the 2x multiple here because the default strategy can proactively execute unneeded results
     		if (toOpen < this.getContext().getUserRequestSourceConcurrency()*2) {
-    			if (reserved == 0) {
-    	        	reserved = getBufferManager().reserveBuffers((toOpen) * schemaSize, BufferReserveMode.FORCE);
-    	        }
-    			sourceOpen = new boolean[this.getChildCount()];
-        		//we want to be selective about the number of children we open
-    			//ideally we would 
-        		RelationalNode[] children = this.getChildren();
-        		for(int i=0; i<toOpen; i++) {
-                    children[i].open();
-                    sourceOpen[i] = true;
-                }
-        		return;
+    			if (concurrent) {
+    				limitOpen = toOpen;
+    			} else {
+	    			if (reserved == 0) {
+	    	        	reserved = getBufferManager().reserveBuffers((toOpen) * branchReserve, BufferReserveMode.FORCE);
+	    	        }
+	    			sourceOpen = new boolean[this.getChildCount()];
+	        		//we want to be selective about the number of children we open
+	    			//ideally we would 
+	        		RelationalNode[] children = this.getChildren();
+	        		for(int i=0; i<toOpen; i++) {
+	                    children[i].open();
+	                    sourceOpen[i] = true;
+	                }
+	        		return;
+    			}
     		}
     	}
     	
+    	if (concurrent) {
+    		openConcurrent(limitOpen);
+    		return;
+    	}
+    	
 		if (reserved == 0) {
-        	reserved = getBufferManager().reserveBuffers((getChildCount()) * schemaSize, BufferReserveMode.FORCE);
+        	reserved = getBufferManager().reserveBuffers((getChildCount()) * branchReserve, BufferReserveMode.FORCE);
         }
     	
         // Open the children
         super.open();
 	}
+	
+	/**
+	 * Open only as many branches as the user request source concurrency and 
+	 * the buffer reservations allow.  Remaining branches are opened as others complete.
+	 */
+	private void openConcurrent(int limitOpen) throws TeiidComponentException, TeiidProcessingException {
+		int toOpen = Math.min(getChildCount(), Math.max(1, getContext().getUserRequestSourceConcurrency()));
+		//with a limit remain conservative and open further branches only once the open ones are exhausted
+		openAsCompleted = limitOpen < 0;
+		if (!openAsCompleted) {
+			toOpen = Math.min(toOpen, limitOpen);
+		}
+		if (reserved == 0) {
+			//the first branch is forced, the others only if the memory is available
+			reserved = getBufferManager().reserveBuffers(branchReserve, BufferReserveMode.FORCE);
+			if (toOpen > 1) {
+				reserved += getBufferManager().reserveBuffers((toOpen - 1) * branchReserve, BufferReserveMode.NO_WAIT);
+			}
+		}
+		toOpen = Math.max(1, Math.min(toOpen, reserved / Math.max(1, branchReserve)));
+		sourceOpen = new boolean[getChildCount()];
+		RelationalNode[] children = this.getChildren();
+		for (int i = 0; i < toOpen; i++) {
+			children[i].open();
+			sourceOpen[i] = true;
+		}
+	}
+	
+	/**
+	 * Open the next unopened branch
+	 * @return true if a branch was opened
+	 */
+	private boolean openNext() throws TeiidComponentException, TeiidProcessingException {
+		RelationalNode[] children = this.getChildren();
+		for (int i = 0; i < getChildCount(); i++) {
+			if (!sourceOpen[i]) {
+				children[i].open();
+				sourceOpen[i] = true;
+				return true;
+			}
+		}
+		return false;
+	}
 
     public TupleBatch nextBatchDirect() 
         throws BlockedException, TeiidComponentException, TeiidProcessingException {
@@ -155,9 +222,12 @@ public class UnionAllNode extends RelationalNode {
                             // Mark source as being done and decrement the activeSources counter
                             sourceDone[i] = true;
                             activeSources--;
-                            if (reserved > 0) {
-                            	getBufferManager().releaseBuffers(schemaSize);
-                            	reserved-=schemaSize;
+                            if (openAsCompleted && sourceOpen != null && openNext()) {
+                            	//the reservation is transferred to the next branch
+                            } else if (reserved > 0) {
+                            	int toRelease = Math.min(reserved, branchReserve);
+                            	getBufferManager().releaseBuffers(toRelease);
+                            	reserved-=toRelease;
                             }
                         }
                     } catch(BlockedException e) {
@@ -202,8 +272,8 @@ public class UnionAllNode extends RelationalNode {
 	            }
 	        	for(int i=0; i<childCount && toOpen > 0; i++) {
 	                if(!sourceOpen[i]) {
-	                	getBufferManager().reserveBuffers(schemaSize, BufferReserveMode.FORCE);
-	                	reserved+=schemaSize;
+	                	getBufferManager().reserveBuffers(branchReserve, BufferReserveMode.FORCE);
+	                	reserved+=branchReserve;
 	                	children[i].open();
 	                	sourceOpen[i] = true;
 	                	openedAny = true;
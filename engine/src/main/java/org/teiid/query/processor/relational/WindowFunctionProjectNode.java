@@ -334,6 +334,11 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 			}
 			List<AggregateFunction> aggs = initializeAccumulators(info.functions, specIndex, false);
 			List<AggregateFunction> rowValueAggs = initializeAccumulators(info.rowValuefunctions, specIndex, true);
+			//values are produced in group id order, so they can be loaded directly
+			STree.BulkLoader valueLoader = null;
+			if (!aggs.isEmpty()) {
+				valueLoader = valueMapping[specIndex].createBulkLoader();
+			}
 
 			int groupId = 0;
 			List<?> lastRow = null;
@@ -343,10 +348,10 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 				    if (lastRow != null) {
 				    	boolean samePartition = GroupingNode.sameGroup(partitionIndexes, tuple, lastRow) == -1;
 				    	if (!aggs.isEmpty() && (!samePartition || GroupingNode.sameGroup(orderIndexes, tuple, lastRow) != -1)) {
-			        		saveValues(specIndex, aggs, groupId, samePartition, false);
+			        		saveValues(specIndex, aggs, groupId, samePartition, false, valueLoader);
 		        			groupId++;
 				    	}
-		        		saveValues(specIndex, rowValueAggs, lastRow.get(lastRow.size() - 1), samePartition, true);
+		        		saveValues(specIndex, rowValueAggs, lastRow.get(lastRow.size() - 1), samePartition, true, null);
 		        	}
 				    if (!aggs.isEmpty()) {
 			        	List<Object> partitionTuple = Arrays.asList(tuple.get(tuple.size() - 1), groupId);
@@ -362,15 +367,18 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		        lastRow = tuple;
 			}
 		    if(lastRow != null) {
-		    	saveValues(specIndex, aggs, groupId, true, false);
-		    	saveValues(specIndex, rowValueAggs, lastRow.get(lastRow.size() - 1), true, true);
+		    	saveValues(specIndex, aggs, groupId, true, false, valueLoader);
+		    	saveValues(specIndex, rowValueAggs, lastRow.get(lastRow.size() - 1), true, true, null);
+		    }
+		    if (valueLoader != null) {
+		    	valueLoader.finish();
 		    }
 		}
 	}
 
 	private void saveValues(int specIndex,
 			List<AggregateFunction> aggs, Object id,
-			boolean samePartition, boolean rowValue) throws FunctionExecutionException,
+			boolean samePartition, boolean rowValue, STree.BulkLoader valueLoader) throws FunctionExecutionException,
 			ExpressionEvaluationException, TeiidComponentException,
 			TeiidProcessingException {
 		if (aggs.isEmpty()) {
@@ -387,7 +395,7 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		if (rowValue) {
 			rowValueMapping[specIndex].insert(row, InsertMode.NEW, -1);
 		} else {
-			valueMapping[specIndex].insert(row, InsertMode.ORDERED, -1);	
+			valueLoader.add(row);
 		}
 	}
 
@@ -74,6 +74,7 @@ import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.ExpressionSymbol;
 import org.teiid.query.util.CommandContext;
 import org.teiid.query.util.GeneratedKeysImpl;
+import org.teiid.query.util.RowRange;
 
 /**
  * A Teiid Temp Table
@@ -235,6 +236,7 @@ public class TempTable implements Cloneable, SearchableTable {
 		private Criteria crit;
 		protected int updateCount = 0;
 		protected List currentTuple;
+		protected RowRange modified;
 		
 		protected TupleBuffer undoLog;
 
@@ -244,6 +246,8 @@ public class TempTable implements Cloneable, SearchableTable {
 			this.crit = crit;
 			if (canUndo) {
 				this.undoLog = bm.createTupleBuffer(columns, sessionID, TupleSourceType.PROCESSOR);
+				//loads are not tracked by row
+				this.modified = new RowRange();
 			}
 		}
 		
@@ -255,6 +259,9 @@ public class TempTable implements Cloneable, SearchableTable {
 				while (currentTuple != null || (currentTuple = ts.nextTuple()) != null) {
 					if (crit == null || eval.evaluate(crit, currentTuple)) {
 						tuplePassed(currentTuple);
+						if (modified != null) {
+							modified.addRow(columns, currentTuple);
+						}
 						updateCount++;
 						if (undoLog != null) {
 							undoLog.addTuple(currentTuple);
@@ -681,7 +688,7 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
         int updateCount = up.process();
         tid.setCardinality(tree.getRowCount());
-        tid.getTableData().dataModified(updateCount);
+        tid.getTableData().dataModified(updateCount, up.modified);
         return CollectionTupleSource.createUpdateCountTupleSource(updateCount);
     }
 	
@@ -701,6 +708,9 @@ public class TempTable implements Cloneable, SearchableTable {
     			for (Map.Entry<ElementSymbol, Expression> entry : update.getClauseMap().entrySet()) {
     				newTuple.set(columnMap.get(entry.getKey()), eval.evaluate(entry.getValue(), tuple));
     			}
+    			if (modified != null) {
+    				modified.addRow(columns, newTuple);
+    			}
     			if (primaryKeyChangePossible) {
     				browser.removed();
     				deleteTuple(tuple);
@@ -746,7 +756,7 @@ public class TempTable implements Cloneable, SearchableTable {
 			
 		};
 		int updateCount = up.process();
-		tid.getTableData().dataModified(updateCount);
+		tid.getTableData().dataModified(updateCount, up.modified);
 		return CollectionTupleSource.createUpdateCountTupleSource(updateCount);
 	}
 
@@ -779,7 +789,7 @@ public class TempTable implements Cloneable, SearchableTable {
 		};
 		int updateCount = up.process();
 		tid.setCardinality(tree.getRowCount());
-		tid.getTableData().dataModified(updateCount);
+		tid.getTableData().dataModified(updateCount, up.modified);
 		return CollectionTupleSource.createUpdateCountTupleSource(updateCount);
 	}
 	
@@ -847,17 +857,24 @@ public class TempTable implements Cloneable, SearchableTable {
 						index.tree.remove(tuple);
 					}
 				}
-				tid.getTableData().dataModified(1);
+				RowRange range = new RowRange();
+				range.addRow(columns, result);
+				tid.getTableData().dataModified(1, range);
 				return result;
 			} 
 			List<?> result = tree.insert(tuple, InsertMode.UPDATE, -1);
+			RowRange range = new RowRange();
+			range.addRow(columns, tuple);
+			if (result != null) {
+				range.addRow(columns, result);
+			}
 			if (indexTables != null) {
 				for (TempTable index : this.indexTables.values()) {
 					tuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(index.getColumnMap(), index.columns), tuple);
 					index.tree.insert(tuple, InsertMode.UPDATE, -1);
 				}
 			}
-			tid.getTableData().dataModified(1);
+			tid.getTableData().dataModified(1, range);
 			return result;
 		} finally {
 			lock.writeLock().unlock();
@@ -80,8 +80,10 @@ import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.sql.symbol.Reference;
+import org.teiid.query.sql.visitor.GroupCollectorVisitor;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.RowRange;
 import org.teiid.translator.CacheDirective.Scope;
 
 /**
@@ -502,7 +504,7 @@ public class TempTableDataManager implements ProcessorDataManager {
 						}
 					}
 					TempTable table = globalStore.getTempTable(tableName);
-					context.accessedDataObject(group.getMetadataID());
+					context.accessedDataObject(group.getMetadataID(), getAccessRange(query, group));
 					TupleSource result = table.createTupleSource(query.getProjectedSymbols(), query.getCriteria(), query.getOrderBy());
 					cancelMoreWork();
 					return result;
@@ -556,7 +558,7 @@ public class TempTableDataManager implements ProcessorDataManager {
 				if (context.getDataObjects() != null) {
 					Object id = RelationalPlanner.getTrackableGroup(group, context.getMetadata());
 					if (id != null) {
-						context.accessedDataObject(id);
+						context.accessedDataObject(id, getAccessRange(query, group));
 					}
 				}
 				return tt.createTupleSource(query.getProjectedSymbols(), query.getCriteria(), query.getOrderBy());
@@ -564,6 +566,10 @@ public class TempTableDataManager implements ProcessorDataManager {
 		};
 	}
 
+	private static RowRange getAccessRange(Query query, GroupSymbol group) {
+		return RowRange.forAccess(query, group, GroupCollectorVisitor.getGroupsIgnoreInlineViews(query, false));
+	}
+
 	private GlobalTableStore getGlobalStore(final CommandContext context, TempMetadataID matTableId) {
 		GlobalTableStore globalStore = context.getGlobalTableStore();
 		if (matTableId.getCacheHint() == null || matTableId.getCacheHint().getScope() == null || Scope.VDB.compareTo(matTableId.getCacheHint().getScope()) <= 0) {
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.util;
+
+/**
+ * A simple Bloom filter over object hash codes.  
+ * A negative result from {@link #mightContain(Object)} is definite, a positive result
+ * may be a false positive with approximately the requested probability.
+ * <br/>
+ * Values must have hash codes consistent with equals - see {@link org.teiid.core.types.DataTypeManager#isHashable(Class)}
+ */
+public class BloomFilter {
+	
+	private static final int MAX_BITS = 1 << 30;
+	
+	private long[] bits;
+	private int numBits;
+	private int numHashes;
+	
+	/**
+	 * @param expectedInsertions
+	 * @param fpp the desired false positive probability
+	 */
+	public BloomFilter(long expectedInsertions, double fpp) {
+		this(expectedInsertions, fpp, MAX_BITS);
+	}
+	
+	/**
+	 * @param expectedInsertions
+	 * @param fpp the desired false positive probability
+	 * @param maxBits the upper bound on the size.  A smaller filter has a higher false positive probability.
+	 */
+	public BloomFilter(long expectedInsertions, double fpp, long maxBits) {
+		expectedInsertions = Math.max(1, expectedInsertions);
+		long m = (long)Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		numBits = (int)Math.max(64, Math.min(Math.min(MAX_BITS, maxBits), m));
+		numHashes = (int)Math.max(1, Math.min(16, Math.round((double)numBits / expectedInsertions * Math.log(2))));
+		bits = new long[(numBits + 63) >>> 6];
+	}
+	
+	public void add(Object value) {
+		int h1 = mix(value.hashCode());
+		int h2 = mix(h1 ^ 0x9e3779b9) | 1;
+		for (int i = 0; i < numHashes; i++) {
+			int index = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+			bits[index >>> 6] |= 1L << index;
+		}
+	}
+	
+	public boolean mightContain(Object value) {
+		int h1 = mix(value.hashCode());
+		int h2 = mix(h1 ^ 0x9e3779b9) | 1;
+		for (int i = 0; i < numHashes; i++) {
+			int index = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+			if ((bits[index >>> 6] & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * The size in bits 
+	 */
+	public int getNumBits() {
+		return numBits;
+	}
+	
+	/**
+	 * The size in bytes of the bit set 
+	 */
+	public int getSizeInBytes() {
+		return bits.length << 3;
+	}
+	
+	public int getNumHashes() {
+		return numHashes;
+	}
+	
+	/**
+	 * murmur3 finalization mix, spreads the bits of lower quality hash codes
+	 */
+	static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+}
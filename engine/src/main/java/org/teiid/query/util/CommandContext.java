@@ -38,6 +38,7 @@ import org.teiid.adminapi.impl.SessionMetadata;
 import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.api.exception.query.QueryProcessingException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.MemoryQuotas;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.util.ArgCheck;
@@ -59,6 +60,7 @@ import org.teiid.metadata.FunctionMethod.Determinism;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
+import org.teiid.query.optimizer.relational.CardinalityFeedback;
 import org.teiid.query.parser.ParseInfo;
 import org.teiid.query.processor.QueryProcessor;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -77,6 +79,8 @@ import org.teiid.translator.ReusableExecution;
  */
 public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	
+	private static final int MAX_DATA_RANGES = 16;
+	
 	private static ThreadLocal<LinkedList<CommandContext>> threadLocalContext = new ThreadLocal<LinkedList<CommandContext>>() {
 		@Override
 		protected LinkedList<CommandContext> initialValue() {
@@ -170,8 +174,11 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	    private boolean returnAutoGeneratedKeys;
 	    private GeneratedKeysImpl generatedKeys;
 	    private long reservedBuffers;
+	    private MemoryQuotas memoryQuotas;
+	    private MemoryQuotas.Account[] memoryAccounts;
 
 		private AuthorizationValidator authorizationValidator;
+		private CardinalityFeedback cardinalityFeedback;
 		
 		private Map<LookupKey, TupleSource> lookups;
 		private TempTableStore sessionTempTableStore;
@@ -185,6 +192,7 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     private boolean nonBlocking;
     private HashSet<Object> planningObjects;
     private HashSet<Object> dataObjects = this.globalState.dataObjects;
+    private HashMap<Object, List<RowRange>> dataRanges;
     private TupleSourceCache tupleSourceCache;
     private VDBState vdbState = new VDBState();
     private Determinism[] determinismLevel = new Determinism[] {Determinism.DETERMINISTIC};
@@ -249,6 +257,9 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
      * @return
      */
     public RequestWorkItem getWorkItem() {
+    	if (globalState.processorID == null) {
+    		return null;
+    	}
         return globalState.processorID.get();
     }
 
@@ -620,17 +631,62 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	}
 	
 	public void accessedDataObject(Object id) {
-		if (this.dataObjects != null) {
-			this.dataObjects.add(id);
+		accessedDataObject(id, null);
+	}
+	
+	/**
+	 * Record the data access.  May be called concurrently by exchange or parallel union branches.
+	 * @param range the rows that may be accessed or null if unrestricted
+	 */
+	public void accessedDataObject(Object id, RowRange range) {
+		synchronized (this.globalState) {
+			if (this.dataObjects == null) {
+				return;
+			}
+			boolean added = this.dataObjects.add(id);
+			if (range == null) {
+				this.dataRanges.put(id, null);
+				return;
+			}
+			List<RowRange> ranges = this.dataRanges.get(id);
+			if (added) {
+				ranges = new ArrayList<RowRange>(2);
+				this.dataRanges.put(id, ranges);
+			} else if (ranges == null) {
+				return;
+			} else if (ranges.size() >= MAX_DATA_RANGES) {
+				this.dataRanges.put(id, null);
+				return;
+			}
+			ranges.add(range);
 		}
 	}
 	
 	public Set<Object> getDataObjects() {
-		return dataObjects;
+		synchronized (this.globalState) {
+			return dataObjects;
+		}
+	}
+	
+	/**
+	 * @return the accessed row ranges by data object.  A null or missing entry 
+	 * indicates unrestricted access.
+	 */
+	public Map<Object, List<RowRange>> getDataRanges() {
+		synchronized (this.globalState) {
+			return dataRanges;
+		}
 	}
 	
 	public void setDataObjects(HashSet<Object> dataObjectsAccessed) {
-		this.dataObjects = dataObjectsAccessed;
+		synchronized (this.globalState) {
+			this.dataObjects = dataObjectsAccessed;
+			if (dataObjectsAccessed == null) {
+				this.dataRanges = null;
+			} else {
+				this.dataRanges = new HashMap<Object, List<RowRange>>();
+			}
+		}
 	}
 	
 	@Override
@@ -695,6 +751,35 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	public void setExecutor(Executor e) {
 		this.globalState.executor = e;
 	}
+
+	/**
+	 * Execute the task on the {@link #getExecutor()} in the {@link DQPWorkContext} of this request.
+	 * The task should use {@link #moreWork()} to resume processing once it has completed.
+	 * @throws java.util.concurrent.RejectedExecutionException if the executor cannot accept the task
+	 */
+	public void executeAsynch(final Runnable task) {
+		final DQPWorkContext workContext = getDQPWorkContext();
+		if (workContext == null) {
+			getExecutor().execute(task);
+			return;
+		}
+		getExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				workContext.runInContext(task);
+			}
+		});
+	}
+
+	/**
+	 * Signal that asynch work has completed and that the request should be processed
+	 */
+	public void moreWork() {
+		RequestWorkItem workItem = getWorkItem();
+		if (workItem != null) {
+			workItem.moreWork();
+		}
+	}
 	
 	public ReusableExecution<?> getReusableExecution(Object key) {
 		synchronized (this.globalState) {
@@ -729,6 +814,15 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 				long toRelease = this.globalState.reservedBuffers;
 				this.globalState.reservedBuffers = 0;
 				this.globalState.bufferManager.releaseOrphanedBuffers(toRelease);
+				if (this.globalState.memoryAccounts != null) {
+					for (MemoryQuotas.Account account : this.globalState.memoryAccounts) {
+						account.addAndGet(-toRelease);
+					}
+				}
+			}
+			if (this.globalState.memoryAccounts != null) {
+				this.globalState.memoryQuotas.unregister(this.globalState.memoryAccounts);
+				this.globalState.memoryAccounts = null;
 			}
 			if (this.globalState.reusableExecutions != null) {
 				for (List<ReusableExecution<?>> reusableExecutions : this.globalState.reusableExecutions.values()) {
@@ -938,7 +1032,32 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	}
 
 	public long addAndGetReservedBuffers(int i) {
-		return globalState.reservedBuffers += i;
+		synchronized (this.globalState) {
+			if (globalState.memoryAccounts != null && i != 0) {
+				for (MemoryQuotas.Account account : globalState.memoryAccounts) {
+					account.addAndGet(i);
+				}
+			}
+			return globalState.reservedBuffers += i;
+		}
+	}
+	
+	/**
+	 * Get the memory quota accounts for this context, registering them
+	 * if needed.  Reservations already held by the request are charged to
+	 * the accounts upon registration.
+	 */
+	public MemoryQuotas.Account[] getMemoryAccounts(MemoryQuotas quotas) {
+		synchronized (this.globalState) {
+			if (globalState.memoryAccounts == null) {
+				globalState.memoryQuotas = quotas;
+				globalState.memoryAccounts = quotas.register(this);
+				for (MemoryQuotas.Account account : globalState.memoryAccounts) {
+					account.addAndGet(globalState.reservedBuffers);
+				}
+			}
+			return globalState.memoryAccounts;
+		}
 	}
 
 	@Override
@@ -955,6 +1074,14 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 		return this.globalState.authorizationValidator;
 	}
 	
+	public CardinalityFeedback getCardinalityFeedback() {
+		return this.globalState.cardinalityFeedback;
+	}
+	
+	public void setCardinalityFeedback(CardinalityFeedback cardinalityFeedback) {
+		this.globalState.cardinalityFeedback = cardinalityFeedback;
+	}
+	
 	public TupleSource getCodeLookup(String matTableName, Object keyValue) {
 		if (this.globalState.lookups != null) {
 			return this.globalState.lookups.remove(new LookupKey(matTableName, keyValue));
@@ -0,0 +1,123 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.util;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.function.FunctionMethods;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * Wraps key values so that hashing is consistent with {@link Constant#COMPARATOR}.
+ * Null values are treated as equal to each other, as is needed for grouping.
+ * 
+ * Used by hash based join and grouping processing.  
+ * {@link #isHashable(List, List)} should be checked before planning such processing.
+ */
+public final class HashKey {
+	private Object[] values;
+	private int hashCode;
+
+	public HashKey(Object[] values) {
+		this.values = values;
+		int result = 1;
+		for (Object value : values) {
+			result = 31 * result + hash(value);
+		}
+		this.hashCode = result;
+	}
+
+	private static int hash(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof String && DataTypeManager.PAD_SPACE) {
+			return FunctionMethods.rightTrim((String)value, ' ', false).hashCode();
+		}
+		if (value instanceof BigDecimal) {
+			BigDecimal bd = (BigDecimal)value;
+			if (bd.signum() == 0) {
+				return 0;
+			}
+			return bd.stripTrailingZeros().hashCode();
+		}
+		return value.hashCode();
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof HashKey)) {
+			return false;
+		}
+		HashKey other = (HashKey)obj;
+		if (other.hashCode != hashCode) {
+			return false;
+		}
+		for (int i = 0; i < values.length; i++) {
+			Object value = values[i];
+			Object otherValue = other.values[i];
+			if (value == null || otherValue == null) {
+				if (value != otherValue) {
+					return false;
+				}
+			} else if (Constant.COMPARATOR.compare(value, otherValue) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Determine if the pairwise expressions can be compared by hashing with {@link HashKey}
+	 * @param leftExpressions
+	 * @param rightExpressions
+	 * @return true if the types match and are hashable consistent with {@link Constant#COMPARATOR}
+	 */
+	public static boolean isHashable(List<? extends Expression> leftExpressions, List<? extends Expression> rightExpressions) {
+		for (int i = 0; i < leftExpressions.size(); i++) {
+			Class<?> type = leftExpressions.get(i).getType();
+			if (type != rightExpressions.get(i).getType()) {
+				return false;
+			}
+			if (DataTypeManager.isNonComparable(DataTypeManager.getDataTypeName(type)) || type == DataTypeManager.DefaultDataClasses.CLOB) {
+				return false;
+			}
+			if (type == DataTypeManager.DefaultDataClasses.STRING && Constant.COLLATION_LOCALE != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+}
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.util;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.teiid.adminapi.impl.VDBMetaData;
+import org.teiid.query.metadata.TempMetadataID;
+
+/**
+ * Retains the {@link RowRange}s of the most recent data modifications to a table
+ * so that cached entries can be validated against the rows that were actually modified
+ * rather than just the modification time.
+ */
+public class ModificationLog {
+	
+	public static final int MAX_ENTRIES = 64;
+	
+	/**
+	 * The logs of physical tables held by the vdb
+	 */
+	private static class TableLogs {
+		Map<Object, ModificationLog> logs = new WeakHashMap<Object, ModificationLog>();
+	}
+	
+	private static class Entry {
+		long ts;
+		RowRange range;
+		
+		Entry(long ts, RowRange range) {
+			this.ts = ts;
+			this.range = range;
+		}
+	}
+	
+	private ArrayDeque<Entry> entries = new ArrayDeque<Entry>();
+	private long lastLogged = -1;
+	private long incompleteThrough = -1;
+	
+	/**
+	 * Get the log for the modifiable object
+	 * @param vdb used to hold the logs of physical tables
+	 * @return the log or null if one is not available 
+	 */
+	public static ModificationLog getLog(Object modifiable, VDBMetaData vdb, boolean create) {
+		if (modifiable instanceof TempMetadataID) {
+			return ((TempMetadataID)modifiable).getTableData().getModificationLog();
+		}
+		if (vdb == null) {
+			return null;
+		}
+		synchronized (vdb) {
+			TableLogs tableLogs = vdb.getAttachment(TableLogs.class);
+			if (tableLogs == null) {
+				if (!create) {
+					return null;
+				}
+				tableLogs = new TableLogs();
+				vdb.addAttchment(TableLogs.class, tableLogs);
+			}
+			ModificationLog log = tableLogs.logs.get(modifiable);
+			if (log == null && create) {
+				log = new ModificationLog();
+				tableLogs.logs.put(modifiable, log);
+			}
+			return log;
+		}
+	}
+	
+	/**
+	 * Record a modification
+	 * @param range the modified rows or null if unknown
+	 */
+	public synchronized void modified(long ts, RowRange range) {
+		lastLogged = Math.max(lastLogged, ts);
+		if (range == null) {
+			entries.clear();
+			incompleteThrough = lastLogged;
+			return;
+		}
+		entries.add(new Entry(ts, range));
+		if (entries.size() > MAX_ENTRIES) {
+			incompleteThrough = Math.max(incompleteThrough, entries.removeFirst().ts);
+		}
+	}
+	
+	/**
+	 * Determine if a modification at or after the given time could have affected the rows 
+	 * in the given ranges.
+	 * @param lastModification the current data modification time of the object, 
+	 * which if not logged is an unknown modification 
+	 */
+	public synchronized boolean isAffected(long since, long lastModification, List<RowRange> ranges) {
+		if (lastModification > lastLogged || incompleteThrough >= since) {
+			return true;
+		}
+		for (Entry entry : entries) {
+			if (entry.ts < since) {
+				continue;
+			}
+			for (RowRange range : ranges) {
+				if (entry.range.intersects(range)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
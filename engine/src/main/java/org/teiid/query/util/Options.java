@@ -33,12 +33,40 @@ public class Options {
 	public static final String PUSHDOWN_DEFAULT_NULL_ORDER = "org.teiid.pushdownDefaultNullOrder"; //$NON-NLS-1$
 	public static final String IMPLICIT_MULTISOURCE_JOIN = "org.teiid.implicitMultiSourceJoin"; //$NON-NLS-1$
 	public static final String JOIN_PREFETCH_BATCHES = "org.teiid.joinPrefetchBatches"; //$NON-NLS-1$
+	public static final String HASH_JOIN = "org.teiid.hashJoin"; //$NON-NLS-1$
+	public static final String HASH_GROUPING = "org.teiid.hashGrouping"; //$NON-NLS-1$
+	public static final String SORT_PARALLELISM = "org.teiid.sortParallelism"; //$NON-NLS-1$
+	public static final String COMPILE_EXPRESSIONS = "org.teiid.compileExpressions"; //$NON-NLS-1$
+	public static final String VECTORIZED_EVALUATION = "org.teiid.vectorizedEvaluation"; //$NON-NLS-1$
+	public static final String EXCHANGE_BATCHES = "org.teiid.exchangeBatches"; //$NON-NLS-1$
+	public static final String PARALLEL_UNION = "org.teiid.parallelUnion"; //$NON-NLS-1$
+	public static final String DEPENDENT_JOIN_BLOOM_FILTER_QUERIES = "org.teiid.dependentJoinBloomFilterQueries"; //$NON-NLS-1$
+	public static final String DEPENDENT_QUERY_CONCURRENCY = "org.teiid.dependentQueryConcurrency"; //$NON-NLS-1$
+	public static final String ADAPTIVE_JOIN = "org.teiid.adaptiveJoin"; //$NON-NLS-1$
+	public static final String DYNAMIC_PROGRAMMING_JOIN_SOURCES = "org.teiid.dynamicProgrammingJoinSources"; //$NON-NLS-1$
+	public static final String CARDINALITY_FEEDBACK = "org.teiid.cardinalityFeedback"; //$NON-NLS-1$
+	public static final String AUTO_PARAMETERIZE = "org.teiid.autoParameterize"; //$NON-NLS-1$
+	public static final String SEMANTIC_RESULT_CACHE = "org.teiid.semanticResultCache"; //$NON-NLS-1$
 
 	private Properties properties;
 	private boolean subqueryUnnestDefault;
 	private boolean pushdownDefaultNullOrder;
 	private boolean implicitMultiSourceJoin = true;
 	private int joinPrefetchBatches = 10;
+	private boolean hashJoin;
+	private boolean hashGrouping;
+	private int sortParallelism = 1;
+	private boolean compileExpressions;
+	private boolean vectorizedEvaluation;
+	private int exchangeBatches;
+	private boolean parallelUnion;
+	private int dependentJoinBloomFilterQueries;
+	private int dependentQueryConcurrency = 10;
+	private boolean adaptiveJoin;
+	private int dynamicProgrammingJoinSources = 12;
+	private boolean cardinalityFeedback;
+	private boolean autoParameterize;
+	private boolean semanticResultCache;
 	
 	public Properties getProperties() {
 		return properties;
@@ -99,5 +127,230 @@ public class Options {
 		this.joinPrefetchBatches = i;
 		return this;
 	}
+	
+	public void setHashJoin(boolean hashJoin) {
+		this.hashJoin = hashJoin;
+	}
+	
+	public boolean isHashJoin() {
+		return hashJoin;
+	}
+	
+	public Options hashJoin(boolean b) {
+		this.hashJoin = b;
+		return this;
+	}
+
+	public void setHashGrouping(boolean hashGrouping) {
+		this.hashGrouping = hashGrouping;
+	}
+	
+	public boolean isHashGrouping() {
+		return hashGrouping;
+	}
+	
+	public Options hashGrouping(boolean b) {
+		this.hashGrouping = b;
+		return this;
+	}
+	
+	public void setSortParallelism(int sortParallelism) {
+		this.sortParallelism = sortParallelism;
+	}
+	
+	public int getSortParallelism() {
+		return sortParallelism;
+	}
+	
+	public Options sortParallelism(int i) {
+		this.sortParallelism = i;
+		return this;
+	}
+
+	public void setCompileExpressions(boolean compileExpressions) {
+		this.compileExpressions = compileExpressions;
+	}
+	
+	public boolean isCompileExpressions() {
+		return compileExpressions;
+	}
+	
+	public Options compileExpressions(boolean b) {
+		this.compileExpressions = b;
+		return this;
+	}
+	
+	public void setVectorizedEvaluation(boolean vectorizedEvaluation) {
+		this.vectorizedEvaluation = vectorizedEvaluation;
+	}
+	
+	/**
+	 * Vectorized evaluation implies compiled expressions
+	 */
+	public boolean isVectorizedEvaluation() {
+		return vectorizedEvaluation;
+	}
+	
+	public Options vectorizedEvaluation(boolean b) {
+		this.vectorizedEvaluation = b;
+		return this;
+	}
+	
+	public void setExchangeBatches(int exchangeBatches) {
+		this.exchangeBatches = exchangeBatches;
+	}
+	
+	/**
+	 * The number of batches queued by each exchange between threads, 
+	 * 0 disables the use of exchanges
+	 */
+	public int getExchangeBatches() {
+		return exchangeBatches;
+	}
+	
+	public Options exchangeBatches(int i) {
+		this.exchangeBatches = i;
+		return this;
+	}
+	
+	public void setParallelUnion(boolean parallelUnion) {
+		this.parallelUnion = parallelUnion;
+	}
+	
+	/**
+	 * Process the branches of a union all concurrently, limited by the 
+	 * user request source concurrency
+	 */
+	public boolean isParallelUnion() {
+		return parallelUnion;
+	}
+	
+	public Options parallelUnion(boolean b) {
+		this.parallelUnion = b;
+		return this;
+	}
+	
+	public void setDependentJoinBloomFilterQueries(int dependentJoinBloomFilterQueries) {
+		this.dependentJoinBloomFilterQueries = dependentJoinBloomFilterQueries;
+	}
+	
+	/**
+	 * The number of source queries that a dependent join may split into before
+	 * a Bloom filter of the independent values is used instead, 0 disables the use of Bloom filters
+	 */
+	public int getDependentJoinBloomFilterQueries() {
+		return dependentJoinBloomFilterQueries;
+	}
+	
+	public Options dependentJoinBloomFilterQueries(int i) {
+		this.dependentJoinBloomFilterQueries = i;
+		return this;
+	}
+	
+	public void setDependentQueryConcurrency(int dependentQueryConcurrency) {
+		this.dependentQueryConcurrency = dependentQueryConcurrency;
+	}
+	
+	/**
+	 * The maximum number of source queries from a single split dependent join that may 
+	 * execute concurrently.  The user request source concurrency is still respected.
+	 */
+	public int getDependentQueryConcurrency() {
+		return dependentQueryConcurrency;
+	}
+	
+	public Options dependentQueryConcurrency(int i) {
+		this.dependentQueryConcurrency = i;
+		return this;
+	}
+	
+	public void setAdaptiveJoin(boolean adaptiveJoin) {
+		this.adaptiveJoin = adaptiveJoin;
+	}
+	
+	/**
+	 * If join processing may switch to a hash strategy based upon the actual 
+	 * row counts seen at runtime.
+	 */
+	public boolean isAdaptiveJoin() {
+		return adaptiveJoin;
+	}
+	
+	public Options adaptiveJoin(boolean b) {
+		this.adaptiveJoin = b;
+		return this;
+	}
+	
+	public void setDynamicProgrammingJoinSources(int dynamicProgrammingJoinSources) {
+		this.dynamicProgrammingJoinSources = dynamicProgrammingJoinSources;
+	}
+	
+	/**
+	 * The maximum number of join sources in a join region that will be ordered by 
+	 * a dynamic programming search.  Larger regions use a greedy search.
+	 * <br>
+	 * The search considers every subset of the sources, so planning time and memory 
+	 * double with each additional source.  Values above {@link org.teiid.query.optimizer.relational.rules.RulePlanJoins#MAX_DYNAMIC_PROGRAMMING_GROUPS} 
+	 * have no further effect.
+	 */
+	public int getDynamicProgrammingJoinSources() {
+		return dynamicProgrammingJoinSources;
+	}
+	
+	public Options dynamicProgrammingJoinSources(int i) {
+		this.dynamicProgrammingJoinSources = i;
+		return this;
+	}
+	
+	public void setCardinalityFeedback(boolean cardinalityFeedback) {
+		this.cardinalityFeedback = cardinalityFeedback;
+	}
+	
+	/**
+	 * If the actual row counts of access and join nodes should be recorded per vdb 
+	 * and used in place of the cost estimates when the same plan fragments are planned again.
+	 */
+	public boolean isCardinalityFeedback() {
+		return cardinalityFeedback;
+	}
+	
+	public Options cardinalityFeedback(boolean b) {
+		this.cardinalityFeedback = b;
+		return this;
+	}
+	
+	public void setAutoParameterize(boolean autoParameterize) {
+		this.autoParameterize = autoParameterize;
+	}
+	
+	/**
+	 * If the predicate literals of plain statements should be replaced with parameters 
+	 * so that statements differing only by literal values share a prepared plan.
+	 */
+	public boolean isAutoParameterize() {
+		return autoParameterize;
+	}
+	
+	public Options autoParameterize(boolean b) {
+		this.autoParameterize = b;
+		return this;
+	}
+	
+	public void setSemanticResultCache(boolean semanticResultCache) {
+		this.semanticResultCache = semanticResultCache;
+	}
+	
+	/**
+	 * If a result set cache miss should be answered by filtering the cached results
+	 * of a query over the same group whose criteria contain those of the request.
+	 */
+	public boolean isSemanticResultCache() {
+		return semanticResultCache;
+	}
+	
+	public Options semanticResultCache(boolean b) {
+		this.semanticResultCache = b;
+		return this;
+	}
 
 }
@@ -0,0 +1,478 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.teiid.query.sql.lang.BetweenCriteria;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.Delete;
+import org.teiid.query.sql.lang.Insert;
+import org.teiid.query.sql.lang.ProcedureContainer;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.SetClause;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.lang.Update;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.GroupSymbol;
+
+/**
+ * A conservative bounding box over the rows of a single table, expressed as
+ * per column value sets or intervals.  A column without an entry is unrestricted.
+ * <br>
+ * Ranges are only tracked for numeric, date/time, and boolean columns so that the 
+ * comparison semantics cannot differ from those of the source.
+ */
+public class RowRange {
+	
+	public static final int MAX_VALUES = 64;
+	
+	static class ColumnRange {
+		TreeSet<Object> values = new TreeSet<Object>(); //null if bounded by an interval 
+		Object lower; //null if unbounded
+		boolean lowerInclusive;
+		Object upper; //null if unbounded
+		boolean upperInclusive;
+		
+		static ColumnRange interval(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+			ColumnRange result = new ColumnRange();
+			result.values = null;
+			result.lower = lower;
+			result.lowerInclusive = lowerInclusive;
+			result.upper = upper;
+			result.upperInclusive = upperInclusive;
+			return result;
+		}
+		
+		void addValue(Object value) {
+			if (value == null) {
+				//null values cannot satisfy a restriction
+				return;
+			}
+			if (values != null) {
+				values.add(value);
+				if (values.size() > MAX_VALUES) {
+					lower = values.first();
+					upper = values.last();
+					lowerInclusive = true;
+					upperInclusive = true;
+					values = null;
+				}
+				return;
+			}
+			if (lower != null && compare(value, lower) <= 0) {
+				lower = value;
+				lowerInclusive = true;
+			}
+			if (upper != null && compare(value, upper) >= 0) {
+				upper = value;
+				upperInclusive = true;
+			}
+		}
+		
+		boolean contains(Object value) {
+			if (values != null) {
+				return values.contains(value);
+			}
+			if (lower != null) {
+				int compare = compare(value, lower);
+				if (compare < 0 || (compare == 0 && !lowerInclusive)) {
+					return false;
+				}
+			}
+			if (upper != null) {
+				int compare = compare(value, upper);
+				if (compare > 0 || (compare == 0 && !upperInclusive)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		boolean within(ColumnRange other) {
+			if (values != null) {
+				for (Object value : values) {
+					if (!other.contains(value)) {
+						return false;
+					}
+				}
+				return true;
+			}
+			if (other.values != null) {
+				return false;
+			}
+			if (other.lower != null) {
+				if (lower == null) {
+					return false;
+				}
+				int compare = compare(lower, other.lower);
+				if (compare < 0 || (compare == 0 && lowerInclusive && !other.lowerInclusive)) {
+					return false;
+				}
+			}
+			if (other.upper != null) {
+				if (upper == null) {
+					return false;
+				}
+				int compare = compare(upper, other.upper);
+				if (compare > 0 || (compare == 0 && upperInclusive && !other.upperInclusive)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		boolean intersects(ColumnRange other) {
+			if (values != null) {
+				for (Object value : values) {
+					if (other.contains(value)) {
+						return true;
+					}
+				}
+				return false;
+			}
+			if (other.values != null) {
+				return other.intersects(this);
+			}
+			return !before(upper, upperInclusive, other.lower, other.lowerInclusive) 
+					&& !before(other.upper, other.upperInclusive, lower, lowerInclusive);
+		}
+		
+		private static boolean before(Object upper, boolean upperInclusive, Object lower, boolean lowerInclusive) {
+			if (upper == null || lower == null) {
+				return false;
+			}
+			int compare = compare(upper, lower);
+			return compare < 0 || (compare == 0 && !(upperInclusive && lowerInclusive));
+		}
+		
+		@SuppressWarnings("unchecked")
+		private static int compare(Object value, Object other) {
+			return ((Comparable<Object>)value).compareTo(other);
+		}
+		
+		@Override
+		public String toString() {
+			if (values != null) {
+				return values.toString();
+			}
+			return (lowerInclusive?"[":"(") + lower + ", " + upper + (upperInclusive?"]":")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		}
+	}
+	
+	private Map<String, ColumnRange> columns = new HashMap<String, ColumnRange>();
+	private boolean exact = true;
+	
+	/**
+	 * Get the range of rows of the group that exactly matches the criteria.
+	 * @return the range or null if some part of the criteria cannot be represented as a range
+	 */
+	public static RowRange forExactCriteria(Criteria crit, GroupSymbol group) {
+		RowRange result = forCriteria(crit, group);
+		if (result == null || !result.exact) {
+			return null;
+		}
+		return result;
+	}
+	
+	/**
+	 * Get the range of rows of the group that can satisfy the top level conjuncts of the criteria
+	 * @return the range or null if the criteria does not restrict the group
+	 */
+	public static RowRange forCriteria(Criteria crit, GroupSymbol group) {
+		if (crit == null) {
+			return null;
+		}
+		RowRange result = new RowRange();
+		for (Criteria conjunct : Criteria.separateCriteriaByAnd(crit)) {
+			if (conjunct instanceof CompareCriteria) {
+				CompareCriteria cc = (CompareCriteria)conjunct;
+				int operator = cc.getOperator();
+				Expression left = cc.getLeftExpression();
+				Expression right = cc.getRightExpression();
+				if (left instanceof Constant) {
+					Expression temp = left;
+					left = right;
+					right = temp;
+					operator = reverse(operator);
+				}
+				Object value = getValue(right);
+				String key = getKey(left, group);
+				if (value == null || key == null || result.columns.containsKey(key)) {
+					result.exact = false;
+					continue;
+				}
+				switch (operator) {
+				case CompareCriteria.EQ:
+					ColumnRange range = new ColumnRange();
+					range.addValue(value);
+					result.columns.put(key, range);
+					break;
+				case CompareCriteria.LT:
+				case CompareCriteria.LE:
+					result.columns.put(key, ColumnRange.interval(null, false, value, operator == CompareCriteria.LE));
+					break;
+				case CompareCriteria.GT:
+				case CompareCriteria.GE:
+					result.columns.put(key, ColumnRange.interval(value, operator == CompareCriteria.GE, null, false));
+					break;
+				default:
+					result.exact = false;
+				}
+			} else if (conjunct instanceof SetCriteria) {
+				SetCriteria sc = (SetCriteria)conjunct;
+				String key = getKey(sc.getExpression(), group);
+				if (sc.isNegated() || key == null || result.columns.containsKey(key)) {
+					result.exact = false;
+					continue;
+				}
+				ColumnRange range = new ColumnRange();
+				for (Expression expr : (Collection<Expression>)sc.getValues()) {
+					if (!(expr instanceof Constant) || ((Constant)expr).isMultiValued()) {
+						range = null;
+						break;
+					}
+					range.addValue(((Constant)expr).getValue());
+				}
+				if (range == null || range.values == null) {
+					//not constant or widened to an interval
+					result.exact = false;
+				}
+				if (range != null) {
+					result.columns.put(key, range);
+				}
+			} else if (conjunct instanceof BetweenCriteria) {
+				BetweenCriteria bc = (BetweenCriteria)conjunct;
+				String key = getKey(bc.getExpression(), group);
+				Object lower = getValue(bc.getLowerExpression());
+				Object upper = getValue(bc.getUpperExpression());
+				if (bc.isNegated() || key == null || lower == null || upper == null || result.columns.containsKey(key)) {
+					result.exact = false;
+					continue;
+				}
+				result.columns.put(key, ColumnRange.interval(lower, true, upper, true));
+			} else {
+				result.exact = false;
+			}
+		}
+		if (result.columns.isEmpty()) {
+			return null;
+		}
+		return result;
+	}
+	
+	/**
+	 * Get the range of rows of the group that the query can return.  Only a group
+	 * accessed once directly in the from clause is considered restricted.
+	 * @param accessedGroups all of the groups accessed by the command
+	 * @return the range or null if the access is unrestricted
+	 */
+	public static RowRange forAccess(Query query, GroupSymbol group, Collection<GroupSymbol> accessedGroups) {
+		if (query.getCriteria() == null || query.getFrom() == null || !query.getFrom().getGroups().contains(group)) {
+			return null;
+		}
+		int count = 0;
+		for (GroupSymbol gs : accessedGroups) {
+			if (gs.getMetadataID() == group.getMetadataID() && ++count > 1) {
+				return null;
+			}
+		}
+		return forCriteria(query.getCriteria(), group);
+	}
+	
+	/**
+	 * Get the range of rows affected by the modification, which includes
+	 * both the existing and the new values. 
+	 * @return the range or null if the modification is unrestricted
+	 */
+	public static RowRange forModification(ProcedureContainer command) {
+		if (command instanceof Insert) {
+			Insert insert = (Insert)command;
+			if (insert.getQueryExpression() != null || insert.getTupleSource() != null) {
+				return null;
+			}
+			RowRange result = new RowRange();
+			List<ElementSymbol> variables = insert.getVariables();
+			List<Expression> values = insert.getValues();
+			for (int i = 0; i < variables.size(); i++) {
+				ElementSymbol variable = variables.get(i);
+				Expression value = values.get(i);
+				if (!isTracked(variable.getType()) || !(value instanceof Constant)) {
+					continue;
+				}
+				Constant constant = (Constant)value;
+				ColumnRange range = new ColumnRange();
+				if (constant.isMultiValued()) {
+					for (Object object : (List<?>)constant.getValue()) {
+						range.addValue(object);
+					}
+				} else {
+					range.addValue(constant.getValue());
+				}
+				result.columns.put(getKey(variable), range);
+			}
+			return result;
+		}
+		if (command instanceof Delete) {
+			Delete delete = (Delete)command;
+			return forCriteria(delete.getCriteria(), delete.getGroup());
+		}
+		if (command instanceof Update) {
+			Update update = (Update)command;
+			RowRange result = forCriteria(update.getCriteria(), update.getGroup());
+			if (result == null) {
+				return null;
+			}
+			for (SetClause clause : update.getChangeList().getClauses()) {
+				String key = getKey(clause.getSymbol());
+				ColumnRange range = result.columns.get(key);
+				if (range == null) {
+					continue;
+				}
+				Object value = getValue(clause.getValue());
+				if (value != null) {
+					range.addValue(value);
+				} else if (!(clause.getValue() instanceof Constant) || ((Constant)clause.getValue()).isMultiValued()) {
+					result.columns.remove(key);
+				}
+			}
+			if (result.columns.isEmpty()) {
+				return null;
+			}
+			return result;
+		}
+		return null;
+	}
+	
+	/**
+	 * Add a row to the range
+	 * @param elements the columns of the row
+	 */
+	public void addRow(List<ElementSymbol> elements, List<?> tuple) {
+		for (int i = 0; i < elements.size(); i++) {
+			ElementSymbol element = elements.get(i);
+			if (!isTracked(element.getType())) {
+				continue;
+			}
+			String key = getKey(element);
+			ColumnRange range = this.columns.get(key);
+			if (range == null) {
+				range = new ColumnRange();
+				this.columns.put(key, range);
+			}
+			range.addValue(tuple.get(i));
+		}
+	}
+	
+	/**
+	 * @return false if no row can be in both ranges
+	 */
+	public boolean intersects(RowRange other) {
+		try {
+			for (Map.Entry<String, ColumnRange> entry : this.columns.entrySet()) {
+				ColumnRange range = other.columns.get(entry.getKey());
+				if (range != null && !entry.getValue().intersects(range)) {
+					return false;
+				}
+			}
+		} catch (ClassCastException e) {
+			//mismatched types, assume the worst
+		}
+		return true;
+	}
+	
+	/**
+	 * @return true if every row in this range is also in the other range
+	 */
+	public boolean within(RowRange other) {
+		try {
+			for (Map.Entry<String, ColumnRange> entry : other.columns.entrySet()) {
+				ColumnRange range = this.columns.get(entry.getKey());
+				if (range == null || !range.within(entry.getValue())) {
+					return false;
+				}
+			}
+		} catch (ClassCastException e) {
+			return false;
+		}
+		return true;
+	}
+	
+	private static Object getValue(Expression expr) {
+		if (!(expr instanceof Constant)) {
+			return null;
+		}
+		Constant constant = (Constant)expr;
+		if (constant.isMultiValued() || !isTracked(constant.getType())) {
+			return null;
+		}
+		return constant.getValue();
+	}
+	
+	private static String getKey(Expression expr, GroupSymbol group) {
+		if (!(expr instanceof ElementSymbol)) {
+			return null;
+		}
+		ElementSymbol element = (ElementSymbol)expr;
+		if (!group.equals(element.getGroupSymbol()) || !isTracked(element.getType())) {
+			return null;
+		}
+		return getKey(element);
+	}
+
+	private static String getKey(ElementSymbol element) {
+		return element.getShortName().toUpperCase();
+	}
+	
+	private static int reverse(int operator) {
+		switch (operator) {
+		case CompareCriteria.LT:
+			return CompareCriteria.GT;
+		case CompareCriteria.LE:
+			return CompareCriteria.GE;
+		case CompareCriteria.GT:
+			return CompareCriteria.LT;
+		case CompareCriteria.GE:
+			return CompareCriteria.LE;
+		}
+		return operator;
+	}
+	
+	static boolean isTracked(Class<?> type) {
+		return type != null && (Number.class.isAssignableFrom(type) || java.util.Date.class.isAssignableFrom(type) || type == Boolean.class);
+	}
+	
+	@Override
+	public String toString() {
+		return columns.toString();
+	}
+
+}
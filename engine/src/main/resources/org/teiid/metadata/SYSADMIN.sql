@@ -283,4 +283,102 @@ BEGIN
     END
 
 	RETURN  rowsUpdated;
-END
\ No newline at end of file
+END
+
+CREATE VIRTUAL PROCEDURE analyzeTable(IN schemaName string NOT NULL, IN tableName string NOT NULL, IN sampleSize integer NOT NULL DEFAULT '10000', IN buckets integer NOT NULL DEFAULT '10') RETURNS integer
+AS
+BEGIN
+	/* 
+	 * Sets the cardinality of the table and the ndv, null count, min, max, and equi-depth histogram of each searchable column.
+	 * The sample used for the ndv and histogram is numbered with ROW_NUMBER, which most sources cannot accept.  Each sampled column
+	 * is then read in full and sorted by the engine, so sampling a large table costs more than a full scan of the column rather than less.
+	 */
+	DECLARE string vdbName = (SELECT Name FROM VirtualDatabases);
+	DECLARE string targetSchema = schemaName;
+	DECLARE string targetTable = tableName;
+	DECLARE string uid = (SELECT UID FROM Sys.Tables WHERE VDBName = VARIABLES.vdbName AND SchemaName = VARIABLES.targetSchema AND Name = VARIABLES.targetTable);
+	DECLARE integer columnsAnalyzed = 0;
+	
+	IF (uid IS NULL)
+	BEGIN
+		RAISE SQLEXCEPTION 'The table not found';
+	END
+	
+	DECLARE boolean isPhysical = (SELECT IsPhysical FROM SYS.Tables WHERE UID = VARIABLES.uid);
+	
+	IF (NOT isPhysical)
+	BEGIN
+		RAISE SQLEXCEPTION 'The table is not a physical table';
+	END
+	
+	DECLARE string qualifiedName = VARIABLES.targetSchema || '.' || VARIABLES.targetTable;
+	DECLARE string fullName = '"' || replace(VARIABLES.targetSchema, '"', '""') || '"."' || replace(VARIABLES.targetTable, '"', '""') || '"';
+	
+	EXECUTE IMMEDIATE 'SELECT count(*) FROM ' || VARIABLES.fullName AS cardinality long INTO #analyze_table;
+	DECLARE long cardinality = (SELECT cardinality FROM #analyze_table);
+	EXECUTE SYSADMIN.setTableStats(VARIABLES.qualifiedName, VARIABLES.cardinality);
+	
+	LOOP ON (SELECT Name, DataType, UID FROM SYS.Columns WHERE VDBName = VARIABLES.vdbName AND SchemaName = VARIABLES.targetSchema AND TableName = VARIABLES.targetTable AND SearchType <> 'Unsearchable' AND DataType NOT IN ('blob', 'clob', 'xml', 'object', 'varbinary', 'geometry')) AS col
+	BEGIN
+		DECLARE string colName = '"' || replace(col.Name, '"', '""') || '"';
+		DECLARE string colValue = colName;
+		DECLARE string sampleValue = 'v';
+		
+		/* date bounds are kept in timestamp form, which is what the costing expects */
+		IF (col.DataType = 'date')
+		BEGIN
+			colValue = 'cast(' || colName || ' AS timestamp)';
+			sampleValue = 'cast(v AS timestamp)';
+		END
+		
+		EXECUTE IMMEDIATE 'SELECT count(' || colName || '), cast(min(' || colValue || ') AS string), cast(max(' || colValue || ') AS string) FROM ' || VARIABLES.fullName AS nonNullCount long, minValue string, maxValue string INTO #analyze_column;
+		DECLARE long nonNullCount = (SELECT nonNullCount FROM #analyze_column);
+		DECLARE string minValue = (SELECT minValue FROM #analyze_column);
+		DECLARE string maxValue = (SELECT maxValue FROM #analyze_column);
+		DELETE FROM #analyze_column;
+		
+		/* sample every k-th non-null value in value order, rather than a prefix, so that the sample spans the whole column */
+		DECLARE long sampleInterval = 1;
+		IF (sampleSize > 0 AND nonNullCount > sampleSize)
+		BEGIN
+			sampleInterval = convert(ceiling(convert(nonNullCount, double) / sampleSize), long);
+		END
+		DECLARE string sample = ' FROM (SELECT ' || colName || ' AS v FROM ' || VARIABLES.fullName || ' WHERE ' || colName || ' IS NOT NULL) AS s';
+		IF (sampleInterval > 1)
+		BEGIN
+			sample = ' FROM (SELECT ' || colName || ' AS v, ROW_NUMBER() OVER (ORDER BY ' || colName || ') AS sn FROM ' || VARIABLES.fullName || ' WHERE ' || colName || ' IS NOT NULL) AS s WHERE mod(sn, ' || sampleInterval || ') = 0';
+		END
+		
+		EXECUTE IMMEDIATE 'SELECT count(*), sum(CASE WHEN c = 1 THEN 1 ELSE 0 END), sum(c) FROM (SELECT v, count(*) AS c' || sample || ' GROUP BY v) AS g' AS sampleDistinct long, singletons long, sampleCount long INTO #analyze_ndv;
+		DECLARE long sampleDistinct = (SELECT sampleDistinct FROM #analyze_ndv);
+		DECLARE long singletons = (SELECT singletons FROM #analyze_ndv);
+		DECLARE long sampleCount = (SELECT sampleCount FROM #analyze_ndv);
+		DELETE FROM #analyze_ndv;
+		DECLARE long ndv = sampleDistinct;
+		
+		/* scale the sample distinct count with the guaranteed error estimator */
+		IF (sampleCount > 0 AND sampleCount < nonNullCount)
+		BEGIN
+			ndv = convert(sqrt(convert(nonNullCount, double) / sampleCount) * singletons, long) + sampleDistinct - singletons;
+			IF (ndv > nonNullCount)
+			BEGIN
+				ndv = nonNullCount;
+			END
+		END
+		
+		EXECUTE SYSADMIN.setColumnStats(VARIABLES.qualifiedName, col.Name, ndv, VARIABLES.cardinality - nonNullCount, maxValue, minValue);
+		
+		IF (buckets > 0 AND sampleCount > 0 AND col.DataType IN ('byte', 'short', 'integer', 'long', 'biginteger', 'float', 'double', 'bigdecimal', 'date', 'time', 'timestamp'))
+		BEGIN
+			/* the i-th bound is the value at ceiling(i * total / buckets), so that each bucket holds the same number of values within one */
+			EXECUTE IMMEDIATE 'SELECT cast(string_agg(cast(v AS string), '','' ORDER BY rn) AS string) FROM (SELECT v, ROW_NUMBER() OVER (ORDER BY v) AS rn FROM (SELECT ' || sampleValue || ' AS v' || sample || ') AS h) AS b WHERE rn = 1 OR (rn * DVARS.buckets) / DVARS.total > ((rn - 1) * DVARS.buckets) / DVARS.total' AS histogram string INTO #analyze_histogram USING total = sampleCount, buckets = convert(buckets, long);
+			DECLARE string histogram = (SELECT histogram FROM #analyze_histogram);
+			DELETE FROM #analyze_histogram;
+			EXECUTE SYSADMIN.setProperty(col.UID, '{http://www.teiid.org/ext/relational/2012}HISTOGRAM', histogram);
+		END
+		
+		columnsAnalyzed = columnsAnalyzed + 1;
+	END
+	
+	RETURN columnsAnalyzed;
+END
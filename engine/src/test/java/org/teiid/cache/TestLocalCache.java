@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.cache;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.teiid.cache.CacheConfiguration.Policy;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.dqp.internal.process.SessionAwareCache;
+
+@SuppressWarnings("nls")
+public class TestLocalCache {
+	
+	@Test public void testEviction() {
+		LocalCache<Integer, String> cache = new LocalCache<Integer, String>("x", 100, -1);
+		for (int i = 0; i < 200; i++) {
+			cache.put(i, String.valueOf(i), null);
+		}
+		assertEquals(100, cache.size());
+		assertEquals(100, cache.getEvictionCount());
+		assertEquals(200, cache.getPutCount());
+	}
+	
+	@Test public void testExpiration() throws Exception {
+		LocalCache<Integer, String> cache = new LocalCache<Integer, String>("x", 10, -1);
+		cache.put(1, "a", 10l);
+		cache.put(2, "b", null);
+		assertEquals("a", cache.get(1));
+		Thread.sleep(50);
+		assertNull(cache.get(1));
+		assertEquals("b", cache.get(2));
+		assertEquals(1, cache.getExpirationCount());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.keySet().size());
+	}
+	
+	@Test public void testFactoryRegions() {
+		LocalCacheFactory factory = new LocalCacheFactory();
+		CacheConfiguration config = new CacheConfiguration(Policy.LRU, -1, 5, null);
+		config.setName("resultset");
+		factory.addCacheConfiguration(config);
+		Cache<Integer, String> cache = factory.get("resultset");
+		assertSame(cache, factory.get("resultset"));
+		assertNull(factory.get("resultset" + SessionAwareCache.REPL));
+		for (int i = 0; i < 10; i++) {
+			cache.put(i, String.valueOf(i), null);
+		}
+		assertEquals(5, cache.size());
+		assertEquals(5, factory.getCache("resultset").getEvictionCount());
+		factory.destroy();
+		try {
+			factory.get("resultset");
+			fail();
+		} catch (TeiidRuntimeException e) {
+			
+		}
+	}
+
+}
@@ -32,6 +32,7 @@ import org.junit.Test;
 import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.impl.BufferFrontedFileStoreCache;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.common.buffer.impl.LZBlockCodec;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.processor.CollectionTupleSource;
@@ -105,6 +106,79 @@ public class TestSTree {
 				
 	}
 	
+	@Test public void testBulkLoad() throws TeiidComponentException, TeiidProcessingException {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(4);
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(String.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		
+		for (int size : new int[] {0, 1, 31, 32, 33, 1025, (1<<14)+(1<<4)+1}) {
+			STree map = bm.createSTree(elements, "1", 1);
+			STree.BulkLoader loader = map.createBulkLoader();
+			for (int i = 0; i < size; i++) {
+				loader.add(Arrays.asList(i*2, String.valueOf(i)));
+			}
+			loader.finish();
+			assertEquals(size, map.getRowCount());
+			for (int i = 0; i < size; i++) {
+				assertEquals(Arrays.asList(i*2, String.valueOf(i)), map.find(Arrays.asList(i*2)));
+				assertNull(map.find(Arrays.asList(i*2+1)));
+			}
+			assertNull(map.find(Arrays.asList(-1)));
+			TupleBrowser tb = new TupleBrowser(map, null, null, true);
+			for (int i = 0; i < size; i++) {
+				assertEquals(Arrays.asList(i*2, String.valueOf(i)), tb.nextTuple());
+			}
+			assertNull(tb.nextTuple());
+			
+			//the tree should remain usable for updates
+			assertNull(map.insert(Arrays.asList(1, "a"), InsertMode.NEW, -1));
+			assertNull(map.insert(Arrays.asList(size*2, "b"), InsertMode.ORDERED, -1));
+			assertEquals(Arrays.asList(1, "a"), map.find(Arrays.asList(1)));
+			for (int i = 0; i < size; i++) {
+				assertNotNull(map.remove(Arrays.asList(i*2)));
+			}
+			assertEquals(2, map.getRowCount());
+			map.remove();
+		}
+	}
+	
+	@Test public void testBulkLoadUnordered() throws TeiidComponentException, TeiidProcessingException {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(4);
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(String.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		
+		STree map = bm.createSTree(elements, "1", 1);
+		STree.BulkLoader loader = map.createBulkLoader();
+		for (int i = 0; i < 100; i++) {
+			loader.add(Arrays.asList(i*2, String.valueOf(i)));
+		}
+		//duplicate and out of order keys
+		loader.add(Arrays.asList(198, "x"));
+		loader.add(Arrays.asList(1, "a"));
+		loader.add(Arrays.asList(201, "b"));
+		loader.finish();
+		assertEquals(102, map.getRowCount());
+		assertEquals(Arrays.asList(198, "99"), map.find(Arrays.asList(198)));
+		TupleBrowser tb = new TupleBrowser(map, null, null, true);
+		assertEquals(Arrays.asList(0, "0"), tb.nextTuple());
+		assertEquals(Arrays.asList(1, "a"), tb.nextTuple());
+		for (int i = 1; i < 100; i++) {
+			assertEquals(Arrays.asList(i*2, String.valueOf(i)), tb.nextTuple());
+		}
+		assertEquals(Arrays.asList(201, "b"), tb.nextTuple());
+		assertNull(tb.nextTuple());
+	}
+	
 	@Test public void testStorageWrites() throws TeiidComponentException {
 		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
 		bm.setProcessorBatchSize(32);
@@ -133,6 +207,39 @@ public class TestSTree {
 				
 	}
 	
+	@Test public void testCompressedStorage() throws TeiidComponentException {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(32);
+		bm.setMaxReserveKB(0);//force all to disk
+		bm.setSortedColumnEncoding(true);
+		BufferFrontedFileStoreCache fsc =(BufferFrontedFileStoreCache)bm.getCache();
+		fsc.setMaxStorageObjectSize(1 << 19);
+		fsc.setMemoryBufferSpace(1 << 19);
+		fsc.setBlockCodec(new LZBlockCodec());
+		fsc.initialize();
+		bm.initialize();
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(String.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		STree map = bm.createSTree(elements, "1", 1);
+		
+		int size = 1000;
+		
+		for (int i = 0; i < size; i++) {
+			assertNull(map.insert(Arrays.asList(i, new String(new byte[1000])), InsertMode.ORDERED, size));
+			assertEquals(i + 1, map.getRowCount());
+		}
+		
+		assertTrue(fsc.getCompressionRatio() > 1);
+		
+		for (int i = 0; i < size; i++) {
+			assertEquals(Arrays.asList(i, new String(new byte[1000])), map.remove(Arrays.asList(i)));
+		}
+	}
+	
 	@Test public void testSearch() throws TeiidComponentException, TeiidProcessingException {
 		//due to buffering changes we need to hold this in memory directly rather than serialize it out as that will lead to GC overhead errors
 		BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(Integer.MAX_VALUE, 1);
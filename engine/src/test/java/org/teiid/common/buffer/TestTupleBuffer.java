@@ -26,12 +26,14 @@ import static org.junit.Assert.*;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.sql.rowset.serial.SerialClob;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.TupleBuffer.TupleBufferTupleSource;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.types.ClobType;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -114,4 +116,60 @@ public class TestTupleBuffer {
 		assertNotNull(tb.getLobReference(c.getReferenceStreamId()));
 	}
 	
+	@Test public void testColumnarBatches() throws Exception {
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		ElementSymbol y = new ElementSymbol("y"); //$NON-NLS-1$
+		y.setType(DataTypeManager.DefaultDataClasses.STRING);
+		List<ElementSymbol> schema = Arrays.asList(x, y);
+		BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(0, 2);
+		bm.setColumnarBatches(true);
+		TupleBuffer tb = bm.createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		tb.setBatchSize(10);
+		for (int i = 0; i < 100; i++) {
+			tb.addTuple(Arrays.asList(i%3==0?null:i, i%2==0?null:String.valueOf(i%5)));
+		}
+		tb.close();
+		TupleBufferTupleSource ts = tb.createIndexedTupleSource();
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Arrays.asList(i%3==0?null:i, i%2==0?null:String.valueOf(i%5)), ts.nextTuple());
+		}
+		assertFalse(ts.hasNext());
+		TupleBatch batch = tb.getBatch(11);
+		try {
+			((List<Object>)batch.getTuples().get(0)).set(0, 1);
+			fail("expected exception"); //$NON-NLS-1$
+		} catch (UnsupportedOperationException e) {
+			
+		}
+	}
+	
+	@Test public void testReadAhead() throws Exception {
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		List<ElementSymbol> schema = Arrays.asList(x);
+		BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(0, 2);
+		bm.setReadAheadBatches(2);
+		bm.setReadAheadExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		TupleBuffer tb = bm.createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		tb.setBatchSize(10);
+		for (int i = 0; i < 100; i++) {
+			tb.addTuple(Arrays.asList(i));
+		}
+		tb.close();
+		//allow the spilled batches to be read back into memory
+		bm.setMaxReserveKB(1<<14);
+		TupleBufferTupleSource ts = tb.createIndexedTupleSource();
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Arrays.asList(i), ts.nextTuple());
+		}
+		assertFalse(ts.hasNext());
+		assertTrue(bm.getReadAheads() > 0);
+	}
+	
 }
@@ -24,6 +24,7 @@ package org.teiid.common.buffer.impl;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
@@ -36,6 +37,7 @@ import org.teiid.common.buffer.FileStore;
 import org.teiid.common.buffer.Serializer;
 import org.teiid.common.buffer.StorageManager;
 import org.teiid.core.TeiidComponentException;
+import org.teiid.core.util.UnitTestUtil;
 
 public class TestBufferFrontedFileStoreCache {
 	
@@ -204,6 +206,37 @@ public class TestBufferFrontedFileStoreCache {
 		cache.add(ce, s);
 	}
 
+	@Test public void testEvictionMemoryMapped() throws Exception {
+		MemoryMappedStorageManager mmsm = new MemoryMappedStorageManager();
+		mmsm.setStorageDirectory(UnitTestUtil.getTestScratchPath() + File.separator + "mapped"); //$NON-NLS-1$
+		mmsm.setWindowSize(1<<14);
+		SplittableStorageManager ssm = new SplittableStorageManager(mmsm);
+		ssm.setMaxFileSizeDirect(1<<16);
+		BufferFrontedFileStoreCache cache = createLayeredCache(1<<15, 1<<15, ssm);
+		Serializer<Integer> s = new SimpleSerializer();
+		WeakReference<? extends Serializer<?>> ref = new WeakReference<Serializer<?>>(s);
+		cache.createCacheGroup(s.getId());
+		for (int i = 0; i < 10; i++) {
+			add(cache, s, ref, i);
+		}
+		assertTrue(cache.getStorageWrites() > 0);
+		for (int i = 0; i < 10; i++) {
+			CacheEntry ce = get(cache, Long.valueOf(i), s);
+			assertEquals(Integer.valueOf(5000 + i), ce.getObject());
+		}
+		assertTrue(cache.getStorageReads() > 0);
+	}
+
+	private static BufferFrontedFileStoreCache createLayeredCache(int bufferSpace, int objectSize, StorageManager sm) throws TeiidComponentException {
+		BufferFrontedFileStoreCache fsc = new BufferFrontedFileStoreCache();
+		fsc.setMemoryBufferSpace(bufferSpace);
+		fsc.setMaxStorageObjectSize(objectSize);
+		fsc.setDirect(false);
+		fsc.setStorageManager(sm);
+		fsc.initialize();
+		return fsc;
+	}
+
 	private static BufferFrontedFileStoreCache createLayeredCache(int bufferSpace, int objectSize, boolean memStorage) throws TeiidComponentException {
 		BufferFrontedFileStoreCache fsc = new BufferFrontedFileStoreCache();
 		fsc.setMemoryBufferSpace(bufferSpace);
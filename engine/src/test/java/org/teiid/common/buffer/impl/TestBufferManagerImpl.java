@@ -25,7 +25,12 @@ package org.teiid.common.buffer.impl;
 import static org.junit.Assert.*;
 
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.MemoryQuotas.Scope;
+import org.teiid.dqp.internal.process.RequestWorkItem;
+import org.teiid.query.util.CommandContext;
 
 public class TestBufferManagerImpl {
 	
@@ -50,4 +55,58 @@ public class TestBufferManagerImpl {
         assertEquals(24576, bufferManager.reserveBuffers(1024000, BufferReserveMode.NO_WAIT));
     }
 
+    @Test public void testMemoryQuotas() throws Exception {
+        BufferManagerImpl bufferManager = new BufferManagerImpl();
+        bufferManager.setCache(new MemoryStorageManager());
+        bufferManager.setMaxProcessingKB(1024);
+        bufferManager.setMaxReserveKB(1024);
+        bufferManager.initialize();
+        bufferManager.getMemoryQuotas().setQuota(Scope.USER, 600000);
+        
+        CommandContext cc1 = createContext(bufferManager, "1"); //$NON-NLS-1$
+        CommandContext cc2 = createContext(bufferManager, "2"); //$NON-NLS-1$
+        CommandContext.pushThreadLocalContext(cc1);
+        try {
+        	assertEquals(400000, bufferManager.reserveBuffers(400000, BufferReserveMode.NO_WAIT));
+        } finally {
+        	CommandContext.popThreadLocalContext();
+        }
+        CommandContext.pushThreadLocalContext(cc2);
+        try {
+        	//restricted by the quota for the user
+        	assertEquals(200000, bufferManager.reserveBuffers(400000, BufferReserveMode.NO_WAIT));
+        	assertEquals(0, bufferManager.reserveBuffersBlocking(100000, new long[] {0,0}, false));
+        	try {
+        		bufferManager.reserveBuffersBlocking(100000, new long[] {0,0}, true);
+        		fail();
+        	} catch (BlockedException e) {
+        		//should block until the other session releases
+        	}
+        } finally {
+        	CommandContext.popThreadLocalContext();
+        }
+        assertEquals(Long.valueOf(600000), bufferManager.getMemoryQuotas().getReserved(Scope.USER).get("user")); //$NON-NLS-1$
+        assertEquals(Long.valueOf(400000), bufferManager.getMemoryQuotas().getReserved(Scope.SESSION).get("1")); //$NON-NLS-1$
+        
+        cc1.close();
+        CommandContext.pushThreadLocalContext(cc2);
+        try {
+        	assertEquals(100000, bufferManager.reserveBuffersBlocking(100000, new long[] {0,0}, false));
+        } finally {
+        	CommandContext.popThreadLocalContext();
+        }
+        cc2.close();
+        assertTrue(bufferManager.getMemoryQuotas().getReserved(Scope.USER).isEmpty());
+        assertEquals(1024<<10, bufferManager.getReserveBatchBytes());
+    }
+
+	private CommandContext createContext(BufferManagerImpl bufferManager, String session) {
+		CommandContext cc = new CommandContext();
+        cc.setBufferManager(bufferManager);
+        cc.setConnectionID(session);
+        cc.setUserName("user"); //$NON-NLS-1$
+        cc.setWorkItem(Mockito.mock(RequestWorkItem.class));
+		return cc;
+	}
+
 }
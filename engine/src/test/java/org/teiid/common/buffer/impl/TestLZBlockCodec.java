@@ -0,0 +1,112 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class TestLZBlockCodec {
+
+	private int helpTestRoundTrip(byte[] bytes) throws IOException {
+		LZBlockCodec codec = new LZBlockCodec();
+		byte[] compressed = new byte[codec.maxCompressedLength(bytes.length)];
+		int length = codec.compress(bytes, bytes.length, compressed);
+		byte[] result = new byte[bytes.length];
+		codec.decompress(compressed, length, result, bytes.length);
+		assertArrayEquals(bytes, result);
+		return length;
+	}
+
+	@Test public void testRepeatedBytes() throws Exception {
+		byte[] bytes = new byte[1 << 15];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte)(i % 7);
+		}
+		assertTrue(helpTestRoundTrip(bytes) < bytes.length / 10);
+	}
+
+	@Test public void testRandomBytes() throws Exception {
+		byte[] bytes = new byte[1 << 15];
+		new Random(1).nextBytes(bytes);
+		assertTrue(helpTestRoundTrip(bytes) <= new LZBlockCodec().maxCompressedLength(bytes.length));
+	}
+
+	@Test public void testSmall() throws Exception {
+		helpTestRoundTrip(new byte[] {1});
+		helpTestRoundTrip("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes());
+	}
+
+	@Test public void testReusedHashTable() throws Exception {
+		LZBlockCodec codec = new LZBlockCodec();
+		byte[] bytes = "abcdabcdabcdabcdabcdabcdabcdabcd".getBytes();
+		byte[] compressed = new byte[codec.maxCompressedLength(bytes.length)];
+		int length = codec.compress(bytes, bytes.length, compressed);
+		byte[] other = new byte[1 << 15];
+		new Random(2).nextBytes(other);
+		helpTestRoundTrip(other);
+		byte[] again = new byte[compressed.length];
+		assertEquals(length, codec.compress(bytes, bytes.length, again));
+		assertArrayEquals(compressed, again);
+	}
+
+	@Test public void testStreamBufferReuse() throws Exception {
+		BufferFrontedFileStoreCache cache = new BufferFrontedFileStoreCache();
+		cache.setBlockCodec(new LZBlockCodec());
+		byte[] bytes = new byte[100000];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte)(i % 13);
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		CompressedBlockOutputStream cos = new CompressedBlockOutputStream(baos, cache);
+		cos.write(bytes);
+		cos.close();
+		BufferFrontedFileStoreCache.CodecBuffers buffers = cache.borrowCodecBuffers();
+		cache.releaseCodecBuffers(buffers);
+		CompressedBlockInputStream cis = new CompressedBlockInputStream(new ByteArrayInputStream(baos.toByteArray()), cache);
+		byte[] result = new byte[bytes.length];
+		new DataInputStream(cis).readFully(result);
+		assertEquals(-1, cis.read());
+		cis.release();
+		assertArrayEquals(bytes, result);
+		assertSame(buffers, cache.borrowCodecBuffers());
+	}
+
+	@Test(expected=IOException.class) public void testInvalid() throws Exception {
+		LZBlockCodec codec = new LZBlockCodec();
+		byte[] bytes = new byte[100];
+		Arrays.fill(bytes, (byte)1);
+		byte[] compressed = new byte[codec.maxCompressedLength(bytes.length)];
+		int length = codec.compress(bytes, bytes.length, compressed);
+		codec.decompress(compressed, length - 1, new byte[100], 100);
+	}
+
+}
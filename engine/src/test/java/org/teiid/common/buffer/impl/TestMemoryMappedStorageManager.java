@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.common.buffer.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.teiid.common.buffer.ExtensibleBufferedInputStream;
+import org.teiid.common.buffer.FileStore;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.util.UnitTestUtil;
+
+@SuppressWarnings("nls")
+public class TestMemoryMappedStorageManager {
+	
+	private static MemoryMappedStorageManager getStorageManager(int windowSize) throws TeiidComponentException {
+		MemoryMappedStorageManager sm = new MemoryMappedStorageManager();
+		sm.setStorageDirectory(UnitTestUtil.getTestScratchPath() + File.separator + "mapped");
+		sm.setWindowSize(windowSize);
+		sm.initialize();
+		return sm;
+	}
+	
+	@Test public void testReadWriteAcrossWindows() throws Exception {
+		MemoryMappedStorageManager sm = getStorageManager(1000);
+		FileStore store = sm.createFileStore("0");
+		assertEquals(-1, store.read(0, new byte[1], 0, 1));
+		byte[] bytes = new byte[5000];
+		new Random(1).nextBytes(bytes);
+		store.write(0, bytes, 0, 3000);
+		byte[] read = new byte[5000];
+		store.readFully(0, read, 0, 3000);
+		//append past the last mapped window
+		store.write(3000, bytes, 3000, 2000);
+		store.readFully(0, read, 0, 5000);
+		assertArrayEquals(bytes, read);
+		assertEquals(5000, sm.getUsedBufferSpace());
+		
+		//overwrite through the mapping
+		bytes[1500] = (byte)(bytes[1500] + 1);
+		store.write(1500, bytes, 1500, 1);
+		store.readFully(0, read, 0, 5000);
+		assertArrayEquals(bytes, read);
+		
+		store.remove();
+		assertEquals(0, sm.getUsedBufferSpace());
+	}
+	
+	@Test public void testInputStream() throws Exception {
+		MemoryMappedStorageManager sm = getStorageManager(1000);
+		SplittableStorageManager ssm = new SplittableStorageManager(sm);
+		ssm.setMaxFileSizeDirect(2000);
+		FileStore store = ssm.createFileStore("0");
+		byte[] bytes = new byte[5000];
+		new Random(2).nextBytes(bytes);
+		store.write(0, bytes, 0, bytes.length);
+		
+		//within a single file the mapped buffers are used directly
+		ExtensibleBufferedInputStream is = store.createInputStream(2100, 1500);
+		ByteBuffer bb = is.getBuffer();
+		assertTrue(bb.isDirect());
+		assertEquals(900, bb.remaining());
+		byte[] read = new byte[1500];
+		bb.get(read, 0, 900);
+		assertEquals(600, is.read(read, 900, 1500));
+		assertEquals(-1, is.read());
+		assertArrayEquals(Arrays.copyOfRange(bytes, 2100, 3600), read);
+		
+		//spanning files
+		InputStream in = store.createInputStream(0);
+		read = new byte[5000];
+		int n = 0;
+		int count = 0;
+		while ((count = in.read(read, n, read.length - n)) > 0) {
+			n += count;
+		}
+		assertEquals(5000, n);
+		assertArrayEquals(bytes, read);
+	}
+	
+	@Test public void testTruncate() throws Exception {
+		MemoryMappedStorageManager sm = getStorageManager(1000);
+		FileStore store = sm.createFileStore("0");
+		byte[] bytes = new byte[3000];
+		new Random(3).nextBytes(bytes);
+		store.write(0, bytes, 0, bytes.length);
+		byte[] read = new byte[3000];
+		store.readFully(0, read, 0, 3000);
+		ExtensibleBufferedInputStream is = store.createInputStream(2000, 1000);
+		ByteBuffer bb = is.getBuffer();
+		store.setLength(1500);
+		assertEquals(1500, store.getLength());
+		assertEquals(-1, store.read(1500, read, 0, 1));
+		//the mapped file is not shortened, so a slice that is still held remains readable
+		assertEquals(3000, sm.getUsedBufferSpace());
+		assertEquals(1000, bb.remaining());
+		bb.get(read, 0, 1000);
+		store.write(1500, bytes, 1500, 1500);
+		assertEquals(3000, store.getLength());
+		store.readFully(0, read, 0, 3000);
+		assertArrayEquals(bytes, read);
+		store.remove();
+		assertEquals(0, sm.getUsedBufferSpace());
+	}
+	
+	@Test public void testTruncateUnmapped() throws Exception {
+		MemoryMappedStorageManager sm = getStorageManager(1000);
+		FileStore store = sm.createFileStore("0");
+		byte[] bytes = new byte[3000];
+		store.write(0, bytes, 0, bytes.length);
+		//nothing has been read, so nothing is mapped
+		store.setLength(1500);
+		assertEquals(1500, sm.getUsedBufferSpace());
+		assertEquals(1500, store.getLength());
+	}
+
+}
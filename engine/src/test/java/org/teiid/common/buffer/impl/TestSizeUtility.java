@@ -25,6 +25,7 @@ package org.teiid.common.buffer.impl;
 import static org.junit.Assert.*;
 
 import java.io.Serializable;
+import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Date;
@@ -188,6 +189,16 @@ public class TestSizeUtility {
 
         long actualSize = new SizeUtility(types).getBatchSize(false, Arrays.asList(expected));
         assertEquals("Got unexpected size: ", 2667, actualSize); //$NON-NLS-1$        
+        
+        List<? extends List<?>> columnar = ColumnarBatch.create(types, Arrays.asList(expected));
+        assertTrue(columnar instanceof ColumnarBatch);
+        assertEquals(Arrays.asList(expected), columnar);
+        long columnarSize = new SizeUtility(types).getBatchSize(false, columnar);
+        assertTrue(columnarSize < actualSize);
+        //retained rows should not reference the batch
+        List<?> row = columnar.get(0);
+        assertTrue(Modifier.isStatic(row.getClass().getModifiers()));
+        assertEquals(new SizeUtility(types).getBatchSize(false, Arrays.asList(expected[0])), new SizeUtility(types).getBatchSize(false, Arrays.asList(row)));
     }
     
 }
\ No newline at end of file
@@ -25,6 +25,7 @@ package org.teiid.dqp.internal.process;
 import static org.junit.Assert.*;
 
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -646,6 +647,87 @@ public class TestDQPCore {
         assertEquals(1, this.core.getRsCache().getCacheHitCount());
     }
     
+    @Test public void testRsCacheRowLevelInvalidation() throws Exception {
+        String userName = "1"; //$NON-NLS-1$
+        int sessionid = 1; //$NON-NLS-1$
+        String query = "select intkey FROM bqt1.smalla where intkey = 1"; //$NON-NLS-1$
+        RequestMessage reqMsg = exampleRequestMessage(query);
+        reqMsg.setUseResultSetCache(true);
+        ResultsMessage rm = execute(userName, sessionid, reqMsg);
+        assertNull(rm.getException());
+        assertEquals(0, this.core.getRsCache().getCacheHitCount());
+
+        Thread.sleep(100);
+        
+        //a modification outside of the cached range
+        reqMsg = exampleRequestMessage("update bqt1.smalla set stringkey = 'a' where intkey = 5"); //$NON-NLS-1$
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(1, rm.getResultsList().size());
+        
+        reqMsg = exampleRequestMessage(query);
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(1, this.core.getRsCache().getCacheHitCount());
+        
+        //a modification within the cached range
+        reqMsg = exampleRequestMessage("update bqt1.smalla set stringkey = 'a' where intkey in (1, 2)"); //$NON-NLS-1$
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(1, rm.getResultsList().size());
+        
+        reqMsg = exampleRequestMessage(query);
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(1, this.core.getRsCache().getCacheHitCount());
+    }
+    
+    @Test public void testSemanticResultCache() throws Exception {
+    	core.getOptions().setSemanticResultCache(true);
+    	//the source ignores the criteria and returns intkey values 0-9
+    	agds.setUseIntCounter(true);
+        String userName = "1"; //$NON-NLS-1$
+        int sessionid = 1; //$NON-NLS-1$
+        RequestMessage reqMsg = exampleRequestMessage("select intkey, stringkey FROM bqt1.smalla where intkey > 1"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        ResultsMessage rm = execute(userName, sessionid, reqMsg);
+        assertNull(rm.getException());
+        int executeCount = agds.getExecuteCount().get();
+        
+        //contained by the cached query
+        reqMsg = exampleRequestMessage("select intkey FROM bqt1.smalla where intkey > 5"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertNull(rm.getException());
+        assertEquals(executeCount, agds.getExecuteCount().get());
+        //filtered from the cached results in the engine
+        assertEquals(Arrays.asList(Arrays.asList(6), Arrays.asList(7), Arrays.asList(8), Arrays.asList(9)), rm.getResultsList());
+        
+        //not contained
+        reqMsg = exampleRequestMessage("select intkey FROM bqt1.smalla where intkey > 0"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertNull(rm.getException());
+        assertEquals(executeCount + 1, agds.getExecuteCount().get());
+        assertEquals(10, rm.getResultsList().size());
+    }
+    
+    @Test public void testSemanticResultCacheUntrackedConjunct() throws Exception {
+    	core.getOptions().setSemanticResultCache(true);
+        String userName = "1"; //$NON-NLS-1$
+        int sessionid = 1; //$NON-NLS-1$
+        RequestMessage reqMsg = exampleRequestMessage("select intkey, stringkey FROM bqt1.smalla where stringkey = 'x'"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        ResultsMessage rm = execute(userName, sessionid, reqMsg);
+        assertNull(rm.getException());
+        int executeCount = agds.getExecuteCount().get();
+        
+        //the cached string restriction cannot be shown to contain the request
+        reqMsg = exampleRequestMessage("select intkey, stringkey FROM bqt1.smalla where intkey > 5"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertNull(rm.getException());
+        assertEquals(executeCount + 1, agds.getExecuteCount().get());
+    }
+    
     @Test public void testLobConcurrency() throws Exception {
     	RequestMessage reqMsg = exampleRequestMessage("select to_bytes(stringkey, 'utf-8') FROM BQT1.SmallA"); 
         reqMsg.setTxnAutoWrapMode(RequestMessage.TXN_WRAP_OFF);
@@ -704,6 +786,36 @@ public class TestDQPCore {
         }
     }
     
+    @Test public void testAutoParameterize() throws Exception {
+    	this.core.getOptions().setAutoParameterize(true);
+    	//evaluate the criteria in the engine, since the autogen service ignores it
+    	BasicSourceCapabilities caps = TestOptimizer.getTypicalCapabilities();
+    	caps.setCapabilitySupport(Capability.CRITERIA_COMPARE_EQ, false);
+    	caps.setCapabilitySupport(Capability.CRITERIA_LIKE, false);
+    	agds.setCaps(caps);
+    	agds.setUseIntCounter(true);
+        ResultsMessage rm = execute("A", 1, exampleRequestMessage("select intkey from BQT1.SmallA where intkey = 1 and stringkey like 'A%'")); //$NON-NLS-1$
+        assertNull(rm.getException());
+        assertEquals(0, this.core.getPrepPlanCache().getCacheHitCount());
+        assertEquals(Arrays.asList(Arrays.asList(1)), rm.getResultsList());
+        
+        rm = execute("A", 1, exampleRequestMessage("select intkey from BQT1.SmallA where intkey = 2 and stringkey like 'A%'")); //$NON-NLS-1$
+        assertNull(rm.getException());
+        assertEquals(1, this.core.getPrepPlanCache().getCacheHitCount());
+        assertEquals(Arrays.asList(Arrays.asList(2)), rm.getResultsList());
+        
+        rm = execute("A", 1, exampleRequestMessage("select intkey from BQT1.SmallA where intkey = 2 and stringkey like 'B%'")); //$NON-NLS-1$
+        assertNull(rm.getException());
+        assertEquals(2, this.core.getPrepPlanCache().getCacheHitCount());
+        assertEquals(0, rm.getResultsList().size());
+        
+        //nothing to lift
+        rm = execute("A", 1, exampleRequestMessage("select intkey from BQT1.SmallA")); //$NON-NLS-1$
+        assertNull(rm.getException());
+        assertEquals(2, this.core.getPrepPlanCache().getCacheHitCount());
+        assertEquals(10, rm.getResultsList().size());
+    }
+    
     @Test public void testXmlTableStreamingWithLimit() throws Exception {
         String sql = "select * from xmltable('/a/b' passing xmlparse(document '<a x=''1''><b>foo</b><b>bar</b><b>zed</b></a>') columns y string path '.') as x limit 2"; //$NON-NLS-1$
         
@@ -42,17 +42,21 @@ import org.teiid.core.TeiidProcessingException;
 import org.teiid.dqp.internal.datamgr.ConnectorManagerRepository;
 import org.teiid.dqp.internal.datamgr.FakeTransactionService;
 import org.teiid.dqp.service.AutoGenDataService;
+import org.teiid.metadata.Column;
 import org.teiid.query.metadata.QueryMetadataInterface;
+import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.TestOptimizer;
 import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.FakeCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
+import org.teiid.query.optimizer.relational.rules.NewCalculateCostUtil;
 import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.processor.HardcodedDataManager;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.TestProcessor;
+import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.unittest.RealMetadataFactory;
 
 @SuppressWarnings({"nls", "unchecked"})
@@ -248,11 +252,17 @@ public class TestPreparedStatement {
         if (limitResults) {
         	request.setRowLimit(1);
         }
-       
+        return helpProcessRequest(request, capFinder, metadata, prepPlanCache, conn, false, vdb);
+	}
+	
+	static PreparedStatementRequest helpProcessRequest(RequestMessage request,
+			CapabilitiesFinder capFinder, QueryMetadataInterface metadata, SessionAwareCache<PreparedPlan> prepPlanCache, int conn, boolean autoParameterize, VDBMetaData vdb)
+			throws TeiidComponentException, TeiidProcessingException {
         DQPWorkContext workContext = RealMetadataFactory.buildWorkContext(metadata, vdb);
         workContext.getSession().setSessionId(String.valueOf(conn)); 
         
         PreparedStatementRequest serverRequest = new PreparedStatementRequest(prepPlanCache);
+        serverRequest.setAutoParameterize(autoParameterize);
         
         ConnectorManagerRepository repo = Mockito.mock(ConnectorManagerRepository.class);
         Mockito.stub(repo.getConnectorManager(Mockito.anyString())).toReturn(new AutoGenDataService());
@@ -497,4 +507,38 @@ public class TestPreparedStatement {
 		helpTestProcessing(preparedSql, values, expected, dataManager, new DefaultCapabilitiesFinder(caps), metadata, null, false, false, false, RealMetadataFactory.example1VDB());
     }
     
+    /**
+     * Expressions that must match between the select and group by are not parameterized
+     */
+    @Test public void testAutoParameterizeGroupByCase() throws Exception {
+    	SessionAwareCache<PreparedPlan> prepPlanCache = new SessionAwareCache<PreparedPlan>("preparedplan", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.PREPAREDPLAN, 0); //$NON-NLS-1$
+    	String sql = "SELECT CASE WHEN e2 > 0 THEN 'a' ELSE 'b' END, count(*) FROM pm1.g1 WHERE e1 = '%s' GROUP BY CASE WHEN e2 > 0 THEN 'a' ELSE 'b' END"; //$NON-NLS-1$
+    	
+    	helpProcessRequest(new RequestMessage(String.format(sql, "x")), new DefaultCapabilitiesFinder(), RealMetadataFactory.example1Cached(), prepPlanCache, SESSION_ID, true, RealMetadataFactory.example1VDB()); //$NON-NLS-1$
+    	assertEquals(0, prepPlanCache.getCacheHitCount());
+    	
+    	helpProcessRequest(new RequestMessage(String.format(sql, "y")), new DefaultCapabilitiesFinder(), RealMetadataFactory.example1Cached(), prepPlanCache, SESSION_ID, true, RealMetadataFactory.example1VDB()); //$NON-NLS-1$
+    	assertEquals(1, prepPlanCache.getCacheHitCount());
+    }
+    
+    /**
+     * The lifted values are still used to cost range predicates
+     */
+    @Test public void testAutoParameterizeRangeEstimate() throws Exception {
+    	TransformationMetadata metadata = RealMetadataFactory.example1();
+    	metadata.getGroupID("pm1.g1").setCardinality(100); //$NON-NLS-1$
+    	Column e2 = metadata.getElementID("pm1.g1.e2"); //$NON-NLS-1$
+        e2.setMinimumValue("0"); //$NON-NLS-1$
+        e2.setMaximumValue("1000"); //$NON-NLS-1$
+        e2.setProperty(NewCalculateCostUtil.HISTOGRAM, "0,10,20,30,1000"); //$NON-NLS-1$
+    	SessionAwareCache<PreparedPlan> prepPlanCache = new SessionAwareCache<PreparedPlan>("preparedplan", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.PREPAREDPLAN, 0); //$NON-NLS-1$
+    	
+    	PreparedStatementRequest request = helpProcessRequest(new RequestMessage("SELECT e1 FROM pm1.g1 WHERE e2 < 25"), new DefaultCapabilitiesFinder(TestOptimizer.getTypicalCapabilities()), metadata, prepPlanCache, SESSION_ID, true, RealMetadataFactory.example1VDB()); //$NON-NLS-1$
+    	assertEquals(62, ((RelationalPlan)request.processPlan).getRootNode().getEstimateNodeCardinality().intValue());
+    	
+    	//a client prepared statement has no values when planning
+    	request = helpGetProcessorPlan("SELECT e1 FROM pm1.g1 WHERE e2 < ?", Arrays.asList(25), new DefaultCapabilitiesFinder(TestOptimizer.getTypicalCapabilities()), metadata, new SessionAwareCache<PreparedPlan>("preparedplan", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.PREPAREDPLAN, 0), SESSION_ID, false, false, RealMetadataFactory.example1VDB()); //$NON-NLS-1$
+    	assertEquals(33, ((RelationalPlan)request.processPlan).getRootNode().getEstimateNodeCardinality().intValue());
+    }
+    
 }
@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.teiid.query.resolver.TestResolver;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.RowRange;
+
+@SuppressWarnings("nls")
+public class TestSemanticResultCache {
+	
+	private static Query helpResolve(String sql) {
+		Query query = (Query)TestResolver.helpResolve(sql, RealMetadataFactory.example1Cached());
+		assertNotNull(SemanticResultCache.getGroup(query));
+		return query;
+	}
+	
+	private static void helpTestContains(String cached, String query, boolean expected) {
+		assertEquals(expected, SemanticResultCache.contains(helpResolve(cached), helpResolve(query)));
+	}
+	
+	@Test public void testContainedRange() {
+		helpTestContains("select e1, e2 from pm1.g1 where e2 > 1", "select e2 from pm1.g1 where e2 > 5", true);
+		helpTestContains("select e1, e2 from pm1.g1 where e2 > 5", "select e2 from pm1.g1 where e2 > 1", false);
+	}
+	
+	@Test public void testNonCoveringProjection() {
+		helpTestContains("select e2 from pm1.g1 where e2 > 1", "select e1 from pm1.g1 where e2 > 5", false);
+		helpTestContains("select e2 from pm1.g1 where e2 > 1", "select e2 from pm1.g1 where e2 > 5 and e4 > 1", false);
+	}
+	
+	@Test public void testOrdering() {
+		helpTestContains("select e1, e2 from pm1.g1 order by e2", "select e2 from pm1.g1 order by e2", true);
+		helpTestContains("select e1, e2 from pm1.g1 order by e2", "select e2 from pm1.g1 order by e2 desc", false);
+		helpTestContains("select e1, e2 from pm1.g1", "select e2 from pm1.g1 order by e2", false);
+	}
+	
+	@Test public void testUntrackedCachedConjunct() {
+		helpTestContains("select e1, e2 from pm1.g1 where e1 = 'x'", "select e1, e2 from pm1.g1 where e2 > 100", false);
+		helpTestContains("select e1, e2 from pm1.g1 where e1 = 'x'", "select e1, e2 from pm1.g1 where e1 = 'x' and e2 > 100", true);
+	}
+	
+	@Test public void testNotEqualCachedConjunct() {
+		helpTestContains("select e1, e2 from pm1.g1 where e2 <> 1", "select e1, e2 from pm1.g1 where e2 > 5", false);
+	}
+	
+	@Test public void testOrCachedConjunct() {
+		helpTestContains("select e1, e2 from pm1.g1 where e2 = 1 or e2 = 2", "select e1, e2 from pm1.g1 where e2 = 1", false);
+	}
+	
+	@Test public void testIsNullCachedConjunct() {
+		helpTestContains("select e1, e2 from pm1.g1 where e2 is not null", "select e1, e2 from pm1.g1 where e2 = 1", false);
+	}
+	
+	@Test public void testInCachedConjunct() {
+		helpTestContains("select e1, e2 from pm1.g1 where e2 in (1, 2, 3)", "select e1, e2 from pm1.g1 where e2 = 2", true);
+		helpTestContains("select e1, e2 from pm1.g1 where e2 in (1, 2, 3)", "select e1, e2 from pm1.g1 where e2 in (2, 4)", false);
+	}
+	
+	@Test public void testLargeInCachedConjunct() {
+		StringBuilder sb = new StringBuilder("select e1, e2 from pm1.g1 where e2 in (");
+		for (int i = 0; i <= RowRange.MAX_VALUES; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			//every other value so that the widened interval would include values that were not in the list
+			sb.append(i * 2);
+		}
+		sb.append(")");
+		helpTestContains(sb.toString(), "select e1, e2 from pm1.g1 where e2 = 3", false);
+	}
+
+}
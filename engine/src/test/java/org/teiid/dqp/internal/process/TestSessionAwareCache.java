@@ -21,8 +21,10 @@
  */
 package org.teiid.dqp.internal.process;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.times;
 
@@ -30,8 +32,11 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.teiid.adminapi.impl.SessionMetadata;
 import org.teiid.cache.Cachable;
+import org.teiid.cache.CacheConfiguration;
+import org.teiid.cache.CacheConfiguration.Policy;
 import org.teiid.cache.DefaultCacheFactory;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.TupleBufferCache;
 import org.teiid.dqp.internal.process.SessionAwareCache.CacheID;
 import org.teiid.metadata.FunctionMethod.Determinism;
 import org.teiid.query.parser.ParseInfo;
@@ -138,6 +143,71 @@ public class TestSessionAwareCache {
 		assertNull(cache.get(id));
 	}
 
+	@Test
+	public void testSizeAwareAdmission() {
+		SessionAwareCache<CachedResults> cache = new SessionAwareCache<CachedResults>("resultset", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.RESULTSET, 0);
+		cache.setMaxSizeInBytes(1000);
+		
+		CacheID id = new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM FOO");
+		CachedResults hot = mockResults(100, 10);
+		cache.put(id, Determinism.SESSION_DETERMINISTIC, hot, null);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(hot == cache.get(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM FOO")));
+		}
+		
+		//larger than the whole budget
+		cache.put(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM BAR"), Determinism.SESSION_DETERMINISTIC, mockResults(2000, 10), null);
+		//would require evicting a more valuable entry
+		cache.put(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM BAZ"), Determinism.SESSION_DETERMINISTIC, mockResults(950, 10), null);
+		
+		assertEquals(1, cache.getAdmissionCount());
+		assertEquals(2, cache.getRejectionCount());
+		assertEquals(100, cache.getOccupiedBytes());
+		assertTrue(hot == cache.get(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM FOO")));
+		
+		//an expensive entry displaces the cheaper one
+		cache.put(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM BAZ"), Determinism.SESSION_DETERMINISTIC, mockResults(950, 100000), null);
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(950, cache.getOccupiedBytes());
+		assertNull(cache.get(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM FOO")));
+	}
+
+	@Test
+	public void testFailedPutReleasesSize() {
+		SessionAwareCache<CachedResults> cache = new SessionAwareCache<CachedResults>("resultset", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.RESULTSET, 0);
+		cache.setMaxSizeInBytes(1000);
+		
+		CachedResults result = mockResults(100, 10);
+		Mockito.stub(result.prepare((TupleBufferCache)anyObject())).toThrow(new RuntimeException());
+		try {
+			cache.put(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM FOO"), Determinism.VDB_DETERMINISTIC, result, null);
+			fail();
+		} catch (RuntimeException e) {
+			//expected
+		}
+		assertEquals(0, cache.getOccupiedBytes());
+	}
+
+	@Test
+	public void testLazyWeightRelease() {
+		SessionAwareCache<CachedResults> cache = new SessionAwareCache<CachedResults>("resultset", new DefaultCacheFactory(new CacheConfiguration(Policy.LRU, 60, 1, "resultset")), SessionAwareCache.Type.RESULTSET, 0); //$NON-NLS-1$
+		cache.setMaxSizeInBytes(1000);
+		
+		cache.put(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM FOO"), Determinism.SESSION_DETERMINISTIC, mockResults(100, 10), null);
+		//the underlying cache only holds a single entry
+		cache.put(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM BAR"), Determinism.SESSION_DETERMINISTIC, mockResults(100, 10), null);
+		assertEquals(200, cache.getOccupiedBytes());
+		
+		assertNull(cache.get(new CacheID(buildWorkContext(), new ParseInfo(), "SELECT * FROM FOO")));
+		assertEquals(100, cache.getOccupiedBytes());
+	}
+
+	private CachedResults mockResults(long size, long computeTime) {
+		CachedResults result = Mockito.mock(CachedResults.class);
+		Mockito.stub(result.getSizeEstimate()).toReturn(size);
+		Mockito.stub(result.getComputeTime()).toReturn(computeTime);
+		return result;
+	}
 	
 	public static DQPWorkContext buildWorkContext() {
 		DQPWorkContext workContext = new DQPWorkContext();
@@ -71,6 +71,7 @@ import org.teiid.query.sql.visitor.GroupCollectorVisitor;
 import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.query.validator.Validator;
 import org.teiid.query.validator.ValidatorReport;
 import org.teiid.translator.ExecutionFactory;
@@ -388,6 +389,8 @@ public class TestOptimizer {
                 } 
             } else if (strategy instanceof NestedTableJoinStrategy) {
             	updateCounts(NestedTableJoinStrategy.class, counts, types);
+            } else if (strategy instanceof HashJoinStrategy) {
+            	updateCounts(HashJoinStrategy.class, counts, types);
             }
             if (((JoinNode)relationalNode).isDependent()) {
                 updateCounts(DependentJoin.class, counts, types);
@@ -3160,6 +3163,13 @@ public class TestOptimizer {
             0,      // Sort
             0       // UnionAll
         });         
+        checkNodeTypes(plan, new int[] {0}, new Class<?>[] {HashJoinStrategy.class});
+        
+        CommandContext cc = new CommandContext();
+        cc.setOptions(new Options().hashJoin(true));
+        plan = getPlan(helpGetCommand(sql, metadata, null), metadata, capFinder, null, true, cc);
+        //neither sort can be pushed, so the larger join uses a hash join
+        checkNodeTypes(plan, new int[] {1, 1}, new Class<?>[] {MergeJoinStrategy.class, HashJoinStrategy.class});
     } 
 
     @Test public void testLargeSetCriteria() {
@@ -617,6 +617,24 @@ public class TestCalculateCostUtil {
         helpTestEstimateCost(critString, 100, 33, metadata);
     }
 
+    /**
+     *  Range Criteria - a skewed equi-depth histogram takes precedence over the min/max range
+     */
+    @Test public void testEstimateCostOfCriteriaHistogram() throws Exception {
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        Column e2 = metadata.getElementID("pm1.g1.e2"); //$NON-NLS-1$
+        e2.setMinimumValue("0"); //$NON-NLS-1$
+        e2.setMaximumValue("1000"); //$NON-NLS-1$
+
+        helpTestEstimateCost("pm1.g1.e2 < 25", 100, 2, metadata); //$NON-NLS-1$
+
+        e2.setProperty(NewCalculateCostUtil.HISTOGRAM, "0,10,20,30,1000"); //$NON-NLS-1$
+
+        helpTestEstimateCost("pm1.g1.e2 < 25", 100, 62, metadata); //$NON-NLS-1$
+        helpTestEstimateCost("pm1.g1.e2 >= 30", 100, 25, metadata); //$NON-NLS-1$
+        helpTestEstimateCost("pm1.g1.e2 > 2000", 100, 0, metadata); //$NON-NLS-1$
+    }
+
     @Test public void testNDVEstimate() throws Exception {
         String crit = "US.accounts.account = 10"; //$NON-NLS-1$
         
@@ -23,6 +23,9 @@
 package org.teiid.query.optimizer.relational.rules;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 
 import org.teiid.query.optimizer.relational.plantree.NodeConstants;
@@ -31,6 +34,10 @@ import org.teiid.query.optimizer.relational.plantree.PlanNode;
 import org.teiid.query.optimizer.relational.rules.JoinRegion;
 import org.teiid.query.optimizer.relational.rules.RulePlanJoins;
 import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
+import org.teiid.query.util.Permutation;
 
 
 import junit.framework.TestCase;
@@ -118,4 +125,58 @@ public class TestJoinRegion extends TestCase {
         assertEquals(NodeConstants.Types.ACCESS, region.getJoinRoot().getType());
     }
     
+    /**
+     * Create a star join region of a fact table with the given dimension cardinalities.
+     * Each dimension join has a selectivity of 1/100.
+     */
+    private JoinRegion createStarRegion(float... dimensionCardinalities) {
+        JoinRegion region = new JoinRegion();
+        GroupSymbol fact = new GroupSymbol("f"); //$NON-NLS-1$
+        region.addJoinSourceNode(createSource(fact, 1000000));
+        for (int i = 0; i < dimensionCardinalities.length; i++) {
+        	GroupSymbol dim = new GroupSymbol("d" + i); //$NON-NLS-1$
+        	region.addJoinSourceNode(createSource(dim, dimensionCardinalities[i]));
+        	PlanNode crit = NodeFactory.getNewNode(NodeConstants.Types.SELECT);
+        	crit.addGroup(fact);
+        	crit.addGroup(dim);
+        	crit.setProperty(NodeConstants.Info.EST_SELECTIVITY, new Float(.01));
+        	region.getCriteriaNodes().add(crit);
+        }
+        return region;
+    }
+
+	private PlanNode createSource(GroupSymbol group, float cardinality) {
+		PlanNode accessNode = NodeFactory.getNewNode(NodeConstants.Types.ACCESS);
+		accessNode.addGroup(group);
+		accessNode.setProperty(NodeConstants.Info.EST_CARDINALITY, new Float(cardinality));
+		accessNode.setProperty(NodeConstants.Info.MAKE_NOT_DEP, Boolean.TRUE);
+		return accessNode;
+	}
+    
+    public void testDynamicProgrammingJoinOrder() throws Exception {
+    	JoinRegion region = createStarRegion(100, 50, 10, 2, 100, 80, 5);
+    	
+    	Object[] order = new RulePlanJoins().findBestJoinOrder(region, null, null, new CommandContext());
+    	
+    	double best = Double.MAX_VALUE;
+    	Iterator<Object[]> perms = new Permutation(new Integer[] {0, 1, 2, 3, 4, 5, 6, 7}).generate(8);
+    	while (perms.hasNext()) {
+    		best = Math.min(best, region.scoreRegion(perms.next(), 0, null, null, null));
+    	}
+    	assertEquals(best, region.scoreRegion(order, 0, null, null, null));
+    	//the smallest dimension should be joined first
+    	assertEquals(new HashSet<Object>(Arrays.asList(0, 4)), new HashSet<Object>(Arrays.asList(order[0], order[1])));
+    }
+    
+    public void testGreedyJoinOrder() throws Exception {
+    	JoinRegion region = createStarRegion(100, 50, 10, 2, 100, 80, 5);
+    	CommandContext cc = new CommandContext();
+    	cc.setOptions(new Options().dynamicProgrammingJoinSources(0));
+    	
+    	Object[] order = new RulePlanJoins().findBestJoinOrder(region, null, null, cc);
+    	
+    	assertEquals(8, order.length);
+    	assertEquals(new HashSet<Object>(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7)), new HashSet<Object>(Arrays.asList(order)));
+    }
+    
 }
@@ -49,12 +49,14 @@ import org.teiid.query.optimizer.TestAggregatePushdown;
 import org.teiid.query.optimizer.TestOptimizer;
 import org.teiid.query.optimizer.TestOptimizer.ComparisonMode;
 import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
+import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.FakeCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
 import org.teiid.query.resolver.TestResolver;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.query.validator.TestValidator;
 import org.teiid.translator.SourceSystemFunctions;
 
@@ -647,6 +649,29 @@ public class TestAggregateProcessing {
 		helpProcess(plan, dataManager, expected);
 	}
 	
+	@Test public void testHashGrouping() throws Exception {
+		TransformationMetadata metadata = RealMetadataFactory.example1();
+		RealMetadataFactory.setCardinality("pm1.g1", 1000, metadata); //$NON-NLS-1$
+		metadata.getElementID("pm1.g1.e1").setDistinctValues(10); //$NON-NLS-1$
+		String sql = "SELECT e1, max(e2) from pm1.g1 group by e1"; //$NON-NLS-1$
+
+		List[] expected = new List[] {
+				Arrays.asList("a", 3),
+		};
+
+		HardcodedDataManager dataManager = new HardcodedDataManager();
+		dataManager.addData("SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1", new List<?>[] {Arrays.asList("a", 1), Arrays.asList("a", 3), Arrays.asList("a", 2)});
+		
+		ProcessorPlan plan = helpGetPlan(sql, metadata);
+		assertFalse(plan.getDescriptionProperties().toString().contains("Hash Grouping"));
+		
+		CommandContext cc = createCommandContext();
+		cc.setOptions(new Options().hashGrouping(true));
+		plan = helpGetPlan(helpParse(sql), metadata, DefaultCapabilitiesFinder.INSTANCE, cc);
+		assertTrue(plan.getDescriptionProperties().toString().contains("Hash Grouping"));
+		helpProcess(plan, cc, dataManager, expected);
+	}
+	
 	@Test public void testUnaliasedAggInDeleteCompensation() throws Exception {
 		String sql = "delete from pm3.g1 where e1 = (SELECT MAX(e1) FROM pm3.g1 as z where e2 = pm3.g1.e2)"; //$NON-NLS-1$
 
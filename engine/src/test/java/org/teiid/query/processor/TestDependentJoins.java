@@ -50,6 +50,7 @@ import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.translator.ExecutionFactory.NullOrder;
 
 @SuppressWarnings({"rawtypes", "unchecked", "nls"})
@@ -690,6 +691,36 @@ public class TestDependentJoins {
         TestProcessor.helpProcess(plan, dataManager, expected);
     }
 
+    @Test public void testLargeSetInDepAccessBloomFilter() throws Exception {
+        String sql = "SELECT pm1.g1.e1 FROM pm1.g1, pm6.g1 WHERE pm1.g1.e1=pm6.g1.e1 OPTION MAKEDEP pm6.g1"; //$NON-NLS-1$
+
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData4(dataManager);
+
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities depcaps = new BasicSourceCapabilities();
+        depcaps.setCapabilitySupport(Capability.CRITERIA_IN, true);
+        depcaps.setSourceProperty(Capability.MAX_IN_CRITERIA_SIZE, 1);
+        depcaps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.CRITERIA_IN, true);
+
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+        capFinder.addCapabilities("pm6", depcaps); //$NON-NLS-1$
+
+        List[] expected = new List[] {
+            Arrays.asList("b")}; //$NON-NLS-1$
+
+        ProcessorPlan plan = TestProcessor.helpGetPlan(TestProcessor.helpParse(sql), RealMetadataFactory.example1Cached(), capFinder);
+
+        //the independent values would require more than 2 queries, so a single query with a bloom filter is used instead
+        CommandContext cc = TestProcessor.createCommandContext();
+        cc.setOptions(new Options().dependentJoinBloomFilterQueries(2));
+        TestProcessor.helpProcess(plan, cc, dataManager, expected);
+        assertEquals(new HashSet<String>(Arrays.asList("SELECT pm1.g1.e1 FROM pm1.g1", "SELECT pm6.g1.e1 FROM pm6.g1 ORDER BY pm6.g1.e1")), new HashSet<String>(dataManager.getQueries())); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
     @Test public void testLargeSetInDepAccessMultiJoinCriteria() throws Exception {
     	helpTestLargeSetInDepAccessMultiJoinCriteria(1, -1, 1, 2);
     }
@@ -703,6 +734,11 @@ public class TestDependentJoins {
     	helpTestLargeSetInDepAccessMultiJoinCriteria(1, -1, 4, 4);
     }
     
+    @Test public void testLargeSetInDepAccessMultiJoinCriteriaConcurrentLimit() throws Exception {
+    	//the dependent query concurrency is less than the source concurrency
+    	helpTestLargeSetInDepAccessMultiJoinCriteria(1, -1, 4, 2, new Options().dependentQueryConcurrency(2));
+    }
+    
     @Test public void testLargeSetInDepAccessMultiJoinCriteriaCompound() throws Exception {
     	//max predicates forces multiple queries
     	helpTestLargeSetInDepAccessMultiJoinCriteria(1, 4, 3, 3);
@@ -755,6 +791,10 @@ public class TestDependentJoins {
      * concurrentOpen will be minimum of 2 to gather the pm1 results.
      */
     public void helpTestLargeSetInDepAccessMultiJoinCriteria(int maxInSize, int maxPredicates, int maxConcurrency, int concurrentOpen) throws Exception {
+    	helpTestLargeSetInDepAccessMultiJoinCriteria(maxInSize, maxPredicates, maxConcurrency, concurrentOpen, new Options());
+    }
+    
+    public void helpTestLargeSetInDepAccessMultiJoinCriteria(int maxInSize, int maxPredicates, int maxConcurrency, int concurrentOpen, Options options) throws Exception {
         //     Create query 
         String sql = "SELECT pm1.g1.e1 FROM (pm1.g2 cross join pm1.g1) inner join pm2.g1 makedep ON pm1.g1.e1=pm2.g1.e1 AND pm1.g1.e2=pm2.g1.e2 AND pm1.g2.e4 = pm2.g1.e4 order by e1"; //$NON-NLS-1$
         // Construct data manager with data
@@ -796,6 +836,7 @@ public class TestDependentJoins {
         }, plan);
         CommandContext cc = TestProcessor.createCommandContext();
         cc.setUserRequestSourceConcurrency(maxConcurrency);
+        cc.setOptions(options);
         FakeTupleSource.resetStats();
         // Run query
         TestProcessor.helpProcess(plan, cc, dataManager, expected);
@@ -32,6 +32,10 @@ import java.sql.Clob;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.junit.Test;
 import org.teiid.api.exception.query.QueryValidatorException;
@@ -76,8 +80,11 @@ import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.FakeCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
+import org.teiid.query.optimizer.relational.CardinalityFeedback;
+import org.teiid.query.optimizer.relational.rules.NewCalculateCostUtil;
 import org.teiid.query.optimizer.relational.rules.RuleChooseDependent;
 import org.teiid.query.parser.QueryParser;
+import org.teiid.query.processor.relational.AccessNode;
 import org.teiid.query.processor.relational.JoinNode;
 import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.RelationalPlan;
@@ -85,8 +92,10 @@ import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.rewriter.QueryRewriter;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.SPParameter;
+import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.sql.symbol.Reference;
 import org.teiid.query.sql.util.VariableContext;
+import org.teiid.query.sql.visitor.GroupCollectorVisitor;
 import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
 import org.teiid.query.tempdata.GlobalTableStoreImpl;
 import org.teiid.query.tempdata.TempTableDataManager;
@@ -95,6 +104,7 @@ import org.teiid.query.tempdata.TempTableStore.TransactionMode;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.unittest.TimestampUtil;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.query.validator.Validator;
 import org.teiid.query.validator.ValidatorReport;
 import org.teiid.translator.SourceSystemFunctions;
@@ -7766,5 +7776,159 @@ public class TestProcessor {
         helpProcess(plan, fdm, new List[] {Arrays.asList(11)});
     }
     
+    @Test public void testCompiledExpressions() throws Exception {
+        String sql = "select case when a.e2 > 0 then concat(a.e1, 'x') else a.e1 end, b.e2 + 1 from pm1.g1 a, pm2.g1 b where a.e1 = b.e1 or (a.e2 > b.e2 and not (b.e4 is null)) order by 1, 2"; //$NON-NLS-1$
+        List[] expected = new List[] {
+        		Arrays.asList("bx", 1), //$NON-NLS-1$
+        		Arrays.asList("bx", 8), //$NON-NLS-1$
+        		Arrays.asList("cx", 1), //$NON-NLS-1$
+        };
+        for (Options options : new Options[] {new Options(), new Options().compileExpressions(true), new Options().vectorizedEvaluation(true)}) {
+	        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached());
+	        FakeDataManager fdm = new FakeDataManager();
+	        sampleData2a(fdm);
+	        CommandContext cc = createCommandContext();
+	        cc.setOptions(options);
+	        helpProcess(plan, cc, fdm, expected);
+        }
+    }
+    
+    @Test public void testExchange() throws Exception {
+    	String[] sqls = new String[] {
+    			"select * from (select e1, count(*) as c from pm1.g1 group by e1 union all select e1, max(e2) from pm2.g1 group by e1) x order by e1, c", //$NON-NLS-1$
+    			"select a.e1, b.e2 from (select e1, max(e2) as e2 from pm1.g1 group by e1) a inner join (select e1, max(e2) e2 from pm2.g1 group by e1) b on a.e1 = b.e1", //$NON-NLS-1$
+    	};
+        List[][] expected = new List[][] {
+        		new List[] {
+        		Arrays.asList("a", 1), //$NON-NLS-1$
+        		Arrays.asList("b", 1), //$NON-NLS-1$
+        		Arrays.asList("b", 7), //$NON-NLS-1$
+        		Arrays.asList("c", 1), //$NON-NLS-1$
+        		Arrays.asList("d", 3), //$NON-NLS-1$
+        		Arrays.asList("e", 1), //$NON-NLS-1$
+        		},
+        		new List[] {
+        		Arrays.asList("b", 7), //$NON-NLS-1$
+        		},
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        //an exhausted executor should cause the exchange to produce on the request thread
+        Executor rejecting = new Executor() {
+        	@Override
+        	public void execute(Runnable command) {
+        		throw new RejectedExecutionException();
+        	}
+        };
+        try {
+        	for (Executor e : new Executor[] {executor, rejecting}) {
+		        for (int i = 0; i < sqls.length; i++) {
+			        CommandContext cc = createCommandContext();
+			        cc.setOptions(new Options().exchangeBatches(1));
+			        cc.setExecutor(e);
+			        cc.setNonBlocking(true);
+			        ProcessorPlan plan = helpGetPlan(helpParse(sqls[i]), RealMetadataFactory.example1Cached(), DefaultCapabilitiesFinder.INSTANCE, cc);
+			        assertTrue(plan.toString().contains("ExchangeNode")); //$NON-NLS-1$
+			        FakeDataManager fdm = new FakeDataManager();
+			        sampleData2a(fdm);
+			        helpProcess(plan, cc, fdm, expected[i]);
+		        }
+        	}
+        } finally {
+        	executor.shutdownNow();
+        }
+    }
+    
+    @Test public void testParallelUnion() throws Exception {
+    	String sql = "select * from (select e1, count(*) as c from pm1.g1 group by e1 union all select e1, max(e2) from pm2.g1 group by e1 union all select e1, min(e2) from pm1.g1 group by e1) x order by e1, c"; //$NON-NLS-1$
+        List[] expected = new List[] {
+        		Arrays.asList("a", 0), //$NON-NLS-1$
+        		Arrays.asList("a", 1), //$NON-NLS-1$
+        		Arrays.asList("b", 1), //$NON-NLS-1$
+        		Arrays.asList("b", 1), //$NON-NLS-1$
+        		Arrays.asList("b", 7), //$NON-NLS-1$
+        		Arrays.asList("c", 1), //$NON-NLS-1$
+        		Arrays.asList("c", 2), //$NON-NLS-1$
+        		Arrays.asList("d", 3), //$NON-NLS-1$
+        		Arrays.asList("e", 1), //$NON-NLS-1$
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+        	//limit the concurrency so that the branches are opened as others complete
+	        for (int concurrency = 1; concurrency <= 3; concurrency++) {
+		        CommandContext cc = createCommandContext();
+		        cc.setOptions(new Options().parallelUnion(true));
+		        cc.setExecutor(executor);
+		        cc.setNonBlocking(true);
+		        cc.setUserRequestSourceConcurrency(concurrency);
+		        ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), DefaultCapabilitiesFinder.INSTANCE, cc);
+		        assertTrue(plan.toString().contains("ExchangeNode")); //$NON-NLS-1$
+		        FakeDataManager fdm = new FakeDataManager();
+		        sampleData2a(fdm);
+		        helpProcess(plan, cc, fdm, expected);
+	        }
+        } finally {
+        	executor.shutdownNow();
+        }
+    }
+    
+    @Test public void testCardinalityFeedback() throws Exception { 
+        String sql = "SELECT e1 FROM pm1.g1 WHERE e2 = 1"; //$NON-NLS-1$
+        
+        List[] expected = new List[] { 
+            Arrays.asList("b"), //$NON-NLS-1$
+        };
+        CardinalityFeedback feedback = new CardinalityFeedback();
+        for (int i = 0; i < 2; i++) {
+	        CommandContext cc = createCommandContext();
+	        cc.setOptions(new Options().cardinalityFeedback(true));
+	        cc.setCardinalityFeedback(feedback);
+	        ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), DefaultCapabilitiesFinder.INSTANCE, cc);
+	        RelationalNode node = ((RelationalPlan)plan).getRootNode();
+	        while (!(node instanceof AccessNode)) {
+	        	node = node.getChildren()[0];
+	        }
+	        //the access node estimate should come from the prior execution 
+	        assertEquals(i == 0?NewCalculateCostUtil.UNKNOWN_VALUE:3f, node.getEstimateNodeCardinality().floatValue(), 0);
+	        FakeDataManager fdm = new FakeDataManager();
+	        sampleData2a(fdm);
+	        helpProcess(plan, cc, fdm, expected);
+	        assertEquals(1, feedback.size());
+        }
+    }
+    
+    /**
+     * Branches opened on other threads concurrently record the data objects accessed for result set caching
+     */
+    @Test public void testParallelUnionDataObjects() throws Exception {
+    	String sql = "select e1, count(*) as c from pm1.g1 group by e1 union all select e1, max(e2) from pm2.g1 group by e1 union all select e1, min(e2) from pm4.g1 group by e1 union all select e1, max(e2) from pm1.g1 group by e1"; //$NON-NLS-1$
+    	ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+	        for (int i = 0; i < 20; i++) {
+		        CommandContext cc = createCommandContext();
+		        cc.setOptions(new Options().parallelUnion(true));
+		        cc.setExecutor(executor);
+		        cc.setNonBlocking(true);
+		        cc.setUserRequestSourceConcurrency(4);
+		        cc.setDataObjects(new HashSet<Object>());
+		        ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), DefaultCapabilitiesFinder.INSTANCE, cc);
+		        FakeDataManager fdm = new FakeDataManager() {
+		        	@Override
+		        	public TupleSource registerRequest(CommandContext context, Command command, String modelName, RegisterRequestParameter parameterObject) throws TeiidComponentException {
+		        		for (GroupSymbol group : GroupCollectorVisitor.getGroupsIgnoreInlineViews(command, false)) {
+		        			context.accessedDataObject(group.getMetadataID());
+		        		}
+		        		return super.registerRequest(context, command, modelName, parameterObject);
+		        	}
+		        };
+		        sampleData2a(fdm);
+		        assertEquals(12, doProcess(plan, fdm, null, cc));
+		        assertEquals(3, cc.getDataObjects().size());
+		        assertEquals(3, cc.getDataRanges().size());
+	        }
+        } finally {
+        	executor.shutdownNow();
+        }
+    }
+    
     private static final boolean DEBUG = false;
 }
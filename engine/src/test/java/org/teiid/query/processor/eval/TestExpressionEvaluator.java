@@ -42,6 +42,8 @@ import org.teiid.core.TeiidException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.eval.ExpressionCompiler;
+import org.teiid.query.eval.ExpressionCompiler.CompiledExpression;
 import org.teiid.query.function.FunctionDescriptor;
 import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.FakeDataManager;
@@ -484,4 +486,16 @@ public class TestExpressionEvaluator {
     	assertNull(new Evaluator(null, null, null).evaluateTVL(new CompareCriteria(new Array(DataTypeManager.DefaultDataClasses.INTEGER, Arrays.asList((Expression)new Constant(1))), CompareCriteria.EQ, new Array(DataTypeManager.DefaultDataClasses.INTEGER, Arrays.asList((Expression)new Constant(null)))), null));
     }
     
+    @Test public void testCompiledConstantFolding() throws Exception {
+    	Expression ex = TestFunctionResolving.getExpression("concat('a', substring('xbc', 2))");
+    	//a folded expression does not need an evaluator
+    	assertEquals("abc", new ExpressionCompiler(null).compile(ex).evaluate(null, null));
+    }
+    
+    @Test(expected=ExpressionEvaluationException.class) public void testCompiledConstantFoldingFails() throws Exception {
+    	Expression ex = TestFunctionResolving.getExpression("1/0");
+    	CompiledExpression compiled = new ExpressionCompiler(null).compile(ex);
+    	compiled.evaluate(null, new Evaluator(null, null, null));
+    }
+    
 }
@@ -27,6 +27,7 @@ import static org.junit.Assert.*;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -420,6 +421,77 @@ public class TestGroupingNode {
         helpProcess(mgr, node, context, expected, null);
     }
 
+    @Test public void testHashGrouping() throws Exception {
+        helpTestHashGrouping(BufferManagerFactory.getStandaloneBufferManager());
+    }
+    
+    /**
+     * Only the first group will fit in memory, the rest will be sorted
+     */
+    @Test public void testHashGroupingOverflow() throws Exception {
+    	BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(400, 1);
+    	mgr.setTargetBytesPerRow(100);
+    	helpTestHashGrouping(mgr);
+    }
+
+	private void helpTestHashGrouping(BufferManager mgr) throws TeiidComponentException, TeiidProcessingException {
+		GroupingNode node = new GroupingNode(1);
+        List outputElements = new ArrayList();
+        ElementSymbol col1 = new ElementSymbol("col1"); //$NON-NLS-1$
+        col1.setType(Integer.class);
+        ElementSymbol col2 = new ElementSymbol("col2"); //$NON-NLS-1$
+        col2.setType(Integer.class);
+        outputElements.add(col1);
+        outputElements.add(new AggregateSymbol("COUNT", false, col2)); //$NON-NLS-1$
+        outputElements.add(new AggregateSymbol("SUM", false, col2)); //$NON-NLS-1$
+        node.setElements(outputElements);
+        node.setOrderBy(new OrderBy(Arrays.asList(col1)).getOrderByItems());
+        node.setHashGrouping(true);
+        CommandContext context = new CommandContext("pid", "test", null, null,  1);               //$NON-NLS-1$ //$NON-NLS-2$
+        
+        List[] expected = new List[] {
+            Arrays.asList(new Object[] { null, new Integer(1), new Long(3) }),
+            Arrays.asList(new Object[] { new Integer(0), new Integer(1), new Long(4) }),
+            Arrays.asList(new Object[] { new Integer(1), new Integer(1), new Long(2) }),
+            Arrays.asList(new Object[] { new Integer(2), new Integer(4), new Long(5) }),
+            Arrays.asList(new Object[] { new Integer(3), new Integer(1), new Long(0) }),
+            Arrays.asList(new Object[] { new Integer(4), new Integer(2), new Long(5) }),
+            Arrays.asList(new Object[] { new Integer(5), new Integer(1), new Long(3) }),
+            Arrays.asList(new Object[] { new Integer(6), new Integer(2), new Long(7) })
+        };
+        
+        FakeTupleSource dataSource = createTupleSource1();
+        RelationalNode dataNode = new FakeRelationalNode(0, dataSource, mgr.getProcessorBatchSize());
+        dataNode.setElements(dataSource.getSchema());            
+        node.addChild(dataNode);    
+        node.initialize(context, mgr, null);
+        node.open();
+        
+        //the output is not ordered
+        List<String> actual = new ArrayList<String>();
+        while(true) {
+            try {
+                TupleBatch batch = node.nextBatch();
+                for (List<?> tuple : batch.getTuples()) {
+                	actual.add(tuple.toString());
+                }
+                if(batch.getTerminationFlag()) {
+                    break;
+                }
+            } catch (BlockedException e) {
+                //ignore
+            }
+        }
+        node.close();
+        List<String> expectedStrings = new ArrayList<String>();
+        for (List<?> tuple : expected) {
+        	expectedStrings.add(tuple.toString());
+        }
+        Collections.sort(actual);
+        Collections.sort(expectedStrings);
+        assertEquals(expectedStrings, actual);
+	}
+
 	private GroupingNode getExampleGroupingNode() {
 		GroupingNode node = new GroupingNode(1);
         List outputElements = new ArrayList();
@@ -26,6 +26,7 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +51,7 @@ import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.Function;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 @SuppressWarnings({"unchecked", "rawtypes"})
 public class TestJoinNode {
@@ -945,5 +947,177 @@ public class TestJoinNode {
         this.join.setJoinStrategy(joinStrategy);
         helpTestJoinDirect(expected, 4, 1000);
     }
+    
+    @Test public void testHashJoinInner() throws Exception {
+    	this.joinType = JoinType.JOIN_INNER;
+    	helpCreateJoin();
+    	this.joinStrategy = new HashJoinStrategy();
+    	this.join.setJoinStrategy(joinStrategy);
+    	helpTestUnorderedJoin(new List[] {
+    		Arrays.asList(1, 1),
+    		Arrays.asList(2, 2),
+    		Arrays.asList(2, 2),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(4, 4),
+    	}, 2, 100000);
+    }
+    
+    @Test public void testHashJoinLeftOuter() throws Exception {
+    	this.joinType = JoinType.JOIN_LEFT_OUTER;
+    	helpCreateJoin();
+    	this.joinStrategy = new HashJoinStrategy();
+    	this.join.setJoinStrategy(joinStrategy);
+    	helpTestUnorderedJoin(new List[] {
+    		Arrays.asList(1, 1),
+    		Arrays.asList(2, 2),
+    		Arrays.asList(2, 2),
+    		Arrays.asList(3, null),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(5, null),
+    		Arrays.asList(10, null),
+    		Arrays.asList(11, null),
+    		Arrays.asList(11, null),
+    	}, 2, 100000);
+    }
+    
+    @Test public void testHashJoinPartitioned() throws Exception {
+    	this.joinType = JoinType.JOIN_LEFT_OUTER;
+    	int rows = 200;
+    	this.leftTuples = new List[rows];
+    	this.rightTuples = new List[rows];
+    	List[] expectedResults = new List[rows];
+    	for (int i = 0; i < rows; i++) {
+    		this.leftTuples[i] = Arrays.asList(i);
+    		this.rightTuples[i] = Arrays.asList(i%2==0?(Integer)i:null);
+    		expectedResults[i] = Arrays.asList(i, i%2==0?(Integer)i:null);
+    	}
+    	helpCreateJoin();
+    	HashJoinStrategy hjs = new HashJoinStrategy();
+    	this.joinStrategy = hjs;
+    	this.join.setJoinStrategy(joinStrategy);
+    	helpTestUnorderedJoin(expectedResults, 4, 400);
+    	assertTrue(hjs.partitionCount > 1);
+    	assertEquals(0, hjs.chunkedCount);
+    }
+    
+    @Test public void testHashJoinSkewedPartition() throws Exception {
+    	this.joinType = JoinType.JOIN_LEFT_OUTER;
+    	int rows = 200;
+    	this.leftTuples = new List[10];
+    	this.rightTuples = new List[rows];
+    	List[] expectedResults = new List[rows + 9];
+    	for (int i = 0; i < rows; i++) {
+    		this.rightTuples[i] = Arrays.asList(1);
+    		expectedResults[i] = Arrays.asList(1, 1);
+    	}
+    	for (int i = 0; i < 10; i++) {
+    		this.leftTuples[i] = Arrays.asList(i);
+    		if (i != 1) {
+    			expectedResults[rows + (i == 0?0:i - 1)] = Arrays.asList(i, null);
+    		}
+    	}
+    	helpCreateJoin();
+    	HashJoinStrategy hjs = new HashJoinStrategy();
+    	this.joinStrategy = hjs;
+    	this.join.setJoinStrategy(joinStrategy);
+    	helpTestUnorderedJoin(expectedResults, 4, 400);
+    	//a single key cannot be divided, so the partition must be built in chunks
+    	assertTrue(hjs.partitionCount > 1);
+    	assertEquals(0, hjs.repartitionCount);
+    	assertEquals(1, hjs.chunkedCount);
+    }
+    
+    @Test public void testAdaptiveHashJoin() throws Exception {
+    	this.joinType = JoinType.JOIN_INNER;
+    	int rows = 100;
+    	this.leftTuples = new List[rows];
+    	this.rightTuples = new List[rows/2];
+    	List[] expectedResults = new List[rows/4];
+    	for (int i = 0; i < rows; i++) {
+    		this.leftTuples[i] = Arrays.asList(i);
+    		if (i < rows/2) {
+    			this.rightTuples[i] = Arrays.asList(i*2);
+    		}
+    		if (i < rows/4) {
+    			expectedResults[i] = Arrays.asList(i*4, i*4);
+    		}
+    	}
+    	helpCreateJoin();
+    	this.joinStrategy = new EnhancedSortMergeJoinStrategy(SortOption.SORT, SortOption.SORT);
+    	this.join.setJoinStrategy(joinStrategy);
+    	//the sides are balanced, so both would otherwise be sorted
+    	helpTestUnorderedJoin(expectedResults, 4, 100000, new Options().adaptiveJoin(true).hashJoin(true));
+    }
+    
+    @Test public void testHashJoinBuildLeft() throws Exception {
+    	this.joinType = JoinType.JOIN_INNER;
+    	int rows = 20;
+    	this.rightTuples = new List[rows];
+    	for (int i = 0; i < rows; i++) {
+    		this.rightTuples[i] = Arrays.asList(i%5);
+    	}
+    	this.leftTuples = new List[] {Arrays.asList(1), Arrays.asList(4), Arrays.asList(7)};
+    	helpCreateJoin();
+    	this.joinStrategy = new HashJoinStrategy();
+    	this.join.setJoinStrategy(joinStrategy);
+    	helpTestUnorderedJoin(new List[] {
+    		Arrays.asList(1, 1),
+    		Arrays.asList(1, 1),
+    		Arrays.asList(1, 1),
+    		Arrays.asList(1, 1),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(4, 4),
+    		Arrays.asList(4, 4),
+    	}, 6, 100000, new Options().adaptiveJoin(true));
+    }
+    
+    private void helpTestUnorderedJoin(List[] expectedResults, int batchSize, int processingBytes) throws TeiidComponentException, TeiidProcessingException {
+    	helpTestUnorderedJoin(expectedResults, batchSize, processingBytes, new Options());
+    }
+    
+    private void helpTestUnorderedJoin(List[] expectedResults, int batchSize, int processingBytes, Options options) throws TeiidComponentException, TeiidProcessingException {
+        BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(processingBytes, batchSize);
+        mgr.setTargetBytesPerRow(100);
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        context.setOptions(options);
+        
+        join.addChild(leftNode);
+        join.addChild(rightNode);
+        
+        leftNode.initialize(context, mgr, dataMgr);
+        rightNode.initialize(context, mgr, dataMgr);
+        join.initialize(context, mgr, dataMgr);
+        
+        join.open();
+        
+        List<String> actual = new ArrayList<String>();
+        while(true) {
+            try {
+                TupleBatch batch = join.nextBatch();
+                for (List<?> tuple : batch.getTuples()) {
+                	actual.add(tuple.toString());
+                }
+                if(batch.getTerminationFlag()) {
+                    break;
+                }
+            } catch(BlockedException e) {
+                // ignore and retry
+            }
+        }
+        join.close();
+        List<String> expectedStrings = new ArrayList<String>();
+        for (List<?> tuple : expectedResults) {
+        	expectedStrings.add(tuple.toString());
+        }
+        Collections.sort(actual);
+        Collections.sort(expectedStrings);
+        assertEquals(expectedStrings, actual);
+    }
 
 }
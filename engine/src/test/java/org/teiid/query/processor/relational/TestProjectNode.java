@@ -48,6 +48,7 @@ import org.teiid.query.sql.symbol.ExpressionSymbol;
 import org.teiid.query.sql.symbol.Function;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 
 /**
@@ -62,9 +63,13 @@ public class TestProjectNode extends TestCase {
         super(arg0);
     }
     
+    private boolean compileExpressions;
+    private boolean vectorizedEvaluation;
+    
     public ProjectNode helpSetupProject(List elements, List[] data, List childElements, ProcessorDataManager dataMgr) throws TeiidComponentException {
         BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
         CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        context.setOptions(new Options().compileExpressions(compileExpressions).vectorizedEvaluation(vectorizedEvaluation));
         
         FakeRelationalNode dataNode = new FakeRelationalNode(2, data);
         dataNode.setElements(childElements);
@@ -252,6 +257,26 @@ public class TestProjectNode extends TestCase {
         helpTestProjectFails(projectElements, data, elements, expectedMessage);        
     }
     
+    public void testProjectExpressionCompiled() throws Exception {
+    	compileExpressions = true;
+    	testProjectExpression();
+    }
+    
+    public void testProjectExpressionFunctionFailsCompiled() throws Exception {
+    	compileExpressions = true;
+    	testProjectExpressionFunctionFails();
+    }
+    
+    public void testProjectExpressionVectorized() throws Exception {
+    	vectorizedEvaluation = true;
+    	testProjectExpression();
+    }
+    
+    public void testProjectExpressionFunctionFailsVectorized() throws Exception {
+    	vectorizedEvaluation = true;
+    	testProjectExpressionFunctionFails();
+    }
+    
     public void testProjectWithLookupFunction() throws Exception {
         ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
         es1.setType(DataTypeManager.DefaultDataClasses.STRING);       
@@ -46,16 +46,21 @@ import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.QueryProcessor;
 import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
 import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.Function;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 @SuppressWarnings("unchecked")
 public class TestSelectNode {
+	
+	private Options options;
 
     public void helpTestSelect(List elements, Criteria criteria, List[] data, List childElements, ProcessorDataManager dataMgr, List[] expected) throws TeiidComponentException, TeiidProcessingException {
     	helpTestSelect(elements, criteria, childElements, dataMgr, expected, new FakeRelationalNode(2, data));
@@ -73,6 +78,9 @@ public class TestSelectNode {
 			TeiidProcessingException {
 		BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
         CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        if (options != null) {
+        	context.setOptions(options);
+        }
         
         child.setElements(childElements);
         child.initialize(context, mgr, dataMgr);
@@ -233,6 +241,47 @@ public class TestSelectNode {
 
     }
 
+    @Test public void testSimpleSelectVectorized() throws TeiidComponentException, TeiidProcessingException {
+    	options = new Options().vectorizedEvaluation(true);
+    	testSimpleSelect();
+    }
+    
+    @Test public void testVectorizedDisjunction() throws TeiidComponentException, TeiidProcessingException {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.STRING);
+        
+        List elements = new ArrayList();
+        elements.add(es1);
+        
+        //e1 < 3 or (e2 is null and e1 > 15)
+        Criteria crit = new CompoundCriteria(CompoundCriteria.OR, new CompareCriteria(es1, CompareCriteria.LT, new Constant(3)), 
+        		new CompoundCriteria(CompoundCriteria.AND, new IsNullCriteria(es2), new CompareCriteria(es1, CompareCriteria.GT, new Constant(15))));
+        
+        List[] data = new List[20];
+        for(int i=0; i<20; i++) { 
+            data[i] = Arrays.asList(i, i%2==0?null:String.valueOf(i));
+        }
+        data[1] = Arrays.asList(null, null);
+        
+        List childElements = new ArrayList();
+        childElements.add(es1);
+        childElements.add(es2);
+
+        List[] expected = new List[] {
+            Arrays.asList(0),            
+            Arrays.asList(2),
+            Arrays.asList(16),
+            Arrays.asList(18),
+        };
+        
+        helpTestSelect(elements, crit, data, childElements, null, expected);
+        options = new Options().vectorizedEvaluation(true);
+        helpTestSelect(elements, crit, data, childElements, null, expected);
+    }
+
     @Test public void testSelectWithLookup() throws TeiidComponentException, TeiidProcessingException {
         ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
         es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
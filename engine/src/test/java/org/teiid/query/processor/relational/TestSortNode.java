@@ -28,6 +28,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BlockedException;
@@ -41,11 +43,14 @@ import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.ExecutorUtils;
 import org.teiid.language.SortSpecification.NullOrdering;
+import org.teiid.query.processor.CollectionTupleSource;
 import org.teiid.query.processor.relational.SortUtility.Mode;
 import org.teiid.query.sql.lang.OrderBy;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 @SuppressWarnings("rawtypes")
 public class TestSortNode {
@@ -53,6 +58,10 @@ public class TestSortNode {
     public static final int BATCH_SIZE = 100;
     
     private void helpTestSort(List elements, List[] data, List sortElements, List sortTypes, List[] expected, Mode mode) throws TeiidComponentException, TeiidProcessingException {
+    	helpTestSort(elements, data, sortElements, sortTypes, expected, mode, -1);
+    }
+    
+    private void helpTestSort(List elements, List[] data, List sortElements, List sortTypes, List[] expected, Mode mode, int rowLimit) throws TeiidComponentException, TeiidProcessingException {
         BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(10000, BATCH_SIZE);
         long reserve = mgr.getReserveBatchBytes();
         CommandContext context = new CommandContext ("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
@@ -68,6 +77,7 @@ public class TestSortNode {
         sortNode.setElements(elements);
         sortNode.addChild(dataNode);        
         sortNode.initialize(context, mgr, null);    
+        sortNode.setRowLimit(rowLimit);
         
         sortNode.open();
         
@@ -96,6 +106,10 @@ public class TestSortNode {
      * 1 batch all in memory
      */
     private void helpTestBasicSort(List[] expected, Mode mode) throws Exception {
+    	helpTestBasicSort(expected, mode, -1);
+    }
+    
+    private void helpTestBasicSort(List[] expected, Mode mode, int rowLimit) throws Exception {
         ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
         es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
 
@@ -122,7 +136,7 @@ public class TestSortNode {
         List sortTypes = new ArrayList();
         sortTypes.add(new Boolean(OrderBy.ASC));
         
-        helpTestSort(elements, data, sortElements, sortTypes, expected, mode);
+        helpTestSort(elements, data, sortElements, sortTypes, expected, mode, rowLimit);
     }
     
     private void helpTestAllSorts(int batches) throws Exception {
@@ -286,10 +300,108 @@ public class TestSortNode {
         helpTestBasicSort(expected, Mode.DUP_REMOVE_SORT);
     }   
     
+    /**
+     * The top n should match the stable sort
+     */
+    @Test public void testTopN() throws Exception {
+        List[] expected = new List[] { 
+            Arrays.asList(new Object[] { new Integer(0), "0" }),    //$NON-NLS-1$
+            Arrays.asList(new Object[] { new Integer(0), "3" }),    //$NON-NLS-1$
+            Arrays.asList(new Object[] { new Integer(1), "2" }),    //$NON-NLS-1$
+            Arrays.asList(new Object[] { new Integer(1), "5" }),    //$NON-NLS-1$
+            Arrays.asList(new Object[] { new Integer(2), "1" }),    //$NON-NLS-1$
+        };
+        
+        helpTestBasicSort(expected, Mode.SORT, 5);
+    }
+    
+    @Test public void testTopNMultipleBatches() throws Exception {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        List elements = Arrays.asList(es1, es2);
+        
+        int rows = 10 * BATCH_SIZE;
+        List<Integer>[] data = new List[rows];
+        for(int i=0; i<rows; i++) { 
+            data[i] = Arrays.asList((i*51) % 11, i);
+        }
+        List<Integer>[] sorted = Arrays.copyOf(data, rows);
+        Arrays.sort(sorted, new ListNestedSortComparator<Integer>(new int[] {0, 1}, OrderBy.DESC));
+        List[] expected = Arrays.copyOf(sorted, 50);
+        
+        helpTestSort(elements, data, elements, Arrays.asList(OrderBy.DESC, OrderBy.DESC), expected, Mode.SORT, 50);
+    }
+    
     @Test public void testBiggerSort() throws Exception {
         helpTestAllSorts(100);
     }
  
+    @Test public void testParallelSort() throws Exception {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        List<ElementSymbol> elements = Arrays.asList(es1);
+        
+        int rows = 200 * BATCH_SIZE;
+        List<Integer>[] data = new List[rows];
+        TreeSet<Integer> distinct = new TreeSet<Integer>();
+        for(int i=0; i<rows; i++) { 
+            data[i] = Arrays.asList((i*51) % 1009);
+            distinct.add(data[i].get(0));
+        }
+        List<Integer>[] expected = Arrays.copyOf(data, rows);
+        Arrays.sort(expected, new ListNestedSortComparator<Integer>(new int[] {0}, OrderBy.ASC));
+        
+        ExecutorService executor = ExecutorUtils.newFixedThreadPool(2, "Sort Test"); //$NON-NLS-1$
+        try {
+	        for (Mode mode : new Mode[] {Mode.SORT, Mode.DUP_REMOVE_SORT}) {
+	        	for (boolean asynch : new boolean[] {false, true}) {
+	        		helpTestParallelSort(elements, data, distinct, expected, mode, asynch?executor:null);
+	        	}
+	        }
+        } finally {
+        	executor.shutdownNow();
+        }
+    }
+
+	private void helpTestParallelSort(List<ElementSymbol> elements, List<Integer>[] data, TreeSet<Integer> distinct, 
+			List<Integer>[] expected, Mode mode, Executor executor) throws TeiidComponentException, TeiidProcessingException, InterruptedException {
+		BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(400000, BATCH_SIZE);
+		long reserve = mgr.getReserveBatchBytes();
+		SortUtility su = new SortUtility(new CollectionTupleSource(Arrays.asList(data).iterator()), elements, Arrays.asList(OrderBy.ASC), mode, mgr, "test", elements); //$NON-NLS-1$
+		if (executor == null) {
+			su.setParallelism(4);
+		} else {
+			CommandContext cc = new CommandContext();
+			cc.setOptions(new Options().sortParallelism(4));
+			cc.setExecutor(executor);
+			su.setCommandContext(cc);
+		}
+		TupleBuffer tb = null;
+		while (tb == null) {
+			try {
+				tb = su.sort();
+			} catch (BlockedException e) {
+				//waiting on the sort tasks
+				Thread.sleep(1);
+			}
+		}
+		TupleSource ts = tb.createIndexedTupleSource();
+		if (mode == Mode.SORT) {
+			for (List<Integer> tuple : expected) {
+				assertEquals(tuple, ts.nextTuple());
+			}
+		} else {
+			for (Integer value : distinct) {
+				assertEquals(Arrays.asList(value), ts.nextTuple());
+			}
+		}
+		assertNull(ts.nextTuple());
+		tb.remove();
+		assertEquals(reserve, mgr.getReserveBatchBytes());
+	}
+    
     @Test public void testAllSort() throws Exception {
         helpTestAllSorts(1);
     }       
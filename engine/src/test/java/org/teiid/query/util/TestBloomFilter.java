@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class TestBloomFilter {
+	
+	@Test public void testNoFalseNegatives() {
+		BloomFilter filter = new BloomFilter(10000, .01);
+		for (int i = 0; i < 10000; i++) {
+			filter.add(i);
+			filter.add("v" + i);
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(filter.mightContain(i));
+			assertTrue(filter.mightContain("v" + i));
+		}
+	}
+	
+	@Test public void testFalsePositiveRate() {
+		BloomFilter filter = new BloomFilter(10000, .01);
+		for (int i = 0; i < 10000; i++) {
+			filter.add(i);
+		}
+		int falsePositives = 0;
+		for (int i = 10000; i < 110000; i++) {
+			if (filter.mightContain(i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(String.valueOf(falsePositives), falsePositives < 2000);
+	}
+	
+	@Test public void testSizing() {
+		BloomFilter filter = new BloomFilter(200000, .01);
+		assertEquals(1917012, filter.getNumBits());
+		assertEquals(7, filter.getNumHashes());
+		
+		filter = new BloomFilter(0, .01);
+		assertEquals(64, filter.getNumBits());
+		assertFalse(filter.mightContain(1));
+	}
+	
+	@Test public void testMaxSize() {
+		BloomFilter filter = new BloomFilter(200000, .01, 1 << 16);
+		assertEquals(1 << 16, filter.getNumBits());
+		assertEquals(1 << 13, filter.getSizeInBytes());
+		for (int i = 0; i < 1000; i++) {
+			filter.add(i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(filter.mightContain(i));
+		}
+	}
+
+}
@@ -37,6 +37,7 @@ import org.jgroups.Channel;
 import org.jgroups.ChannelListener;
 import org.jgroups.JChannel;
 import org.teiid.cache.CacheFactory;
+import org.teiid.cache.LocalCacheFactory;
 import org.teiid.cache.infinispan.InfinispanCacheFactory;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.dqp.internal.process.DQPConfiguration;
@@ -180,12 +181,21 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 		return infinispanConfigFile;
 	}
 	
+	/**
+	 * Set the infinispan configuration used to create the default {@link CacheFactory}.
+	 * If null, a {@link LocalCacheFactory} will be used instead.
+	 * @param infinispanConfigFile
+	 */
 	public void setInfinispanConfigFile(String infinispanConfigFile) {
 		this.infinispanConfigFile = infinispanConfigFile;
 	}
 	
 	public CacheFactory getCacheFactory() {
 		if (this.cacheFactory == null) {
+			if (this.infinispanConfigFile == null) {
+				this.cacheFactory = new LocalCacheFactory();
+				return this.cacheFactory;
+			}
 			try {
 				manager = new DefaultCacheManager(this.infinispanConfigFile, true);
 				for(String cacheName:manager.getCacheNames()) {
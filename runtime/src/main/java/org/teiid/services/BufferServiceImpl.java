@@ -25,14 +25,22 @@ package org.teiid.services;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.teiid.adminapi.AdminProcessingException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.MemoryQuotas;
+import org.teiid.common.buffer.MemoryQuotas.Scope;
 import org.teiid.common.buffer.StorageManager;
 import org.teiid.common.buffer.TupleBufferCache;
 import org.teiid.common.buffer.impl.BufferFrontedFileStoreCache;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.common.buffer.impl.EncryptedStorageManager;
 import org.teiid.common.buffer.impl.FileStorageManager;
+import org.teiid.common.buffer.impl.LZBlockCodec;
+import org.teiid.common.buffer.impl.MemoryMappedStorageManager;
 import org.teiid.common.buffer.impl.MemoryStorageManager;
 import org.teiid.common.buffer.impl.SplittableStorageManager;
 import org.teiid.core.TeiidComponentException;
@@ -66,6 +74,14 @@ public class BufferServiceImpl implements BufferService, Serializable {
     private int maxReserveKb = BufferManager.DEFAULT_RESERVE_BUFFER_KB;
     private long maxBufferSpace = FileStorageManager.DEFAULT_MAX_BUFFERSPACE>>20;
     private boolean inlineLobs = true;
+    private boolean columnarBatches;
+    private boolean spillCompression;
+    private boolean memoryMappedStorage;
+    private int memoryMappedWindowSize = MemoryMappedStorageManager.DEFAULT_WINDOW_SIZE>>20;
+    private int readAheadBatches;
+    private int sessionMemoryQuotaKb = -1;
+    private int userMemoryQuotaKb = -1;
+    private int vdbMemoryQuotaKb = -1;
     private long memoryBufferSpace = -1;
     private int maxStorageObjectSize = BufferFrontedFileStoreCache.DEFAuLT_MAX_OBJECT_SIZE;
     private boolean memoryBufferOffHeap;
@@ -90,7 +106,13 @@ public class BufferServiceImpl implements BufferService, Serializable {
             this.bufferMgr.setMaxReserveKB(this.maxReserveKb);
             this.bufferMgr.setMaxProcessingKB(this.maxProcessingKb);
             this.bufferMgr.setInlineLobs(inlineLobs);
+            this.bufferMgr.setColumnarBatches(columnarBatches);
+            this.bufferMgr.setSortedColumnEncoding(spillCompression);
             this.bufferMgr.initialize();
+            MemoryQuotas quotas = this.bufferMgr.getMemoryQuotas();
+            quotas.setQuota(Scope.SESSION, sessionMemoryQuotaKb<0?-1:((long)sessionMemoryQuotaKb)<<10);
+            quotas.setQuota(Scope.USER, userMemoryQuotaKb<0?-1:((long)userMemoryQuotaKb)<<10);
+            quotas.setQuota(Scope.VDB, vdbMemoryQuotaKb<0?-1:((long)vdbMemoryQuotaKb)<<10);
             
             // If necessary, add disk storage manager
             if(useDisk) {
@@ -102,7 +124,13 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 // wise FileStorageManager is smart enough to clean up after itself
                 cleanDirectory(bufferDir);
                 // Get the properties for FileStorageManager and create.
-                fsm = new FileStorageManager();
+                if (memoryMappedStorage) {
+                	MemoryMappedStorageManager mmsm = new MemoryMappedStorageManager();
+                	mmsm.setWindowSize(memoryMappedWindowSize<<20);
+                	fsm = mmsm;
+                } else {
+                	fsm = new FileStorageManager();
+                }
                 fsm.setStorageDirectory(bufferDir.getCanonicalPath());
                 fsm.setMaxOpenFiles(maxOpenFiles);
                 fsm.setMaxBufferSpace(maxBufferSpace*MB);
@@ -116,6 +144,9 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 fsc.setBufferManager(this.bufferMgr);
                 fsc.setMaxStorageObjectSize(maxStorageObjectSize);
                 fsc.setDirect(memoryBufferOffHeap);
+                if (spillCompression) {
+                	fsc.setBlockCodec(new LZBlockCodec());
+                }
                 int batchOverheadKB = (int)(this.memoryBufferSpace<0?(this.bufferMgr.getMaxReserveKB()<<8):this.memoryBufferSpace)>>20;
         		this.bufferMgr.setMaxReserveKB(Math.max(0, this.bufferMgr.getMaxReserveKB() - batchOverheadKB));
                 if (memoryBufferSpace < 0) {
@@ -132,6 +163,8 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 fsc.setStorageManager(sm);
                 fsc.initialize();
                 this.bufferMgr.setCache(fsc);
+                this.bufferMgr.setReadAheadExecutor(fsc.getExecutor());
+                this.bufferMgr.setReadAheadBatches(readAheadBatches);
                 this.workingMaxReserveKb = this.bufferMgr.getMaxReserveKB();
             } else {
             	this.bufferMgr.setCache(new MemoryStorageManager());
@@ -191,6 +224,109 @@ public class BufferServiceImpl implements BufferService, Serializable {
 	public boolean isInlineLobs() {
 		return inlineLobs;
 	}
+	
+	public void setColumnarBatches(boolean columnarBatches) {
+		this.columnarBatches = columnarBatches;
+	}
+	
+	public boolean isColumnarBatches() {
+		return columnarBatches;
+	}
+	
+	public void setSpillCompression(boolean spillCompression) {
+		this.spillCompression = spillCompression;
+	}
+	
+	public boolean isSpillCompression() {
+		return spillCompression;
+	}
+	
+	public void setMemoryMappedStorage(boolean memoryMappedStorage) {
+		this.memoryMappedStorage = memoryMappedStorage;
+	}
+	
+	public boolean isMemoryMappedStorage() {
+		return memoryMappedStorage;
+	}
+	
+	/**
+	 * Set the memory mapping window size in MB
+	 */
+	public void setMemoryMappedWindowSize(int memoryMappedWindowSize) {
+		this.memoryMappedWindowSize = memoryMappedWindowSize;
+	}
+	
+	public int getMemoryMappedWindowSize() {
+		return memoryMappedWindowSize;
+	}
+	
+	/**
+	 * Set the number of spilled batches to read ahead for forward scans
+	 */
+	public void setReadAheadBatches(int readAheadBatches) {
+		this.readAheadBatches = readAheadBatches;
+	}
+	
+	public int getReadAheadBatches() {
+		return readAheadBatches;
+	}
+	
+	/**
+	 * Set the max KB of processing memory that may be reserved for a session, -1 for no limit
+	 */
+	public void setSessionMemoryQuotaKb(int sessionMemoryQuotaKb) {
+		this.sessionMemoryQuotaKb = sessionMemoryQuotaKb;
+	}
+	
+	public int getSessionMemoryQuotaKb() {
+		return sessionMemoryQuotaKb;
+	}
+	
+	/**
+	 * Set the max KB of processing memory that may be reserved for a user, -1 for no limit
+	 */
+	public void setUserMemoryQuotaKb(int userMemoryQuotaKb) {
+		this.userMemoryQuotaKb = userMemoryQuotaKb;
+	}
+	
+	public int getUserMemoryQuotaKb() {
+		return userMemoryQuotaKb;
+	}
+	
+	/**
+	 * Set the max KB of processing memory that may be reserved for a vdb, -1 for no limit
+	 */
+	public void setVdbMemoryQuotaKb(int vdbMemoryQuotaKb) {
+		this.vdbMemoryQuotaKb = vdbMemoryQuotaKb;
+	}
+	
+	public int getVdbMemoryQuotaKb() {
+		return vdbMemoryQuotaKb;
+	}
+	
+	/**
+	 * Get the KB of processing memory currently reserved by each session, user, or vdb
+	 * @param scope one of SESSION, USER, or VDB
+	 * @throws AdminProcessingException if the scope is not valid
+	 */
+	public Map<String, Long> getReservedKb(String scope) throws AdminProcessingException {
+		Scope quotaScope = null;
+		if (scope != null) {
+			try {
+				quotaScope = Scope.valueOf(scope.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				//handled below
+			}
+		}
+		if (quotaScope == null) {
+			throw new AdminProcessingException(RuntimePlugin.Event.TEIID40113, RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40113, scope, Arrays.toString(Scope.values())));
+		}
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (Map.Entry<String, Long> entry : this.bufferMgr.getMemoryQuotas().getReserved(quotaScope).entrySet()) {
+			result.put(entry.getKey(), entry.getValue()>>10);
+		}
+		return result;
+	}
 
 	public int getProcessorBatchSize() {
 		return this.processorBatchSize;
@@ -273,6 +409,20 @@ public class BufferServiceImpl implements BufferService, Serializable {
     	return 0;
     }
     
+    public double getSpillCompressionRatio() {
+    	if (fsc != null) {
+    		return fsc.getCompressionRatio();
+    	}
+    	return 1;
+    }
+    
+    public long getSpillCompressionTimeMs() {
+    	if (fsc != null) {
+    		return fsc.getCompressionTime() + fsc.getDecompressionTime();
+    	}
+    	return 0;
+    }
+    
     public long getMemoryBufferUsedKB() {
     	if (fsc != null) {
     		return fsc.getMemoryInUseBytes() >> 10;
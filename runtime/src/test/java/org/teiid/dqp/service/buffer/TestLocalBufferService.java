@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
+import org.teiid.adminapi.AdminProcessingException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
@@ -165,4 +166,27 @@ public class TestLocalBufferService {
 		}
 		svc2.stop();
     }
+    
+    @Test
+    public void testReservedKbScope() throws Exception {
+    	BufferServiceImpl svc = new BufferServiceImpl();
+        svc.setDiskDirectory(UnitTestUtil.getTestScratchPath()+"/teiid/1");
+        svc.setUseDisk(false);
+        svc.start();
+        
+        assertNotNull(svc.getReservedKb("session")); //$NON-NLS-1$
+        try {
+        	svc.getReservedKb("x"); //$NON-NLS-1$
+        	fail();
+        } catch (AdminProcessingException e) {
+        	//expected
+        }
+        try {
+        	svc.getReservedKb(null);
+        	fail();
+        } catch (AdminProcessingException e) {
+        	//expected
+        }
+        svc.stop();
+    }
 }
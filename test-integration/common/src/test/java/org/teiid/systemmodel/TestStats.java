@@ -27,12 +27,22 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.teiid.adminapi.impl.ModelMetaData;
 import org.teiid.core.util.UnitTestUtil;
 import org.teiid.jdbc.FakeServer;
+import org.teiid.jdbc.HardCodedExecutionFactory;
+import org.teiid.language.ColumnReference;
+import org.teiid.language.DerivedColumn;
+import org.teiid.language.Literal;
+import org.teiid.language.QueryExpression;
+import org.teiid.language.Select;
 
 @SuppressWarnings("nls")
 public class TestStats {
@@ -88,4 +98,70 @@ public class TestStats {
     	Statement s = connection.createStatement();
     	s.execute("call setColumnStats(tableName=>'partssupplier.partssupplier.parts', columnName=>'foo', max=>32, nullcount=>0)");
     }
+    
+    @Test public void testAnalyzeTable() throws Exception {
+    	final List<List<?>> rows = new ArrayList<List<?>>();
+    	for (int i = 0; i < 100; i++) {
+    		rows.add(Arrays.asList(i, i%5==0?null:"v" + i%10));
+    	}
+    	HardCodedExecutionFactory hcef = new HardCodedExecutionFactory() {
+    		@Override
+    		protected List<? extends List<?>> getData(QueryExpression command) {
+    			List<DerivedColumn> columns = ((Select)command).getDerivedColumns();
+    			List<List<?>> result = new ArrayList<List<?>>();
+    			for (List<?> row : rows) {
+    				List<Object> projected = new ArrayList<Object>();
+    				for (DerivedColumn dc : columns) {
+    					if (dc.getExpression() instanceof ColumnReference) {
+    						projected.add(row.get(((ColumnReference)dc.getExpression()).getName().equals("x")?0:1));
+    					} else {
+    						projected.add(((Literal)dc.getExpression()).getValue());
+    					}
+    				}
+    				result.add(projected);
+    			}
+    			return result;
+    		}
+    	};
+    	server.addTranslator("analyze", hcef);
+    	ModelMetaData mmd = new ModelMetaData();
+    	mmd.setName("m");
+    	mmd.setSchemaSourceType("DDL");
+    	mmd.setSchemaText("CREATE FOREIGN TABLE t (x integer, y string)");
+    	mmd.addSourceMapping("analyze", "analyze", null);
+    	server.deployVDB("analyze", mmd);
+    	Connection c = server.createConnection("jdbc:teiid:analyze");
+    	try {
+	    	Statement s = c.createStatement();
+	    	ResultSet rs = s.executeQuery("exec SYSADMIN.analyzeTable('m', 't', 1000, 4)");
+	    	rs.next();
+	    	assertEquals(2, rs.getInt(1));
+	    	
+	    	rs = s.executeQuery("select cardinality from SYS.Tables where name = 't'");
+	    	rs.next();
+	    	assertEquals(100, rs.getInt(1));
+	    	
+	    	rs = s.executeQuery("select MinRange, MaxRange, DistinctCount, NullCount from SYS.Columns where TableName = 't' order by Name");
+	    	rs.next();
+	    	assertEquals("0", rs.getString(1));
+	    	assertEquals("99", rs.getString(2));
+	    	assertEquals(100, rs.getInt(3));
+	    	assertEquals(0, rs.getInt(4));
+	    	rs.next();
+	    	assertEquals("v1", rs.getString(1));
+	    	assertEquals("v9", rs.getString(2));
+	    	assertEquals(8, rs.getInt(3));
+	    	assertEquals(20, rs.getInt(4));
+	    	
+	    	//a sample of 10 should take every 10th value, spanning the whole range, with buckets of 2 or 3 values
+	    	rs = s.executeQuery("exec SYSADMIN.analyzeTable('m', 't', 10, 4)");
+	    	rs.next();
+	    	assertEquals(2, rs.getInt(1));
+	    	rs = s.executeQuery("select p.\"Value\" from SYS.Properties p, SYS.Columns c where p.UID = c.UID and c.TableName = 't' and c.Name = 'x' and p.Name = '{http://www.teiid.org/ext/relational/2012}HISTOGRAM'");
+	    	rs.next();
+	    	assertEquals("9,29,49,79,99", rs.getString(1));
+    	} finally {
+    		c.close();
+    	}
+    }
 }